@@ -0,0 +1,82 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.service.IexecCliService;
+import com.blockchain.iExec.service.IexecCliService.IexecTaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * iExec CLI 输出解析：task show --raw 的 JSON 与各正则提取器
+ * 监控周期对每个运行中任务解析一次 task show 输出，是任务数增长时首先放大的路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CliParsingBenchmark {
+
+    private static final String TASK_ID = "0x8f7e6d5c4b3a2f1e0d9c8b7a6f5e4d3c2b1a0f9e8d7c6b5a4f3e2d1c0b9a8f7e";
+
+    private String taskShow;
+    private String orderFill;
+    private String orderbook;
+    private String appDeploy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        taskShow = Fixtures.read("iexec-task-show-raw.json");
+        orderFill = Fixtures.read("iexec-order-fill.txt");
+        orderbook = Fixtures.read("iexec-orderbook-workerpool.txt");
+        appDeploy = Fixtures.read("iexec-app-deploy.txt");
+
+        // 确认样本能被正确解析，避免测到走错分支的路径
+        IexecTaskStatus status = IexecCliService.parseTaskStatus(TASK_ID, taskShow);
+        if (!status.isCompleted() || status.getResultLocation().isEmpty()) {
+            throw new IllegalStateException("task show fixture did not parse as COMPLETED");
+        }
+        if (IexecCliService.extractDealId(orderFill) == null || IexecCliService.extractOrderHashes(orderbook).size() != 20
+                || IexecCliService.extractAddress(appDeploy, "app deployed") == null) {
+            throw new IllegalStateException("CLI fixtures did not match the extractors");
+        }
+    }
+
+    @Benchmark
+    public IexecTaskStatus parseTaskStatus() throws IOException {
+        return IexecCliService.parseTaskStatus(TASK_ID, taskShow);
+    }
+
+    @Benchmark
+    public String extractDealId() {
+        return IexecCliService.extractDealId(orderFill);
+    }
+
+    @Benchmark
+    public String extractFirstOrderHash() {
+        return IexecCliService.extractOrderHash(orderbook);
+    }
+
+    @Benchmark
+    public List<String> extractOrderHashes() {
+        return IexecCliService.extractOrderHashes(orderbook);
+    }
+
+    @Benchmark
+    public String extractAddress() {
+        return IexecCliService.extractAddress(appDeploy, "app deployed");
+    }
+}
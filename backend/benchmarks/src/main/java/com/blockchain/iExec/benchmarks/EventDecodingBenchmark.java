@@ -0,0 +1,74 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.listener.TaskCreatedListener;
+import com.blockchain.iExec.model.TaskEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskCreated 事件日志解码（listener 每次轮询对每条日志执行一次）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDecodingBenchmark {
+
+    private static final Event TASK_CREATED_EVENT = new Event("TaskCreated", Arrays.asList(
+        new TypeReference<Uint256>(true) {},
+        new TypeReference<Uint256>(true) {},
+        new TypeReference<Address>(true) {},
+        new TypeReference<Uint256>() {},
+        new TypeReference<Uint256>() {}
+    ));
+
+    private Log log;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BigInteger amount = Convert.toWei(new BigDecimal("0.25"), Convert.Unit.ETHER).toBigInteger();
+        log = new Log();
+        log.setTopics(List.of(
+            EventEncoder.encode(TASK_CREATED_EVENT),
+            Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(123_456), 64),
+            Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(7), 64),
+            Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt("0x7a3b2c1d0e9f8a7b6c5d4e3f2a1b0c9d8e7f6a5b"), 64)));
+        log.setData("0x" + TypeEncoder.encode(new Uint256(amount)) + TypeEncoder.encode(new Uint256(1_760_857_932L)));
+
+        TaskEntity task = TaskCreatedListener.decodeTaskCreated(log);
+        if (task.getCostAmount() == null || task.getChainEventAt() == null) {
+            throw new IllegalStateException("TaskCreated fixture did not decode");
+        }
+    }
+
+    @Benchmark
+    public TaskEntity decodeTaskCreated() {
+        return TaskCreatedListener.decodeTaskCreated(log);
+    }
+}
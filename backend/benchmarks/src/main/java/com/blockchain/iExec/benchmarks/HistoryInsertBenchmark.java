@@ -0,0 +1,120 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.AddressConverter;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.Bytes32Converter;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.model.TaskStatusConverter;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 历史记录写入：一个事务内插入 10000 条 TaskHistoryEntity，结果为行/秒
+ * 直接用 Hibernate 引导实体映射并连接内存 H2，与 saveAll 走同一条 persist 路径；batchSize=0 关闭 JDBC 批量。
+ * ID 生成策略取自被测构件的实体注解，对比不同策略时分别针对修改前后的后端构件运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HistoryInsertBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int USERS = 1_000;
+
+    @Param({"0", "50"})
+    public int batchSize;
+
+    private SessionFactory sessionFactory;
+    private Bytes32[] taskIds;
+    private Address[] users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:history-bench;DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .applySetting(AvailableSettings.JAKARTA_JDBC_PASSWORD, "")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize)
+                .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                .build())
+            .addAnnotatedClass(TaskHistoryEntity.class)
+            .addAnnotatedClass(Bytes32Converter.class)
+            .addAnnotatedClass(AddressConverter.class)
+            .addAnnotatedClass(TaskStatusConverter.class)
+            .buildMetadata()
+            .buildSessionFactory();
+
+        taskIds = new Bytes32[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            taskIds[i] = Bytes32.of(String.format("%064x", i + 1));
+        }
+        users = new Address[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = Address.of(String.format("%040x", i + 1));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> session.createMutationQuery("DELETE FROM TaskHistoryEntity").executeUpdate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long insertHistory() {
+        LocalDateTime now = LocalDateTime.now();
+        return sessionFactory.fromTransaction(session -> {
+            long lastId = 0;
+            for (int i = 0; i < ROWS; i++) {
+                TaskHistoryEntity history = history(i, now);
+                session.persist(history);
+                lastId = history.getId();
+            }
+            return lastId;
+        });
+    }
+
+    private TaskHistoryEntity history(int index, LocalDateTime now) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(taskIds[index]);
+        history.setIexecTaskId(taskIds[ROWS - 1 - index]);
+        history.setServiceId(String.valueOf(index % 20));
+        history.setUserAddress(users[index % USERS]);
+        history.setStatus(index % 10 == 0 ? TaskStatus.FAILED : TaskStatus.COMPLETED);
+        history.setActualTime(600L + index % 600);
+        history.setCostAmount(0.5);
+        history.setCreatedAt(now.minusSeconds(history.getActualTime()));
+        history.setCompletedAt(now);
+        return history;
+    }
+}
@@ -0,0 +1,136 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.repository.ReputationRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository.CompletionRecord;
+import com.blockchain.iExec.repository.TaskHistoryRepository.UserOutcomeCount;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 基准测试用的内存仓库：按方法名分派到 Map 中的数据，只实现被测路径用到的查询，
+ * 其余方法抛出 UnsupportedOperationException，避免被测代码悄悄走到未模拟的查询
+ */
+public final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    /**
+     * 已完成任务记录（按服务、完成顺序）与用户历史统计
+     */
+    public static TaskHistoryRepository taskHistory(Map<String, List<CompletionRecord>> records,
+                                                    Map<Address, long[]> outcomes) {
+        Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+        handlers.put("findCompletionRecords", args -> {
+            if (args == null || args.length == 0) {
+                List<CompletionRecord> all = new ArrayList<>();
+                records.values().forEach(all::addAll);
+                return all;
+            }
+            return records.getOrDefault((String) args[0], List.of());
+        });
+        handlers.put("countOutcomesByUserAddress", args -> {
+            List<UserOutcomeCount> counts = new ArrayList<>();
+            for (Object address : (Collection<?>) args[0]) {
+                long[] outcome = outcomes.get((Address) address);
+                if (outcome != null) {
+                    counts.add(new OutcomeCount((Address) address, outcome[0], outcome[1]));
+                }
+            }
+            return counts;
+        });
+        return proxy(TaskHistoryRepository.class, handlers);
+    }
+
+    /**
+     * 按地址保存的信誉记录
+     */
+    public static ReputationRepository reputation(Map<Address, ReputationEntity> reputations) {
+        Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+        handlers.put("findByAddress", args -> reputations.get((Address) args[0]));
+        handlers.put("findByAddressIn", args -> {
+            List<ReputationEntity> found = new ArrayList<>();
+            for (Object address : (Collection<?>) args[0]) {
+                ReputationEntity reputation = reputations.get((Address) address);
+                if (reputation != null) {
+                    found.add(reputation);
+                }
+            }
+            return found;
+        });
+        handlers.put("findAll", args -> new ArrayList<>(reputations.values()));
+        handlers.put("save", args -> {
+            ReputationEntity reputation = (ReputationEntity) args[0];
+            reputations.put(reputation.getAddress(), reputation);
+            return reputation;
+        });
+        handlers.put("saveAll", args -> {
+            List<ReputationEntity> saved = new ArrayList<>();
+            for (Object entity : (Iterable<?>) args[0]) {
+                ReputationEntity reputation = (ReputationEntity) entity;
+                reputations.put(reputation.getAddress(), reputation);
+                saved.add(reputation);
+            }
+            return saved;
+        });
+        return proxy(ReputationRepository.class, handlers);
+    }
+
+    /**
+     * 给 @Autowired / @Value 字段赋值（被测服务均为字段注入）
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> self == args[0];
+                    case "hashCode" -> System.identityHashCode(self);
+                    default -> "InMemory" + type.getSimpleName();
+                };
+            }
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return handler.apply(args);
+        });
+        return type.cast(proxy);
+    }
+
+    private record OutcomeCount(Address userAddress, long total, long completed) implements UserOutcomeCount {
+        @Override
+        public Address getUserAddress() {
+            return userAddress;
+        }
+
+        @Override
+        public long getTotal() {
+            return total;
+        }
+
+        @Override
+        public long getCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.service.ReputationService;
+import com.blockchain.iExec.service.ReputationService.ReputationUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 信誉更新：单个任务终结的更新与终结批次的批量更新（仓库为内存实现）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReputationBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int BATCH_UPDATES = 100;
+
+    private ReputationService reputationService;
+    private Address[] addresses;
+    private List<ReputationUpdate> batch;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Map<Address, ReputationEntity> reputations = new HashMap<>();
+        addresses = new Address[USERS];
+        for (int user = 0; user < USERS; user++) {
+            addresses[user] = Address.of(String.format("%040x", user + 1));
+            // 一半用户已有信誉记录，另一半首次终结时创建
+            if (user % 2 == 0) {
+                ReputationEntity reputation = new ReputationEntity();
+                reputation.setAddress(addresses[user]);
+                reputations.put(addresses[user], reputation);
+            }
+        }
+
+        reputationService = new ReputationService();
+        InMemoryRepositories.inject(reputationService, "reputationRepository", InMemoryRepositories.reputation(reputations));
+
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_UPDATES; i++) {
+            batch.add(new ReputationUpdate(addresses[random.nextInt(USERS)], random.nextDouble() < 0.9,
+                random.nextDouble() < 0.8, random.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public ReputationEntity updateReputation() {
+        next = (next + 1) % USERS;
+        return reputationService.updateReputation(addresses[next], true, next % 5 != 0, 0.9);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void applyUpdates() {
+        reputationService.applyUpdates(batch);
+    }
+}
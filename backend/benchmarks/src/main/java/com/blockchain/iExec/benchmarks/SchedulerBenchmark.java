@@ -0,0 +1,184 @@
+package com.blockchain.iExec.benchmarks;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.ReputationRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository.CompletionRecord;
+import com.blockchain.iExec.service.BacktestService;
+import com.blockchain.iExec.service.CompletionPredictorService;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import com.blockchain.iExec.service.HistoryArchiveService;
+import com.blockchain.iExec.service.ReputationService;
+import com.blockchain.iExec.service.TaskHistoryQueryService;
+import com.blockchain.iExec.service.TaskSchedulerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度核心路径：完成时间预测与优先级计算（仓库为内存实现，只测量服务自身的计算与分配）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    private static final int SERVICES = 20;
+    private static final int COMPLETIONS_PER_SERVICE = 5_000;
+    private static final int USERS = 1_000;
+    private static final int BATCH_TASKS = 1_000;
+
+    private TaskSchedulerService taskSchedulerService;
+    private TaskEntity task;
+    private List<TaskEntity> batch;
+
+    /**
+     * 预测路径按预测器分别测量（固定所有服务使用同一预测器）
+     */
+    @State(Scope.Benchmark)
+    public static class Prediction {
+        @Param({"WMA", "SMA", "EWMA", "QUANTILE", "SGD", "RLS"})
+        public String predictor;
+
+        private TaskSchedulerService taskSchedulerService;
+        private CompletionFeatures features;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            taskSchedulerService = scheduler(predictor, new Random(42));
+            // 首次访问时回放历史训练预测器，不计入测量
+            for (int service = 0; service < SERVICES; service++) {
+                taskSchedulerService.predictCompletionTime(String.valueOf(service));
+            }
+            features = CompletionFeatures.of(0.5, "{\"cpuCores\":2,\"memoryMB\":2048,\"storageGB\":5}");
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        taskSchedulerService = scheduler("", random);
+        task = task(0, random);
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_TASKS; i++) {
+            batch.add(task(i, random));
+        }
+    }
+
+    @Benchmark
+    public long predictCompletionTime(Prediction prediction) {
+        prediction.next = (prediction.next + 1) % SERVICES;
+        return prediction.taskSchedulerService.predictCompletionTime(String.valueOf(prediction.next), prediction.features);
+    }
+
+    @Benchmark
+    public int calculatePriority() {
+        return taskSchedulerService.calculatePriority(task);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<Bytes32, Integer> calculateStaticPriorities() {
+        return taskSchedulerService.calculateStaticPriorities(batch);
+    }
+
+    /**
+     * 组装调度服务：历史、信誉与用户统计均为内存数据
+     *
+     * @param fixedPredictor 固定使用的预测器，为空时按回测得分选择
+     */
+    private static TaskSchedulerService scheduler(String fixedPredictor, Random random) {
+
+        Map<String, List<CompletionRecord>> records = new HashMap<>();
+        for (int service = 0; service < SERVICES; service++) {
+            List<CompletionRecord> completions = new ArrayList<>();
+            for (int i = 0; i < COMPLETIONS_PER_SERVICE; i++) {
+                double cost = random.nextInt(10) / 10.0;
+                int memoryMB = 512 * (1 + random.nextInt(8));
+                long actualTime = Math.round((60 + 400 * cost + 0.1 * memoryMB) * Math.exp(0.3 * random.nextGaussian()));
+                completions.add(new CompletionRecord(String.valueOf(service), Math.max(1, actualTime), cost,
+                    "{\"cpuCores\":2,\"memoryMB\":" + memoryMB + ",\"storageGB\":5}"));
+            }
+            records.put(String.valueOf(service), completions);
+        }
+
+        Map<Address, ReputationEntity> reputations = new HashMap<>();
+        Map<Address, long[]> outcomes = new HashMap<>();
+        for (int user = 0; user < USERS; user++) {
+            Address address = address(user);
+            ReputationEntity reputation = new ReputationEntity();
+            reputation.setAddress(address);
+            reputation.setFinalScore(random.nextDouble());
+            reputations.put(address, reputation);
+            long total = random.nextInt(200);
+            outcomes.put(address, new long[]{total, total * random.nextInt(101) / 100});
+        }
+
+        TaskHistoryRepository taskHistoryRepository = InMemoryRepositories.taskHistory(records, outcomes);
+        ReputationRepository reputationRepository = InMemoryRepositories.reputation(reputations);
+
+        ReputationService reputationService = new ReputationService();
+        InMemoryRepositories.inject(reputationService, "reputationRepository", reputationRepository);
+
+        // 没有归档段，查询服务只读内存仓库
+        TaskHistoryQueryService taskHistoryQueryService = new TaskHistoryQueryService();
+        InMemoryRepositories.inject(taskHistoryQueryService, "taskHistoryRepository", taskHistoryRepository);
+        InMemoryRepositories.inject(taskHistoryQueryService, "historyArchiveService", new HistoryArchiveService());
+
+        BacktestService backtestService = new BacktestService();
+        InMemoryRepositories.inject(backtestService, "taskHistoryQueryService", taskHistoryQueryService);
+        InMemoryRepositories.inject(backtestService, "warmup", 5);
+        InMemoryRepositories.inject(backtestService, "intervalLevel", 0.8);
+
+        CompletionPredictorService completionPredictorService = new CompletionPredictorService();
+        InMemoryRepositories.inject(completionPredictorService, "backtestService", backtestService);
+        InMemoryRepositories.inject(completionPredictorService, "defaultPredictor", "WMA");
+        InMemoryRepositories.inject(completionPredictorService, "fixedPredictor", fixedPredictor);
+        InMemoryRepositories.inject(completionPredictorService, "minSamples", 50);
+
+        TaskSchedulerService taskSchedulerService = new TaskSchedulerService();
+        InMemoryRepositories.inject(taskSchedulerService, "taskHistoryQueryService", taskHistoryQueryService);
+        InMemoryRepositories.inject(taskSchedulerService, "reputationService", reputationService);
+        InMemoryRepositories.inject(taskSchedulerService, "completionPredictorService", completionPredictorService);
+        return taskSchedulerService;
+    }
+
+    private static TaskEntity task(int index, Random random) {
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(Bytes32.of(String.format("%064x", index + 1)));
+        task.setServiceId(String.valueOf(random.nextInt(SERVICES)));
+        task.setUserAddress(address(random.nextInt(USERS)));
+        task.setStatus(TaskStatus.CREATED);
+        task.setCreatedAt(LocalDateTime.now().minusMinutes(random.nextInt(120)));
+        return task;
+    }
+
+    private static Address address(int user) {
+        return Address.of(String.format("%040x", user + 1));
+    }
+}
@@ -0,0 +1,37 @@
+package com.blockchain.iExec.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate 语句与事务计数指标，仅在开启 hibernate.generate_statistics 时注册
+ * 负载测试用两次采样的差值除以任务数，得到每个任务的数据库语句数
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.generate_statistics", havingValue = "true")
+public class HibernateMetricsConfig {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        FunctionCounter.builder("db.statements", statistics, Statistics::getPrepareStatementCount)
+            .description("JDBC statements prepared by Hibernate")
+            .register(meterRegistry);
+        FunctionCounter.builder("db.transactions", statistics, Statistics::getTransactionCount)
+            .description("Transactions completed through Hibernate")
+            .register(meterRegistry);
+    }
+}
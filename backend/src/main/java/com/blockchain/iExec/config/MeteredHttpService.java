@@ -0,0 +1,45 @@
+package com.blockchain.iExec.config;
+
+import com.blockchain.iExec.jfr.RpcCallEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+
+/**
+ * 带计时的 HTTP RPC 客户端 - 按 JSON-RPC 方法记录每次调用的延迟与结果（Micrometer 指标与 JFR 事件）
+ */
+public class MeteredHttpService extends HttpService {
+    
+    private final MeterRegistry meterRegistry;
+    
+    public MeteredHttpService(String url, MeterRegistry meterRegistry) {
+        super(url);
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RpcCallEvent event = new RpcCallEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            T response = super.send(request, responseType);
+            outcome = response.hasError() ? "rpc_error" : "success";
+            return response;
+        } finally {
+            event.method = request.getMethod();
+            event.outcome = outcome;
+            event.commit();
+            sample.stop(Timer.builder("web3j.rpc")
+                .description("JSON-RPC call latency")
+                .tag("method", request.getMethod())
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        }
+    }
+}
@@ -1,11 +1,38 @@
 package com.blockchain.iExec.controller;
 
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.RollupResolution;
+import com.blockchain.iExec.service.AdmissionControlService;
+import com.blockchain.iExec.service.BacktestEngine;
+import com.blockchain.iExec.service.BacktestService;
+import com.blockchain.iExec.service.CompletionSketchService;
+import com.blockchain.iExec.service.FlightRecordingService;
+import com.blockchain.iExec.service.HistoryArchiveService;
+import com.blockchain.iExec.service.LifecycleTracingService;
+import com.blockchain.iExec.service.ShardLeaseService;
+import com.blockchain.iExec.service.TaskDispatchService;
+import com.blockchain.iExec.service.TaskHedgingService;
 import com.blockchain.iExec.service.TaskMonitorService;
+import com.blockchain.iExec.service.TaskRecoveryService;
+import com.blockchain.iExec.service.TaskRollupService;
 import com.blockchain.iExec.service.TaskSchedulerService;
+import com.blockchain.iExec.simulation.SimulationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 监控与调度 API 控制器
  * 提供任务监控统计和调度算法相关接口
@@ -14,12 +41,55 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/monitor")
 public class MonitorController {
     
+    // 单次聚合查询最多覆盖的桶数
+    private static final long MAX_ROLLUP_BUCKETS = 10_000;
+    
     @Autowired
     private TaskMonitorService taskMonitorService;
     
     @Autowired
     private TaskSchedulerService taskSchedulerService;
     
+    @Autowired
+    private CompletionSketchService completionSketchService;
+    
+    @Autowired
+    private BacktestService backtestService;
+    
+    @Autowired
+    private TaskHedgingService taskHedgingService;
+    
+    @Autowired
+    private TaskDispatchService taskDispatchService;
+    
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+    
+    @Autowired
+    private TaskRecoveryService taskRecoveryService;
+    
+    @Autowired
+    private LifecycleTracingService lifecycleTracingService;
+    
+    @Autowired
+    private FlightRecordingService flightRecordingService;
+
+    @Autowired
+    private SimulationService simulationService;
+
+    // JFR 记录可下载且接口没有认证，默认关闭，只在受保护的网络中开启
+    @Value("${profiling.jfr.endpoints.enabled:false}")
+    private boolean profilingEndpointsEnabled;
+    
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+    
+    @Autowired
+    private TaskRollupService taskRollupService;
+    
     /**
      * 获取监控统计信息
      */
@@ -33,7 +103,7 @@ public class MonitorController {
      * 手动触发任务监控
      */
     @PostMapping("/trigger/{taskId}")
-    public ResponseEntity<String> triggerMonitoring(@PathVariable String taskId) {
+    public ResponseEntity<String> triggerMonitoring(@PathVariable Bytes32 taskId) {
         taskMonitorService.triggerManualMonitoring(taskId);
         return ResponseEntity.ok("Monitoring triggered for task: " + taskId);
     }
@@ -47,6 +117,14 @@ public class MonitorController {
         return ResponseEntity.ok(predictedTime);
     }
     
+    /**
+     * 预测任务完成时间分位数（p50/p90/p95/p99）
+     */
+    @GetMapping("/predict/{serviceId}/quantiles")
+    public ResponseEntity<CompletionSketchService.CompletionQuantiles> predictCompletionQuantiles(@PathVariable String serviceId) {
+        return ResponseEntity.ok(completionSketchService.getQuantiles(serviceId));
+    }
+    
     /**
      * 获取自适应调度策略
      */
@@ -65,6 +143,29 @@ public class MonitorController {
         return ResponseEntity.ok(comparison);
     }
     
+    /**
+     * 回测完成时间预测器（按时间回放历史，返回各预测器的 MAE/MAPE/区间覆盖率）
+     */
+    @GetMapping("/backtest")
+    public ResponseEntity<BacktestEngine.BacktestReport> backtest(@RequestParam(required = false) String serviceId) {
+        return ResponseEntity.ok(backtestService.backtest(serviceId));
+    }
+    
+    /**
+     * 模拟各派发策略（耗时分布由历史拟合，返回吞吐量、排队等待与超时率）
+     */
+    @GetMapping("/simulate")
+    public ResponseEntity<SimulationService.SimulationReport> simulate(
+            @RequestParam(defaultValue = "100000") int tasks,
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "0") int workers,
+            @RequestParam(defaultValue = "42") long seed) {
+        if (tasks <= 0 || hours <= 0 || workers < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(simulationService.simulate(tasks, hours, workers, seed));
+    }
+    
     /**
      * 预测资源需求
      */
@@ -73,4 +174,157 @@ public class MonitorController {
         TaskSchedulerService.ResourceRequirement requirement = taskSchedulerService.predictResourceRequirement(serviceId);
         return ResponseEntity.ok(requirement);
     }
+    
+    /**
+     * 获取长尾任务对冲统计
+     */
+    @GetMapping("/hedging")
+    public ResponseEntity<TaskHedgingService.HedgingStats> getHedgingStats() {
+        return ResponseEntity.ok(taskHedgingService.getHedgingStats());
+    }
+    
+    /**
+     * 获取派发队列状态（队列深度与有待派发任务的用户数）
+     */
+    @GetMapping("/dispatch")
+    public ResponseEntity<TaskDispatchService.DispatchStats> getDispatchStats() {
+        return ResponseEntity.ok(taskDispatchService.getDispatchStats());
+    }
+    
+    /**
+     * 获取准入控制状态（当前并发上限、在途任务数与被推迟的派发次数）
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<AdmissionControlService.AdmissionStatus> getAdmissionStatus() {
+        return ResponseEntity.ok(admissionControlService.getStatus());
+    }
+    
+    /**
+     * 获取集群分片状态（本实例负责的分片与领导者身份）
+     */
+    @GetMapping("/cluster")
+    public ResponseEntity<ShardLeaseService.ClusterStatus> getClusterStatus() {
+        return ResponseEntity.ok(shardLeaseService.getClusterStatus());
+    }
+    
+    /**
+     * 获取启动恢复结果（恢复运行中任务的数量与从启动到全面监控的耗时），恢复完成前返回 404
+     */
+    @GetMapping("/recovery")
+    public ResponseEntity<TaskRecoveryService.RecoveryReport> getRecoveryReport() {
+        TaskRecoveryService.RecoveryReport report = taskRecoveryService.getReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * 获取历史归档状态（段数、归档行数、压缩后大小与覆盖的日期范围）
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<HistoryArchiveService.ArchiveStatus> getArchiveStatus() {
+        return ResponseEntity.ok(historyArchiveService.getStatus());
+    }
+    
+    /**
+     * 获取时间序列聚合（按分钟/小时的终结数、耗时分位数与成本），默认最近 1 小时（分钟）或 24 小时（小时）
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<List<TaskRollupService.RollupPoint>> getRollups(
+            @RequestParam(defaultValue = "minute") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String serviceId) {
+        RollupResolution rollupResolution;
+        try {
+            rollupResolution = RollupResolution.of(resolution);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+            : end.minus(rollupResolution == RollupResolution.MINUTE ? Duration.ofHours(1) : Duration.ofHours(24));
+        if (start.isAfter(end)
+                || Duration.between(start, end).dividedBy(rollupResolution.getBucketSize()) > MAX_ROLLUP_BUCKETS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(taskRollupService.getRollups(rollupResolution, serviceId, start, end));
+    }
+
+    /**
+     * 获取任务生命周期各阶段耗时分位数（毫秒，全局与按服务）
+     */
+    @GetMapping("/lifecycle")
+    public ResponseEntity<LifecycleTracingService.LifecycleReport> getLifecycleReport() {
+        return ResponseEntity.ok(lifecycleTracingService.getLifecycleReport());
+    }
+    
+    /**
+     * 开始一次有时长上限的 JFR 记录
+     */
+    @PostMapping("/profiling/start")
+    public ResponseEntity<FlightRecordingService.RecordingStatus> startRecording(
+            @RequestParam(defaultValue = "60") long duration) {
+        if (!profilingEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(flightRecordingService.startRecording(duration));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 停止 JFR 记录并下载记录文件
+     */
+    @PostMapping("/profiling/stop")
+    public ResponseEntity<Resource> stopRecording() {
+        if (!profilingEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return recordingFile(flightRecordingService.stopRecording());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 下载常驻 JFR 记录中最近一段时间的数据
+     */
+    @GetMapping("/profiling/snapshot")
+    public ResponseEntity<Resource> snapshotRecording() {
+        if (!profilingEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return recordingFile(flightRecordingService.dumpContinuousRecording());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 获取按需 JFR 记录状态
+     */
+    @GetMapping("/profiling")
+    public ResponseEntity<FlightRecordingService.RecordingStatus> getRecordingStatus() {
+        if (!profilingEndpointsEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        FlightRecordingService.RecordingStatus status = flightRecordingService.getStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+    
+    private static ResponseEntity<Resource> recordingFile(Path file) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+            .body(new FileSystemResource(file));
+    }
 }
@@ -1,8 +1,12 @@
 package com.blockchain.iExec.controller;
 
+import com.blockchain.iExec.model.Bytes32;
 import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
 import com.blockchain.iExec.service.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,13 +34,13 @@ public class TaskController {
     }
     
     @GetMapping("/task-id/{taskId}")
-    public ResponseEntity<TaskEntity> getTaskByTaskId(@PathVariable String taskId) {
+    public ResponseEntity<TaskEntity> getTaskByTaskId(@PathVariable Bytes32 taskId) {
         TaskEntity task = taskService.getTaskByTaskId(taskId);
         return task != null ? ResponseEntity.ok(task) : ResponseEntity.notFound().build();
     }
     
     @GetMapping("/iexec-task-id/{iexecTaskId}")
-    public ResponseEntity<TaskEntity> getTaskByIexecTaskId(@PathVariable String iexecTaskId) {
+    public ResponseEntity<TaskEntity> getTaskByIexecTaskId(@PathVariable Bytes32 iexecTaskId) {
         TaskEntity task = taskService.getTaskByIexecTaskId(iexecTaskId);
         return task != null ? ResponseEntity.ok(task) : ResponseEntity.notFound().build();
     }
@@ -47,6 +51,9 @@ public class TaskController {
         return ResponseEntity.ok(savedTask);
     }
     
+    /**
+     * 全量更新任务；请求体携带 version 时须与当前版本一致，状态变更须符合迁移表，否则返回 409
+     */
     @PutMapping("/{id}")
     public ResponseEntity<TaskEntity> updateTask(@PathVariable Long id, @RequestBody TaskEntity taskDetails) {
         Optional<TaskEntity> optionalTask = taskService.getTaskById(id);
@@ -56,14 +63,26 @@ public class TaskController {
         }
         
         TaskEntity existingTask = optionalTask.get();
+        if (taskDetails.getVersion() != null && !taskDetails.getVersion().equals(existingTask.getVersion())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (taskDetails.getStatus() != null && taskDetails.getStatus() != existingTask.getStatus()) {
+            if (!existingTask.getStatus().canTransitionTo(taskDetails.getStatus())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            existingTask.setStatus(taskDetails.getStatus());
+        }
         existingTask.setTaskId(taskDetails.getTaskId());
         existingTask.setIexecTaskId(taskDetails.getIexecTaskId());
         existingTask.setUserAddress(taskDetails.getUserAddress());
-        existingTask.setStatus(taskDetails.getStatus());
         existingTask.setResultHash(taskDetails.getResultHash());
         
-        TaskEntity updatedTask = taskService.saveTask(existingTask);
-        return ResponseEntity.ok(updatedTask);
+        try {
+            TaskEntity updatedTask = taskService.saveTask(existingTask);
+            return ResponseEntity.ok(updatedTask);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
     
     @DeleteMapping("/{id}")
@@ -76,18 +95,23 @@ public class TaskController {
         }
     }
     
+    /**
+     * 修改任务状态：按迁移表条件更新，不允许的迁移或并发修改返回 409
+     */
     @PutMapping("/{id}/status")
     public ResponseEntity<TaskEntity> updateTaskStatus(@PathVariable Long id, @RequestParam String status) {
-        Optional<TaskEntity> optionalTask = taskService.getTaskById(id);
-        
-        if (!optionalTask.isPresent()) {
-            return ResponseEntity.notFound().build();
+        TaskStatus toStatus;
+        try {
+            toStatus = TaskStatus.of(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
         
-        TaskEntity task = optionalTask.get();
-        task.setStatus(status);
-        TaskEntity updatedTask = taskService.saveTask(task);
-        
-        return ResponseEntity.ok(updatedTask);
+        if (taskService.transitionStatus(id, toStatus) == null) {
+            return taskService.getTaskById(id).isPresent()
+                ? ResponseEntity.status(HttpStatus.CONFLICT).build()
+                : ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(taskService.getTaskById(id).orElseThrow());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.blockchain.iExec.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * iExec CLI 子进程调用事件
+ */
+@Name("com.blockchain.iExec.CliCommand")
+@Label("iExec CLI Command")
+@Category({"iExec", "CLI"})
+@Description("Execution of an iExec CLI command in a child process")
+@StackTrace(false)
+public class CliCommandEvent extends Event {
+
+    @Label("Command")
+    @Description("Sub-command without arguments, e.g. \"task show\"")
+    public String command;
+
+    @Label("Exit Code")
+    @Description("Process exit code, -1 if the process timed out or could not be started")
+    public int exitCode = -1;
+
+    @Label("Output Size")
+    @DataAmount
+    public long outputBytes;
+}
@@ -0,0 +1,25 @@
+package com.blockchain.iExec.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 任务监控周期事件
+ */
+@Name("com.blockchain.iExec.MonitorCycle")
+@Label("Task Monitor Cycle")
+@Category({"iExec", "Monitor"})
+@Description("One scheduled polling cycle over the running tasks owned by this instance")
+@StackTrace(false)
+public class MonitorCycleEvent extends Event {
+
+    @Label("Tasks Monitored")
+    public int tasksMonitored;
+
+    @Label("Tasks Finalized")
+    public int tasksFinalized;
+}
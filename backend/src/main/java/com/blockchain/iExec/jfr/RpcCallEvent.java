@@ -0,0 +1,26 @@
+package com.blockchain.iExec.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 以太坊 JSON-RPC 调用事件
+ */
+@Name("com.blockchain.iExec.RpcCall")
+@Label("JSON-RPC Call")
+@Category({"iExec", "Web3j"})
+@Description("JSON-RPC request sent to the Ethereum node")
+@StackTrace(false)
+public class RpcCallEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Outcome")
+    @Description("success, rpc_error or error")
+    public String outcome;
+}
@@ -0,0 +1,34 @@
+package com.blockchain.iExec.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 调度算法计算事件（完成时间预测、优先级、自适应策略等）
+ */
+@Name("com.blockchain.iExec.SchedulerComputation")
+@Label("Scheduler Computation")
+@Category({"iExec", "Scheduler"})
+@Description("Prediction or scheduling computation, including the history queries it issues")
+@StackTrace(false)
+public class SchedulerComputationEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Service ID")
+    public String serviceId;
+
+    @Label("Samples")
+    @Description("Number of history rows the computation used")
+    public int samples;
+
+    public SchedulerComputationEvent(String operation, String serviceId) {
+        this.operation = operation;
+        this.serviceId = serviceId;
+    }
+}
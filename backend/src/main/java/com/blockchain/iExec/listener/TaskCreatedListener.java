@@ -1,87 +1,236 @@
 package com.blockchain.iExec.listener;
 
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.ListenerCursorEntity;
 import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.ListenerCursorRepository;
+import com.blockchain.iExec.service.ShardLeaseService;
 import com.blockchain.iExec.service.TaskService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.utils.Convert;
+import org.web3j.utils.Numeric;
 
 import jakarta.annotation.PostConstruct;
-import java.io.IOException;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class TaskCreatedListener {
     
     private static final Logger logger = LoggerFactory.getLogger(TaskCreatedListener.class);
     
+    // TaskCreated(uint256 indexed taskId, uint256 indexed serviceId, address indexed buyer, uint256 amount, uint256 timestamp)
+    private static final Event TASK_CREATED_EVENT = new Event("TaskCreated", Arrays.asList(
+        new TypeReference<Uint256>(true) {},
+        new TypeReference<Uint256>(true) {},
+        new TypeReference<Address>(true) {},
+        new TypeReference<Uint256>() {},
+        new TypeReference<Uint256>() {}
+    ));
+    
     @Autowired
     private Web3j web3j;
     
     @Autowired
     private TaskService taskService;
     
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ListenerCursorRepository listenerCursorRepository;
+    
+    @Value("${contract.address}")
+    private String contractAddress;
+    
+    // 单次轮询最多扫描的区块数，防止落后较多时一次请求过大
+    @Value("${listener.max-block-range:1000}")
+    private long maxBlockRange;
+    
+    // 已处理到的区块（持久化游标的本地副本，-1 表示尚未从数据库加载）与最近看到的链头，两者之差即为采集延迟
+    private final AtomicLong lastProcessedBlock = new AtomicLong(-1);
+    private final AtomicLong chainHead = new AtomicLong(-1);
+    
     @PostConstruct
     public void startListening() {
+        Gauge.builder("chain.listener.lag", this, listener -> listener.getLagBlocks())
+            .description("Blocks between chain head and the last block scanned for TaskCreated events")
+            .baseUnit("blocks")
+            .register(meterRegistry);
+        
         ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
         // 每 10 秒检查一次新事件
         executorService.scheduleAtFixedRate(this::checkNewEvents, 0, 10, TimeUnit.SECONDS);
     }
     
     private void checkNewEvents() {
+        // 多实例部署时只有领导者采集链上事件
+        if (!shardLeaseService.isLeader()) {
+            lastProcessedBlock.set(-1);
+            return;
+        }
+        
         try {
             // 获取最新块号
-            BigInteger latestBlock = web3j.ethBlockNumber().send().getBlockNumber();
+            long latestBlock = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+            chainHead.set(latestBlock);
+            
+            // 从上次处理的位置继续；刚成为领导者时读取持久化游标，没有游标（首次部署）时回看最近 10 个区块
+            long last = lastProcessedBlock.get();
+            if (last < 0) {
+                last = loadCursor();
+                lastProcessedBlock.set(last);
+            }
+            long fromBlock = last < 0 ? Math.max(0, latestBlock - 10) : last + 1;
+            if (fromBlock > latestBlock) {
+                return;
+            }
+            long toBlock = Math.min(latestBlock, fromBlock + maxBlockRange - 1);
             
             // 监听智能合约地址的 TaskCreated 事件
             // 使用 DefaultBlockParameterNumber 包装块号
             EthFilter ethFilter = new EthFilter(
-                new DefaultBlockParameterNumber(latestBlock.subtract(BigInteger.valueOf(10))), // fromBlock
-                new DefaultBlockParameterNumber(latestBlock), // toBlock
-                "YOUR_CONTRACT_ADDRESS" // contract address
+                new DefaultBlockParameterNumber(fromBlock),
+                new DefaultBlockParameterNumber(toBlock),
+                contractAddress
             );
+            ethFilter.addSingleTopic(EventEncoder.encode(TASK_CREATED_EVENT));
             
             EthLog ethLog = web3j.ethGetLogs(ethFilter).send();
             
             @SuppressWarnings("unchecked")
             List<EthLog.LogResult<?>> logs = (List<EthLog.LogResult<?>>) (List<?>) ethLog.getLogs();
-            for (EthLog.LogResult<?> logResult : logs) {
-                Log log = (Log) logResult;
-                processTaskCreatedEvent(log);
-            }
+            processTaskCreatedEvents(logs);
+            
+            saveCursor(toBlock);
+            lastProcessedBlock.set(toBlock);
             
-        } catch (IOException e) {
+        } catch (Exception e) {
+            // 捕获所有异常：scheduleAtFixedRate 遇到未捕获异常会停止后续调度
             logger.error("Error checking for new events", e);
         }
     }
     
-    private void processTaskCreatedEvent(Log log) {
-        // 解析事件参数
-        // 这里需要根据智能合约的 ABI 来正确解析日志中的参数
-        // 示例：假设 taskId 在第一个主题，其他参数在 data 字段
-        
-        String taskId = log.getTopics().get(1); // 示例，需要根据实际调整
-        String userAddress = log.getTopics().get(2);
+    /**
+     * 读取持久化的游标，不存在时返回 -1
+     */
+    private long loadCursor() {
+        return listenerCursorRepository.findById(contractAddress)
+            .map(ListenerCursorEntity::getLastProcessedBlock)
+            .orElse(-1L);
+    }
+    
+    /**
+     * 事件入库后推进持久化游标；写入失败时本轮抛出异常，下一轮从旧游标重扫（入库按 taskId 去重）
+     */
+    private void saveCursor(long block) {
+        ListenerCursorEntity cursor = new ListenerCursorEntity();
+        cursor.setContractAddress(contractAddress);
+        cursor.setLastProcessedBlock(block);
+        cursor.setUpdatedAt(LocalDateTime.now());
+        listenerCursorRepository.save(cursor);
+    }
+    
+    /**
+     * 采集延迟（区块数）
+     */
+    public long getLagBlocks() {
+        long head = chainHead.get();
+        long last = lastProcessedBlock.get();
+        return head < 0 || last < 0 ? 0 : Math.max(0, head - last);
+    }
+    
+    /**
+     * 入库一个轮询窗口内的全部 TaskCreated 事件：一次 IN 查询去重，新任务一次 saveAll 批量插入
+     * 游标在入库之后才推进，崩溃或领导者切换后可能重放最后一个窗口，已入库的事件直接跳过
+     */
+    private void processTaskCreatedEvents(List<EthLog.LogResult<?>> logs) {
+        Map<Bytes32, Log> events = new LinkedHashMap<>();
+        for (EthLog.LogResult<?> logResult : logs) {
+            Log log = (Log) logResult;
+            events.putIfAbsent(Bytes32.of(log.getTopics().get(1)), log);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
         
-        logger.info("New TaskCreated event received: taskId={}, user={}", taskId, userAddress);
+        Set<Bytes32> existing = taskService.findExistingTaskIds(new ArrayList<>(events.keySet()));
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (Map.Entry<Bytes32, Log> event : events.entrySet()) {
+            if (existing.contains(event.getKey())) {
+                continue;
+            }
+            TaskEntity task = decodeTaskCreated(event.getValue());
+            logger.info("New TaskCreated event received: taskId={}, service={}, user={}",
+                task.getTaskId(), task.getServiceId(), task.getUserAddress());
+            task.setEventSeenAt(LocalDateTime.now());
+            tasks.add(task);
+        }
         
-        // 创建新任务实体
+        // 保存任务到数据库
+        if (!tasks.isEmpty()) {
+            taskService.saveTasks(tasks);
+        }
+    }
+    
+    /**
+     * 把 TaskCreated 日志解析为待保存的任务实体
+     * TaskCreated(uint256 indexed taskId, uint256 indexed serviceId, address indexed buyer, uint256 amount, uint256 timestamp)
+     * topics[0] 为事件签名，其余 indexed 参数依次位于 topics[1..3]；非 indexed 参数只解码一次
+     */
+    public static TaskEntity decodeTaskCreated(Log log) {
         TaskEntity task = new TaskEntity();
-        task.setTaskId(taskId);
-        task.setUserAddress(userAddress);
-        task.setStatus("Created");
+        task.setTaskId(Bytes32.of(log.getTopics().get(1)));
+        task.setServiceId(Numeric.toBigInt(log.getTopics().get(2)).toString());
+        task.setUserAddress(com.blockchain.iExec.model.Address.fromTopic(log.getTopics().get(3)));
+        task.setStatus(TaskStatus.CREATED);
         
-        // 保存任务到数据库
-        taskService.saveTask(task);
+        // amount（wei，换算为 ether）与 timestamp（合约写入的区块时间，秒），解析失败时留空
+        try {
+            @SuppressWarnings("rawtypes")
+            List<Type> values = FunctionReturnDecoder.decode(log.getData(), TASK_CREATED_EVENT.getNonIndexedParameters());
+            BigInteger amount = (BigInteger) values.get(0).getValue();
+            BigInteger seconds = (BigInteger) values.get(1).getValue();
+            task.setCostAmount(Convert.fromWei(new BigDecimal(amount), Convert.Unit.ETHER).doubleValue());
+            task.setChainEventAt(LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds.longValue()), ZoneId.systemDefault()));
+        } catch (Exception e) {
+            logger.debug("Could not decode TaskCreated data: {}", e.getMessage());
+        }
+        return task;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package com.blockchain.iExec.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 20 字节以太坊地址，以两个 long 加一个 int 保存，相等与哈希直接比较字节
+ * 规范文本形式为 0x 开头的 40 位小写十六进制；活跃地址会被驻留，同一用户的实体共享一个实例
+ */
+public final class Address implements Comparable<Address> {
+
+    public static final int LENGTH = 20;
+
+    // 驻留表上限，超过后新地址不再驻留（仍可正常使用，只是不共享实例）
+    private static final int MAX_INTERNED = 65_536;
+    private static final ConcurrentMap<Address, Address> INTERNED = new ConcurrentHashMap<>();
+
+    private final long hi;   // 字节 0-7
+    private final long mid;  // 字节 8-15
+    private final int lo;    // 字节 16-19
+
+    private Address(long hi, long mid, int lo) {
+        this.hi = hi;
+        this.mid = mid;
+        this.lo = lo;
+    }
+
+    /**
+     * 解析十六进制地址，0x 前缀可选、大小写不敏感（忽略 EIP-55 校验和），必须正好 40 位
+     *
+     * @throws IllegalArgumentException 格式不合法
+     */
+    @JsonCreator
+    public static Address of(String hex) {
+        int offset = Hex.prefixLength(hex);
+        if (hex.length() - offset != LENGTH * 2) {
+            throw new IllegalArgumentException("Expected 20-byte address but got: " + hex);
+        }
+        return intern(new Address(Hex.parseLong(hex, offset), Hex.parseLong(hex, offset + 16),
+            (int) Hex.parseHex(hex, offset + 32, 8)));
+    }
+
+    /**
+     * 解析 indexed address 事件参数（左侧补零到 32 字节的 topic）
+     *
+     * @throws IllegalArgumentException 不是 32 字节值或高 12 字节不为 0
+     */
+    public static Address fromTopic(String topic) {
+        Bytes32 word = Bytes32.of(topic);
+        if (!word.isPaddedAddress()) {
+            throw new IllegalArgumentException("Topic is not an ABI-encoded address: " + topic);
+        }
+        return intern(new Address((word.word(1) << 32) | (word.word(2) >>> 32),
+            (word.word(2) << 32) | (word.word(3) >>> 32), (int) word.word(3)));
+    }
+
+    /**
+     * 由 20 字节数组构造（大端序）
+     */
+    public static Address wrap(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Expected 20 bytes but got " + bytes.length);
+        }
+        // 字节 12-19 的低 4 字节即字节 16-19
+        return intern(new Address(Hex.readLong(bytes, 0), Hex.readLong(bytes, 8), (int) Hex.readLong(bytes, 12)));
+    }
+
+    private static Address intern(Address address) {
+        Address interned = INTERNED.get(address);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_INTERNED) {
+            return address;
+        }
+        interned = INTERNED.putIfAbsent(address, address);
+        return interned != null ? interned : address;
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        Hex.writeLong(bytes, 0, hi);
+        Hex.writeLong(bytes, 8, mid);
+        for (int i = 0; i < 4; i++) {
+            bytes[16 + i] = (byte) (lo >>> (24 - 8 * i));
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Address other && hi == other.hi && mid == other.mid && lo == other.lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode((hi * 31 + mid) * 31 + lo);
+    }
+
+    @Override
+    public int compareTo(Address other) {
+        int c = Long.compareUnsigned(hi, other.hi);
+        if (c == 0) {
+            c = Long.compareUnsigned(mid, other.mid);
+        }
+        return c != 0 ? c : Integer.compareUnsigned(lo, other.lo);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        char[] chars = new char[2 + LENGTH * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        Hex.writeHex(chars, 2, hi, 16);
+        Hex.writeHex(chars, 18, mid, 16);
+        Hex.writeHex(chars, 34, lo & 0xFFFFFFFFL, 8);
+        return new String(chars);
+    }
+}
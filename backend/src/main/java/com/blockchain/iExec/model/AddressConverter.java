@@ -0,0 +1,21 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Address <-> 20 字节二进制列，读取时驻留
+ */
+@Converter(autoApply = true)
+public class AddressConverter implements AttributeConverter<Address, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(Address attribute) {
+        return attribute != null ? attribute.toBytes() : null;
+    }
+
+    @Override
+    public Address convertToEntityAttribute(byte[] dbData) {
+        return dbData != null ? Address.wrap(dbData) : null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.blockchain.iExec.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * 32 字节值（链上 uint256 / bytes32：任务ID、iExec 任务ID、订单哈希）
+ * 以 4 个 long 保存，相等与哈希直接比较字节；规范文本形式为 0x 开头的 64 位小写十六进制
+ */
+public final class Bytes32 implements Comparable<Bytes32> {
+
+    public static final int LENGTH = 32;
+
+    private final long w0;
+    private final long w1;
+    private final long w2;
+    private final long w3;
+
+    private Bytes32(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    /**
+     * 解析十六进制文本，0x 前缀可选、大小写不敏感，必须正好 64 位
+     *
+     * @throws IllegalArgumentException 格式不合法
+     */
+    @JsonCreator
+    public static Bytes32 of(String hex) {
+        int offset = Hex.prefixLength(hex);
+        if (hex.length() - offset != LENGTH * 2) {
+            throw new IllegalArgumentException("Expected 32-byte hex value but got: " + hex);
+        }
+        return new Bytes32(Hex.parseLong(hex, offset), Hex.parseLong(hex, offset + 16),
+            Hex.parseLong(hex, offset + 32), Hex.parseLong(hex, offset + 48));
+    }
+
+    /**
+     * 由 32 字节数组构造（大端序）
+     */
+    public static Bytes32 wrap(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Expected 32 bytes but got " + bytes.length);
+        }
+        return new Bytes32(Hex.readLong(bytes, 0), Hex.readLong(bytes, 8), Hex.readLong(bytes, 16), Hex.readLong(bytes, 24));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[LENGTH];
+        Hex.writeLong(bytes, 0, w0);
+        Hex.writeLong(bytes, 8, w1);
+        Hex.writeLong(bytes, 16, w2);
+        Hex.writeLong(bytes, 24, w3);
+        return bytes;
+    }
+
+    /**
+     * 高 12 字节全为 0 时可按 ABI 规则解释为左侧补零的地址（indexed address 参数）
+     */
+    boolean isPaddedAddress() {
+        return w0 == 0 && (w1 >>> 32) == 0;
+    }
+
+    long word(int index) {
+        return switch (index) {
+            case 0 -> w0;
+            case 1 -> w1;
+            case 2 -> w2;
+            default -> w3;
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Bytes32 other && w0 == other.w0 && w1 == other.w1 && w2 == other.w2 && w3 == other.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = w0 * 31 + w1;
+        h = h * 31 + w2;
+        h = h * 31 + w3;
+        return Long.hashCode(h);
+    }
+
+    @Override
+    public int compareTo(Bytes32 other) {
+        int c = Long.compareUnsigned(w0, other.w0);
+        if (c == 0) {
+            c = Long.compareUnsigned(w1, other.w1);
+        }
+        if (c == 0) {
+            c = Long.compareUnsigned(w2, other.w2);
+        }
+        return c != 0 ? c : Long.compareUnsigned(w3, other.w3);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        char[] chars = new char[2 + LENGTH * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        Hex.writeHex(chars, 2, w0, 16);
+        Hex.writeHex(chars, 18, w1, 16);
+        Hex.writeHex(chars, 34, w2, 16);
+        Hex.writeHex(chars, 50, w3, 16);
+        return new String(chars);
+    }
+}
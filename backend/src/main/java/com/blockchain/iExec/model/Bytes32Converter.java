@@ -0,0 +1,21 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Bytes32 <-> 32 字节二进制列
+ */
+@Converter(autoApply = true)
+public class Bytes32Converter implements AttributeConverter<Bytes32, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(Bytes32 attribute) {
+        return attribute != null ? attribute.toBytes() : null;
+    }
+
+    @Override
+    public Bytes32 convertToEntityAttribute(byte[] dbData) {
+        return dbData != null ? Bytes32.wrap(dbData) : null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 集群成员实体 - 每个后端实例定期写入心跳，心跳未过期的实例视为存活
+ */
+@Entity
+@Table(name = "cluster_instance")
+public class ClusterInstanceEntity {
+    
+    @Id
+    private String instanceId;  // 实例ID
+    
+    @Column(nullable = false)
+    private LocalDateTime lastHeartbeat;  // 最近一次心跳时间
+    
+    private LocalDateTime startedAt;  // 实例启动时间
+    
+    // Getters and Setters
+    
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+    
+    public LocalDateTime getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+    
+    public void setLastHeartbeat(LocalDateTime lastHeartbeat) {
+        this.lastHeartbeat = lastHeartbeat;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+}
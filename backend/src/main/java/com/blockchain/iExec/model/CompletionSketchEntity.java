@@ -0,0 +1,69 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 完成耗时分位数草图实体 - 每个实例为每个服务持久化自己终结的任务形成的 t-digest
+ * 同一服务各实例的草图可直接合并得到全局分布
+ */
+@Entity
+@Table(name = "completion_sketch",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"serviceId", "instanceId"}))
+public class CompletionSketchEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    private String serviceId;
+    
+    private String instanceId;  // 写入该草图的实例
+    
+    @Lob
+    private byte[] digest;  // TDigest.toBytes() 序列化结果
+    
+    private LocalDateTime updatedAt;
+    
+    // Getters and Setters
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getServiceId() {
+        return serviceId;
+    }
+    
+    public void setServiceId(String serviceId) {
+        this.serviceId = serviceId;
+    }
+    
+    public String getInstanceId() {
+        return instanceId;
+    }
+    
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+    
+    public byte[] getDigest() {
+        return digest;
+    }
+    
+    public void setDigest(byte[] digest) {
+        this.digest = digest;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
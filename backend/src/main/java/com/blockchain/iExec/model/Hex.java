@@ -0,0 +1,57 @@
+package com.blockchain.iExec.model;
+
+/**
+ * Bytes32 / Address 共用的十六进制与大端字节读写
+ */
+final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private Hex() {
+    }
+
+    static int prefixLength(String hex) {
+        if (hex == null) {
+            throw new IllegalArgumentException("Hex value must not be null");
+        }
+        return hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X') ? 2 : 0;
+    }
+
+    static long parseLong(String hex, int offset) {
+        return parseHex(hex, offset, 16);
+    }
+
+    static long parseHex(String hex, int offset, int digits) {
+        long value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character '" + hex.charAt(i) + "' in: " + hex);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    static void writeHex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
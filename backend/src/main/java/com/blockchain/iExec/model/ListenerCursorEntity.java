@@ -0,0 +1,45 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 链上事件采集游标 - 记录每个合约已扫描到的区块，重启或领导者切换后从该区块继续
+ */
+@Entity
+@Table(name = "listener_cursor")
+public class ListenerCursorEntity {
+    
+    @Id
+    private String contractAddress;  // 监听的合约地址
+    
+    private Long lastProcessedBlock;  // 已处理到的区块号（含）
+    
+    private LocalDateTime updatedAt;  // 最近一次推进时间
+    
+    // Getters and Setters
+    
+    public String getContractAddress() {
+        return contractAddress;
+    }
+    
+    public void setContractAddress(String contractAddress) {
+        this.contractAddress = contractAddress;
+    }
+    
+    public Long getLastProcessedBlock() {
+        return lastProcessedBlock;
+    }
+    
+    public void setLastProcessedBlock(Long lastProcessedBlock) {
+        this.lastProcessedBlock = lastProcessedBlock;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,75 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 监控统计快照 - 定期持久化内存计数器，重启后用于预热统计
+ * 表中只保留一行（id 固定为 1）
+ */
+@Entity
+@Table(name = "monitoring_snapshot")
+public class MonitoringSnapshotEntity {
+    
+    public static final long SINGLETON_ID = 1L;
+    
+    @Id
+    private Long id = SINGLETON_ID;
+    
+    private Long runningTasks = 0L;    // 运行中任务数
+    private Long timeoutTasks = 0L;    // 已超时但尚未终结的运行中任务数
+    private Long completedTasks = 0L;  // 历史完成任务数
+    private Long failedTasks = 0L;     // 历史失败任务数
+    
+    private LocalDateTime capturedAt;  // 快照时间
+    
+    // Getters and Setters
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getRunningTasks() {
+        return runningTasks;
+    }
+    
+    public void setRunningTasks(Long runningTasks) {
+        this.runningTasks = runningTasks;
+    }
+    
+    public Long getTimeoutTasks() {
+        return timeoutTasks;
+    }
+    
+    public void setTimeoutTasks(Long timeoutTasks) {
+        this.timeoutTasks = timeoutTasks;
+    }
+    
+    public Long getCompletedTasks() {
+        return completedTasks;
+    }
+    
+    public void setCompletedTasks(Long completedTasks) {
+        this.completedTasks = completedTasks;
+    }
+    
+    public Long getFailedTasks() {
+        return failedTasks;
+    }
+    
+    public void setFailedTasks(Long failedTasks) {
+        this.failedTasks = failedTasks;
+    }
+    
+    public LocalDateTime getCapturedAt() {
+        return capturedAt;
+    }
+    
+    public void setCapturedAt(LocalDateTime capturedAt) {
+        this.capturedAt = capturedAt;
+    }
+}
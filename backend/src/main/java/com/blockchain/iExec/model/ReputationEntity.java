@@ -1,16 +1,20 @@
 package com.blockchain.iExec.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
 @Table(name = "reputation")
 public class ReputationEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reputation_seq")
+    @SequenceGenerator(name = "reputation_seq", sequenceName = "reputation_seq", allocationSize = 50)
     private Long id;
     
-    @Column(unique = true, nullable = false)
-    private String address;
+    @Column(unique = true, nullable = false, length = Address.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Address address;
     
     private Double completionRate = 1.0; // 任务完成率
     private Double onTimeRate = 1.0;    // 准时完成率
@@ -21,6 +25,9 @@ public class ReputationEntity {
     private Integer completedTasks = 0; // 已完成任务数
     private Integer onTimeTasks = 0;    // 准时完成任务数
     
+    @Version
+    private Long version;  // 乐观锁版本号，并发的信誉更新以冲突失败而非互相覆盖
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -30,11 +37,11 @@ public class ReputationEntity {
         this.id = id;
     }
     
-    public String getAddress() {
+    public Address getAddress() {
         return address;
     }
     
-    public void setAddress(String address) {
+    public void setAddress(Address address) {
         this.address = address;
     }
     
@@ -93,4 +100,12 @@ public class ReputationEntity {
     public void setOnTimeTasks(Integer onTimeTasks) {
         this.onTimeTasks = onTimeTasks;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
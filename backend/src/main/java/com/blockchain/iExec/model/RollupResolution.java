@@ -0,0 +1,53 @@
+package com.blockchain.iExec.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 聚合粒度 - 每个任务终结时同时计入所在分钟与所在小时的聚合桶
+ */
+public enum RollupResolution {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS);
+
+    private final ChronoUnit unit;
+
+    RollupResolution(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * 时间所在桶的起点
+     */
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public Duration getBucketSize() {
+        return unit.getDuration();
+    }
+
+    @JsonValue
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * 解析粒度名（大小写不敏感）
+     *
+     * @throws IllegalArgumentException 未知粒度
+     */
+    @JsonCreator
+    public static RollupResolution of(String label) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.name().equalsIgnoreCase(label)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rollup resolution: " + label);
+    }
+}
@@ -0,0 +1,48 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 分片租约实体 - 任务按 taskId 哈希划分到固定数量的桶，每个桶由一个实例持有租约
+ * bucket = -1 的行为领导者租约，持有者负责链上事件采集
+ */
+@Entity
+@Table(name = "shard_lease")
+public class ShardLeaseEntity {
+    
+    public static final int LEADER_BUCKET = -1;
+    
+    @Id
+    private Integer bucket;  // 分片桶编号
+    
+    private String owner;  // 持有租约的实例ID，null 表示空闲
+    
+    private LocalDateTime expiresAt;  // 租约过期时间
+    
+    // Getters and Setters
+    
+    public Integer getBucket() {
+        return bucket;
+    }
+    
+    public void setBucket(Integer bucket) {
+        this.bucket = bucket;
+    }
+    
+    public String getOwner() {
+        return owner;
+    }
+    
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+    
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+    
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
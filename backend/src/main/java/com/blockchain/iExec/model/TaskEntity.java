@@ -1,26 +1,75 @@
 package com.blockchain.iExec.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "uk_task_task_id", columnList = "taskId", unique = true),
+    @Index(name = "uk_task_iexec_task_id", columnList = "iexecTaskId", unique = true),
+    @Index(name = "idx_task_status_id", columnList = "status, id"),                 // 派发增量扫描、按状态查询与计数
+    @Index(name = "idx_task_status_running", columnList = "status, runningAt"),     // 超时计数
+    @Index(name = "idx_task_user_status", columnList = "userAddress, status"),
+    @Index(name = "idx_task_status_bucket", columnList = "status, bucket, id")      // 按分片桶查询本实例负责的任务
+})
 public class TaskEntity {
+    // 池化序列：一次取号分配 50 个 ID，插入无需回读主键，可按 JDBC 批量提交
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     private Long id;
-    private String taskId;
-    private String iexecTaskId;
-    private String userAddress;
-    private String status;
+    @Column(length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 taskId;
+    @Column(length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 iexecTaskId;
+    private String serviceId;
+    private Integer bucket;  // 分片桶（ShardLeaseService.bucketOf(taskId)），入库时写入
+    @Column(length = Address.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Address userAddress;
+    private TaskStatus status;
     private String resultHash;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime completedAt;
     private String errorMessage;
+    @Column(length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 dealId;               // 主 Deal ID，解析出 iExec 任务ID 之前先保存，派发重试时复用
+    @Column(length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 workerpoolOrderHash;  // 主 Deal 使用的工作池订单
+    @Column(length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 hedgeIexecTaskId;     // 对冲（重复提交）的 iExec 任务ID
+    private LocalDateTime hedgedAt;      // 对冲提交时间
+    private Double costAmount;           // 支付金额（TaskCreated 事件的 amount，单位 ether）
+    private String resourceRequirement;  // 资源需求 JSON（cpuCores/memoryMB/storageGB），只记录客户端创建时提供的值，未提供时为空
+
+    // 生命周期时间戳（createdAt 即入库时间，completedAt 即终态提交时间）
+    private LocalDateTime chainEventAt;       // 链上 TaskCreated 事件时间（区块时间）
+    private LocalDateTime eventSeenAt;        // 监听器采集到事件的时间
+    private LocalDateTime dealCreatedAt;      // 首次关联 Deal 或 iExec 任务的时间
+    private LocalDateTime runningAt;          // 进入 Running 状态的时间
+    private LocalDateTime resultAvailableAt;  // 监控发现结果可用的时间
+
+    // 乐观锁版本号，条件更新语句同样递增
+    @Version
+    private Long version;
 
     // Getters and Setters
     public Long getId() {
@@ -31,35 +80,43 @@ public class TaskEntity {
         this.id = id;
     }
 
-    public String getTaskId() {
+    public Bytes32 getTaskId() {
         return taskId;
     }
 
-    public void setTaskId(String taskId) {
+    public void setTaskId(Bytes32 taskId) {
         this.taskId = taskId;
     }
 
-    public String getIexecTaskId() {
+    public Bytes32 getIexecTaskId() {
         return iexecTaskId;
     }
 
-    public void setIexecTaskId(String iexecTaskId) {
+    public void setIexecTaskId(Bytes32 iexecTaskId) {
         this.iexecTaskId = iexecTaskId;
     }
 
-    public String getUserAddress() {
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public Address getUserAddress() {
         return userAddress;
     }
 
-    public void setUserAddress(String userAddress) {
+    public void setUserAddress(Address userAddress) {
         this.userAddress = userAddress;
     }
 
-    public String getStatus() {
+    public TaskStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(TaskStatus status) {
         this.status = status;
     }
 
@@ -71,6 +128,15 @@ public class TaskEntity {
         this.resultHash = resultHash;
     }
 
+    /**
+     * 执行开始时间（提交到 iExec 的时间），超时与耗时从此刻计算，不含在本地派发队列中的等待；
+     * 升级前的任务没有 runningAt 时退回入库时间
+     */
+    @JsonIgnore
+    public LocalDateTime getExecutionStartedAt() {
+        return runningAt != null ? runningAt : createdAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -102,4 +168,108 @@ public class TaskEntity {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
+
+    public Bytes32 getDealId() {
+        return dealId;
+    }
+
+    public void setDealId(Bytes32 dealId) {
+        this.dealId = dealId;
+    }
+
+    public Bytes32 getWorkerpoolOrderHash() {
+        return workerpoolOrderHash;
+    }
+
+    public void setWorkerpoolOrderHash(Bytes32 workerpoolOrderHash) {
+        this.workerpoolOrderHash = workerpoolOrderHash;
+    }
+
+    public Bytes32 getHedgeIexecTaskId() {
+        return hedgeIexecTaskId;
+    }
+
+    public void setHedgeIexecTaskId(Bytes32 hedgeIexecTaskId) {
+        this.hedgeIexecTaskId = hedgeIexecTaskId;
+    }
+
+    public LocalDateTime getHedgedAt() {
+        return hedgedAt;
+    }
+
+    public void setHedgedAt(LocalDateTime hedgedAt) {
+        this.hedgedAt = hedgedAt;
+    }
+
+    public Double getCostAmount() {
+        return costAmount;
+    }
+
+    public void setCostAmount(Double costAmount) {
+        this.costAmount = costAmount;
+    }
+
+    public String getResourceRequirement() {
+        return resourceRequirement;
+    }
+
+    public void setResourceRequirement(String resourceRequirement) {
+        this.resourceRequirement = resourceRequirement;
+    }
+
+    public Integer getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(Integer bucket) {
+        this.bucket = bucket;
+    }
+
+    public LocalDateTime getChainEventAt() {
+        return chainEventAt;
+    }
+
+    public void setChainEventAt(LocalDateTime chainEventAt) {
+        this.chainEventAt = chainEventAt;
+    }
+
+    public LocalDateTime getEventSeenAt() {
+        return eventSeenAt;
+    }
+
+    public void setEventSeenAt(LocalDateTime eventSeenAt) {
+        this.eventSeenAt = eventSeenAt;
+    }
+
+    public LocalDateTime getDealCreatedAt() {
+        return dealCreatedAt;
+    }
+
+    public void setDealCreatedAt(LocalDateTime dealCreatedAt) {
+        this.dealCreatedAt = dealCreatedAt;
+    }
+
+    public LocalDateTime getRunningAt() {
+        return runningAt;
+    }
+
+    public void setRunningAt(LocalDateTime runningAt) {
+        this.runningAt = runningAt;
+    }
+
+    public LocalDateTime getResultAvailableAt() {
+        return resultAvailableAt;
+    }
+
+    public void setResultAvailableAt(LocalDateTime resultAvailableAt) {
+        this.resultAvailableAt = resultAvailableAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -1,33 +1,47 @@
 package com.blockchain.iExec.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 
 /**
  * 任务历史实体 - 用于存储任务执行历史数据，支持动态调度算法
  */
 @Entity
-@Table(name = "task_history")
+@Table(name = "task_history", indexes = {
+    @Index(name = "idx_history_task_id", columnList = "taskId"),
+    @Index(name = "idx_history_iexec_task_id", columnList = "iexecTaskId"),
+    @Index(name = "idx_history_service_status_completed", columnList = "serviceId, status, completedAt DESC"),  // 预测窗口、回测与草图
+    @Index(name = "idx_history_user_status", columnList = "userAddress, status"),                              // 用户成功率
+    @Index(name = "idx_history_status", columnList = "status"),
+    @Index(name = "idx_history_created", columnList = "createdAt"),                                            // 自适应策略的近一小时窗口
+    @Index(name = "idx_history_completed", columnList = "completedAt")                                         // 按天归档
+})
 public class TaskHistoryEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_history_seq")
+    @SequenceGenerator(name = "task_history_seq", sequenceName = "task_history_seq", allocationSize = 50)
     private Long id;
     
-    @Column(nullable = false)
-    private String taskId;  // 链上任务ID
+    @Column(nullable = false, length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 taskId;  // 链上任务ID
     
-    @Column(nullable = false)
-    private String iexecTaskId;  // iExec任务ID
+    @Column(nullable = false, length = Bytes32.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Bytes32 iexecTaskId;  // iExec任务ID
     
     @Column(nullable = false)
     private String serviceId;  // 服务ID
     
-    @Column(nullable = false)
-    private String userAddress;  // 用户地址
+    @Column(nullable = false, length = Address.LENGTH)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    private Address userAddress;  // 用户地址
     
     @Column(nullable = false)
-    private String status;  // 最终状态
+    private TaskStatus status;  // 最终状态
     
     private Long estimatedTime;  // 预估完成时间（秒）
     
@@ -60,19 +74,19 @@ public class TaskHistoryEntity {
         this.id = id;
     }
     
-    public String getTaskId() {
+    public Bytes32 getTaskId() {
         return taskId;
     }
     
-    public void setTaskId(String taskId) {
+    public void setTaskId(Bytes32 taskId) {
         this.taskId = taskId;
     }
     
-    public String getIexecTaskId() {
+    public Bytes32 getIexecTaskId() {
         return iexecTaskId;
     }
     
-    public void setIexecTaskId(String iexecTaskId) {
+    public void setIexecTaskId(Bytes32 iexecTaskId) {
         this.iexecTaskId = iexecTaskId;
     }
     
@@ -84,19 +98,19 @@ public class TaskHistoryEntity {
         this.serviceId = serviceId;
     }
     
-    public String getUserAddress() {
+    public Address getUserAddress() {
         return userAddress;
     }
     
-    public void setUserAddress(String userAddress) {
+    public void setUserAddress(Address userAddress) {
         this.userAddress = userAddress;
     }
     
-    public String getStatus() {
+    public TaskStatus getStatus() {
         return status;
     }
     
-    public void setStatus(String status) {
+    public void setStatus(TaskStatus status) {
         this.status = status;
     }
     
@@ -0,0 +1,177 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 任务时间序列聚合实体 - 每个实例按 (粒度, 服务, 桶起点) 累加自己终结的任务
+ * 同一个桶各实例的行相加（草图合并）即得到全局聚合
+ */
+@Entity
+@Table(name = "task_rollup",
+       uniqueConstraints = @UniqueConstraint(name = "uk_rollup_bucket",
+           columnNames = {"resolution", "serviceId", "bucketStart", "instanceId"}),
+       indexes = @Index(name = "idx_rollup_range", columnList = "resolution, bucketStart"))  // 区间查询与过期清理
+public class TaskRollupEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_rollup_seq")
+    @SequenceGenerator(name = "task_rollup_seq", sequenceName = "task_rollup_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupResolution resolution;
+
+    @Column(nullable = false)
+    private String serviceId;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;  // 桶起点（按完成时间截断到分钟/小时）
+
+    @Column(nullable = false)
+    private String instanceId;  // 写入该行的实例
+
+    private long completedCount;
+
+    private long failedCount;
+
+    private long timeoutCount;
+
+    private long actualTimeCount;  // 有实际耗时的终结任务数
+
+    private long actualTimeSum;  // 实际耗时之和（秒）
+
+    private Long actualTimeMin;
+
+    private Long actualTimeMax;
+
+    private double costSum;  // 成本金额之和
+
+    @Lob
+    private byte[] digest;  // 实际耗时的 TDigest.toBytes() 序列化结果
+
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public RollupResolution getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(RollupResolution resolution) {
+        this.resolution = resolution;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(long completedCount) {
+        this.completedCount = completedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public void setTimeoutCount(long timeoutCount) {
+        this.timeoutCount = timeoutCount;
+    }
+
+    public long getActualTimeCount() {
+        return actualTimeCount;
+    }
+
+    public void setActualTimeCount(long actualTimeCount) {
+        this.actualTimeCount = actualTimeCount;
+    }
+
+    public long getActualTimeSum() {
+        return actualTimeSum;
+    }
+
+    public void setActualTimeSum(long actualTimeSum) {
+        this.actualTimeSum = actualTimeSum;
+    }
+
+    public Long getActualTimeMin() {
+        return actualTimeMin;
+    }
+
+    public void setActualTimeMin(Long actualTimeMin) {
+        this.actualTimeMin = actualTimeMin;
+    }
+
+    public Long getActualTimeMax() {
+        return actualTimeMax;
+    }
+
+    public void setActualTimeMax(Long actualTimeMax) {
+        this.actualTimeMax = actualTimeMax;
+    }
+
+    public double getCostSum() {
+        return costSum;
+    }
+
+    public void setCostSum(double costSum) {
+        this.costSum = costSum;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public void setDigest(byte[] digest) {
+        this.digest = digest;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
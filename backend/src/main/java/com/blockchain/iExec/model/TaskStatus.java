@@ -0,0 +1,110 @@
+package com.blockchain.iExec.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 任务状态 - 以 SMALLINT 编码存储，JSON 中仍使用原有的状态名
+ * 编码一经发布不可修改，新增状态只能追加新编码
+ *
+ * 任务表迁移：Created → Running → Completed / Failed，Created → Failed（派发放弃）
+ * Timeout 只出现在历史表中（超时任务在任务表中记为 Failed）
+ */
+public enum TaskStatus {
+    CREATED(0, "Created"),
+    RUNNING(1, "Running"),
+    COMPLETED(2, "Completed"),
+    FAILED(3, "Failed"),
+    TIMEOUT(4, "Timeout");
+
+    private static final TaskStatus[] BY_CODE = new TaskStatus[values().length];
+    private static final Map<TaskStatus, Set<TaskStatus>> TRANSITIONS = new EnumMap<>(TaskStatus.class);
+    private static final Map<TaskStatus, Set<TaskStatus>> SOURCES = new EnumMap<>(TaskStatus.class);
+
+    static {
+        for (TaskStatus status : values()) {
+            BY_CODE[status.code] = status;
+            TRANSITIONS.put(status, EnumSet.noneOf(TaskStatus.class));
+            SOURCES.put(status, EnumSet.noneOf(TaskStatus.class));
+        }
+        allow(CREATED, RUNNING, FAILED);
+        allow(RUNNING, COMPLETED, FAILED);
+        TRANSITIONS.replaceAll((status, targets) -> Collections.unmodifiableSet(targets));
+        SOURCES.replaceAll((status, sources) -> Collections.unmodifiableSet(sources));
+    }
+
+    private final int code;
+    private final String label;
+
+    TaskStatus(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    private static void allow(TaskStatus from, TaskStatus... targets) {
+        for (TaskStatus target : targets) {
+            TRANSITIONS.get(from).add(target);
+            SOURCES.get(target).add(from);
+        }
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    @JsonValue
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 任务表中是否允许从当前状态迁移到 target
+     */
+    public boolean canTransitionTo(TaskStatus target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    /**
+     * 允许迁移到 target 的全部源状态（条件更新的 WHERE 条件）
+     */
+    public static Set<TaskStatus> sourcesOf(TaskStatus target) {
+        return SOURCES.get(target);
+    }
+
+    public boolean isTerminal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+
+    public static TaskStatus fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown task status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * 按状态名解析（不区分大小写），无法识别时抛出 IllegalArgumentException
+     */
+    @JsonCreator
+    public static TaskStatus of(String label) {
+        if (label != null) {
+            for (TaskStatus status : values()) {
+                if (status.label.equalsIgnoreCase(label.trim())) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown task status: " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,21 @@
+package com.blockchain.iExec.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * TaskStatus <-> SMALLINT 编码列
+ */
+@Converter(autoApply = true)
+public class TaskStatusConverter implements AttributeConverter<TaskStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(TaskStatus attribute) {
+        return attribute != null ? (short) attribute.getCode() : null;
+    }
+
+    @Override
+    public TaskStatus convertToEntityAttribute(Short dbData) {
+        return dbData != null ? TaskStatus.fromCode(dbData) : null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.ClusterInstanceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClusterInstanceRepository extends JpaRepository<ClusterInstanceEntity, String> {
+    
+    /**
+     * 查询心跳未过期的存活实例，按实例ID排序（用于确定分片划分与领导者）
+     */
+    List<ClusterInstanceEntity> findByLastHeartbeatAfterOrderByInstanceIdAsc(LocalDateTime since);
+    
+    /**
+     * 清理长时间没有心跳的实例
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClusterInstanceEntity i WHERE i.lastHeartbeat < :before")
+    int deleteStaleInstances(@Param("before") LocalDateTime before);
+}
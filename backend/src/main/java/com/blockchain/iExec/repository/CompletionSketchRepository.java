@@ -0,0 +1,15 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.CompletionSketchEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CompletionSketchRepository extends JpaRepository<CompletionSketchEntity, Long> {
+    
+    List<CompletionSketchEntity> findByServiceId(String serviceId);
+    
+    CompletionSketchEntity findByServiceIdAndInstanceId(String serviceId, String instanceId);
+}
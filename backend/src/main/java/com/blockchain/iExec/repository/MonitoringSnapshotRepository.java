@@ -0,0 +1,9 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.MonitoringSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MonitoringSnapshotRepository extends JpaRepository<MonitoringSnapshotEntity, Long> {
+}
@@ -1,8 +1,13 @@
 package com.blockchain.iExec.repository;
 
+import com.blockchain.iExec.model.Address;
 import com.blockchain.iExec.model.ReputationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ReputationRepository extends JpaRepository<ReputationEntity, Long> {
-    ReputationEntity findByAddress(String address);
+    ReputationEntity findByAddress(Address address);
+    List<ReputationEntity> findByAddressIn(Collection<Address> addresses);
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.ShardLeaseEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ShardLeaseRepository extends JpaRepository<ShardLeaseEntity, Integer> {
+    
+    /**
+     * 查询指定实例当前持有的桶
+     */
+    @Query("SELECT l.bucket FROM ShardLeaseEntity l WHERE l.owner = :owner AND l.expiresAt > :now")
+    List<Integer> findOwnedBuckets(@Param("owner") String owner, @Param("now") LocalDateTime now);
+    
+    /**
+     * 续约或抢占：仅当桶空闲、租约已过期或本就属于自己时才能获得
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLeaseEntity l SET l.owner = :owner, l.expiresAt = :expiresAt " +
+           "WHERE l.bucket IN :buckets AND (l.owner IS NULL OR l.owner = :owner OR l.expiresAt < :now)")
+    int acquire(@Param("buckets") Collection<Integer> buckets,
+                @Param("owner") String owner,
+                @Param("expiresAt") LocalDateTime expiresAt,
+                @Param("now") LocalDateTime now);
+    
+    /**
+     * 释放不再属于本实例的桶，使新的目标实例可以立即接管
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLeaseEntity l SET l.owner = NULL, l.expiresAt = NULL " +
+           "WHERE l.owner = :owner AND l.bucket NOT IN :keep")
+    int releaseExcept(@Param("owner") String owner, @Param("keep") Collection<Integer> keep);
+    
+    /**
+     * 释放本实例持有的全部租约（正常关闭时调用）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLeaseEntity l SET l.owner = NULL, l.expiresAt = NULL WHERE l.owner = :owner")
+    int releaseAll(@Param("owner") String owner);
+}
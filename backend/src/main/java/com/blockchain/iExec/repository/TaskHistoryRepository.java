@@ -1,12 +1,16 @@
 package com.blockchain.iExec.repository;
 
+import com.blockchain.iExec.model.Address;
 import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,19 +20,24 @@ import java.util.List;
 public interface TaskHistoryRepository extends JpaRepository<TaskHistoryEntity, Long> {
     
     /**
-     * 根据服务ID查询历史任务，按创建时间倒序
+     * 根据服务ID分页查询历史任务，按创建时间倒序
      */
-    List<TaskHistoryEntity> findByServiceIdOrderByCreatedAtDesc(String serviceId);
+    List<TaskHistoryEntity> findByServiceIdOrderByCreatedAtDesc(String serviceId, Pageable pageable);
     
     /**
      * 根据用户地址查询历史任务
      */
-    List<TaskHistoryEntity> findByUserAddress(String userAddress);
+    List<TaskHistoryEntity> findByUserAddress(Address userAddress);
     
     /**
      * 根据状态查询任务
      */
-    List<TaskHistoryEntity> findByStatus(String status);
+    List<TaskHistoryEntity> findByStatus(TaskStatus status);
+    
+    /**
+     * 统计指定状态的任务数
+     */
+    long countByStatus(TaskStatus status);
     
     /**
      * 查询指定时间段内的任务
@@ -38,18 +47,68 @@ public interface TaskHistoryRepository extends JpaRepository<TaskHistoryEntity,
     /**
      * 查询已完成的任务（用于统计分析）
      */
-    @Query("SELECT t FROM TaskHistoryEntity t WHERE t.status = 'Completed' AND t.completedAt IS NOT NULL")
+    @Query("SELECT t FROM TaskHistoryEntity t WHERE t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED AND t.completedAt IS NOT NULL")
     List<TaskHistoryEntity> findCompletedTasks();
     
     /**
-     * 获取指定服务的平均完成时间
+     * 获取指定服务最近N条已完成任务，N 由 pageable 指定
+     */
+    @Query("SELECT t FROM TaskHistoryEntity t WHERE t.serviceId = :serviceId AND t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED ORDER BY t.completedAt DESC")
+    List<TaskHistoryEntity> findRecentCompletedTasks(@Param("serviceId") String serviceId, Pageable pageable);
+    
+    /**
+     * 获取指定服务全部已完成任务的耗时（仅投影耗时列，用于首次构建分位数草图）
+     */
+    @Query("SELECT t.actualTime FROM TaskHistoryEntity t WHERE t.serviceId = :serviceId AND t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED AND t.actualTime > 0")
+    List<Long> findCompletedActualTimes(@Param("serviceId") String serviceId);
+    
+    /**
+     * 按用户聚合历史任务总数与完成数（一次 GROUP BY 查询，用于批量计算成功率）
+     */
+    @Query("SELECT t.userAddress AS userAddress, COUNT(t) AS total, " +
+           "SUM(CASE WHEN t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED THEN 1 ELSE 0 END) AS completed " +
+           "FROM TaskHistoryEntity t WHERE t.userAddress IN :addresses GROUP BY t.userAddress")
+    List<UserOutcomeCount> countOutcomesByUserAddress(@Param("addresses") Collection<Address> addresses);
+    
+    /**
+     * 按服务与完成时间顺序获取全部耗时有效的已完成任务（仅投影回测与模型训练所需的列）
+     */
+    @Query("SELECT new com.blockchain.iExec.repository.TaskHistoryRepository$CompletionRecord(" +
+           "t.serviceId, t.actualTime, t.costAmount, t.resourceRequirement) FROM TaskHistoryEntity t " +
+           "WHERE t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED AND t.actualTime > 0 ORDER BY t.serviceId, t.completedAt, t.id")
+    List<CompletionRecord> findCompletionRecords();
+    
+    /**
+     * 按完成时间顺序获取指定服务耗时有效的已完成任务（仅投影回测与模型训练所需的列）
+     */
+    @Query("SELECT new com.blockchain.iExec.repository.TaskHistoryRepository$CompletionRecord(" +
+           "t.serviceId, t.actualTime, t.costAmount, t.resourceRequirement) FROM TaskHistoryEntity t " +
+           "WHERE t.serviceId = :serviceId AND t.status = com.blockchain.iExec.model.TaskStatus.COMPLETED AND t.actualTime > 0 ORDER BY t.completedAt, t.id")
+    List<CompletionRecord> findCompletionRecords(@Param("serviceId") String serviceId);
+    
+    /**
+     * 完成时间早于 cutoff 的最早一条记录的完成时间（归档按天推进）
+     */
+    @Query("SELECT MIN(t.completedAt) FROM TaskHistoryEntity t WHERE t.completedAt < :cutoff")
+    LocalDateTime findOldestCompletedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * 查询完成时间在 [start, end) 内的任务（归档一天的记录）
+     */
+    List<TaskHistoryEntity> findByCompletedAtGreaterThanEqualAndCompletedAtLessThan(LocalDateTime start, LocalDateTime end);
+    
+    /**
+     * 用户历史任务统计投影
      */
-    @Query("SELECT AVG(t.actualTime) FROM TaskHistoryEntity t WHERE t.serviceId = :serviceId AND t.status = 'Completed'")
-    Double getAverageCompletionTime(@Param("serviceId") String serviceId);
+    interface UserOutcomeCount {
+        Address getUserAddress();
+        long getTotal();
+        long getCompleted();
+    }
     
     /**
-     * 获取指定服务最近N条已完成任务
+     * 已完成任务的回测与训练投影（构造器表达式，大量行时比接口投影的代理对象快得多）
      */
-    @Query("SELECT t FROM TaskHistoryEntity t WHERE t.serviceId = :serviceId AND t.status = 'Completed' ORDER BY t.completedAt DESC")
-    List<TaskHistoryEntity> findRecentCompletedTasks(@Param("serviceId") String serviceId);
+    record CompletionRecord(String serviceId, Long actualTime, Double costAmount, String resourceRequirement) {
+    }
 }
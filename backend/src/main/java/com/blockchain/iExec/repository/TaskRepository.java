@@ -1,15 +1,98 @@
 package com.blockchain.iExec.repository;
 
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
 import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TaskRepository extends JpaRepository<TaskEntity, Long> {
-    TaskEntity findByTaskId(String taskId);
-    TaskEntity findByIexecTaskId(String iexecTaskId);
-    List<TaskEntity> findByStatus(String status);
-    List<TaskEntity> findByUserAddress(String userAddress);
-}
\ No newline at end of file
+    TaskEntity findByTaskId(Bytes32 taskId);
+    TaskEntity findByIexecTaskId(Bytes32 iexecTaskId);
+    List<TaskEntity> findByStatus(TaskStatus status);
+    List<TaskEntity> findByStatusAndBucketIn(TaskStatus status, Collection<Integer> buckets);
+    List<TaskEntity> findByStatusAndBucketInAndIdGreaterThanOrderByIdAsc(TaskStatus status, Collection<Integer> buckets, Long id);
+    List<TaskOwnerView> findOwnersByStatusAndBucketIn(TaskStatus status, Collection<Integer> buckets);
+    List<TaskBucketView> findTop1000ByBucketIsNull();
+    List<TaskEntity> findByUserAddress(Address userAddress);
+    long countByStatus(TaskStatus status);
+    long countByStatusAndRunningAtBefore(TaskStatus status, LocalDateTime runningAt);
+    long countByStatusAndHedgeIexecTaskIdIsNotNull(TaskStatus status);
+    List<TaskIdView> findTaskIdsByTaskIdIn(Collection<Bytes32> taskIds);
+
+    /**
+     * 条件更新任务终态（compare-and-set），仅当当前状态为 fromStatus 时生效
+     * @return 受影响行数，0 表示任务已被其他路径处理
+     */
+    @Modifying
+    @Query("UPDATE TaskEntity t SET t.status = :toStatus, t.version = t.version + 1, " +
+           "t.resultHash = :resultHash, t.errorMessage = :errorMessage, " +
+           "t.completedAt = :completedAt, t.resultAvailableAt = :resultAvailableAt, t.updatedAt = :now " +
+           "WHERE t.id = :id AND t.status = :fromStatus")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("fromStatus") TaskStatus fromStatus,
+                         @Param("toStatus") TaskStatus toStatus,
+                         @Param("resultHash") String resultHash,
+                         @Param("errorMessage") String errorMessage,
+                         @Param("completedAt") LocalDateTime completedAt,
+                         @Param("resultAvailableAt") LocalDateTime resultAvailableAt,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * 条件更新任务状态（不预先读取任务），仅当当前状态为 fromStatus 时生效
+     * runningAt / completedAt 传 null 时保留原值
+     * @return 受影响行数，0 表示任务不存在或状态已被其他写入者修改
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE TaskEntity t SET t.status = :toStatus, t.version = t.version + 1, t.updatedAt = :now, " +
+           "t.runningAt = COALESCE(:runningAt, t.runningAt), t.completedAt = COALESCE(:completedAt, t.completedAt) " +
+           "WHERE t.id = :id AND t.status = :fromStatus")
+    int updateStatus(@Param("id") Long id,
+                     @Param("fromStatus") TaskStatus fromStatus,
+                     @Param("toStatus") TaskStatus toStatus,
+                     @Param("runningAt") LocalDateTime runningAt,
+                     @Param("completedAt") LocalDateTime completedAt,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * 补写分片桶（只写入尚未设置的行，不修改版本号）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE TaskEntity t SET t.bucket = :bucket WHERE t.id IN :ids AND t.bucket IS NULL")
+    int assignBucket(@Param("ids") Collection<Long> ids, @Param("bucket") Integer bucket);
+
+    /**
+     * 任务ID投影（事件采集批量去重，只读取任务ID）
+     */
+    interface TaskIdView {
+        Bytes32 getTaskId();
+    }
+
+    /**
+     * 任务归属投影（只读取任务ID与用户地址）
+     */
+    interface TaskOwnerView {
+        Bytes32 getTaskId();
+        Address getUserAddress();
+    }
+
+    /**
+     * 补写分片桶投影（只读取主键与任务ID）
+     */
+    interface TaskBucketView {
+        Long getId();
+        Bytes32 getTaskId();
+    }
+}
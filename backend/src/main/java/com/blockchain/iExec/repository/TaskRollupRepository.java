@@ -0,0 +1,43 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.RollupResolution;
+import com.blockchain.iExec.model.TaskRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TaskRollupRepository extends JpaRepository<TaskRollupEntity, Long> {
+
+    /**
+     * 查询 [start, end] 内全部实例、全部服务的聚合行
+     */
+    List<TaskRollupEntity> findByResolutionAndBucketStartBetween(RollupResolution resolution, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * 查询 [start, end] 内指定服务全部实例的聚合行
+     */
+    List<TaskRollupEntity> findByResolutionAndServiceIdAndBucketStartBetween(RollupResolution resolution, String serviceId,
+                                                                           LocalDateTime start, LocalDateTime end);
+
+    /**
+     * 本实例在指定桶上已有的行（刷新时一次取出，逐行累加）
+     */
+    List<TaskRollupEntity> findByResolutionAndInstanceIdAndBucketStartIn(RollupResolution resolution, String instanceId,
+                                                                       Collection<LocalDateTime> bucketStarts);
+
+    /**
+     * 删除早于 cutoff 的聚合行
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TaskRollupEntity r WHERE r.resolution = :resolution AND r.bucketStart < :cutoff")
+    int deleteOlderThan(@Param("resolution") RollupResolution resolution, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,333 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.repository.TaskRepository.TaskOwnerView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 准入控制服务 - 限制本实例提交到 iExec 的在途任务数
+ *
+ * 每个在途任务持有一个许可：派发时获取，任务终结时归还，同时按用户统计在途数供公平调度限额。
+ * 许可用尽时任务留在本地派发队列，而不是涌入工作池排队直至超时。
+ * 并发上限由 AdmissionLimit 根据测得的吞吐量与延迟持续调整。
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${task.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${task.admission.initial-limit:10}")
+    private int initialLimit;
+
+    @Value("${task.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${task.admission.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${task.admission.backoff-ratio:0.7}")
+    private double backoffRatio;
+
+    @Value("${task.admission.additive-increase:1}")
+    private double additiveIncrease;
+
+    @Value("${task.admission.latency-tolerance:1.4}")
+    private double latencyTolerance;
+
+    @Value("${task.admission.failure-threshold:0.1}")
+    private double failureThreshold;
+
+    @Value("${task.admission.min-failure-samples:5}")
+    private int minFailureSamples;
+
+    @Value("${task.admission.smoothing:0.3}")
+    private double smoothing;
+
+    @Value("${task.admission.adjust-interval:60000}")
+    private long adjustInterval;
+
+    private AdmissionLimit limit;
+
+    // taskId -> 许可；以及按用户统计的在途任务数
+    private final Map<String, Permit> permits = new ConcurrentHashMap<>();
+    private final Map<String, Integer> userInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong rejections = new AtomicLong();
+    private long lastAdjustAt = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        limit = new AdmissionLimit(initialLimit, minLimit, maxLimit, backoffRatio, additiveIncrease,
+            latencyTolerance, failureThreshold, minFailureSamples, smoothing);
+
+        Gauge.builder("task.admission.limit", this, AdmissionControlService::getLimit).register(meterRegistry);
+        Gauge.builder("task.admission.in_flight", permits, Map::size).register(meterRegistry);
+        FunctionCounter.builder("task.admission.rejected", rejections, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * 为即将提交的任务获取许可
+     *
+     * @return 是否获得许可；为 false 时任务应留在队列中等待
+     */
+    public boolean tryAcquire(String taskId, String userAddress) {
+        synchronized (limit) {
+            if (enabled && permits.size() >= limit.getLimit()) {
+                limit.recordInFlight(permits.size());
+                rejections.incrementAndGet();
+                return false;
+            }
+            addPermit(taskId, userAddress, LocalDateTime.now());
+            limit.recordInFlight(permits.size());
+            return true;
+        }
+    }
+
+    /**
+     * 归还未使用的许可（提交失败或任务已被其他路径处理）
+     */
+    public void release(String taskId) {
+        synchronized (limit) {
+            removePermit(taskId);
+        }
+    }
+
+    /**
+     * 用户当前的在途任务数
+     */
+    public int getInFlight(String userAddress) {
+        return userInFlight.getOrDefault(String.valueOf(userAddress), 0);
+    }
+
+    /**
+     * 任务终结：归还许可并把执行延迟计入上限调整（事务提交后生效）
+     *
+     * @param measured 是否计入上限调整；启动恢复时终结的任务在停机期间结束，其耗时与结果不反映当前上限
+     */
+    public void onFinalized(TaskEntity task, boolean completed, boolean measured) {
+        LocalDateTime submittedAt = task.getExecutionStartedAt();
+        AfterCommit.run(() -> {
+            synchronized (limit) {
+                removePermit(task.getTaskId().toString());
+                if (measured && submittedAt != null) {
+                    limit.recordOutcome(Duration.between(submittedAt, LocalDateTime.now()).toMillis() / 1000.0, completed);
+                }
+            }
+        });
+    }
+
+    /**
+     * 定期与数据库中本实例负责的运行中任务对齐许可，并调整并发上限
+     * 对齐可以纠正重启、分片迁移或其他路径终结任务造成的偏差
+     */
+    @Scheduled(fixedDelayString = "${task.admission.adjust-interval:60000}")
+    public void adjust() {
+        try {
+            Map<String, String> running = new HashMap<>();
+            Set<Integer> buckets = shardLeaseService.getOwnedBuckets();
+            List<TaskOwnerView> owned = buckets.isEmpty() ? List.of()
+                : taskRepository.findOwnersByStatusAndBucketIn(TaskStatus.RUNNING, buckets);
+            for (TaskOwnerView task : owned) {
+                running.put(task.getTaskId().toString(),
+                    task.getUserAddress() != null ? task.getUserAddress().toString() : null);
+            }
+
+            long now = System.currentTimeMillis();
+            synchronized (limit) {
+                // 刚获取许可、尚未保存为 Running 的任务不回收
+                LocalDateTime graceBefore = LocalDateTime.now().minus(Duration.ofMillis(adjustInterval));
+                for (Map.Entry<String, Permit> entry : List.copyOf(permits.entrySet())) {
+                    if (!running.containsKey(entry.getKey()) && entry.getValue().acquiredAt.isBefore(graceBefore)) {
+                        removePermit(entry.getKey());
+                    }
+                }
+                running.forEach((taskId, userAddress) -> {
+                    if (!permits.containsKey(taskId)) {
+                        addPermit(taskId, userAddress, LocalDateTime.now());
+                    }
+                });
+
+                int previous = limit.getLimit();
+                limit.recordInFlight(permits.size());
+                int current = limit.adjust(Math.max(1, now - lastAdjustAt) / 1000.0);
+                if (current != previous) {
+                    logger.info("Admission limit {} -> {} (in flight {}, latency {}s, baseline {}s, throughput {}/min)",
+                        previous, current, permits.size(), Math.round(limit.getLatency()),
+                        Math.round(limit.getBaselineLatency()), Math.round(limit.getThroughput() * 60));
+                }
+            }
+            lastAdjustAt = now;
+        } catch (Exception e) {
+            logger.error("Error adjusting admission limit", e);
+        }
+    }
+
+    private void addPermit(String taskId, String userAddress, LocalDateTime acquiredAt) {
+        Permit permit = new Permit(String.valueOf(userAddress), acquiredAt);
+        Permit previous = permits.put(taskId, permit);
+        if (previous != null) {
+            userInFlight.computeIfPresent(previous.userAddress, (user, count) -> count > 1 ? count - 1 : null);
+        }
+        userInFlight.merge(permit.userAddress, 1, Integer::sum);
+    }
+
+    private void removePermit(String taskId) {
+        Permit permit = permits.remove(taskId);
+        if (permit != null) {
+            userInFlight.computeIfPresent(permit.userAddress, (user, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public int getLimit() {
+        synchronized (limit) {
+            return limit.getLimit();
+        }
+    }
+
+    /**
+     * 获取准入控制状态
+     */
+    public AdmissionStatus getStatus() {
+        AdmissionStatus status = new AdmissionStatus();
+        status.setEnabled(enabled);
+        status.setInFlight(permits.size());
+        status.setRejections(rejections.get());
+        synchronized (limit) {
+            status.setLimit(limit.getLimit());
+            status.setThroughputPerMinute(limit.getThroughput() * 60);
+            status.setLatency(Math.round(limit.getLatency()));
+            status.setBaselineLatency(Math.round(limit.getBaselineLatency()));
+            status.setRequiredConcurrency(limit.getRequiredConcurrency());
+            status.setLastAdjustment(limit.getLastAdjustment());
+        }
+        return status;
+    }
+
+    private static class Permit {
+        private final String userAddress;
+        private final LocalDateTime acquiredAt;
+
+        Permit(String userAddress, LocalDateTime acquiredAt) {
+            this.userAddress = userAddress;
+            this.acquiredAt = acquiredAt;
+        }
+    }
+
+    /**
+     * 准入控制状态类（延迟单位：秒）
+     */
+    public static class AdmissionStatus {
+        private boolean enabled;
+        private int limit;
+        private int inFlight;
+        private long rejections;
+        private double throughputPerMinute;
+        private long latency;
+        private long baselineLatency;
+        private double requiredConcurrency;
+        private String lastAdjustment;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public void setLimit(int limit) {
+            this.limit = limit;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public void setInFlight(int inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        public long getRejections() {
+            return rejections;
+        }
+
+        public void setRejections(long rejections) {
+            this.rejections = rejections;
+        }
+
+        public double getThroughputPerMinute() {
+            return throughputPerMinute;
+        }
+
+        public void setThroughputPerMinute(double throughputPerMinute) {
+            this.throughputPerMinute = throughputPerMinute;
+        }
+
+        public long getLatency() {
+            return latency;
+        }
+
+        public void setLatency(long latency) {
+            this.latency = latency;
+        }
+
+        public long getBaselineLatency() {
+            return baselineLatency;
+        }
+
+        public void setBaselineLatency(long baselineLatency) {
+            this.baselineLatency = baselineLatency;
+        }
+
+        public double getRequiredConcurrency() {
+            return requiredConcurrency;
+        }
+
+        public void setRequiredConcurrency(double requiredConcurrency) {
+            this.requiredConcurrency = requiredConcurrency;
+        }
+
+        public String getLastAdjustment() {
+            return lastAdjustment;
+        }
+
+        public void setLastAdjustment(String lastAdjustment) {
+            this.lastAdjustment = lastAdjustment;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.blockchain.iExec.service;
+
+/**
+ * 自适应并发上限（AIMD + Little 定律），纯计算逻辑，便于离线模拟评估（非线程安全，由调用方加锁）
+ *
+ * 每个调整窗口统计终结任务的数量、失败数与执行延迟：
+ * - 延迟超过基线的 latencyTolerance 倍或失败率超过阈值视为拥塞，上限乘以 backoffRatio；
+ *   窗口内终结数少于 minFailureSamples 时不判定失败率、成功样本不足时不判定延迟，
+ *   避免低流量时单个失败或超时即触发减小；
+ *   但不低于 Little 定律估计的所需并发 L = λ × W（λ 为成功吞吐量，W 为基线延迟），
+ *   即维持当前吞吐量且无排队时需要的在途任务数
+ * - 未拥塞且窗口内在途任务触及上限时，上限加 additiveIncrease
+ * 基线延迟取最近若干窗口平滑延迟的最小值，工作池变慢后会随窗口滑出而上升。
+ * 延迟测量滞后一个任务耗时，因此每次减小后约一个延迟周期内不再调整。
+ */
+public class AdmissionLimit {
+
+    // 基线延迟取最小值的窗口数
+    private static final int BASELINE_WINDOWS = 30;
+
+    // 窗口内成功样本少于该值时不更新延迟；启动后前几个窗口只有短任务完成，不计入基线
+    private static final int MIN_WINDOW_SAMPLES = 3;
+    private static final int WARMUP_WINDOWS = 3;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double additiveIncrease;
+    private final double latencyTolerance;
+    private final double failureThreshold;
+    private final int minFailureSamples;
+    private final double smoothing;
+
+    private double limit;
+
+    // 当前窗口
+    private int windowSuccesses;
+    private int windowFailures;
+    private double windowLatencySum;
+    private int peakInFlight;
+
+    // 平滑后的测量值
+    private double throughput;  // 成功任务数/秒
+    private double latency;     // 秒
+    private final double[] latencyHistory = new double[BASELINE_WINDOWS];
+    private int latencyWindows;
+    private int historyCount;
+    private int historyNext;
+    private String lastAdjustment = "HOLD";
+    private int cooldownWindows;  // 减小上限后暂停调整的窗口数
+
+    public AdmissionLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double additiveIncrease,
+                          double latencyTolerance, double failureThreshold, int minFailureSamples, double smoothing) {
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.additiveIncrease = additiveIncrease;
+        this.latencyTolerance = latencyTolerance;
+        this.failureThreshold = failureThreshold;
+        this.minFailureSamples = Math.max(1, minFailureSamples);
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * 记录一个任务终结
+     *
+     * @param latencySeconds 提交到终结的耗时（秒）
+     * @param success        是否成功完成（失败、超时均为 false）
+     */
+    public void recordOutcome(double latencySeconds, boolean success) {
+        if (success) {
+            windowSuccesses++;
+            windowLatencySum += latencySeconds;
+        } else {
+            windowFailures++;
+        }
+    }
+
+    /**
+     * 记录当前在途任务数（取窗口内峰值，用于判断上限是否成为瓶颈）
+     */
+    public void recordInFlight(int inFlight) {
+        peakInFlight = Math.max(peakInFlight, inFlight);
+    }
+
+    /**
+     * 结束一个窗口并调整上限
+     *
+     * @param windowSeconds 窗口长度（秒）
+     * @return 调整后的上限
+     */
+    public int adjust(double windowSeconds) {
+        throughput = smooth(throughput, windowSuccesses / windowSeconds, latencyWindows == 0);
+        if (windowSuccesses >= MIN_WINDOW_SAMPLES) {
+            latency = smooth(latency, windowLatencySum / windowSuccesses, latencyWindows == 0);
+            if (++latencyWindows > WARMUP_WINDOWS) {
+                latencyHistory[historyNext] = latency;
+                historyNext = (historyNext + 1) % BASELINE_WINDOWS;
+                historyCount = Math.min(historyCount + 1, BASELINE_WINDOWS);
+            }
+        }
+
+        int samples = windowSuccesses + windowFailures;
+        boolean failing = samples >= minFailureSamples && (double) windowFailures / samples > failureThreshold;
+
+        double baseline = getBaselineLatency();
+        boolean slow = windowSuccesses >= MIN_WINDOW_SAMPLES && baseline > 0 && latency > latencyTolerance * baseline;
+        boolean congested = failing || slow;
+
+        if (cooldownWindows > 0) {
+            // 延迟在任务终结时才测得，减小上限后约一个延迟周期内的测量仍反映旧上限
+            cooldownWindows--;
+            lastAdjustment = "HOLD";
+        } else if (congested) {
+            double required = getRequiredConcurrency();
+            limit = required < limit ? Math.max(limit * backoffRatio, required) : limit * backoffRatio;
+            cooldownWindows = (int) Math.ceil(latency / windowSeconds);
+            lastAdjustment = "DECREASE";
+        } else if (peakInFlight >= getLimit()) {
+            limit += additiveIncrease;
+            lastAdjustment = "INCREASE";
+        } else {
+            lastAdjustment = "HOLD";
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+
+        windowSuccesses = 0;
+        windowFailures = 0;
+        windowLatencySum = 0;
+        peakInFlight = 0;
+        return getLimit();
+    }
+
+    private double smooth(double current, double sample, boolean first) {
+        return first ? sample : smoothing * sample + (1 - smoothing) * current;
+    }
+
+    public int getLimit() {
+        return (int) Math.floor(limit);
+    }
+
+    /**
+     * 成功吞吐量（任务/秒）
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    public double getBaselineLatency() {
+        double baseline = 0;
+        for (int i = 0; i < historyCount; i++) {
+            baseline = i == 0 ? latencyHistory[i] : Math.min(baseline, latencyHistory[i]);
+        }
+        return baseline;
+    }
+
+    /**
+     * Little 定律：以基线延迟维持当前吞吐量所需的在途任务数
+     */
+    public double getRequiredConcurrency() {
+        return throughput * getBaselineLatency();
+    }
+
+    public String getLastAdjustment() {
+        return lastAdjustment;
+    }
+}
@@ -0,0 +1,364 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 完成时间预测器回测引擎（纯计算逻辑，无状态，可并发调用）
+ *
+ * 每个服务的历史按完成顺序回放：每条完成记录先向所有预测器要预测值，再用实际耗时更新预测器，
+ * 预测只依赖此前的样本。前 warmup 条只用于训练，不计分。
+ * 指标：MAE（秒）、MAPE 与区间覆盖率。区间由该预测器此前的 实际/预测 比值的分位数给出，
+ * 名义覆盖率为 intervalLevel，实际覆盖率越接近名义值说明预测的不确定性估计越可信。
+ * 比值分布用对数等宽直方图统计（分辨率约 2%），每条记录 O(1) 更新。
+ * 各服务相互独立，在 fork-join 公共池上并行回放。
+ */
+public class BacktestEngine {
+
+    // 区间分位数每隔若干样本刷新一次
+    private static final int INTERVAL_REFRESH = 16;
+
+    // 实际/预测 比值直方图：ln(比值) 在 [-RATIO_RANGE, RATIO_RANGE] 内按 RATIO_BIN_WIDTH 分桶，超出范围的计入两端
+    private static final double RATIO_RANGE = 5;
+    private static final double RATIO_BIN_WIDTH = 0.02;
+    private static final int RATIO_BINS = (int) (2 * RATIO_RANGE / RATIO_BIN_WIDTH);
+
+    private final Map<String, Supplier<CompletionTimePredictor>> predictors;
+    private final int warmup;
+    private final double intervalLevel;
+
+    public BacktestEngine(Map<String, Supplier<CompletionTimePredictor>> predictors, int warmup, double intervalLevel) {
+        this.predictors = predictors;
+        this.warmup = warmup;
+        this.intervalLevel = intervalLevel;
+    }
+
+    /**
+     * 回测多个服务
+     *
+     * @param history 服务ID -> 按完成顺序排列的历史
+     */
+    public BacktestReport run(Map<String, ServiceHistory> history) {
+        long start = System.nanoTime();
+        List<ServiceBacktest> services = history.entrySet().parallelStream()
+            .map(entry -> backtest(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparing(ServiceBacktest::getServiceId))
+            .toList();
+
+        // 全部服务的汇总：按计分样本数加权
+        Map<String, Accumulator> overall = new LinkedHashMap<>();
+        predictors.keySet().forEach(name -> overall.put(name, new Accumulator()));
+        long rows = 0;
+        for (ServiceBacktest service : services) {
+            rows += service.getSamples();
+            for (PredictorScore score : service.getScores()) {
+                overall.get(score.getPredictor()).merge(score);
+            }
+        }
+
+        BacktestReport report = new BacktestReport();
+        report.setRows(rows);
+        report.setServices(services);
+        report.setOverall(scores(overall));
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * 回测单个服务
+     */
+    public ServiceBacktest backtest(String serviceId, ServiceHistory history) {
+        Map<String, CompletionTimePredictor> models = new LinkedHashMap<>();
+        predictors.forEach((name, factory) -> models.put(name, factory.get()));
+        return backtest(serviceId, history, models);
+    }
+
+    /**
+     * 用给定的预测器实例回测单个服务；回放结束后这些实例已用全部历史训练，可直接作为线上模型
+     */
+    public ServiceBacktest backtest(String serviceId, ServiceHistory history, Map<String, CompletionTimePredictor> trained) {
+        int n = trained.size();
+        CompletionTimePredictor[] models = new CompletionTimePredictor[n];
+        RatioHistogram[] ratios = new RatioHistogram[n];
+        double[] lower = new double[n];
+        double[] upper = new double[n];
+        Map<String, Accumulator> accumulators = new LinkedHashMap<>();
+        Accumulator[] acc = new Accumulator[n];
+        int p = 0;
+        for (Map.Entry<String, CompletionTimePredictor> entry : trained.entrySet()) {
+            models[p] = entry.getValue();
+            ratios[p] = new RatioHistogram();
+            acc[p] = new Accumulator();
+            accumulators.put(entry.getKey(), acc[p]);
+            p++;
+        }
+
+        double lowerQ = (1 - intervalLevel) / 2;
+        double upperQ = 1 - lowerQ;
+        for (int i = 0; i < history.size(); i++) {
+            CompletionFeatures features = history.getFeatures(i);
+            double actual = history.getActualTime(i);
+            boolean refresh = (i - warmup) % INTERVAL_REFRESH == 0;
+
+            for (int m = 0; m < n; m++) {
+                double forecast = Math.max(1e-9, models[m].predict(features));
+                if (i >= warmup) {
+                    if (refresh) {
+                        lower[m] = ratios[m].quantile(lowerQ);
+                        upper[m] = ratios[m].quantile(upperQ);
+                    }
+                    acc[m].add(forecast, actual, forecast * lower[m], forecast * upper[m]);
+                }
+                ratios[m].add(actual / forecast);
+                models[m].update(features, actual);
+            }
+        }
+
+        ServiceBacktest result = new ServiceBacktest();
+        result.setServiceId(serviceId);
+        result.setSamples(history.size());
+        result.setScores(scores(accumulators));
+        result.getScores().stream()
+            .filter(score -> score.getSamples() > 0)
+            .min(Comparator.comparingDouble(PredictorScore::getMae))
+            .ifPresent(best -> result.setBestPredictor(best.getPredictor()));
+        return result;
+    }
+
+    private static List<PredictorScore> scores(Map<String, Accumulator> accumulators) {
+        List<PredictorScore> scores = new ArrayList<>(accumulators.size());
+        accumulators.forEach((name, acc) -> {
+            PredictorScore score = new PredictorScore();
+            score.setPredictor(name);
+            score.setSamples(acc.count);
+            if (acc.count > 0) {
+                score.setMae(acc.absError / acc.count);
+                score.setMape(acc.absPercentError / acc.count * 100);
+                score.setCoverage((double) acc.covered / acc.count);
+            }
+            scores.add(score);
+        });
+        return scores;
+    }
+
+    private static class Accumulator {
+        private long count;
+        private double absError;
+        private double absPercentError;
+        private long covered;
+
+        void add(double forecast, double actual, double lower, double upper) {
+            double error = Math.abs(actual - forecast);
+            count++;
+            absError += error;
+            absPercentError += error / actual;
+            if (actual >= lower && actual <= upper) {
+                covered++;
+            }
+        }
+
+        void merge(PredictorScore score) {
+            count += score.getSamples();
+            absError += score.getMae() * score.getSamples();
+            absPercentError += score.getMape() / 100 * score.getSamples();
+            covered += Math.round(score.getCoverage() * score.getSamples());
+        }
+    }
+
+    private static class RatioHistogram {
+        private final long[] counts = new long[RATIO_BINS];
+        private long total;
+
+        void add(double ratio) {
+            int bin = (int) Math.floor((Math.log(ratio) + RATIO_RANGE) / RATIO_BIN_WIDTH);
+            counts[Math.max(0, Math.min(RATIO_BINS - 1, bin))]++;
+            total++;
+        }
+
+        // 分位数取所在桶的中点，没有样本时返回 NaN
+        double quantile(double q) {
+            if (total == 0) {
+                return Double.NaN;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            int bin = 0;
+            while (bin < RATIO_BINS - 1 && (seen += counts[bin]) < rank) {
+                bin++;
+            }
+            return Math.exp((bin + 0.5) * RATIO_BIN_WIDTH - RATIO_RANGE);
+        }
+    }
+
+    /**
+     * 单个服务按完成顺序排列的历史（实际耗时须大于 0）
+     */
+    public static class ServiceHistory {
+        private final List<CompletionFeatures> features = new ArrayList<>();
+        private double[] actualTimes = new double[16];
+
+        public void add(CompletionFeatures features, double actualTime) {
+            if (this.features.size() == actualTimes.length) {
+                actualTimes = Arrays.copyOf(actualTimes, actualTimes.length * 2);
+            }
+            actualTimes[this.features.size()] = actualTime;
+            this.features.add(features);
+        }
+
+        public int size() {
+            return features.size();
+        }
+
+        public CompletionFeatures getFeatures(int index) {
+            return features.get(index);
+        }
+
+        public double getActualTime(int index) {
+            return actualTimes[index];
+        }
+    }
+
+    // ==================== 数据类 ====================
+
+    /**
+     * 回测报告
+     */
+    public static class BacktestReport {
+        private long rows;
+        private long elapsedMillis;
+        private List<PredictorScore> overall;
+        private List<ServiceBacktest> services;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public void setElapsedMillis(long elapsedMillis) {
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public List<PredictorScore> getOverall() {
+            return overall;
+        }
+
+        public void setOverall(List<PredictorScore> overall) {
+            this.overall = overall;
+        }
+
+        public List<ServiceBacktest> getServices() {
+            return services;
+        }
+
+        public void setServices(List<ServiceBacktest> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * 单个服务的回测结果，bestPredictor 为 MAE 最小的预测器
+     */
+    public static class ServiceBacktest {
+        private String serviceId;
+        private long samples;
+        private String bestPredictor;
+        private List<PredictorScore> scores;
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public void setSamples(long samples) {
+            this.samples = samples;
+        }
+
+        public String getBestPredictor() {
+            return bestPredictor;
+        }
+
+        public void setBestPredictor(String bestPredictor) {
+            this.bestPredictor = bestPredictor;
+        }
+
+        public List<PredictorScore> getScores() {
+            return scores;
+        }
+
+        public void setScores(List<PredictorScore> scores) {
+            this.scores = scores;
+        }
+    }
+
+    /**
+     * 预测器得分（MAE 单位：秒，MAPE 单位：%）
+     */
+    public static class PredictorScore {
+        private String predictor;
+        private long samples;
+        private double mae;
+        private double mape;
+        private double coverage;
+
+        public String getPredictor() {
+            return predictor;
+        }
+
+        public void setPredictor(String predictor) {
+            this.predictor = predictor;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public void setSamples(long samples) {
+            this.samples = samples;
+        }
+
+        public double getMae() {
+            return mae;
+        }
+
+        public void setMae(double mae) {
+            this.mae = mae;
+        }
+
+        public double getMape() {
+            return mape;
+        }
+
+        public void setMape(double mape) {
+            this.mape = mape;
+        }
+
+        public double getCoverage() {
+            return coverage;
+        }
+
+        public void setCoverage(double coverage) {
+            this.coverage = coverage;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.jfr.SchedulerComputationEvent;
+import com.blockchain.iExec.repository.TaskHistoryRepository.CompletionRecord;
+import com.blockchain.iExec.service.BacktestEngine.BacktestReport;
+import com.blockchain.iExec.service.BacktestEngine.ServiceHistory;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预测器回测服务 - 用 task_history 按时间回放评估各完成时间预测器
+ */
+@Service
+public class BacktestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacktestService.class);
+
+    @Autowired
+    private TaskHistoryQueryService taskHistoryQueryService;
+
+    // 每个服务前若干条记录只用于训练，不计分
+    @Value("${task.prediction.backtest.warmup:5}")
+    private int warmup;
+
+    // 预测区间的名义覆盖率
+    @Value("${task.prediction.backtest.interval-level:0.8}")
+    private double intervalLevel;
+
+    /**
+     * 回测全部内置预测器
+     *
+     * @param serviceId 服务ID，为 null 时回测全部服务
+     */
+    public BacktestReport backtest(String serviceId) {
+        SchedulerComputationEvent event = new SchedulerComputationEvent("backtest", serviceId);
+        event.begin();
+        try {
+            long start = System.nanoTime();
+            Map<String, ServiceHistory> history = loadHistory(serviceId);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+            BacktestReport report = newEngine().run(history);
+            event.samples = (int) report.getRows();
+            logger.info("Backtested {} completions across {} services (load {} ms, replay {} ms)",
+                report.getRows(), history.size(), loadMillis, report.getElapsedMillis());
+            return report;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * 按服务加载按完成顺序排列的历史
+     *
+     * @param serviceId 服务ID，为 null 时加载全部服务
+     */
+    public Map<String, ServiceHistory> loadHistory(String serviceId) {
+        List<CompletionRecord> records = taskHistoryQueryService.findCompletionRecords(serviceId);
+
+        Map<String, ServiceHistory> history = new HashMap<>();
+        for (CompletionRecord record : records) {
+            history.computeIfAbsent(record.serviceId(), id -> new ServiceHistory())
+                .add(CompletionFeatures.of(record.costAmount(), record.resourceRequirement()), record.actualTime());
+        }
+        return history;
+    }
+
+    public BacktestEngine newEngine() {
+        return new BacktestEngine(CompletionTimePredictors.defaults(), warmup, intervalLevel);
+    }
+}
@@ -0,0 +1,251 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.service.BacktestEngine.PredictorScore;
+import com.blockchain.iExec.service.BacktestEngine.ServiceBacktest;
+import com.blockchain.iExec.service.BacktestEngine.ServiceHistory;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import com.blockchain.iExec.service.CompletionTimePredictor.Estimate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 完成时间预测器服务 - 按服务选择并维护线上预测器
+ *
+ * 每个服务同时维护全部内置预测器。首次访问某服务时用回测引擎回放其历史一次，完成训练并得到
+ * 各预测器的累计绝对误差；之后每次任务完成（事务提交后）先用各预测器预测再更新，误差随之累加，
+ * 即持续进行的回测，不再重新回放历史。计分样本足够时活动预测器取平均绝对误差最小者，否则使用默认预测器。
+ * 每次更新后发布不可变快照，预测只读取快照，无锁且不访问数据库。
+ * 资源需求按服务统计已完成任务的资源需求平均值。
+ */
+@Service
+public class CompletionPredictorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionPredictorService.class);
+
+    @Autowired
+    private BacktestService backtestService;
+
+    // 样本不足或未固定时使用的预测器
+    @Value("${task.prediction.predictor.default:WMA}")
+    private String defaultPredictor;
+
+    // 固定所有服务使用的预测器，为空时按回测得分选择
+    @Value("${task.prediction.predictor.fixed:}")
+    private String fixedPredictor;
+
+    // 按回测得分选择所需的最少计分样本数
+    @Value("${task.prediction.predictor.min-samples:50}")
+    private int minSamples;
+
+    private final ConcurrentMap<String, ServicePredictors> services = new ConcurrentHashMap<>();
+
+    /**
+     * 用服务的活动预测器预测完成耗时（秒）
+     */
+    public double predict(String serviceId, CompletionFeatures features) {
+        return service(serviceId).snapshot.estimate.predict(features);
+    }
+
+    /**
+     * 用服务的全部预测器预测同一特征（名称 -> 秒），用于与基准算法对比；在服务的更新锁内读取各模型
+     */
+    public Map<String, Double> predictAll(String serviceId, CompletionFeatures features) {
+        return service(serviceId).predictAll(features);
+    }
+
+    /**
+     * 服务当前的活动预测器名称
+     */
+    public String getActivePredictor(String serviceId) {
+        return service(serviceId).snapshot.active;
+    }
+
+    /**
+     * 服务已训练的完成记录数
+     */
+    public long getSampleCount(String serviceId) {
+        return service(serviceId).snapshot.samples;
+    }
+
+    /**
+     * 已完成任务资源需求的平均值，服务没有资源需求记录时返回 null
+     *
+     * @return [CPU 核数, 内存 MB, 存储 GB]
+     */
+    public double[] getAverageResources(String serviceId) {
+        double[] average = service(serviceId).snapshot.averageResources;
+        return average != null ? average.clone() : null;
+    }
+
+    /**
+     * 记录一次任务完成，更新该服务的全部预测器与误差
+     * 若处于事务中，则在提交后才更新，回滚的终结不会进入模型
+     */
+    public void onCompleted(TaskHistoryEntity history) {
+        if (history.getServiceId() == null || history.getActualTime() == null || history.getActualTime() <= 0) {
+            return;
+        }
+        CompletionFeatures features = CompletionFeatures.of(history.getCostAmount(), history.getResourceRequirement());
+        double actualTime = history.getActualTime();
+        AfterCommit.run(() -> {
+            // 尚未加载的服务无需更新，首次访问时会从数据库读到这条记录
+            ServicePredictors predictors = services.get(history.getServiceId());
+            if (predictors != null) {
+                predictors.add(features, actualTime);
+            }
+        });
+    }
+
+    /**
+     * 冷启动加载在映射外进行（回放历史较慢，不阻塞其他服务）；并发加载同一服务时保留先放入的结果
+     */
+    private ServicePredictors service(String serviceId) {
+        ServicePredictors predictors = services.get(serviceId);
+        if (predictors != null) {
+            return predictors;
+        }
+        ServicePredictors loaded = load(serviceId);
+        ServicePredictors existing = services.putIfAbsent(serviceId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private ServicePredictors load(String serviceId) {
+        ServiceHistory history = backtestService.loadHistory(serviceId).getOrDefault(serviceId, new ServiceHistory());
+
+        Map<String, CompletionTimePredictor> models = new LinkedHashMap<>();
+        CompletionTimePredictors.defaults().forEach((name, factory) -> models.put(name, factory.get()));
+        ServiceBacktest backtest = backtestService.newEngine().backtest(serviceId, history, models);
+
+        ServicePredictors predictors = new ServicePredictors(models);
+        predictors.seed(history, backtest.getScores());
+
+        logger.info("Service {} uses predictor {} ({} completions, scores {})",
+            serviceId, predictors.snapshot.active, history.size(), describe(backtest.getScores()));
+        return predictors;
+    }
+
+    private static String describe(List<PredictorScore> scores) {
+        StringBuilder builder = new StringBuilder();
+        for (PredictorScore score : scores) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(score.getPredictor()).append(" mae=").append(Math.round(score.getMae())).append('s');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 单个服务的预测器、累计误差与资源需求统计（更新在对象锁内进行，读取只访问 snapshot）
+     */
+    private class ServicePredictors {
+        private final Map<String, CompletionTimePredictor> models;
+        private final Map<String, double[]> errors = new LinkedHashMap<>();  // 名称 -> [绝对误差之和, 计分样本数]
+        private long samples;
+        private final double[] resourceSums = new double[3];
+        private long resourceSamples;
+        private volatile PredictionSnapshot snapshot;
+
+        ServicePredictors(Map<String, CompletionTimePredictor> models) {
+            this.models = models;
+            models.keySet().forEach(name -> errors.put(name, new double[2]));
+        }
+
+        /**
+         * 用冷启动回放的结果初始化：预测器已训练，回测得分换算为累计误差
+         */
+        synchronized void seed(ServiceHistory history, List<PredictorScore> scores) {
+            for (PredictorScore score : scores) {
+                double[] error = errors.get(score.getPredictor());
+                error[0] = score.getMae() * score.getSamples();
+                error[1] = score.getSamples();
+            }
+            samples = history.size();
+            for (int i = 0; i < history.size(); i++) {
+                addResources(history.getFeatures(i));
+            }
+            publish();
+        }
+
+        /**
+         * 先预测再更新（与回测相同的顺序），O(预测器数 × 特征数)
+         */
+        synchronized void add(CompletionFeatures features, double actualTime) {
+            for (Map.Entry<String, CompletionTimePredictor> entry : models.entrySet()) {
+                double[] error = errors.get(entry.getKey());
+                error[0] += Math.abs(actualTime - entry.getValue().predict(features));
+                error[1]++;
+                entry.getValue().update(features, actualTime);
+            }
+            samples++;
+            addResources(features);
+            publish();
+        }
+
+        synchronized Map<String, Double> predictAll(CompletionFeatures features) {
+            Map<String, Double> predictions = new LinkedHashMap<>();
+            models.forEach((name, model) -> predictions.put(name, model.predict(features)));
+            return predictions;
+        }
+
+        private void addResources(CompletionFeatures features) {
+            if (Double.isNaN(features.getCpuCores()) || Double.isNaN(features.getMemoryMB())
+                    || Double.isNaN(features.getStorageGB())) {
+                return;
+            }
+            resourceSums[0] += features.getCpuCores();
+            resourceSums[1] += features.getMemoryMB();
+            resourceSums[2] += features.getStorageGB();
+            resourceSamples++;
+        }
+
+        private void publish() {
+            String active = select();
+            double[] averageResources = null;
+            if (resourceSamples > 0) {
+                averageResources = new double[3];
+                for (int i = 0; i < 3; i++) {
+                    averageResources[i] = resourceSums[i] / resourceSamples;
+                }
+            }
+            snapshot = new PredictionSnapshot(active, models.get(active).snapshot(), samples, averageResources);
+        }
+
+        private String select() {
+            if (!fixedPredictor.isBlank()) {
+                return models.containsKey(fixedPredictor) ? fixedPredictor : "WMA";
+            }
+            String best = null;
+            double bestMae = Double.MAX_VALUE;
+            long scored = 0;
+            for (Map.Entry<String, double[]> entry : errors.entrySet()) {
+                double[] error = entry.getValue();
+                if (error[1] > 0 && error[0] / error[1] < bestMae) {
+                    best = entry.getKey();
+                    bestMae = error[0] / error[1];
+                    scored = (long) error[1];
+                }
+            }
+            if (best != null && scored >= minSamples) {
+                return best;
+            }
+            return models.containsKey(defaultPredictor) ? defaultPredictor : "WMA";
+        }
+    }
+
+    /**
+     * 某一时刻的活动预测器与统计（不可变）
+     */
+    private record PredictionSnapshot(String active, Estimate estimate, long samples, double[] averageResources) {
+    }
+}
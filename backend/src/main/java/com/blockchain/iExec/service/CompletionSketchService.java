@@ -0,0 +1,354 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.CompletionSketchEntity;
+import com.blockchain.iExec.repository.CompletionSketchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 完成耗时分位数草图服务 - 按服务估计 p50/p95/p99
+ *
+ * 每个实例为每个服务维护一个本地 t-digest（本实例终结的任务）并定期持久化；
+ * 查询使用本地草图与其他实例持久化草图合并后的结果。服务还没有任何草图时，历史表构建的草图
+ * 写入共享的种子行而非本地草图，多个实例同时冷启动也只计入一次。草图大小只取决于压缩参数，
+ * 与任务量无关。可选按半衰期对历史样本做时间衰减。
+ */
+@Service
+public class CompletionSketchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionSketchService.class);
+
+    // 历史种子草图所在行的实例ID（不属于任何实例，下线实例草图的合并规则同样适用）
+    static final String SEED_INSTANCE_ID = "history-seed";
+
+    @Autowired
+    private CompletionSketchRepository completionSketchRepository;
+
+    @Autowired
+    private TaskHistoryQueryService taskHistoryQueryService;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${task.prediction.sketch.compression:100}")
+    private double compression;
+
+    @Value("${task.prediction.sketch.flush-interval:60000}")
+    private long flushInterval;
+
+    // 时间衰减半衰期（小时），0 表示不衰减
+    @Value("${task.prediction.sketch.half-life-hours:0}")
+    private double halfLifeHours;
+
+    private final ConcurrentMap<String, SketchHolder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次任务完成（事务提交后写入草图）
+     */
+    public void onCompleted(String serviceId, Long actualTime) {
+        if (serviceId == null || actualTime == null || actualTime <= 0) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            SketchHolder holder = holders.get(serviceId);
+            if (holder == null) {
+                holder = holders.computeIfAbsent(serviceId, this::load);
+                if (holder.seededFromHistory) {
+                    return;  // 从历史表构建时已包含本次完成
+                }
+            }
+            holder.add(actualTime);
+        });
+    }
+
+    /**
+     * 估计服务完成耗时的分位数
+     *
+     * @return 分位耗时（秒），样本不足 minSamples 时返回 -1
+     */
+    public long quantile(String serviceId, double quantile, int minSamples) {
+        SketchHolder holder = holder(serviceId);
+        synchronized (holder) {
+            if (holder.merged.size() < minSamples) {
+                return -1;
+            }
+            return Math.round(holder.merged.quantile(quantile));
+        }
+    }
+
+    /**
+     * 获取服务的常用分位数
+     */
+    public CompletionQuantiles getQuantiles(String serviceId) {
+        SketchHolder holder = holder(serviceId);
+        CompletionQuantiles quantiles = new CompletionQuantiles();
+        quantiles.setServiceId(serviceId);
+        synchronized (holder) {
+            TDigest digest = holder.merged;
+            quantiles.setSamples(Math.round(digest.size()));
+            if (digest.size() > 0) {
+                quantiles.setMin(Math.round(digest.getMin()));
+                quantiles.setP50(Math.round(digest.quantile(0.50)));
+                quantiles.setP90(Math.round(digest.quantile(0.90)));
+                quantiles.setP95(Math.round(digest.quantile(0.95)));
+                quantiles.setP99(Math.round(digest.quantile(0.99)));
+                quantiles.setMax(Math.round(digest.getMax()));
+            }
+        }
+        return quantiles;
+    }
+
+    private SketchHolder holder(String serviceId) {
+        SketchHolder holder = holders.get(serviceId);
+        return holder != null ? holder : holders.computeIfAbsent(serviceId, this::load);
+    }
+
+    /**
+     * 冷启动加载：恢复本实例草图并合并其他实例草图；
+     * 该服务还没有任何持久化草图时，从历史表构建种子草图，下次持久化时写入种子行
+     */
+    private SketchHolder load(String serviceId) {
+        SketchHolder holder = new SketchHolder(new TDigest(compression));
+        List<CompletionSketchEntity> rows = completionSketchRepository.findByServiceId(serviceId);
+
+        if (rows.isEmpty()) {
+            TDigest seed = new TDigest(compression);
+            for (Long actualTime : taskHistoryQueryService.findCompletedActualTimes(serviceId)) {
+                seed.add(actualTime);
+            }
+            holder.seededFromHistory = true;
+            holder.seed = seed.size() > 0 ? seed : null;
+            logger.info("Completion sketch for service {} seeded from {} history rows", serviceId, Math.round(seed.size()));
+        } else {
+            for (CompletionSketchEntity row : rows) {
+                if (row.getInstanceId().equals(shardLeaseService.getInstanceId())) {
+                    holder.local.merge(TDigest.fromBytes(row.getDigest()));
+                }
+            }
+        }
+        holder.rebuildMerged(rows, shardLeaseService.getInstanceId());
+        return holder;
+    }
+
+    /**
+     * 定期持久化本地草图并刷新合并结果
+     * 领导者负责把已下线实例遗留的草图并入自己的草图，避免行数随实例重启无限增长
+     * 每个服务在独立事务中写入，种子行并发写入冲突只影响该服务本次持久化
+     */
+    @Scheduled(fixedDelayString = "${task.prediction.sketch.flush-interval:60000}")
+    public void flush() {
+        String self = shardLeaseService.getInstanceId();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(Duration.ofMillis(flushInterval * 3));
+        boolean leader = shardLeaseService.isLeader();
+        List<String> live = shardLeaseService.getLiveInstances();
+        double decayFactor = halfLifeHours > 0
+            ? Math.pow(0.5, flushInterval / (halfLifeHours * 3_600_000))
+            : 1;
+
+        for (String serviceId : holders.keySet()) {
+            SketchHolder holder = holders.get(serviceId);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    flush(serviceId, holder, self, now, staleBefore, leader, live, decayFactor));
+            } catch (DataIntegrityViolationException e) {
+                logger.info("Completion sketch seed for service {} written concurrently, retrying next flush", serviceId);
+            } catch (Exception e) {
+                logger.error("Error flushing completion sketch for service {}", serviceId, e);
+            }
+        }
+    }
+
+    private void flush(String serviceId, SketchHolder holder, String self, LocalDateTime now, LocalDateTime staleBefore,
+                       boolean leader, List<String> live, double decayFactor) {
+        List<CompletionSketchEntity> rows = new ArrayList<>(completionSketchRepository.findByServiceId(serviceId));
+        synchronized (holder) {
+            // 种子行最先写入：与其他实例冲突时本事务在修改内存状态前失败；提交后才丢弃本地种子
+            TDigest seed = holder.seed;
+            if (seed != null) {
+                if (rows.stream().noneMatch(row -> row.getInstanceId().equals(SEED_INSTANCE_ID))) {
+                    CompletionSketchEntity row = new CompletionSketchEntity();
+                    row.setServiceId(serviceId);
+                    row.setInstanceId(SEED_INSTANCE_ID);
+                    row.setDigest(seed.toBytes());
+                    row.setUpdatedAt(now);
+                    rows.add(completionSketchRepository.saveAndFlush(row));
+                }
+                AfterCommit.run(() -> {
+                    synchronized (holder) {
+                        if (holder.seed == seed) {
+                            holder.seed = null;
+                        }
+                    }
+                });
+            }
+
+            if (decayFactor < 1) {
+                holder.local.decay(decayFactor);
+                holder.dirty = true;
+            }
+
+            for (CompletionSketchEntity row : List.copyOf(rows)) {
+                boolean orphaned = !row.getInstanceId().equals(self)
+                    && !live.contains(row.getInstanceId())
+                    && row.getUpdatedAt() != null && row.getUpdatedAt().isBefore(staleBefore);
+                if (leader && orphaned) {
+                    holder.local.merge(TDigest.fromBytes(row.getDigest()));
+                    completionSketchRepository.delete(row);
+                    rows.remove(row);
+                    holder.dirty = true;
+                    logger.info("Absorbed completion sketch of departed instance {} for service {}",
+                        row.getInstanceId(), serviceId);
+                }
+            }
+
+            if (holder.dirty) {
+                CompletionSketchEntity own = rows.stream()
+                    .filter(row -> row.getInstanceId().equals(self))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        CompletionSketchEntity row = new CompletionSketchEntity();
+                        row.setServiceId(serviceId);
+                        row.setInstanceId(self);
+                        rows.add(row);
+                        return row;
+                    });
+                own.setDigest(holder.local.toBytes());
+                own.setUpdatedAt(now);
+                completionSketchRepository.save(own);
+                holder.dirty = false;
+            }
+
+            holder.rebuildMerged(rows, self);
+        }
+    }
+
+    /**
+     * 单个服务的草图：local 为本实例数据，merged 为全部实例合并后的查询视图
+     */
+    private class SketchHolder {
+        private final TDigest local;
+        private TDigest merged;
+        private boolean dirty;
+        private boolean seededFromHistory;
+        private TDigest seed;  // 冷启动时从历史表构建、尚未写入种子行的草图
+
+        SketchHolder(TDigest local) {
+            this.local = local;
+            this.merged = new TDigest(compression);
+        }
+
+        synchronized void add(long actualTime) {
+            local.add(actualTime);
+            merged.add(actualTime);
+            dirty = true;
+        }
+
+        void rebuildMerged(List<CompletionSketchEntity> rows, String self) {
+            TDigest result = local.copy();
+            if (seed != null && rows.stream().noneMatch(row -> row.getInstanceId().equals(SEED_INSTANCE_ID))) {
+                result.merge(seed);
+            }
+            for (CompletionSketchEntity row : rows) {
+                if (!row.getInstanceId().equals(self) && row.getDigest() != null) {
+                    result.merge(TDigest.fromBytes(row.getDigest()));
+                }
+            }
+            merged = result;
+        }
+    }
+
+    /**
+     * 完成耗时分位数类（单位：秒）
+     */
+    public static class CompletionQuantiles {
+        private String serviceId;
+        private long samples;
+        private long min;
+        private long p50;
+        private long p90;
+        private long p95;
+        private long p99;
+        private long max;
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public void setSamples(long samples) {
+            this.samples = samples;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public void setMin(long min) {
+            this.min = min;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public void setP50(long p50) {
+            this.p50 = p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public void setP90(long p90) {
+            this.p90 = p90;
+        }
+
+        public long getP95() {
+            return p95;
+        }
+
+        public void setP95(long p95) {
+            this.p95 = p95;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public void setP99(long p99) {
+            this.p99 = p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public void setMax(long max) {
+            this.max = max;
+        }
+    }
+}
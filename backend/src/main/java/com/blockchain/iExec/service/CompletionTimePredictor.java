@@ -0,0 +1,106 @@
+package com.blockchain.iExec.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 任务完成时间预测器（非线程安全，每个服务一个实例，由调用方加锁）
+ *
+ * 预测器按完成顺序依次接收样本，以增量方式更新；predict 只能使用此前 update 过的样本，
+ * 因此同一个实例既可用于按时间回放的回测，也可直接作为线上模型。
+ */
+public interface CompletionTimePredictor {
+
+    /**
+     * 预测器名称（回测报告与按服务选择预测器时使用）
+     */
+    String getName();
+
+    /**
+     * 预测任务完成耗时（秒）
+     *
+     * @param features 待预测任务的特征
+     */
+    double predict(CompletionFeatures features);
+
+    /**
+     * 任务完成后用实际耗时更新模型
+     */
+    void update(CompletionFeatures features, double actualTime);
+
+    /**
+     * 当前模型的不可变快照，可在不加锁的情况下并发预测；默认实现适用于预测值与特征无关的预测器
+     */
+    default Estimate snapshot() {
+        double value = predict(CompletionFeatures.NONE);
+        return features -> value;
+    }
+
+    /**
+     * 预测器某一时刻的不可变预测函数（秒）
+     */
+    @FunctionalInterface
+    interface Estimate {
+        double predict(CompletionFeatures features);
+    }
+
+    /**
+     * 任务特征：提交前即可知道的信息（支付金额、资源需求），缺失时为 NaN
+     */
+    final class CompletionFeatures {
+
+        public static final CompletionFeatures NONE = new CompletionFeatures(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        private final double costAmount;
+        private final double cpuCores;
+        private final double memoryMB;
+        private final double storageGB;
+
+        public CompletionFeatures(double costAmount, double cpuCores, double memoryMB, double storageGB) {
+            this.costAmount = costAmount;
+            this.cpuCores = cpuCores;
+            this.memoryMB = memoryMB;
+            this.storageGB = storageGB;
+        }
+
+        /**
+         * @param resourceRequirement 资源需求 JSON，字段与 ResourceRequirement 一致（cpuCores/memoryMB/storageGB），
+         *                            为空或无法解析时资源特征缺失
+         */
+        public static CompletionFeatures of(Double costAmount, String resourceRequirement) {
+            double cost = costAmount != null ? costAmount : Double.NaN;
+            if (resourceRequirement == null || resourceRequirement.isBlank()) {
+                return new CompletionFeatures(cost, Double.NaN, Double.NaN, Double.NaN);
+            }
+            try {
+                JsonNode node = MAPPER.readTree(resourceRequirement);
+                return new CompletionFeatures(cost, number(node, "cpuCores"), number(node, "memoryMB"), number(node, "storageGB"));
+            } catch (Exception e) {
+                return new CompletionFeatures(cost, Double.NaN, Double.NaN, Double.NaN);
+            }
+        }
+
+        private static double number(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value != null && value.isNumber() ? value.asDouble() : Double.NaN;
+        }
+
+        public double getCostAmount() {
+            return costAmount;
+        }
+
+        public double getCpuCores() {
+            return cpuCores;
+        }
+
+        public double getMemoryMB() {
+            return memoryMB;
+        }
+
+        public double getStorageGB() {
+            return storageGB;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.blockchain.iExec.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 内置的完成时间预测器
+ *
+ * 参数与线上模型一致：WMA 窗口 20、衰减 e^(-0.1·i)，EWMA α=0.2，分位数取 t-digest 中位数；
+ * SGD/RLS 为以支付金额与资源需求为特征的在线线性回归。
+ * 没有样本时返回默认耗时 300 秒（与 TaskSchedulerService 一致）。
+ */
+public final class CompletionTimePredictors {
+
+    static final double DEFAULT_PREDICTION = 300;
+
+    private CompletionTimePredictors() {
+    }
+
+    /**
+     * 全部内置预测器，按名称注册；每次调用工厂得到一个新实例
+     */
+    public static Map<String, Supplier<CompletionTimePredictor>> defaults() {
+        Map<String, Supplier<CompletionTimePredictor>> predictors = new LinkedHashMap<>();
+        predictors.put("WMA", () -> new WeightedMovingAverage(20, Math.exp(-0.1)));
+        predictors.put("SMA", SimpleAverage::new);
+        predictors.put("EWMA", () -> new ExponentialMovingAverage(0.2));
+        predictors.put("QUANTILE", () -> new Quantile(0.5));
+        predictors.put("SGD", () -> new LeastMeanSquares(0.05));
+        predictors.put("RLS", () -> new RecursiveLeastSquares(0.999));
+        return predictors;
+    }
+
+    /**
+     * 指数衰减加权移动平均：最近 window 个样本，第 i 新的样本权重 decay^i，O(1) 更新
+     */
+    public static class WeightedMovingAverage implements CompletionTimePredictor {
+        private final double decay;
+        private final double evictedWeight;
+        private final double[] ring;
+        private int next;
+        private int count;
+        private double weightedSum;
+        private double weightSum;
+
+        public WeightedMovingAverage(int window, double decay) {
+            this.decay = decay;
+            this.evictedWeight = Math.pow(decay, window);
+            this.ring = new double[window];
+        }
+
+        @Override
+        public String getName() {
+            return "WMA";
+        }
+
+        @Override
+        public double predict(CompletionFeatures features) {
+            return count == 0 ? DEFAULT_PREDICTION : weightedSum / weightSum;
+        }
+
+        @Override
+        public void update(CompletionFeatures features, double actualTime) {
+            weightedSum = actualTime + decay * weightedSum;
+            weightSum = 1 + decay * weightSum;
+            if (count == ring.length) {
+                weightedSum -= evictedWeight * ring[next];
+                weightSum -= evictedWeight;
+            } else {
+                count++;
+            }
+            ring[next] = actualTime;
+            next = (next + 1) % ring.length;
+        }
+    }
+
+    /**
+     * 全部历史的算术平均（即 compareWithBaseline 使用的 SQL AVG 基准）
+     */
+    public static class SimpleAverage implements CompletionTimePredictor {
+        private double sum;
+        private long count;
+
+        @Override
+        public String getName() {
+            return "SMA";
+        }
+
+        @Override
+        public double predict(CompletionFeatures features) {
+            return count == 0 ? DEFAULT_PREDICTION : sum / count;
+        }
+
+        @Override
+        public void update(CompletionFeatures features, double actualTime) {
+            sum += actualTime;
+            count++;
+        }
+    }
+
+    public static class ExponentialMovingAverage implements CompletionTimePredictor {
+        private final double alpha;
+        private double ewma;
+        private boolean initialized;
+
+        public ExponentialMovingAverage(double alpha) {
+            this.alpha = alpha;
+        }
+
+        @Override
+        public String getName() {
+            return "EWMA";
+        }
+
+        @Override
+        public double predict(CompletionFeatures features) {
+            return initialized ? ewma : DEFAULT_PREDICTION;
+        }
+
+        @Override
+        public void update(CompletionFeatures features, double actualTime) {
+            ewma = initialized ? alpha * actualTime + (1 - alpha) * ewma : actualTime;
+            initialized = true;
+        }
+    }
+
+    /**
+     * t-digest 分位数；为避免每次预测都合并缓冲区，估计值每 REFRESH 个样本刷新一次
+     */
+    public static class Quantile implements CompletionTimePredictor {
+        private static final int REFRESH = 16;
+
+        private final double quantile;
+        private final TDigest digest = new TDigest(100);
+        private double cached = Double.NaN;
+        private int sinceRefresh;
+
+        public Quantile(double quantile) {
+            this.quantile = quantile;
+        }
+
+        @Override
+        public String getName() {
+            return "QUANTILE";
+        }
+
+        @Override
+        public double predict(CompletionFeatures features) {
+            if (Double.isNaN(cached) || sinceRefresh >= REFRESH) {
+                cached = digest.quantile(quantile);
+                sinceRefresh = 0;
+            }
+            return Double.isNaN(cached) ? DEFAULT_PREDICTION : cached;
+        }
+
+        @Override
+        public void update(CompletionFeatures features, double actualTime) {
+            digest.add(actualTime);
+            sinceRefresh++;
+        }
+    }
+
+    /**
+     * 以支付金额与资源需求为特征的在线线性模型 actual ≈ w·x 的公共部分
+     *
+     * 特征向量 x = [1, 金额, CPU 核数, 内存(GB), 存储(GB)]，缺失的特征取 0（由截距吸收）。
+     * 预测为非正值时退化为遗忘加权平均。
+     */
+    abstract static class OnlineLinearModel implements CompletionTimePredictor {
+        static final int DIMENSIONS = 5;
+
+        private final double forgetting;
+        private double meanWeight;
+        private double meanSum;
+        final double[] weights = new double[DIMENSIONS];
+        private final double[] x = new double[DIMENSIONS];
+
+        OnlineLinearModel(double forgetting) {
+            this.forgetting = forgetting;
+        }
+
+        @Override
+        public double predict(CompletionFeatures features) {
+            if (meanWeight == 0) {
+                return DEFAULT_PREDICTION;
+            }
+            double prediction = dot(weights, features);
+            return prediction > 0 ? prediction : meanSum / meanWeight;
+        }
+
+        @Override
+        public Estimate snapshot() {
+            if (meanWeight == 0) {
+                return features -> DEFAULT_PREDICTION;
+            }
+            double[] frozen = weights.clone();
+            double mean = meanSum / meanWeight;
+            return features -> {
+                double prediction = dot(frozen, features);
+                return prediction > 0 ? prediction : mean;
+            };
+        }
+
+        @Override
+        public void update(CompletionFeatures features, double actualTime) {
+            meanWeight = forgetting * meanWeight + 1;
+            meanSum = forgetting * meanSum + actualTime;
+            double[] x = features(features);
+            double error = actualTime;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                error -= weights[i] * x[i];
+            }
+            learn(x, error);
+        }
+
+        /**
+         * 用一个样本的特征与先验误差 (actual - w·x) 更新 weights
+         */
+        abstract void learn(double[] x, double error);
+
+        private double[] features(CompletionFeatures features) {
+            x[0] = 1;
+            x[1] = orZero(features.getCostAmount());
+            x[2] = orZero(features.getCpuCores());
+            x[3] = orZero(features.getMemoryMB()) / 1024;
+            x[4] = orZero(features.getStorageGB());
+            return x;
+        }
+
+        // w·x，不修改共享的特征缓冲区，可在快照中并发调用
+        private static double dot(double[] w, CompletionFeatures features) {
+            return w[0]
+                + w[1] * orZero(features.getCostAmount())
+                + w[2] * orZero(features.getCpuCores())
+                + w[3] * orZero(features.getMemoryMB()) / 1024
+                + w[4] * orZero(features.getStorageGB());
+        }
+
+        private static double orZero(double value) {
+            return Double.isNaN(value) ? 0 : value;
+        }
+    }
+
+    /**
+     * 归一化最小均方（随机梯度下降），每个样本 O(特征数) 更新
+     */
+    public static class LeastMeanSquares extends OnlineLinearModel {
+        private final double stepSize;
+
+        public LeastMeanSquares(double stepSize) {
+            super(1 - stepSize);
+            this.stepSize = stepSize;
+        }
+
+        @Override
+        public String getName() {
+            return "SGD";
+        }
+
+        @Override
+        void learn(double[] x, double error) {
+            double norm = 1e-9;
+            for (double value : x) {
+                norm += value * value;
+            }
+            for (int i = 0; i < DIMENSIONS; i++) {
+                weights[i] += stepSize * error * x[i] / norm;
+            }
+        }
+    }
+
+    /**
+     * 带遗忘因子的递推最小二乘，每个样本 O(特征数²) 更新（特征数为常数 5）
+     *
+     * 长期缺失的特征方向得不到激励，其协方差会按 1/λ 持续增长；迹超过上限时本次不再除以 λ，避免数值发散。
+     */
+    public static class RecursiveLeastSquares extends OnlineLinearModel {
+        private static final double INITIAL_COVARIANCE = 1e4;
+        private static final double MAX_TRACE = 1e6;
+
+        private final double forgetting;
+        private final double[][] covariance = new double[DIMENSIONS][DIMENSIONS];
+        private final double[] gain = new double[DIMENSIONS];
+
+        public RecursiveLeastSquares(double forgetting) {
+            super(forgetting);
+            this.forgetting = forgetting;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                covariance[i][i] = INITIAL_COVARIANCE;
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "RLS";
+        }
+
+        @Override
+        void learn(double[] x, double error) {
+            // k = P·x / (λ + xᵀ·P·x)
+            double denominator = forgetting;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                double px = 0;
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    px += covariance[i][j] * x[j];
+                }
+                gain[i] = px;
+                denominator += x[i] * px;
+            }
+            for (int i = 0; i < DIMENSIONS; i++) {
+                gain[i] /= denominator;
+                weights[i] += gain[i] * error;
+            }
+
+            // P = (P - k·xᵀ·P) / λ，P 对称，xᵀ·P 即 (P·x)ᵀ = k·denominator
+            double trace = 0;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                trace += covariance[i][i];
+            }
+            double scale = trace > MAX_TRACE ? 1 : 1 / forgetting;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                for (int j = 0; j < DIMENSIONS; j++) {
+                    covariance[i][j] = (covariance[i][j] - gain[i] * gain[j] * denominator) * scale;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.service.PriorityDispatchQueue.QueuedTask;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 按用户公平分配派发机会的队列（加权差额轮询 DRR，非线程安全，由调用方加锁）
+ *
+ * 每个用户地址一个虚拟队列，队列内部按优先级（含等待加成）排序；用户之间轮流派发，
+ * 每轮用户获得 quantum × weight 的额度，每派发一个任务消耗 1。大量提交任务的用户
+ * 只能按权重获得份额，不会挤占小用户。达到在途上限的用户本轮跳过且不累积额度。
+ */
+public class FairShareQueue {
+
+    private final double quantum;
+    private final double agingPerMinute;
+    private final double maxAgingBonus;
+
+    private final Map<String, UserQueue> users = new HashMap<>();
+    private final Map<String, UserQueue> taskOwners = new HashMap<>();
+    private final ArrayDeque<UserQueue> active = new ArrayDeque<>();
+
+    /**
+     * @param quantum        权重为 1 的用户每轮获得的派发额度
+     * @param agingPerMinute 用户队列内每等待一分钟增加的优先级
+     * @param maxAgingBonus  等待加成上限
+     */
+    public FairShareQueue(double quantum, double agingPerMinute, double maxAgingBonus) {
+        this.quantum = quantum;
+        this.agingPerMinute = agingPerMinute;
+        this.maxAgingBonus = maxAgingBonus;
+    }
+
+    /**
+     * 设置用户权重（新用户默认 1）
+     */
+    public void setWeight(String userAddress, double weight) {
+        user(userAddress).weight = weight;
+    }
+
+    /**
+     * 加入任务；已在队列中时更新其优先级
+     */
+    public void upsert(String taskId, String userAddress, double staticPriority, LocalDateTime createdAt) {
+        remove(taskId);
+        UserQueue user = user(userAddress);
+        if (!user.active) {
+            user.active = true;
+            active.addLast(user);
+        }
+        user.tasks.upsert(taskId, userAddress, staticPriority, createdAt);
+        taskOwners.put(taskId, user);
+    }
+
+    public boolean remove(String taskId) {
+        UserQueue user = taskOwners.remove(taskId);
+        return user != null && user.tasks.remove(taskId);
+    }
+
+    /**
+     * 按 DRR 取出下一个任务
+     *
+     * @param eligible 用户当前是否可以派发（如未达在途上限）
+     * @return 下一个任务，队列为空或全部用户都不可派发时返回 null
+     */
+    public QueuedTask poll(LocalDateTime now, Predicate<String> eligible) {
+        int skipped = 0;
+        while (!active.isEmpty()) {
+            UserQueue user = active.peekFirst();
+
+            if (user.tasks.size() == 0) {
+                deactivate(active.pollFirst());
+                continue;
+            }
+            if (!eligible.test(user.address)) {
+                // 不可派发的用户不累积额度；所有用户都不可派发时结束
+                user.deficit = 0;
+                user.inTurn = false;
+                active.addLast(active.pollFirst());
+                if (++skipped >= active.size()) {
+                    return null;
+                }
+                continue;
+            }
+            skipped = 0;
+
+            if (!user.inTurn) {
+                user.inTurn = true;
+                user.deficit += quantum * user.weight;
+            }
+            if (user.deficit >= 1) {
+                user.deficit -= 1;
+                QueuedTask task = user.tasks.poll(now);
+                taskOwners.remove(task.getTaskId());
+                if (user.tasks.size() == 0) {
+                    deactivate(active.pollFirst());
+                }
+                return task;
+            }
+            // 本轮额度用完，轮到下一个用户
+            user.inTurn = false;
+            active.addLast(active.pollFirst());
+        }
+        return null;
+    }
+
+    public void clear() {
+        users.clear();
+        taskOwners.clear();
+        active.clear();
+    }
+
+    public int size() {
+        return taskOwners.size();
+    }
+
+    /**
+     * 有待派发任务的用户数
+     */
+    public int getActiveUsers() {
+        return active.size();
+    }
+
+    private UserQueue user(String userAddress) {
+        return users.computeIfAbsent(String.valueOf(userAddress),
+            address -> new UserQueue(address, new PriorityDispatchQueue(agingPerMinute, maxAgingBonus)));
+    }
+
+    // 队列清空的用户退出轮转并丢弃剩余额度（标准 DRR），保留权重
+    private void deactivate(UserQueue user) {
+        user.active = false;
+        user.inTurn = false;
+        user.deficit = 0;
+    }
+
+    private static class UserQueue {
+        private final String address;
+        private final PriorityDispatchQueue tasks;
+        private double weight = 1;
+        private double deficit;
+        private boolean inTurn;
+        private boolean active;
+
+        UserQueue(String address, PriorityDispatchQueue tasks) {
+            this.address = address;
+            this.tasks = tasks;
+        }
+    }
+}
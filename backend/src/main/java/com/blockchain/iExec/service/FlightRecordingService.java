@@ -0,0 +1,261 @@
+package com.blockchain.iExec.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JFR 飞行记录服务 - 生产环境低开销性能剖析
+ *
+ * 常驻记录使用 JDK 的 default 配置（开销约 1%），按时间与大小滚动保留最近一段数据，
+ * 监控周期变慢时可直接导出现场；按需记录使用 profile 配置采集更细的数据，
+ * 时长和大小都有上限，到期自动停止。两者都包含 com.blockchain.iExec 下的自定义事件。
+ * 环境变量、系统属性与 JVM 启动参数等事件会泄露钱包私钥等配置，两种记录都关闭这些事件。
+ */
+@Service
+public class FlightRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingService.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // 含环境变量、系统属性、启动参数或进程命令行的事件
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+        "jdk.InitialEnvironmentVariable",
+        "jdk.InitialSystemProperty",
+        "jdk.JVMInformation",
+        "jdk.SystemProcess"
+    );
+
+    @Value("${profiling.jfr.continuous.enabled:true}")
+    private boolean continuousEnabled;
+
+    // 常驻记录保留时长（秒）与大小上限（MB）
+    @Value("${profiling.jfr.continuous.max-age:3600}")
+    private long continuousMaxAge;
+
+    @Value("${profiling.jfr.continuous.max-size-mb:64}")
+    private long continuousMaxSizeMb;
+
+    // 按需记录使用的 JFR 配置（default / profile）
+    @Value("${profiling.jfr.settings:profile}")
+    private String onDemandSettings;
+
+    // 按需记录的时长（秒）与大小（MB）上限
+    @Value("${profiling.jfr.max-duration:600}")
+    private long maxDuration;
+
+    @Value("${profiling.jfr.max-size-mb:256}")
+    private long maxSizeMb;
+
+    @Value("${profiling.jfr.directory:${java.io.tmpdir}/iexec-jfr}")
+    private String directory;
+
+    // 目录中保留的导出文件数量
+    @Value("${profiling.jfr.retained-dumps:5}")
+    private int retainedDumps;
+
+    private Recording continuous;
+    private Recording onDemand;
+
+    @PostConstruct
+    public void startContinuousRecording() {
+        if (!continuousEnabled) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(settings("default"));
+            recording.setName("iexec-continuous");
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofSeconds(continuousMaxAge));
+            recording.setMaxSize(continuousMaxSizeMb * 1024 * 1024);
+            recording.start();
+            continuous = recording;
+            logger.info("Continuous JFR recording started (max age {}s, max size {} MB)", continuousMaxAge, continuousMaxSizeMb);
+        } catch (Exception e) {
+            logger.warn("Failed to start continuous JFR recording: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 开始一次按需记录（同一时间只允许一个）
+     *
+     * @param durationSeconds 记录时长，超过上限时按上限截断
+     */
+    public synchronized RecordingStatus startRecording(long durationSeconds) throws IOException, ParseException {
+        if (onDemand != null && onDemand.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A JFR recording is already running");
+        }
+        closeOnDemand();
+
+        long duration = Math.max(1, Math.min(durationSeconds, maxDuration));
+        Recording recording = new Recording(settings(onDemandSettings));
+        recording.setName("iexec-on-demand");
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofSeconds(duration));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.start();
+        onDemand = recording;
+
+        logger.info("On-demand JFR recording started ({} settings, {}s)", onDemandSettings, duration);
+        return toStatus(recording);
+    }
+
+    /**
+     * 停止按需记录（若已到期则已自动停止）并导出为文件
+     *
+     * @return 导出的 .jfr 文件
+     */
+    public synchronized Path stopRecording() throws IOException {
+        if (onDemand == null) {
+            throw new IllegalStateException("No JFR recording has been started");
+        }
+        if (onDemand.getState() == RecordingState.RUNNING) {
+            onDemand.stop();
+        }
+        Path file = dump(onDemand, "on-demand");
+        closeOnDemand();
+        return file;
+    }
+
+    /**
+     * 导出常驻记录中最近一段时间的数据（不影响记录继续进行）
+     */
+    public Path dumpContinuousRecording() throws IOException {
+        if (continuous == null) {
+            throw new IllegalStateException("Continuous JFR recording is not enabled");
+        }
+        return dump(continuous, "continuous");
+    }
+
+    /**
+     * 获取按需记录状态，未开始时返回 null
+     */
+    public synchronized RecordingStatus getStatus() {
+        return onDemand != null ? toStatus(onDemand) : null;
+    }
+
+    /**
+     * 复制 JDK 预置配置并关闭敏感事件
+     */
+    static Map<String, String> settings(String configuration) throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(configuration).getSettings());
+        for (String event : SENSITIVE_EVENTS) {
+            settings.put(event + "#enabled", "false");
+        }
+        return settings;
+    }
+
+    private Path dump(Recording recording, String kind) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Path file = dir.resolve("iexec-" + kind + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+        recording.dump(file);
+        logger.info("JFR recording dumped to {} ({} bytes)", file, Files.size(file));
+        pruneDumps(dir);
+        return file;
+    }
+
+    // 只保留最近的若干个导出文件
+    private void pruneDumps(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> dumps = files
+                .filter(path -> path.getFileName().toString().endsWith(".jfr"))
+                .sorted(Comparator.comparing((Path path) -> path.toFile().lastModified()).reversed())
+                .collect(Collectors.toList());
+            for (Path old : dumps.subList(Math.min(retainedDumps, dumps.size()), dumps.size())) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to prune JFR dumps in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void closeOnDemand() {
+        if (onDemand != null) {
+            onDemand.close();
+            onDemand = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        closeOnDemand();
+        if (continuous != null) {
+            continuous.close();
+            continuous = null;
+        }
+    }
+
+    private static RecordingStatus toStatus(Recording recording) {
+        RecordingStatus status = new RecordingStatus();
+        status.setName(recording.getName());
+        status.setState(recording.getState().name());
+        status.setStartTime(recording.getStartTime() != null ? recording.getStartTime().toString() : null);
+        status.setDurationSeconds(recording.getDuration() != null ? recording.getDuration().getSeconds() : 0);
+        return status;
+    }
+
+    /**
+     * 记录状态类
+     */
+    public static class RecordingStatus {
+        private String name;
+        private String state;
+        private String startTime;
+        private long durationSeconds;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public void setState(String state) {
+            this.state = state;
+        }
+
+        public String getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(String startTime) {
+            this.startTime = startTime;
+        }
+
+        public long getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        public void setDurationSeconds(long durationSeconds) {
+            this.durationSeconds = durationSeconds;
+        }
+    }
+}
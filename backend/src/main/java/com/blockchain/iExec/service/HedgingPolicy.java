@@ -0,0 +1,61 @@
+package com.blockchain.iExec.service;
+
+/**
+ * 对冲策略 - 判断运行中的任务是否应当重复提交到另一个工作池
+ * 纯计算逻辑，不依赖数据库和 CLI，便于离线模拟评估
+ */
+public class HedgingPolicy {
+
+    private final double quantile;        // 触发对冲的预测分位点（如 0.95）
+    private final int maxConcurrentHedges; // 同时进行的对冲任务上限
+    private final double maxHedgeRatio;    // 对冲任务占运行任务的比例上限
+
+    public HedgingPolicy(double quantile, int maxConcurrentHedges, double maxHedgeRatio) {
+        this.quantile = quantile;
+        this.maxConcurrentHedges = maxConcurrentHedges;
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    /**
+     * 判断是否应当对冲
+     *
+     * @param elapsedSeconds 任务已运行时间（秒）
+     * @param predictedQuantileSeconds 该服务预测的分位完成时间（秒），小于等于 0 表示样本不足
+     * @param alreadyHedged 任务是否已经对冲过
+     * @param inFlightHedges 当前正在进行的对冲数
+     * @param runningTasks 当前运行中的任务总数
+     */
+    public boolean shouldHedge(long elapsedSeconds, long predictedQuantileSeconds, boolean alreadyHedged,
+                               long inFlightHedges, long runningTasks) {
+        if (alreadyHedged || predictedQuantileSeconds <= 0) {
+            return false;
+        }
+        if (elapsedSeconds <= predictedQuantileSeconds) {
+            return false;
+        }
+        return hasBudget(inFlightHedges, runningTasks);
+    }
+
+    /**
+     * 对冲预算：绝对上限与比例上限同时满足
+     */
+    public boolean hasBudget(long inFlightHedges, long runningTasks) {
+        if (inFlightHedges >= maxConcurrentHedges) {
+            return false;
+        }
+        long ratioCap = Math.max(1, (long) Math.floor(runningTasks * maxHedgeRatio));
+        return inFlightHedges < ratioCap;
+    }
+
+    public double getQuantile() {
+        return quantile;
+    }
+
+    public int getMaxConcurrentHedges() {
+        return maxConcurrentHedges;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+}
@@ -0,0 +1,393 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.service.HistorySegment.Column;
+import com.blockchain.iExec.service.HistorySegment.ServiceSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 历史归档服务 - 把超过保留期的 task_history 按完成日期移入列式归档段
+ *
+ * 领导者实例定期把完成时间早于保留窗口的记录按天写成段文件，再从热表删除，热表只保留最近 retention-days 天。
+ * 段文件不可变，启动时与每个周期扫描目录加载；多实例部署时目录需放在共享存储上，其他实例在下一个周期看到新段。
+ * 写段之后、删行之前崩溃时，下一个周期按段内 ID 补删热表中已归档的行；同一天归档后又出现的记录写成该天的追加段。
+ *
+ * 已加载的段组成不可变快照，并预先合并按服务汇总与按用户的任务数/完成数。登记新段与删除热表行在写锁内完成，
+ * 读者在读锁内同时查询热表与快照（见 {@link #read}），同一实例内不会重复或遗漏计数。
+ */
+@Service
+public class HistoryArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryArchiveService.class);
+
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // 每条 DELETE 语句的 ID 数
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${history.archive.enabled:false}")
+    private boolean enabled;
+
+    // 热表保留天数，完成时间早于 (今天 - retention-days) 零点的记录被归档
+    @Value("${history.archive.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${history.archive.directory:./data/history-segments}")
+    private String directory;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ArchiveSnapshot snapshot = ArchiveSnapshot.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("history.archive.segments", this, service -> service.snapshot.segments.size())
+            .description("Loaded task history segment files")
+            .register(meterRegistry);
+        Gauge.builder("history.archive.rows", this, service -> service.snapshot.rowCount)
+            .description("Task history rows held in segment files")
+            .register(meterRegistry);
+        Gauge.builder("history.archive.bytes", this, service -> service.snapshot.byteCount)
+            .description("Compressed size of task history segment files")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+
+        if (enabled) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                logger.error("Failed to load history segments from {}", directory, e);
+            }
+        }
+    }
+
+    /**
+     * 定期加载新出现的段文件；领导者实例归档超过保留期的记录
+     */
+    @Scheduled(fixedDelayString = "${history.archive.interval:600000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+            if (shardLeaseService.isLeader()) {
+                archiveBefore(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+            }
+        } catch (Exception e) {
+            logger.error("History archive cycle failed", e);
+        }
+    }
+
+    /**
+     * 把完成时间早于 cutoff 的记录按天写入段文件并移出热表
+     *
+     * @return 移出热表的行数
+     */
+    public synchronized int archiveBefore(LocalDateTime cutoff) throws IOException {
+        Files.createDirectories(segmentDirectory());
+        int moved = 0;
+        LocalDateTime oldest;
+        while ((oldest = taskHistoryRepository.findOldestCompletedAtBefore(cutoff)) != null) {
+            LocalDate day = oldest.toLocalDate();
+            LocalDateTime end = day.plusDays(1).atStartOfDay();
+            moved += archiveDay(day, day.atStartOfDay(), end.isAfter(cutoff) ? cutoff : end);
+        }
+        return moved;
+    }
+
+    private int archiveDay(LocalDate day, LocalDateTime start, LocalDateTime end) throws IOException {
+        long begin = System.currentTimeMillis();
+        List<TaskHistoryEntity> rows = taskHistoryRepository.findByCompletedAtGreaterThanEqualAndCompletedAtLessThan(start, end);
+
+        // 该天已有的段中出现过的行只需从热表删除
+        List<HistorySegment> parts = snapshot.segments.stream().filter(segment -> segment.getDay().equals(day)).toList();
+        Set<Long> archivedIds = new HashSet<>();
+        for (HistorySegment part : parts) {
+            for (long id : part.longs(Column.ID)) {
+                archivedIds.add(id);
+            }
+        }
+        List<TaskHistoryEntity> pending = rows.stream().filter(row -> !archivedIds.contains(row.getId())).toList();
+
+        HistorySegment segment = null;
+        if (!pending.isEmpty()) {
+            int part = parts.stream().mapToInt(HistorySegment::getPart).max().orElse(-1) + 1;
+            segment = HistorySegment.write(segmentDirectory().resolve(fileName(day, part)), day, part, pending);
+        }
+
+        List<Long> ids = rows.stream().map(TaskHistoryEntity::getId).toList();
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                snapshot = snapshot.with(List.of(segment));
+            }
+            for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+                taskHistoryRepository.deleteAllByIdInBatch(ids.subList(from, Math.min(ids.size(), from + DELETE_BATCH_SIZE)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info("Archived task history for {}: {} rows written to {}, {} rows removed from the hot table in {} ms",
+            day, pending.size(), segment != null ? segment.getPath().getFileName() : "no new segment", ids.size(),
+            System.currentTimeMillis() - begin);
+        return ids.size();
+    }
+
+    /**
+     * 加载目录中尚未加载的段文件（其他实例写入的段在这里被发现）
+     */
+    public synchronized void refresh() throws IOException {
+        Path dir = segmentDirectory();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Set<String> known = snapshot.segments.stream()
+            .map(segment -> segment.getPath().getFileName().toString())
+            .collect(Collectors.toSet());
+        List<HistorySegment> added = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (known.contains(file.getFileName().toString())) {
+                    continue;
+                }
+                try {
+                    added.add(HistorySegment.open(file));
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable history segment {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            snapshot = snapshot.with(added);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Loaded {} history segments ({} archived rows in total)", added.size(), snapshot.rowCount);
+    }
+
+    /**
+     * 在读锁内执行查询，热表查询与归档快照不会和进行中的归档交错
+     */
+    public <T> T read(Function<ArchiveSnapshot, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(snapshot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ArchiveStatus getStatus() {
+        ArchiveSnapshot current = snapshot;
+        ArchiveStatus status = new ArchiveStatus();
+        status.setEnabled(enabled);
+        status.setRetentionDays(retentionDays);
+        status.setSegments(current.segments.size());
+        status.setArchivedRows(current.rowCount);
+        status.setArchivedBytes(current.byteCount);
+        if (!current.segments.isEmpty()) {
+            status.setOldestDay(current.segments.get(0).getDay());
+            status.setNewestDay(current.segments.get(current.segments.size() - 1).getDay());
+        }
+        return status;
+    }
+
+    private Path segmentDirectory() {
+        return Path.of(directory);
+    }
+
+    private static String fileName(LocalDate day, int part) {
+        return SEGMENT_PREFIX + day + (part > 0 ? "." + part : "") + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * 已加载段的不可变快照：段按 (日期, 追加序号) 排序，附带跨段合并的按服务汇总与按用户计数
+     */
+    public static final class ArchiveSnapshot {
+
+        static final ArchiveSnapshot EMPTY = new ArchiveSnapshot(List.of(), Map.of(), Map.of());
+
+        private final List<HistorySegment> segments;
+        private final Map<String, ServiceSummary> services;
+        private final Map<Address, long[]> userOutcomes;  // 地址 -> {总数, 完成数}
+        private final long rowCount;
+        private final long byteCount;
+
+        private ArchiveSnapshot(List<HistorySegment> segments, Map<String, ServiceSummary> services,
+                                Map<Address, long[]> userOutcomes) {
+            this.segments = segments;
+            this.services = services;
+            this.userOutcomes = userOutcomes;
+            this.rowCount = segments.stream().mapToLong(HistorySegment::getRowCount).sum();
+            this.byteCount = segments.stream().mapToLong(HistorySegment::getFileSize).sum();
+        }
+
+        /**
+         * 加入新段；按用户计数需要解压新段的用户与状态两列
+         */
+        private ArchiveSnapshot with(List<HistorySegment> added) {
+            List<HistorySegment> all = new ArrayList<>(segments);
+            all.addAll(added);
+            all.sort(Comparator.comparing(HistorySegment::getDay).thenComparingInt(HistorySegment::getPart));
+
+            Map<String, ServiceSummary> mergedServices = new HashMap<>();
+            for (HistorySegment segment : all) {
+                segment.getServiceSummaries().forEach((serviceId, summary) ->
+                    mergedServices.computeIfAbsent(serviceId, id -> new ServiceSummary()).merge(summary));
+            }
+
+            Map<Address, long[]> mergedUsers = new HashMap<>();
+            userOutcomes.forEach((address, counts) -> mergedUsers.put(address, counts.clone()));
+            for (HistorySegment segment : added) {
+                Address[] users = segment.addresses();
+                TaskStatus[] statuses = segment.statuses();
+                for (int i = 0; i < users.length; i++) {
+                    long[] counts = mergedUsers.computeIfAbsent(users[i], address -> new long[2]);
+                    counts[0]++;
+                    if (statuses[i] == TaskStatus.COMPLETED) {
+                        counts[1]++;
+                    }
+                }
+            }
+            return new ArchiveSnapshot(List.copyOf(all), mergedServices, mergedUsers);
+        }
+
+        public List<HistorySegment> getSegments() {
+            return segments;
+        }
+
+        /**
+         * 指定服务在全部段中的汇总，没有归档记录时为 null
+         */
+        public ServiceSummary getServiceSummary(String serviceId) {
+            return services.get(serviceId);
+        }
+
+        public long countByStatus(TaskStatus status) {
+            return services.values().stream().mapToLong(summary -> summary.getCount(status)).sum();
+        }
+
+        public long getUserTotal(Address userAddress) {
+            long[] counts = userOutcomes.get(userAddress);
+            return counts != null ? counts[0] : 0;
+        }
+
+        public long getUserCompleted(Address userAddress) {
+            long[] counts = userOutcomes.get(userAddress);
+            return counts != null ? counts[1] : 0;
+        }
+    }
+
+    /**
+     * 归档状态
+     */
+    public static class ArchiveStatus {
+        private boolean enabled;
+        private int retentionDays;
+        private int segments;
+        private long archivedRows;
+        private long archivedBytes;     // 段文件压缩后的总大小
+        private LocalDate oldestDay;
+        private LocalDate newestDay;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+
+        public void setSegments(int segments) {
+            this.segments = segments;
+        }
+
+        public long getArchivedRows() {
+            return archivedRows;
+        }
+
+        public void setArchivedRows(long archivedRows) {
+            this.archivedRows = archivedRows;
+        }
+
+        public long getArchivedBytes() {
+            return archivedBytes;
+        }
+
+        public void setArchivedBytes(long archivedBytes) {
+            this.archivedBytes = archivedBytes;
+        }
+
+        public LocalDate getOldestDay() {
+            return oldestDay;
+        }
+
+        public void setOldestDay(LocalDate oldestDay) {
+            this.oldestDay = oldestDay;
+        }
+
+        public LocalDate getNewestDay() {
+            return newestDay;
+        }
+
+        public void setNewestDay(LocalDate newestDay) {
+            this.newestDay = newestDay;
+        }
+    }
+}
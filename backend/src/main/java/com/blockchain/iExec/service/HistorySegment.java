@@ -0,0 +1,629 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 任务历史归档段 - 同一天完成的历史记录按列存储、逐列压缩的不可变文件
+ *
+ * 文件结构：头部（日期、行数、ID 与时间范围）→ 列目录（偏移、压缩长度、原始长度）→ 按服务汇总 → 各列数据块。
+ * 行按 (completedAt, id) 排序，每列单独 Deflate 压缩；读取时整个文件只读内存映射，只解压查询用到的列。
+ * ID 与非空时间列存相邻差值，字符串与地址列存字典编号，可空的数值列用哨兵值表示空。
+ */
+public final class HistorySegment {
+
+    private static final int MAGIC = 0x49584853;  // "IXHS"
+    private static final int FORMAT_VERSION = 1;
+
+    static final long NULL_LONG = Long.MIN_VALUE;
+    static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int NULL_CODE = -1;
+
+    private enum Encoding { DELTA, LONG, INT, DOUBLE, BYTE, BYTES32, DICTIONARY }
+
+    /**
+     * 段内的列，序号即列目录中的编号（只能在末尾追加）
+     */
+    public enum Column {
+        ID(Encoding.DELTA),
+        TASK_ID(Encoding.BYTES32),
+        IEXEC_TASK_ID(Encoding.BYTES32),
+        SERVICE_ID(Encoding.DICTIONARY),
+        USER_ADDRESS(Encoding.DICTIONARY),
+        STATUS(Encoding.BYTE),
+        ESTIMATED_TIME(Encoding.LONG),
+        ACTUAL_TIME(Encoding.LONG),
+        PRIORITY(Encoding.INT),
+        RESOURCE_REQUIREMENT(Encoding.DICTIONARY),
+        COST_AMOUNT(Encoding.DOUBLE),
+        CREATED_AT(Encoding.DELTA),
+        STARTED_AT(Encoding.LONG),
+        COMPLETED_AT(Encoding.DELTA),
+        ERROR_MESSAGE(Encoding.DICTIONARY),
+        RESULT_HASH(Encoding.DICTIONARY);
+
+        private final Encoding encoding;
+
+        Column(Encoding encoding) {
+            this.encoding = encoding;
+        }
+    }
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final LocalDate day;
+    private final int part;
+    private final int rowCount;
+    private final long minId;
+    private final long maxId;
+    private final LocalDateTime minCreatedAt;
+    private final LocalDateTime maxCreatedAt;
+    private final LocalDateTime minCompletedAt;
+    private final LocalDateTime maxCompletedAt;
+    private final long[] columnOffsets = new long[Column.values().length];
+    private final int[] compressedLengths = new int[Column.values().length];
+    private final int[] rawLengths = new int[Column.values().length];
+    private final Map<String, ServiceSummary> serviceSummaries;
+
+    private HistorySegment(Path path, MappedByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        ByteBuffer header = data.duplicate();
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a history segment: " + path);
+        }
+        day = LocalDate.ofEpochDay(header.getLong());
+        part = header.getInt();
+        rowCount = header.getInt();
+        minId = header.getLong();
+        maxId = header.getLong();
+        minCreatedAt = fromMicros(header.getLong());
+        maxCreatedAt = fromMicros(header.getLong());
+        minCompletedAt = fromMicros(header.getLong());
+        maxCompletedAt = fromMicros(header.getLong());
+
+        int columns = header.getInt();
+        for (int i = 0; i < columns; i++) {
+            int ordinal = header.get();
+            columnOffsets[ordinal] = header.getLong();
+            compressedLengths[ordinal] = header.getInt();
+            rawLengths[ordinal] = header.getInt();
+        }
+
+        int services = header.getInt();
+        Map<String, ServiceSummary> summaries = new TreeMap<>();
+        for (int i = 0; i < services; i++) {
+            byte[] name = new byte[header.getShort()];
+            header.get(name);
+            summaries.put(new String(name, StandardCharsets.UTF_8), ServiceSummary.read(header));
+        }
+        serviceSummaries = Collections.unmodifiableMap(summaries);
+    }
+
+    /**
+     * 以只读内存映射打开段文件
+     */
+    public static HistorySegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new HistorySegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 写入一个段文件：先写临时文件并刷盘，再原子改名，读者不会看到写了一半的段
+     *
+     * @param rows 同一天完成的历史记录（completedAt 不为空），不能为空列表
+     */
+    public static HistorySegment write(Path path, LocalDate day, int part, List<TaskHistoryEntity> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Cannot write an empty history segment");
+        }
+        List<TaskHistoryEntity> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(TaskHistoryEntity::getCompletedAt).thenComparing(TaskHistoryEntity::getId));
+
+        byte[][] blocks = new byte[Column.values().length][];
+        int[] rawSizes = new int[blocks.length];
+        for (Column column : Column.values()) {
+            ByteBuffer raw = encode(column, sorted);
+            rawSizes[column.ordinal()] = raw.remaining();
+            blocks[column.ordinal()] = deflate(raw);
+        }
+
+        Map<String, ServiceSummary> summaries = new TreeMap<>();
+        for (TaskHistoryEntity row : sorted) {
+            summaries.computeIfAbsent(row.getServiceId(), id -> new ServiceSummary()).add(row);
+        }
+        ByteBuffer summaryBytes = ByteBuffer.allocate(summaries.keySet().stream()
+            .mapToInt(id -> 2 + id.getBytes(StandardCharsets.UTF_8).length + ServiceSummary.BYTES).sum() + 4);
+        summaryBytes.putInt(summaries.size());
+        summaries.forEach((serviceId, summary) -> {
+            byte[] name = serviceId.getBytes(StandardCharsets.UTF_8);
+            summaryBytes.putShort((short) name.length).put(name);
+            summary.write(summaryBytes);
+        });
+        summaryBytes.flip();
+
+        int headerSize = 4 + 4 + 8 + 4 + 4 + 6 * 8 + 4 + blocks.length * (1 + 8 + 4 + 4) + summaryBytes.remaining();
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(day.toEpochDay()).putInt(part).putInt(sorted.size());
+        header.putLong(sorted.stream().mapToLong(TaskHistoryEntity::getId).min().getAsLong());
+        header.putLong(sorted.stream().mapToLong(TaskHistoryEntity::getId).max().getAsLong());
+        header.putLong(sorted.stream().mapToLong(row -> toMicros(row.getCreatedAt())).min().getAsLong());
+        header.putLong(sorted.stream().mapToLong(row -> toMicros(row.getCreatedAt())).max().getAsLong());
+        header.putLong(toMicros(sorted.get(0).getCompletedAt()));
+        header.putLong(toMicros(sorted.get(sorted.size() - 1).getCompletedAt()));
+        header.putInt(blocks.length);
+        long offset = headerSize;
+        for (Column column : Column.values()) {
+            header.put((byte) column.ordinal()).putLong(offset)
+                .putInt(blocks[column.ordinal()].length).putInt(rawSizes[column.ordinal()]);
+            offset += blocks[column.ordinal()].length;
+        }
+        header.put(summaryBytes).flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (byte[] block : blocks) {
+                ByteBuffer buffer = ByteBuffer.wrap(block);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    // ==================== 列读取 ====================
+
+    /**
+     * 读取 long 列（ID、时间戳微秒、耗时），空值为 {@link #NULL_LONG}
+     */
+    public long[] longs(Column column) {
+        if (column.encoding != Encoding.DELTA && column.encoding != Encoding.LONG) {
+            throw new IllegalArgumentException("Not a long column: " + column);
+        }
+        ByteBuffer raw = inflate(column);
+        long[] values = new long[rowCount];
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = column.encoding == Encoding.DELTA ? (previous += raw.getLong()) : raw.getLong();
+        }
+        return values;
+    }
+
+    /**
+     * 读取成本列，空值为 NaN
+     */
+    public double[] costs() {
+        ByteBuffer raw = inflate(Column.COST_AMOUNT);
+        double[] values = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = raw.getDouble();
+        }
+        return values;
+    }
+
+    public LocalDateTime[] timestamps(Column column) {
+        long[] micros = longs(column);
+        LocalDateTime[] values = new LocalDateTime[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = fromMicros(micros[i]);
+        }
+        return values;
+    }
+
+    public TaskStatus[] statuses() {
+        ByteBuffer raw = inflate(Column.STATUS);
+        TaskStatus[] values = new TaskStatus[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = TaskStatus.fromCode(raw.get());
+        }
+        return values;
+    }
+
+    public String[] strings(Column column) {
+        return decodeDictionary(column, bytes -> new String(bytes, StandardCharsets.UTF_8), String[]::new);
+    }
+
+    public Address[] addresses() {
+        return decodeDictionary(Column.USER_ADDRESS, Address::wrap, Address[]::new);
+    }
+
+    /**
+     * 按行还原完整实体（重新归档或导出时使用，分析查询应只读取需要的列）
+     */
+    public List<TaskHistoryEntity> readRows() {
+        long[] ids = longs(Column.ID);
+        Bytes32[] taskIds = bytes32(Column.TASK_ID);
+        Bytes32[] iexecTaskIds = bytes32(Column.IEXEC_TASK_ID);
+        String[] serviceIds = strings(Column.SERVICE_ID);
+        Address[] users = addresses();
+        TaskStatus[] statuses = statuses();
+        long[] estimatedTimes = longs(Column.ESTIMATED_TIME);
+        long[] actualTimes = longs(Column.ACTUAL_TIME);
+        ByteBuffer priorities = inflate(Column.PRIORITY);
+        String[] resources = strings(Column.RESOURCE_REQUIREMENT);
+        double[] costs = costs();
+        LocalDateTime[] createdAt = timestamps(Column.CREATED_AT);
+        LocalDateTime[] startedAt = timestamps(Column.STARTED_AT);
+        LocalDateTime[] completedAt = timestamps(Column.COMPLETED_AT);
+        String[] errors = strings(Column.ERROR_MESSAGE);
+        String[] resultHashes = strings(Column.RESULT_HASH);
+
+        List<TaskHistoryEntity> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            TaskHistoryEntity row = new TaskHistoryEntity();
+            row.setId(ids[i]);
+            row.setTaskId(taskIds[i]);
+            row.setIexecTaskId(iexecTaskIds[i]);
+            row.setServiceId(serviceIds[i]);
+            row.setUserAddress(users[i]);
+            row.setStatus(statuses[i]);
+            row.setEstimatedTime(estimatedTimes[i] != NULL_LONG ? estimatedTimes[i] : null);
+            row.setActualTime(actualTimes[i] != NULL_LONG ? actualTimes[i] : null);
+            int priority = priorities.getInt();
+            row.setPriority(priority != NULL_INT ? priority : null);
+            row.setResourceRequirement(resources[i]);
+            row.setCostAmount(Double.isNaN(costs[i]) ? null : costs[i]);
+            row.setCreatedAt(createdAt[i]);
+            row.setStartedAt(startedAt[i]);
+            row.setCompletedAt(completedAt[i]);
+            row.setErrorMessage(errors[i]);
+            row.setResultHash(resultHashes[i]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Bytes32[] bytes32(Column column) {
+        ByteBuffer raw = inflate(column);
+        Bytes32[] values = new Bytes32[rowCount];
+        byte[] bytes = new byte[Bytes32.LENGTH];
+        for (int i = 0; i < rowCount; i++) {
+            raw.get(bytes);
+            values[i] = Bytes32.wrap(bytes);
+        }
+        return values;
+    }
+
+    private <T> T[] decodeDictionary(Column column, Function<byte[], T> decoder, IntFunction<T[]> arrays) {
+        if (column.encoding != Encoding.DICTIONARY) {
+            throw new IllegalArgumentException("Not a dictionary column: " + column);
+        }
+        ByteBuffer raw = inflate(column);
+        T[] dictionary = arrays.apply(raw.getInt());
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[raw.getInt()];
+            raw.get(bytes);
+            dictionary[i] = decoder.apply(bytes);
+        }
+        T[] values = arrays.apply(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            int code = raw.getInt();
+            values[i] = code != NULL_CODE ? dictionary[code] : null;
+        }
+        return values;
+    }
+
+    private ByteBuffer inflate(Column column) {
+        int index = column.ordinal();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) columnOffsets[index], compressedLengths[index]));
+            ByteBuffer raw = ByteBuffer.allocate(rawLengths[index]);
+            while (raw.hasRemaining()) {
+                if (inflater.inflate(raw) == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated column " + column + " in " + path);
+                }
+            }
+            return raw.flip();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted column " + column + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // ==================== 列编码 ====================
+
+    private static ByteBuffer encode(Column column, List<TaskHistoryEntity> rows) {
+        return switch (column) {
+            case ID -> deltas(rows, TaskHistoryEntity::getId);
+            case TASK_ID -> fixed(rows, TaskHistoryEntity::getTaskId);
+            case IEXEC_TASK_ID -> fixed(rows, TaskHistoryEntity::getIexecTaskId);
+            case SERVICE_ID -> dictionary(rows, TaskHistoryEntity::getServiceId, HistorySegment::utf8);
+            case USER_ADDRESS -> dictionary(rows, TaskHistoryEntity::getUserAddress, Address::toBytes);
+            case STATUS -> {
+                ByteBuffer buffer = ByteBuffer.allocate(rows.size());
+                rows.forEach(row -> buffer.put((byte) row.getStatus().getCode()));
+                yield buffer.flip();
+            }
+            case ESTIMATED_TIME -> longs(rows, TaskHistoryEntity::getEstimatedTime);
+            case ACTUAL_TIME -> longs(rows, TaskHistoryEntity::getActualTime);
+            case PRIORITY -> {
+                ByteBuffer buffer = ByteBuffer.allocate(rows.size() * 4);
+                rows.forEach(row -> buffer.putInt(row.getPriority() != null ? row.getPriority() : NULL_INT));
+                yield buffer.flip();
+            }
+            case RESOURCE_REQUIREMENT -> dictionary(rows, TaskHistoryEntity::getResourceRequirement, HistorySegment::utf8);
+            case COST_AMOUNT -> {
+                ByteBuffer buffer = ByteBuffer.allocate(rows.size() * 8);
+                rows.forEach(row -> buffer.putDouble(row.getCostAmount() != null ? row.getCostAmount() : Double.NaN));
+                yield buffer.flip();
+            }
+            case CREATED_AT -> deltas(rows, row -> toMicros(row.getCreatedAt()));
+            case STARTED_AT -> longs(rows, row -> row.getStartedAt() != null ? toMicros(row.getStartedAt()) : null);
+            case COMPLETED_AT -> deltas(rows, row -> toMicros(row.getCompletedAt()));
+            case ERROR_MESSAGE -> dictionary(rows, TaskHistoryEntity::getErrorMessage, HistorySegment::utf8);
+            case RESULT_HASH -> dictionary(rows, TaskHistoryEntity::getResultHash, HistorySegment::utf8);
+        };
+    }
+
+    private static ByteBuffer deltas(List<TaskHistoryEntity> rows, Function<TaskHistoryEntity, Long> getter) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * 8);
+        long previous = 0;
+        for (TaskHistoryEntity row : rows) {
+            long value = getter.apply(row);
+            buffer.putLong(value - previous);
+            previous = value;
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer longs(List<TaskHistoryEntity> rows, Function<TaskHistoryEntity, Long> getter) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * 8);
+        for (TaskHistoryEntity row : rows) {
+            Long value = getter.apply(row);
+            buffer.putLong(value != null ? value : NULL_LONG);
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer fixed(List<TaskHistoryEntity> rows, Function<TaskHistoryEntity, Bytes32> getter) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * Bytes32.LENGTH);
+        rows.forEach(row -> buffer.put(getter.apply(row).toBytes()));
+        return buffer.flip();
+    }
+
+    private static <T> ByteBuffer dictionary(List<TaskHistoryEntity> rows, Function<TaskHistoryEntity, T> getter,
+                                             Function<T, byte[]> toBytes) {
+        Map<T, Integer> codes = new HashMap<>();
+        List<byte[]> entries = new ArrayList<>();
+        int[] values = new int[rows.size()];
+        int size = 4 + rows.size() * 4;
+        for (int i = 0; i < rows.size(); i++) {
+            T value = getter.apply(rows.get(i));
+            if (value == null) {
+                values[i] = NULL_CODE;
+                continue;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                byte[] bytes = toBytes.apply(value);
+                code = entries.size();
+                codes.put(value, code);
+                entries.add(bytes);
+                size += 4 + bytes.length;
+            }
+            values[i] = code;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(entries.size());
+        for (byte[] entry : entries) {
+            buffer.putInt(entry.length).put(entry);
+        }
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] deflate(ByteBuffer raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteBuffer out = ByteBuffer.allocate(raw.remaining() / 2 + 64);
+            while (!deflater.finished()) {
+                if (!out.hasRemaining()) {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+                deflater.deflate(out);
+            }
+            byte[] bytes = new byte[out.position()];
+            out.flip().get(bytes);
+            return bytes;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 时间按 UTC 换算为微秒（与数据库 TIMESTAMP(6) 精度一致）
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        if (micros == NULL_LONG) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000,
+            ZoneOffset.UTC);
+    }
+
+    // ==================== 头部信息 ====================
+
+    public Path getPath() {
+        return path;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getPart() {
+        return part;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public LocalDateTime getMinCreatedAt() {
+        return minCreatedAt;
+    }
+
+    public LocalDateTime getMaxCreatedAt() {
+        return maxCreatedAt;
+    }
+
+    public LocalDateTime getMinCompletedAt() {
+        return minCompletedAt;
+    }
+
+    public LocalDateTime getMaxCompletedAt() {
+        return maxCompletedAt;
+    }
+
+    public long getFileSize() {
+        return data.capacity();
+    }
+
+    /**
+     * 按服务汇总（serviceId -> 汇总），不解压任何列
+     */
+    public Map<String, ServiceSummary> getServiceSummaries() {
+        return serviceSummaries;
+    }
+
+    /**
+     * 单个服务在段内的汇总：各终态行数、有耗时的完成记录数与耗时之和、耗时最小/最大值
+     */
+    public static class ServiceSummary {
+        private static final int BYTES = 8 + 4 + TaskStatus.values().length * 8 + 4 * 8;
+
+        private long rows;
+        private final long[] statusCounts = new long[TaskStatus.values().length];
+        private long timedCompletions;   // actualTime 不为空的完成记录数（与 AVG 语义一致）
+        private long actualTimeSum;
+        private long minActualTime = Long.MAX_VALUE;
+        private long maxActualTime = Long.MIN_VALUE;
+
+        void add(TaskHistoryEntity row) {
+            rows++;
+            statusCounts[row.getStatus().getCode()]++;
+            if (row.getStatus() == TaskStatus.COMPLETED && row.getActualTime() != null) {
+                timedCompletions++;
+                actualTimeSum += row.getActualTime();
+                minActualTime = Math.min(minActualTime, row.getActualTime());
+                maxActualTime = Math.max(maxActualTime, row.getActualTime());
+            }
+        }
+
+        /**
+         * 合并另一段的汇总（跨段聚合用）
+         */
+        public void merge(ServiceSummary other) {
+            rows += other.rows;
+            for (int i = 0; i < statusCounts.length; i++) {
+                statusCounts[i] += other.statusCounts[i];
+            }
+            timedCompletions += other.timedCompletions;
+            actualTimeSum += other.actualTimeSum;
+            minActualTime = Math.min(minActualTime, other.minActualTime);
+            maxActualTime = Math.max(maxActualTime, other.maxActualTime);
+        }
+
+        private void write(ByteBuffer buffer) {
+            buffer.putLong(rows).putInt(statusCounts.length);
+            for (long count : statusCounts) {
+                buffer.putLong(count);
+            }
+            buffer.putLong(timedCompletions).putLong(actualTimeSum).putLong(minActualTime).putLong(maxActualTime);
+        }
+
+        private static ServiceSummary read(ByteBuffer buffer) {
+            ServiceSummary summary = new ServiceSummary();
+            summary.rows = buffer.getLong();
+            int statuses = buffer.getInt();
+            for (int i = 0; i < statuses; i++) {
+                summary.statusCounts[i] = buffer.getLong();
+            }
+            summary.timedCompletions = buffer.getLong();
+            summary.actualTimeSum = buffer.getLong();
+            summary.minActualTime = buffer.getLong();
+            summary.maxActualTime = buffer.getLong();
+            return summary;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getCount(TaskStatus status) {
+            return statusCounts[status.getCode()];
+        }
+
+        public long getTimedCompletions() {
+            return timedCompletions;
+        }
+
+        public long getActualTimeSum() {
+            return actualTimeSum;
+        }
+
+        public Long getMinActualTime() {
+            return timedCompletions > 0 ? minActualTime : null;
+        }
+
+        public Long getMaxActualTime() {
+            return timedCompletions > 0 ? maxActualTime : null;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.blockchain.iExec.service;
 
+import com.blockchain.iExec.jfr.CliCommandEvent;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +15,9 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,7 +40,15 @@ public class IexecCliService {
     @Value("${iexec.chain:bellecour}")
     private String chain;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    // CLI 输出解析（编译一次，每次解析复用）
+    private static final Pattern ADDRESS_PATTERN = Pattern.compile("(0x[a-fA-F0-9]{40})");
+    private static final Pattern ORDER_HASH_PATTERN = Pattern.compile("orderHash:\\s*(0x[a-fA-F0-9]{64})");
+    private static final Pattern DEAL_ID_PATTERN = Pattern.compile("dealid:\\s*(0x[a-fA-F0-9]{64})");
     
     /**
      * 初始化 iExec 工作环境
@@ -131,6 +146,17 @@ public class IexecCliService {
         return orderHash;
     }
     
+    /**
+     * 列出当前订单簿中所有可用的工作池订单（用于对冲提交时选择不同的工作池）
+     * @return 工作池订单哈希列表，按订单簿顺序
+     */
+    public List<String> listWorkerpoolOrders() throws IOException, InterruptedException {
+        logger.debug("Listing public workerpool orders");
+        
+        String output = executeCommand("iexec orderbook workerpool --chain " + chain);
+        return extractOrderHashes(output);
+    }
+    
     /**
      * 创建请求订单
      * @param appAddress 应用地址
@@ -176,6 +202,21 @@ public class IexecCliService {
         return dealId;
     }
     
+    /**
+     * 查询 Deal 下的第一个任务ID
+     * @param dealId Deal ID
+     * @return iExec 任务ID，解析失败返回 null
+     */
+    public String getDealTaskId(String dealId) throws IOException, InterruptedException {
+        String output = executeCommand(String.format(
+            "iexec deal show %s --chain %s --raw", dealId, chain
+        ));
+        
+        JsonNode tasks = OBJECT_MAPPER.readTree(output).path("tasks");
+        Iterator<JsonNode> it = tasks.elements();
+        return it.hasNext() ? it.next().asText() : null;
+    }
+    
     /**
      * 查询任务状态
      * @param taskId 任务ID
@@ -189,21 +230,7 @@ public class IexecCliService {
                 "iexec task show %s --chain %s --raw", taskId, chain
             ));
             
-            // 解析 JSON 输出
-            JsonNode taskNode = objectMapper.readTree(output);
-            
-            IexecTaskStatus status = new IexecTaskStatus();
-            status.setTaskId(taskId);
-            status.setStatus(taskNode.path("statusName").asText());
-            status.setDealId(taskNode.path("dealid").asText());
-            
-            // 解析结果信息
-            JsonNode results = taskNode.path("results");
-            if (!results.isMissingNode()) {
-                status.setResultStorage(results.path("storage").asText());
-                status.setResultLocation(results.path("location").asText());
-            }
-            
+            IexecTaskStatus status = parseTaskStatus(taskId, output);
             logger.debug("Task {} status: {}", taskId, status.getStatus());
             return status;
             
@@ -250,9 +277,56 @@ public class IexecCliService {
     // ==================== 工具方法 ====================
     
     /**
-     * 执行 Shell 命令
+     * 执行 Shell 命令，按命令类型记录耗时与结果
      */
     private String executeCommand(String command) throws IOException, InterruptedException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CliCommandEvent event = new CliCommandEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            String output = runProcess(command, event);
+            outcome = "success";
+            return output;
+        } catch (InterruptedException e) {
+            outcome = "timeout";
+            throw e;
+        } catch (IOException e) {
+            outcome = e.getMessage() != null && e.getMessage().startsWith("Command failed") ? "failure" : "error";
+            throw e;
+        } finally {
+            event.command = commandType(command);
+            event.commit();
+            sample.stop(Timer.builder("iexec.cli.command")
+                .description("iExec CLI command latency")
+                .tag("command", commandType(command))
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        }
+    }
+    
+    /**
+     * 命令类型：iexec 之后的子命令（如 "task show"、"order fill"），不含参数
+     */
+    static String commandType(String command) {
+        String[] tokens = command.trim().split("\\s+");
+        StringBuilder type = new StringBuilder();
+        for (int i = 1; i < tokens.length && i <= 2; i++) {
+            if (tokens[i].startsWith("-") || tokens[i].startsWith("0x")) {
+                break;
+            }
+            if (type.length() > 0) {
+                type.append(' ');
+            }
+            type.append(tokens[i]);
+        }
+        return type.length() > 0 ? type.toString() : tokens[0];
+    }
+    
+    /**
+     * 启动子进程执行命令，并把退出码与输出大小记入 JFR 事件
+     */
+    private String runProcess(String command, CliCommandEvent event) throws IOException, InterruptedException {
         logger.debug("Executing command: {}", command);
         
         ProcessBuilder pb = new ProcessBuilder();
@@ -288,6 +362,8 @@ public class IexecCliService {
         }
         
         int exitCode = process.exitValue();
+        event.exitCode = exitCode;
+        event.outputBytes = output.length();  // CLI 输出为 ASCII，字符数即字节数
         if (exitCode != 0) {
             logger.error("Command failed with exit code {}: {}", exitCode, output);
             throw new IOException("Command failed with exit code " + exitCode);
@@ -296,12 +372,33 @@ public class IexecCliService {
         return output.toString();
     }
     
+    /**
+     * 解析 iexec task show --raw 的输出
+     * CLI 的 raw 输出为 {"ok":true,"task":{...}}，同时兼容直接给出任务对象的输出
+     */
+    public static IexecTaskStatus parseTaskStatus(String taskId, String output) throws IOException {
+        JsonNode root = OBJECT_MAPPER.readTree(output);
+        JsonNode taskNode = root.has("task") ? root.path("task") : root;
+        
+        IexecTaskStatus status = new IexecTaskStatus();
+        status.setTaskId(taskId);
+        status.setStatus(taskNode.path("statusName").asText());
+        status.setDealId(taskNode.path("dealid").asText());
+        
+        // 解析结果信息
+        JsonNode results = taskNode.path("results");
+        if (!results.isMissingNode()) {
+            status.setResultStorage(results.path("storage").asText());
+            status.setResultLocation(results.path("location").asText());
+        }
+        return status;
+    }
+    
     /**
      * 从输出中提取以太坊地址
      */
-    private String extractAddress(String output, String context) {
-        Pattern pattern = Pattern.compile("(0x[a-fA-F0-9]{40})");
-        Matcher matcher = pattern.matcher(output);
+    public static String extractAddress(String output, String context) {
+        Matcher matcher = ADDRESS_PATTERN.matcher(output);
         if (matcher.find()) {
             return matcher.group(1);
         }
@@ -312,37 +409,36 @@ public class IexecCliService {
     /**
      * 从输出中提取订单哈希
      */
-    private String extractOrderHash(String output) {
-        Pattern pattern = Pattern.compile("orderHash:\\s*(0x[a-fA-F0-9]{64})");
-        Matcher matcher = pattern.matcher(output);
-        if (matcher.find()) {
-            return matcher.group(1);
+    public static String extractOrderHash(String output) {
+        Matcher matcher = ORDER_HASH_PATTERN.matcher(output);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
+    /**
+     * 从订单簿输出中按顺序提取全部订单哈希
+     */
+    public static List<String> extractOrderHashes(String output) {
+        List<String> orderHashes = new ArrayList<>();
+        Matcher matcher = ORDER_HASH_PATTERN.matcher(output);
+        while (matcher.find()) {
+            orderHashes.add(matcher.group(1));
         }
-        return null;
+        return orderHashes;
     }
     
     /**
      * 从输出中提取 Deal ID
      */
-    private String extractDealId(String output) {
-        Pattern pattern = Pattern.compile("dealid:\\s*(0x[a-fA-F0-9]{64})");
-        Matcher matcher = pattern.matcher(output);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+    public static String extractDealId(String output) {
+        Matcher matcher = DEAL_ID_PATTERN.matcher(output);
+        return matcher.find() ? matcher.group(1) : null;
     }
     
     /**
      * 提取第一个可用的工作池订单
      */
-    private String extractFirstWorkerpoolOrder(String output) {
-        Pattern pattern = Pattern.compile("orderHash:\\s*(0x[a-fA-F0-9]{64})");
-        Matcher matcher = pattern.matcher(output);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+    private static String extractFirstWorkerpoolOrder(String output) {
+        return extractOrderHash(output);
     }
     
     /**
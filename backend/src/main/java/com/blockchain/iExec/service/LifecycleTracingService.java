@@ -0,0 +1,264 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.TaskEntity;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 任务生命周期追踪服务 - 统计各阶段耗时分布
+ *
+ * 阶段划分（相邻两个时间戳之差）：
+ * 链上事件 → 监听器采集 → 入库 → 创建 Deal → 开始运行 → 结果可用 → 终态提交
+ * 每个阶段在其结束时间戳写入时记录到 HdrHistogram，分别按全局和按服务汇总，
+ * 查询时返回 p50/p95/p99，用于判断应扩容哪个阶段。
+ */
+@Service
+public class LifecycleTracingService {
+
+    private static final String OVERALL = "*";
+    private static final String DEFAULT_SERVICE_ID = "default";
+
+    // 可记录的最大耗时（毫秒），超出部分按上限记录
+    @Value("${task.lifecycle.max-trackable-ms:604800000}")
+    private long maxTrackableMillis;
+
+    // 有效数字位数：2 位即 1% 相对精度，每个直方图仅占数 KB
+    @Value("${task.lifecycle.significant-digits:2}")
+    private int significantDigits;
+
+    private final ConcurrentMap<String, StageHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * 生命周期阶段
+     */
+    public enum Stage {
+        INGEST("ingest"),        // 链上事件 → 监听器采集
+        PERSIST("persist"),      // 采集 → 入库
+        DEAL("deal"),            // 入库 → 创建 iExec Deal
+        START("start"),          // 创建 Deal → 开始运行
+        EXECUTION("execution"),  // 开始运行 → 结果可用
+        FINALIZE("finalize"),    // 结果可用 → 终态提交
+        TOTAL("total");          // 链上事件（缺失时为入库）→ 终态提交
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 任务保存后记录刚到达的阶段
+     *
+     * @param inserted     本次保存是否为新建
+     * @param dealCreated  本次保存是否首次关联 iExec 任务
+     * @param started      本次保存是否首次进入 Running
+     */
+    public void onTaskSaved(TaskEntity task, boolean inserted, boolean dealCreated, boolean started) {
+        String serviceId = task.getServiceId();
+        if (inserted) {
+            record(Stage.INGEST, serviceId, task.getChainEventAt(), task.getEventSeenAt());
+            record(Stage.PERSIST, serviceId, task.getEventSeenAt(), task.getCreatedAt());
+        }
+        if (dealCreated) {
+            record(Stage.DEAL, serviceId, task.getCreatedAt(), task.getDealCreatedAt());
+        }
+        if (started) {
+            record(Stage.START, serviceId, task.getDealCreatedAt(), task.getRunningAt());
+        }
+    }
+
+    /**
+     * 任务终态迁移成功后记录执行、终结与总耗时
+     * 若处于事务中，则在提交后才记录（提交时刻即终结阶段的结束时间）
+     */
+    public void onTaskFinalized(TaskEntity task, boolean completed) {
+        AfterCommit.run(() -> {
+            LocalDateTime finalizedAt = LocalDateTime.now();
+            String serviceId = task.getServiceId();
+            if (completed) {
+                record(Stage.EXECUTION, serviceId, task.getRunningAt(), task.getResultAvailableAt());
+                record(Stage.FINALIZE, serviceId, task.getResultAvailableAt(), finalizedAt);
+                LocalDateTime origin = task.getChainEventAt() != null ? task.getChainEventAt() : task.getCreatedAt();
+                record(Stage.TOTAL, serviceId, origin, finalizedAt);
+            }
+        });
+    }
+
+    /**
+     * 记录一个阶段耗时；任一端时间戳缺失（如手动创建的任务没有链上事件）时跳过
+     */
+    public void record(Stage stage, String serviceId, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            return;
+        }
+        long millis = Math.max(0, Math.min(Duration.between(from, to).toMillis(), maxTrackableMillis));
+        String service = serviceId != null ? serviceId : DEFAULT_SERVICE_ID;
+        histogram(OVERALL, stage).record(millis);
+        histogram(service, stage).record(millis);
+    }
+
+    private StageHistogram histogram(String serviceId, Stage stage) {
+        return histograms.computeIfAbsent(serviceId + "|" + stage.getLabel(),
+            key -> new StageHistogram(maxTrackableMillis, significantDigits));
+    }
+
+    /**
+     * 获取各阶段耗时分位数（全局与按服务）
+     */
+    public LifecycleReport getLifecycleReport() {
+        Map<String, Map<String, StageLatency>> byService = new TreeMap<>();
+        for (Map.Entry<String, StageHistogram> entry : histograms.entrySet()) {
+            int separator = entry.getKey().lastIndexOf('|');
+            String serviceId = entry.getKey().substring(0, separator);
+            String stage = entry.getKey().substring(separator + 1);
+            byService.computeIfAbsent(serviceId, key -> new TreeMap<>())
+                .put(stage, entry.getValue().latency());
+        }
+
+        LifecycleReport report = new LifecycleReport();
+        report.setOverall(ordered(byService.remove(OVERALL)));
+        Map<String, Map<String, StageLatency>> services = new TreeMap<>();
+        byService.forEach((serviceId, stages) -> services.put(serviceId, ordered(stages)));
+        report.setServices(services);
+        return report;
+    }
+
+    // 按生命周期顺序排列阶段
+    private static Map<String, StageLatency> ordered(Map<String, StageLatency> stages) {
+        Map<String, StageLatency> result = new LinkedHashMap<>();
+        if (stages == null) {
+            return result;
+        }
+        for (Stage stage : Stage.values()) {
+            StageLatency latency = stages.get(stage.getLabel());
+            if (latency != null) {
+                result.put(stage.getLabel(), latency);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 单个阶段的流式直方图
+     * 写入走无锁的 Recorder，读取时把区间直方图累加进累计直方图
+     */
+    private static class StageHistogram {
+        private final Recorder recorder;
+        private final Histogram cumulative;
+        private Histogram interval;
+
+        StageHistogram(long highestTrackableValue, int significantDigits) {
+            this.recorder = new Recorder(highestTrackableValue, significantDigits);
+            this.cumulative = new Histogram(highestTrackableValue, significantDigits);
+        }
+
+        void record(long millis) {
+            recorder.recordValue(millis);
+        }
+
+        synchronized StageLatency latency() {
+            interval = recorder.getIntervalHistogram(interval);
+            cumulative.add(interval);
+
+            StageLatency latency = new StageLatency();
+            latency.setCount(cumulative.getTotalCount());
+            if (cumulative.getTotalCount() > 0) {
+                latency.setP50(cumulative.getValueAtPercentile(50));
+                latency.setP95(cumulative.getValueAtPercentile(95));
+                latency.setP99(cumulative.getValueAtPercentile(99));
+                latency.setMax(cumulative.getMaxValue());
+            }
+            return latency;
+        }
+    }
+
+    /**
+     * 生命周期耗时报告类
+     */
+    public static class LifecycleReport {
+        private Map<String, StageLatency> overall;
+        private Map<String, Map<String, StageLatency>> services;
+
+        public Map<String, StageLatency> getOverall() {
+            return overall;
+        }
+
+        public void setOverall(Map<String, StageLatency> overall) {
+            this.overall = overall;
+        }
+
+        public Map<String, Map<String, StageLatency>> getServices() {
+            return services;
+        }
+
+        public void setServices(Map<String, Map<String, StageLatency>> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * 阶段耗时分位数类（单位：毫秒）
+     */
+    public static class StageLatency {
+        private long count;
+        private long p50;
+        private long p95;
+        private long p99;
+        private long max;
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public void setP50(long p50) {
+            this.p50 = p50;
+        }
+
+        public long getP95() {
+            return p95;
+        }
+
+        public void setP95(long p95) {
+            this.p95 = p95;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public void setP99(long p99) {
+            this.p99 = p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public void setMax(long max) {
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.MonitoringSnapshotEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.MonitoringSnapshotRepository;
+import com.blockchain.iExec.repository.TaskRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 监控统计计数器 - 常数时间返回监控统计
+ * 计数器只保存全局 COUNT 查询的结果，按较短的间隔刷新并持久化快照。
+ * 多实例部署时各实例只看到自己分片内的状态迁移，因此不再叠加本地增量，所有实例发布相同的全局值
+ */
+@Service
+public class MonitoringStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitoringStatsService.class);
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskHistoryQueryService taskHistoryQueryService;
+
+    @Autowired
+    private MonitoringSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${task.monitor.timeout:3600000}")
+    private long taskTimeout;
+
+    private volatile long pendingTasks;  // Created，等待提交到 iExec
+    private volatile long runningTasks;
+    private volatile long completedTasks;
+    private volatile long failedTasks;
+    private volatile long timeoutTasks;
+
+    /**
+     * 注册各状态任务数与待提交队列深度指标
+     */
+    @PostConstruct
+    public void registerMeters() {
+        Gauge.builder("tasks.status", this, stats -> stats.runningTasks).tag("status", "Running").register(meterRegistry);
+        Gauge.builder("tasks.status", this, stats -> stats.completedTasks).tag("status", "Completed").register(meterRegistry);
+        Gauge.builder("tasks.status", this, stats -> stats.failedTasks).tag("status", "Failed").register(meterRegistry);
+        Gauge.builder("tasks.status", this, stats -> stats.timeoutTasks).tag("status", "Timeout").register(meterRegistry);
+        Gauge.builder("tasks.queue.depth", this, stats -> stats.pendingTasks)
+            .description("Tasks waiting to be submitted to iExec")
+            .tag("queue", "pending")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 启动时用上次持久化的快照预热计数器，首次刷新前即可返回近似值
+     */
+    @PostConstruct
+    public void loadSnapshot() {
+        try {
+            snapshotRepository.findById(MonitoringSnapshotEntity.SINGLETON_ID).ifPresent(snapshot -> {
+                runningTasks = snapshot.getRunningTasks();
+                completedTasks = snapshot.getCompletedTasks();
+                failedTasks = snapshot.getFailedTasks();
+                timeoutTasks = snapshot.getTimeoutTasks();
+                logger.info("Monitoring counters restored from snapshot captured at {}", snapshot.getCapturedAt());
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to load monitoring snapshot", e);
+        }
+    }
+
+    /**
+     * 定期用 COUNT 查询刷新计数器并持久化快照
+     */
+    @Scheduled(fixedDelayString = "${task.stats.refresh-interval:15000}")
+    public void refresh() {
+        try {
+            long pending = taskRepository.countByStatus(TaskStatus.CREATED);
+            long running = taskRepository.countByStatus(TaskStatus.RUNNING);
+            long timeout = taskRepository.countByStatusAndRunningAtBefore(
+                TaskStatus.RUNNING, LocalDateTime.now().minus(Duration.ofMillis(taskTimeout)));
+            long completed = taskHistoryQueryService.countByStatus(TaskStatus.COMPLETED);
+            long failed = taskHistoryQueryService.countByStatus(TaskStatus.FAILED);
+
+            if (running != runningTasks || completed != completedTasks || failed != failedTasks) {
+                logger.debug("Monitoring counters refreshed: running {} -> {}, completed {} -> {}, failed {} -> {}",
+                    runningTasks, running, completedTasks, completed, failedTasks, failed);
+            }
+
+            pendingTasks = pending;
+            runningTasks = running;
+            completedTasks = completed;
+            failedTasks = failed;
+            timeoutTasks = timeout;
+
+            MonitoringSnapshotEntity snapshot = new MonitoringSnapshotEntity();
+            snapshot.setRunningTasks(running);
+            snapshot.setTimeoutTasks(timeout);
+            snapshot.setCompletedTasks(completed);
+            snapshot.setFailedTasks(failed);
+            snapshot.setCapturedAt(LocalDateTime.now());
+            snapshotRepository.save(snapshot);
+
+        } catch (Exception e) {
+            logger.error("Error refreshing monitoring counters", e);
+        }
+    }
+
+    /**
+     * 获取监控统计信息（常数时间，不访问数据库）
+     */
+    public TaskMonitorService.MonitoringStats getStats() {
+        TaskMonitorService.MonitoringStats stats = new TaskMonitorService.MonitoringStats();
+        stats.setRunningTasksCount((int) runningTasks);
+        stats.setTimeoutTasksCount((int) timeoutTasks);
+        stats.setCompletedTasksCount((int) completedTasks);
+        stats.setFailedTasksCount((int) failedTasks);
+        return stats;
+    }
+}
@@ -0,0 +1,289 @@
+package com.blockchain.iExec.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 待派发任务的索引优先队列（非线程安全，由调用方加锁）
+ *
+ * 有效优先级 = 静态优先级 + min(agingPerMinute × 等待分钟数, maxAgingBonus)。
+ * 等待加成随时间线性增长且所有任务增速相同，因此未封顶的任务按
+ * 「静态优先级 - agingPerMinute × 创建时刻」排序即可，该键不随时间变化；
+ * 加成封顶的任务按静态优先级排序。任务在等待时间达到封顶点时才惰性地从前一个堆
+ * 移到后一个堆，无需每个周期重算全部任务。插入、删除、按 taskId 更新均为 O(log n)。
+ */
+public class PriorityDispatchQueue {
+
+    private static final int YOUNG = 0;
+    private static final int BY_AGE = 1;
+    private static final int AGED = 2;
+
+    private final double agingPerMinute;
+    private final double maxAgingBonus;
+    private final double agingCapMinutes;
+
+    private final Map<String, QueuedTask> entries = new HashMap<>();
+
+    // 未封顶任务：按时间无关键排序；同时按创建时刻排序，用于找出即将封顶的任务
+    private final IndexedHeap young = new IndexedHeap(YOUNG);
+    private final IndexedHeap byAge = new IndexedHeap(BY_AGE);
+
+    // 已封顶任务：加成相同，按静态优先级排序
+    private final IndexedHeap aged = new IndexedHeap(AGED);
+
+    /**
+     * @param agingPerMinute 每等待一分钟增加的优先级
+     * @param maxAgingBonus  等待加成上限
+     */
+    public PriorityDispatchQueue(double agingPerMinute, double maxAgingBonus) {
+        this.agingPerMinute = agingPerMinute;
+        this.maxAgingBonus = maxAgingBonus;
+        this.agingCapMinutes = maxAgingBonus / agingPerMinute;
+    }
+
+    /**
+     * 加入任务；已在队列中时更新其静态优先级与创建时间
+     */
+    public void upsert(String taskId, double staticPriority, LocalDateTime createdAt) {
+        upsert(taskId, null, staticPriority, createdAt);
+    }
+
+    /**
+     * 加入任务并记录提交用户
+     */
+    public void upsert(String taskId, String userAddress, double staticPriority, LocalDateTime createdAt) {
+        remove(taskId);
+        QueuedTask task = new QueuedTask(taskId, userAddress, staticPriority, createdAt, toMinutes(createdAt));
+        task.youngKey = staticPriority - agingPerMinute * task.createdMinute;
+        entries.put(taskId, task);
+        young.offer(task);
+        byAge.offer(task);
+    }
+
+    /**
+     * 移除任务
+     *
+     * @return 任务是否在队列中
+     */
+    public boolean remove(String taskId) {
+        QueuedTask task = entries.remove(taskId);
+        if (task == null) {
+            return false;
+        }
+        if (task.positions[AGED] >= 0) {
+            aged.remove(task);
+        } else {
+            young.remove(task);
+            byAge.remove(task);
+        }
+        return true;
+    }
+
+    /**
+     * 查看当前有效优先级最高的任务（不出队）
+     */
+    public QueuedTask peek(LocalDateTime now) {
+        double nowMinute = toMinutes(now);
+        promoteAged(nowMinute);
+        QueuedTask youngHead = young.peek();
+        QueuedTask agedHead = aged.peek();
+        if (youngHead == null || agedHead == null) {
+            return youngHead != null ? youngHead : agedHead;
+        }
+        double youngPriority = effectivePriority(youngHead, nowMinute);
+        double agedPriority = effectivePriority(agedHead, nowMinute);
+        if (youngPriority != agedPriority) {
+            return youngPriority > agedPriority ? youngHead : agedHead;
+        }
+        return agedHead.createdMinute <= youngHead.createdMinute ? agedHead : youngHead;
+    }
+
+    /**
+     * 取出当前有效优先级最高的任务，队列为空时返回 null
+     */
+    public QueuedTask poll(LocalDateTime now) {
+        QueuedTask head = peek(now);
+        if (head != null) {
+            remove(head.taskId);
+        }
+        return head;
+    }
+
+    /**
+     * 任务在给定时刻的有效优先级
+     */
+    public double effectivePriority(QueuedTask task, LocalDateTime now) {
+        return effectivePriority(task, toMinutes(now));
+    }
+
+    public void clear() {
+        entries.clear();
+        young.clear();
+        byAge.clear();
+        aged.clear();
+    }
+
+    public boolean contains(String taskId) {
+        return entries.containsKey(taskId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // 等待时间达到封顶点的任务移入 aged 堆
+    private void promoteAged(double nowMinute) {
+        QueuedTask oldest;
+        while ((oldest = byAge.peek()) != null && nowMinute - oldest.createdMinute >= agingCapMinutes) {
+            young.remove(oldest);
+            byAge.remove(oldest);
+            aged.offer(oldest);
+        }
+    }
+
+    private double effectivePriority(QueuedTask task, double nowMinute) {
+        double waiting = Math.max(0, nowMinute - task.createdMinute);
+        return task.staticPriority + Math.min(agingPerMinute * waiting, maxAgingBonus);
+    }
+
+    private static double toMinutes(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 60_000.0;
+    }
+
+    /**
+     * 队列中的任务
+     */
+    public static class QueuedTask {
+        private final String taskId;
+        private final String userAddress;
+        private final double staticPriority;
+        private final LocalDateTime createdAt;
+        private final double createdMinute;
+        private double youngKey;
+        // 在各个堆中的下标，-1 表示不在该堆中
+        private final int[] positions = {-1, -1, -1};
+
+        QueuedTask(String taskId, String userAddress, double staticPriority, LocalDateTime createdAt, double createdMinute) {
+            this.taskId = taskId;
+            this.userAddress = userAddress;
+            this.staticPriority = staticPriority;
+            this.createdAt = createdAt;
+            this.createdMinute = createdMinute;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public String getUserAddress() {
+            return userAddress;
+        }
+
+        public double getStaticPriority() {
+            return staticPriority;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    /**
+     * 二叉堆，元素记录自己在堆中的下标，支持 O(log n) 删除任意元素
+     */
+    private static class IndexedHeap {
+        private final int slot;
+        private QueuedTask[] heap = new QueuedTask[16];
+        private int size;
+
+        IndexedHeap(int slot) {
+            this.slot = slot;
+        }
+
+        QueuedTask peek() {
+            return size > 0 ? heap[0] : null;
+        }
+
+        void clear() {
+            Arrays.fill(heap, 0, size, null);
+            size = 0;
+        }
+
+        void offer(QueuedTask task) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            place(task, size++);
+            siftUp(size - 1);
+        }
+
+        void remove(QueuedTask task) {
+            int index = task.positions[slot];
+            task.positions[slot] = -1;
+            QueuedTask last = heap[--size];
+            heap[size] = null;
+            if (index < size) {
+                place(last, index);
+                siftDown(index);
+                siftUp(last.positions[slot]);
+            }
+        }
+
+        private void siftUp(int index) {
+            QueuedTask task = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!before(task, heap[parent])) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(task, index);
+        }
+
+        private void siftDown(int index) {
+            QueuedTask task = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], task)) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(task, index);
+        }
+
+        // a 是否应排在 b 之前；同分时先创建的任务优先
+        private boolean before(QueuedTask a, QueuedTask b) {
+            switch (slot) {
+                case YOUNG:
+                    if (a.youngKey != b.youngKey) {
+                        return a.youngKey > b.youngKey;
+                    }
+                    break;
+                case AGED:
+                    if (a.staticPriority != b.staticPriority) {
+                        return a.staticPriority > b.staticPriority;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return a.createdMinute < b.createdMinute;
+        }
+
+        private void place(QueuedTask task, int index) {
+            heap[index] = task;
+            task.positions[slot] = index;
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package com.blockchain.iExec.service;
 
+import com.blockchain.iExec.model.Address;
 import com.blockchain.iExec.model.ReputationEntity;
 import com.blockchain.iExec.repository.ReputationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ReputationService {
     
+    // 批量查询时每次 IN 查询的地址数
+    private static final int IN_BATCH_SIZE = 500;
+    
     @Autowired
     private ReputationRepository reputationRepository;
     
     // 更新用户信誉
-    public ReputationEntity updateReputation(String userAddress, boolean taskCompleted, boolean completedOnTime, double qualityScore) {
+    public ReputationEntity updateReputation(Address userAddress, boolean taskCompleted, boolean completedOnTime, double qualityScore) {
         ReputationEntity reputation = reputationRepository.findByAddress(userAddress);
         
         if (reputation == null) {
@@ -22,6 +32,41 @@ public class ReputationService {
             reputation.setAddress(userAddress);
         }
         
+        applyOutcome(reputation, taskCompleted, completedOnTime, qualityScore);
+        
+        return reputationRepository.save(reputation);
+    }
+    
+    // 批量更新用户信誉：一次 IN 查询加载所有涉及用户，按顺序累加后一次性保存
+    // 调用方负责事务边界（与任务状态、历史记录在同一事务中）
+    public void applyUpdates(List<ReputationUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        
+        Set<Address> addresses = updates.stream()
+            .map(ReputationUpdate::getUserAddress)
+            .collect(Collectors.toSet());
+        
+        Map<Address, ReputationEntity> reputations = new HashMap<>();
+        for (ReputationEntity reputation : reputationRepository.findByAddressIn(addresses)) {
+            reputations.put(reputation.getAddress(), reputation);
+        }
+        
+        for (ReputationUpdate update : updates) {
+            ReputationEntity reputation = reputations.computeIfAbsent(update.getUserAddress(), address -> {
+                ReputationEntity created = new ReputationEntity();
+                created.setAddress(address);
+                return created;
+            });
+            applyOutcome(reputation, update.isCompleted(), update.isOnTime(), update.getQualityScore());
+        }
+        
+        reputationRepository.saveAll(reputations.values());
+    }
+    
+    // 将一次任务结果累加到信誉实体
+    private void applyOutcome(ReputationEntity reputation, boolean taskCompleted, boolean completedOnTime, double qualityScore) {
         // 更新任务统计
         reputation.setTotalTasks(reputation.getTotalTasks() + 1);
         
@@ -40,8 +85,6 @@ public class ReputationService {
         
         // 使用自定义算法计算综合信誉分数
         calculateFinalScore(reputation);
-        
-        return reputationRepository.save(reputation);
     }
     
     // 计算综合信誉分数的核心算法
@@ -64,7 +107,51 @@ public class ReputationService {
     }
     
     // 根据用户地址获取信誉
-    public ReputationEntity getReputationByAddress(String address) {
+    public ReputationEntity getReputationByAddress(Address address) {
         return reputationRepository.findByAddress(address);
     }
-}
\ No newline at end of file
+    
+    // 批量查询多个地址的综合信誉分数（每 IN_BATCH_SIZE 个地址一次 IN 查询），没有记录的地址不在结果中
+    public Map<Address, Double> getFinalScores(Collection<Address> addresses) {
+        List<Address> distinct = addresses.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Address, Double> scores = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += IN_BATCH_SIZE) {
+            List<Address> chunk = distinct.subList(from, Math.min(from + IN_BATCH_SIZE, distinct.size()));
+            for (ReputationEntity reputation : reputationRepository.findByAddressIn(chunk)) {
+                scores.put(reputation.getAddress(), reputation.getFinalScore());
+            }
+        }
+        return scores;
+    }
+    
+    // 单次信誉更新
+    public static class ReputationUpdate {
+        private final Address userAddress;
+        private final boolean completed;
+        private final boolean onTime;
+        private final double qualityScore;
+        
+        public ReputationUpdate(Address userAddress, boolean completed, boolean onTime, double qualityScore) {
+            this.userAddress = userAddress;
+            this.completed = completed;
+            this.onTime = onTime;
+            this.qualityScore = qualityScore;
+        }
+        
+        public Address getUserAddress() {
+            return userAddress;
+        }
+        
+        public boolean isCompleted() {
+            return completed;
+        }
+        
+        public boolean isOnTime() {
+            return onTime;
+        }
+        
+        public double getQualityScore() {
+            return qualityScore;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.ClusterInstanceEntity;
+import com.blockchain.iExec.model.ShardLeaseEntity;
+import com.blockchain.iExec.repository.ClusterInstanceRepository;
+import com.blockchain.iExec.repository.ShardLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 分片租约服务 - 多实例部署时划分任务监控职责
+ *
+ * 任务按 taskId 哈希落入固定数量的桶（入库时写入任务表的 bucket 列）；存活实例（心跳未过期）按实例ID排序后
+ * 各自负责一段连续的桶区间。每个桶通过数据库条件更新获得租约，实例加入或
+ * 失联时目标区间重新计算，多出的桶被释放、缺少的桶在原租约释放或过期后接管。
+ * 额外的领导者租约由排序第一的实例持有，只有领导者采集链上事件。
+ */
+@Service
+public class ShardLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardLeaseService.class);
+
+    @Autowired
+    private ClusterInstanceRepository clusterInstanceRepository;
+
+    @Autowired
+    private ShardLeaseRepository shardLeaseRepository;
+
+    @Value("${cluster.instance-id:}")
+    private String instanceId;
+
+    @Value("${cluster.buckets:64}")
+    private int bucketCount;
+
+    @Value("${cluster.lease-ttl:15000}")
+    private long leaseTtl;
+
+    private volatile Set<Integer> ownedBuckets = Collections.emptySet();
+    private volatile Set<Integer> desiredBuckets = Collections.emptySet();
+    private volatile LocalDateTime ownedUntil = LocalDateTime.MIN;
+    private volatile List<String> liveInstances = Collections.emptyList();
+    private volatile boolean leasesInitialized;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    @PostConstruct
+    public void init() {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = defaultInstanceId();
+        }
+        logger.info("Cluster instance id: {} ({} shard buckets)", instanceId, bucketCount);
+    }
+
+    /**
+     * 定时心跳：刷新成员信息并重新平衡租约
+     */
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-interval:5000}")
+    public void heartbeat() {
+        try {
+            rebalance(LocalDateTime.now());
+        } catch (Exception e) {
+            // 数据库不可用时放弃全部职责，避免租约过期后与其他实例重复处理
+            ownedBuckets = Collections.emptySet();
+            logger.error("Cluster heartbeat failed, dropping shard ownership", e);
+        }
+    }
+
+    private void rebalance(LocalDateTime now) {
+        ensureLeaseRows();
+
+        // 1. 写入心跳
+        ClusterInstanceEntity self = new ClusterInstanceEntity();
+        self.setInstanceId(instanceId);
+        self.setLastHeartbeat(now);
+        self.setStartedAt(startedAt);
+        clusterInstanceRepository.save(self);
+
+        // 2. 计算存活成员
+        LocalDateTime liveSince = now.minus(Duration.ofMillis(leaseTtl));
+        List<String> members = clusterInstanceRepository.findByLastHeartbeatAfterOrderByInstanceIdAsc(liveSince)
+            .stream()
+            .map(ClusterInstanceEntity::getInstanceId)
+            .collect(Collectors.toList());
+        clusterInstanceRepository.deleteStaleInstances(now.minus(Duration.ofMillis(leaseTtl * 10)));
+
+        // 3. 目标桶区间与领导者
+        Set<Integer> desired = desiredBuckets(members.indexOf(instanceId), members.size());
+        desiredBuckets = Collections.unmodifiableSet(new HashSet<>(desired));
+        if (!members.isEmpty() && members.get(0).equals(instanceId)) {
+            desired.add(ShardLeaseEntity.LEADER_BUCKET);
+        }
+
+        // 4. 释放多余租约，续约/抢占目标租约
+        if (desired.isEmpty()) {
+            shardLeaseRepository.releaseAll(instanceId);
+        } else {
+            shardLeaseRepository.releaseExcept(instanceId, desired);
+            shardLeaseRepository.acquire(desired, instanceId, now.plus(Duration.ofMillis(leaseTtl)), now);
+        }
+
+        Set<Integer> owned = new HashSet<>(shardLeaseRepository.findOwnedBuckets(instanceId, now));
+        if (!owned.equals(ownedBuckets) || !members.equals(liveInstances)) {
+            logger.info("Cluster membership {} - instance {} owns {} buckets{}",
+                members, instanceId, owned.size() - (owned.contains(ShardLeaseEntity.LEADER_BUCKET) ? 1 : 0),
+                owned.contains(ShardLeaseEntity.LEADER_BUCKET) ? " (leader)" : "");
+        }
+        ownedBuckets = Collections.unmodifiableSet(owned);
+        ownedUntil = now.plus(Duration.ofMillis(leaseTtl));
+        liveInstances = Collections.unmodifiableList(members);
+    }
+
+    /**
+     * 第 index 个成员（共 size 个）负责的连续桶区间 [index*B/size, (index+1)*B/size)
+     */
+    private Set<Integer> desiredBuckets(int index, int size) {
+        Set<Integer> buckets = new HashSet<>();
+        if (index < 0 || size == 0) {
+            return buckets;
+        }
+        int from = (int) ((long) index * bucketCount / size);
+        int to = (int) ((long) (index + 1) * bucketCount / size);
+        for (int bucket = from; bucket < to; bucket++) {
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * 首次运行时补齐租约行（多个实例并发插入时忽略主键冲突）
+     */
+    private void ensureLeaseRows() {
+        if (leasesInitialized) {
+            return;
+        }
+        if (shardLeaseRepository.count() < bucketCount + 1) {
+            Set<Integer> existing = shardLeaseRepository.findAll().stream()
+                .map(ShardLeaseEntity::getBucket)
+                .collect(Collectors.toSet());
+            List<Integer> missing = new ArrayList<>();
+            for (int bucket = ShardLeaseEntity.LEADER_BUCKET; bucket < bucketCount; bucket++) {
+                if (!existing.contains(bucket)) {
+                    missing.add(bucket);
+                }
+            }
+            for (Integer bucket : missing) {
+                try {
+                    ShardLeaseEntity lease = new ShardLeaseEntity();
+                    lease.setBucket(bucket);
+                    shardLeaseRepository.save(lease);
+                } catch (DataIntegrityViolationException e) {
+                    logger.debug("Shard lease row {} created concurrently", bucket);
+                }
+            }
+        }
+        leasesInitialized = true;
+    }
+
+    /**
+     * 正常关闭时释放租约并注销成员，其他实例在下一次心跳即可接管
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            ownedBuckets = Collections.emptySet();
+            shardLeaseRepository.releaseAll(instanceId);
+            clusterInstanceRepository.deleteById(instanceId);
+            logger.info("Cluster instance {} left, leases released", instanceId);
+        } catch (Exception e) {
+            logger.warn("Failed to release leases on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 任务所在的分片桶（Bytes32.hashCode 只由字节决定，在所有 JVM 上一致）
+     */
+    public int bucketOf(Bytes32 taskId) {
+        return Math.floorMod(taskId != null ? taskId.hashCode() : 0, bucketCount);
+    }
+
+    /**
+     * 本实例当前是否负责该任务
+     */
+    public boolean ownsTask(Bytes32 taskId) {
+        return holds(bucketOf(taskId));
+    }
+
+    /**
+     * 本实例当前是否为领导者（负责链上事件采集）
+     */
+    public boolean isLeader() {
+        return holds(ShardLeaseEntity.LEADER_BUCKET);
+    }
+
+    // 心跳停滞（如长时间 GC）超过租约期限后，本地持有的租约视为失效
+    private boolean holds(int bucket) {
+        return ownedBuckets.contains(bucket) && LocalDateTime.now().isBefore(ownedUntil);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 最近一次心跳时的存活实例（按实例ID排序）
+     */
+    public List<String> getLiveInstances() {
+        return liveInstances;
+    }
+
+    /**
+     * 本实例持有的任务桶（不含领导者租约；心跳停滞超过租约期限时为空）
+     */
+    public Set<Integer> getOwnedBuckets() {
+        if (!LocalDateTime.now().isBefore(ownedUntil)) {
+            return Collections.emptySet();
+        }
+        Set<Integer> buckets = new HashSet<>(ownedBuckets);
+        buckets.remove(ShardLeaseEntity.LEADER_BUCKET);
+        return buckets;
+    }
+
+    /**
+     * 按当前成员计算出的本实例应负责的任务桶（首次心跳前为空）
+     */
+    public Set<Integer> getDesiredBuckets() {
+        return desiredBuckets;
+    }
+
+    /**
+     * 本实例是否已持有应负责的全部任务桶（原持有者释放或租约过期前可能只持有一部分）
+     */
+    public boolean ownsDesiredBuckets() {
+        Set<Integer> desired = desiredBuckets;
+        return !desired.isEmpty() && getOwnedBuckets().containsAll(desired);
+    }
+
+    /**
+     * 获取集群状态
+     */
+    public ClusterStatus getClusterStatus() {
+        ClusterStatus status = new ClusterStatus();
+        status.setInstanceId(instanceId);
+        status.setLeader(isLeader());
+        status.setOwnedBuckets(getOwnedBuckets().size());
+        status.setTotalBuckets(bucketCount);
+        status.setLiveInstances(liveInstances);
+        return status;
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "instance";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 集群状态类
+     */
+    public static class ClusterStatus {
+        private String instanceId;
+        private boolean leader;
+        private int ownedBuckets;
+        private int totalBuckets;
+        private List<String> liveInstances;
+
+        public String getInstanceId() {
+            return instanceId;
+        }
+
+        public void setInstanceId(String instanceId) {
+            this.instanceId = instanceId;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        public void setLeader(boolean leader) {
+            this.leader = leader;
+        }
+
+        public int getOwnedBuckets() {
+            return ownedBuckets;
+        }
+
+        public void setOwnedBuckets(int ownedBuckets) {
+            this.ownedBuckets = ownedBuckets;
+        }
+
+        public int getTotalBuckets() {
+            return totalBuckets;
+        }
+
+        public void setTotalBuckets(int totalBuckets) {
+            this.totalBuckets = totalBuckets;
+        }
+
+        public List<String> getLiveInstances() {
+            return liveInstances;
+        }
+
+        public void setLiveInstances(List<String> liveInstances) {
+            this.liveInstances = liveInstances;
+        }
+    }
+}
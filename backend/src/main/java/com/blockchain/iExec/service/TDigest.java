@@ -0,0 +1,321 @@
+package com.blockchain.iExec.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 合并式 t-digest 分位数草图（非线程安全，由调用方加锁）
+ *
+ * 新样本先进入缓冲区，缓冲区满时与已有质心按均值排序后贪心合并。合并条件使用
+ * k1 尺度函数 k(q) = δ/(2π)·asin(2q-1)：两端质心很小、中间质心较大，尾部分位数精度更高。
+ * 质心数不超过约 δ，内存与样本量无关；两个草图可直接合并，支持整体按比例衰减权重。
+ */
+public class TDigest {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final double compression;
+
+    private final double[] means;
+    private final double[] weights;
+    private int centroidCount;
+
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int bufferCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression 压缩参数 δ，越大越精确（常用 100）
+     */
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[(int) Math.ceil(5 * compression)];
+        this.bufferWeights = new double[bufferMeans.length];
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, double weight) {
+        if (Double.isNaN(value) || weight <= 0) {
+            return;
+        }
+        if (bufferCount == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 合并另一个草图的全部质心
+     */
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroidCount; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        // 对方的极值可能不是某个质心的均值
+        if (other.centroidCount > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * 所有权重乘以 factor（0 < factor ≤ 1），用于时间衰减
+     */
+    public void decay(double factor) {
+        compress();
+        int kept = 0;
+        totalWeight = 0;
+        for (int i = 0; i < centroidCount; i++) {
+            double weight = weights[i] * factor;
+            // 衰减到可忽略的质心直接丢弃
+            if (weight >= 1e-9) {
+                means[kept] = means[i];
+                weights[kept] = weight;
+                totalWeight += weight;
+                kept++;
+            }
+        }
+        centroidCount = kept;
+        if (centroidCount == 0) {
+            totalWeight = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * 估计分位数
+     *
+     * @param q 分位点 [0, 1]
+     * @return 估计值，草图为空时返回 NaN
+     */
+    public double quantile(double q) {
+        compress();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1 || q <= 0) {
+            return centroidCount == 1 ? means[0] : min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+
+        double index = q * totalWeight;
+
+        // 左尾：在最小值与第一个质心均值之间插值
+        if (index < weights[0] / 2) {
+            return min + (index / (weights[0] / 2)) * (means[0] - min);
+        }
+
+        // 相邻质心中心之间线性插值
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double delta = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + delta > index) {
+                double fraction = (index - weightSoFar) / delta;
+                return means[i] + fraction * (means[i + 1] - means[i]);
+            }
+            weightSoFar += delta;
+        }
+
+        // 右尾：在最后一个质心均值与最大值之间插值
+        int last = centroidCount - 1;
+        double fraction = Math.min(1, (index - weightSoFar) / (weights[last] / 2));
+        return means[last] + fraction * (max - means[last]);
+    }
+
+    /**
+     * 样本总权重（未衰减时即样本数）
+     */
+    public double size() {
+        return totalWeight;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * 合并缓冲区：缓冲样本排序后与（已有序的）质心归并，再按均值顺序贪心合并
+     */
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+
+        sort(bufferMeans, bufferWeights, 0, bufferCount - 1);
+        int n = centroidCount + bufferCount;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        double total = 0;
+        for (int i = 0, c = 0, b = 0; i < n; i++) {
+            if (b == bufferCount || (c < centroidCount && means[c] <= bufferMeans[b])) {
+                allMeans[i] = means[c];
+                allWeights[i] = weights[c++];
+            } else {
+                allMeans[i] = bufferMeans[b];
+                allWeights[i] = bufferWeights[b++];
+            }
+            total += allWeights[i];
+        }
+        bufferCount = 0;
+
+        centroidCount = 0;
+        double weightBefore = 0;
+        double currentMean = allMeans[0];
+        double currentWeight = allWeights[0];
+        double weightLimit = weightLimit(0, total);
+
+        for (int i = 1; i < n; i++) {
+            double proposed = currentWeight + allWeights[i];
+            if (weightBefore + proposed <= weightLimit) {
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                append(currentMean, currentWeight);
+                weightBefore += currentWeight;
+                weightLimit = weightLimit(weightBefore, total);
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        append(currentMean, currentWeight);
+        totalWeight = total;
+    }
+
+    // 按均值对 (均值, 权重) 对原地快速排序，避免装箱
+    private static void sort(double[] keys, double[] values, int from, int to) {
+        while (from < to) {
+            if (to - from < 16) {
+                for (int i = from + 1; i <= to; i++) {
+                    double key = keys[i];
+                    double value = values[i];
+                    int j = i - 1;
+                    while (j >= from && keys[j] > key) {
+                        keys[j + 1] = keys[j];
+                        values[j + 1] = values[j];
+                        j--;
+                    }
+                    keys[j + 1] = key;
+                    values[j + 1] = value;
+                }
+                return;
+            }
+            double pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    double value = values[i];
+                    values[i] = values[j];
+                    values[j] = value;
+                    i++;
+                    j--;
+                }
+            }
+            // 先递归较短的一侧，栈深度 O(log n)
+            if (j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+    }
+
+    private void append(double mean, double weight) {
+        means[centroidCount] = mean;
+        weights[centroidCount] = weight;
+        centroidCount++;
+    }
+
+    // k1 尺度函数
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    // 从 weightBefore 开始的质心可以累积到的权重上限，即 k(q) 增加 1 处：q = (sin(2πk/δ) + 1) / 2
+    // 每个新质心只计算一次，合并判断无需对每个样本求 asin
+    private double weightLimit(double weightBefore, double total) {
+        double k = scale(weightBefore / total) + 1;
+        if (k >= compression / 4) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (Math.sin(2 * Math.PI * k / compression) + 1) / 2 * total;
+    }
+
+    // ==================== 序列化 ====================
+
+    /**
+     * 紧凑二进制格式：版本、δ、极值、质心数，随后为各质心的 (均值, 权重)
+     */
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * 3 + 4 + centroidCount * 16);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putDouble(compression);
+        buffer.putDouble(min);
+        buffer.putDouble(max);
+        buffer.putInt(centroidCount);
+        for (int i = 0; i < centroidCount; i++) {
+            buffer.putDouble(means[i]);
+            buffer.putDouble(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported t-digest format version " + version);
+        }
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            digest.add(buffer.getDouble(), buffer.getDouble());
+        }
+        digest.compress();
+        if (count > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+
+    public TDigest copy() {
+        return fromBytes(toBytes());
+    }
+}
@@ -0,0 +1,339 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.service.PriorityDispatchQueue.QueuedTask;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 任务派发服务 - 按优先级把待处理任务提交到 iExec
+ *
+ * 本实例分片内状态为 Created 的任务按用户地址分入虚拟队列：用户之间按信誉加权的差额轮询公平派发，
+ * 同一用户的任务按 calculatePriority 的顺序派发。每个任务提交前须从准入控制获得许可，
+ * 许可用尽或用户达到在途上限时留在队列中。
+ * 队列每个周期增量拉取新任务；启动、分片变化或到达全量同步间隔时从数据库重建，
+ * 重启后不会丢失待派发任务。
+ */
+@Service
+public class TaskDispatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskDispatchService.class);
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+
+    @Autowired
+    private IexecCliService iexecCliService;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private ReputationService reputationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${task.dispatch.enabled:true}")
+    private boolean enabled;
+
+    // 每个周期最多派发的任务数
+    @Value("${task.dispatch.batch-size:10}")
+    private int batchSize;
+
+    // 提交失败的最大重试次数，超过后任务标记为 Failed
+    @Value("${task.dispatch.max-attempts:3}")
+    private int maxAttempts;
+
+    // 全量同步间隔（毫秒）：刷新静态优先级并清理已被其他路径处理的任务
+    @Value("${task.dispatch.resync-interval:300000}")
+    private long resyncInterval;
+
+    // 每个用户的在途任务上限，0 表示不限制
+    @Value("${task.fair-share.max-in-flight-per-user:0}")
+    private int maxInFlightPerUser;
+
+    // 用户权重取信誉分数（finalScore），不低于该值，避免低信誉用户完全得不到派发
+    @Value("${task.fair-share.min-weight:0.1}")
+    private double minWeight;
+
+    @Value("${iexec.app.order-hash:}")
+    private String appOrderHash;
+
+    private FairShareQueue queue;
+
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dispatchFailures = new AtomicLong();
+
+    private Set<Integer> syncedBuckets;
+    private long lastSeenId;
+    private long lastFullSync;
+
+    @PostConstruct
+    public void init() {
+        queue = new FairShareQueue(1, TaskSchedulerService.WAITING_BONUS_PER_MINUTE, TaskSchedulerService.MAX_WAITING_BONUS);
+
+        Gauge.builder("task.dispatch.queue.depth", this, TaskDispatchService::getQueueDepth).register(meterRegistry);
+        FunctionCounter.builder("task.dispatch.submitted", dispatched, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("task.dispatch.failed", dispatchFailures, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * 同步队列并按优先级派发一批任务
+     * 队列操作持有 queue 锁，提交 Deal 的 CLI 调用在锁外进行，统计查询不会被阻塞
+     */
+    @Scheduled(fixedDelayString = "${task.dispatch.interval:10000}")
+    public void dispatch() {
+        try {
+            syncQueue();
+        } catch (Exception e) {
+            logger.error("Error synchronizing dispatch queue", e);
+            return;
+        }
+
+        if (!enabled || appOrderHash.isEmpty() || getQueueDepth() == 0) {
+            return;
+        }
+
+        String workerpoolOrder;
+        try {
+            workerpoolOrder = iexecCliService.getPublicWorkerpoolOrder();
+        } catch (Exception e) {
+            logger.error("No workerpool order available for dispatch: {}", e.getMessage());
+            return;
+        }
+
+        for (int i = 0; i < batchSize; i++) {
+            QueuedTask next;
+            synchronized (queue) {
+                next = queue.poll(LocalDateTime.now(), this::belowUserCap);
+            }
+            if (next == null) {
+                break;
+            }
+            if (!admissionControlService.tryAcquire(next.getTaskId(), next.getUserAddress())) {
+                requeue(next);
+                logger.debug("Admission limit reached, {} tasks stay queued", getQueueDepth());
+                break;
+            }
+            submit(next, workerpoolOrder);
+        }
+    }
+
+    private void submit(QueuedTask queued, String workerpoolOrder) {
+        // 出队时再确认状态，已被其他路径处理的任务直接丢弃
+        TaskEntity task = taskService.getTaskByTaskId(Bytes32.of(queued.getTaskId()));
+        if (task == null || task.getStatus() != TaskStatus.CREATED || !shardLeaseService.ownsTask(task.getTaskId())) {
+            failedAttempts.remove(queued.getTaskId());
+            admissionControlService.release(queued.getTaskId());
+            return;
+        }
+
+        try {
+            // Deal 一旦创建即已付费：先保存 dealId 再解析任务ID，解析失败重试时复用已有 Deal，不重复创建
+            if (task.getDealId() == null) {
+                String dealId = iexecCliService.createDeal(appOrderHash, workerpoolOrder);
+                if (dealId == null) {
+                    throw new IllegalStateException("Deal creation returned no deal id");
+                }
+                task.setDealId(Bytes32.of(dealId));
+                task.setWorkerpoolOrderHash(Bytes32.of(workerpoolOrder));
+                task = taskService.saveTask(task);
+            }
+            String iexecTaskId = iexecCliService.getDealTaskId(task.getDealId().toString());
+            if (iexecTaskId == null) {
+                throw new IllegalStateException("Deal " + task.getDealId() + " did not yield an iExec task id");
+            }
+
+            task.setIexecTaskId(Bytes32.of(iexecTaskId));
+            task.setStatus(TaskStatus.RUNNING);
+            taskService.saveTask(task);
+            failedAttempts.remove(queued.getTaskId());
+            dispatched.incrementAndGet();
+
+            logger.info("Dispatched task {} (static priority {}) as iExec task {}",
+                task.getTaskId(), Math.round(queued.getStaticPriority()), iexecTaskId);
+
+        } catch (OptimisticLockingFailureException e) {
+            // 提交 Deal 期间任务被其他写入者修改（如人工改为 Failed），不再重试
+            admissionControlService.release(queued.getTaskId());
+            failedAttempts.remove(queued.getTaskId());
+            logger.warn("Task {} was modified concurrently while dispatching, deal {} left unattached",
+                task.getTaskId(), task.getDealId());
+        } catch (Exception e) {
+            admissionControlService.release(queued.getTaskId());
+            dispatchFailures.incrementAndGet();
+            int attempts = failedAttempts.merge(queued.getTaskId(), 1, Integer::sum);
+            if (attempts >= maxAttempts) {
+                failedAttempts.remove(queued.getTaskId());
+                taskService.updateTaskErrorMessage(task.getTaskId(), "Dispatch failed: " + e.getMessage());
+                logger.error("Giving up dispatching task {} after {} attempts: {}", task.getTaskId(), attempts, e.getMessage());
+            } else {
+                requeue(queued);
+                logger.warn("Dispatch attempt {} for task {} failed: {}", attempts, task.getTaskId(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean belowUserCap(String userAddress) {
+        return maxInFlightPerUser <= 0 || admissionControlService.getInFlight(userAddress) < maxInFlightPerUser;
+    }
+
+    private void requeue(QueuedTask task) {
+        synchronized (queue) {
+            queue.upsert(task.getTaskId(), task.getUserAddress(), task.getStaticPriority(), task.getCreatedAt());
+        }
+    }
+
+    /**
+     * 增量拉取新建的任务；分片变化或到达全量同步间隔时重建队列
+     * 并发事务可能乱序提交导致增量拉取漏掉个别任务，由全量同步兜底
+     */
+    private void syncQueue() {
+        Set<Integer> buckets = shardLeaseService.getOwnedBuckets();
+        boolean fullSync = !buckets.equals(syncedBuckets)
+            || System.currentTimeMillis() - lastFullSync >= resyncInterval;
+
+        // 按 status + bucket 索引只读取本实例负责分片内的任务
+        List<TaskEntity> tasks = buckets.isEmpty() ? List.of()
+            : fullSync
+            ? taskRepository.findByStatusAndBucketIn(TaskStatus.CREATED, buckets)
+            : taskRepository.findByStatusAndBucketInAndIdGreaterThanOrderByIdAsc(TaskStatus.CREATED, buckets, lastSeenId);
+
+        List<TaskEntity> owned = new ArrayList<>();
+        for (TaskEntity task : tasks) {
+            lastSeenId = Math.max(lastSeenId, task.getId());
+            if (task.getCreatedAt() != null) {
+                owned.add(task);
+            }
+        }
+        // 优先级与用户权重在锁外批量计算
+        Map<Bytes32, Integer> priorities = owned.isEmpty() ? Map.of() : taskSchedulerService.calculateStaticPriorities(owned);
+        Map<Address, Double> finalScores = owned.isEmpty() ? Map.of()
+            : reputationService.getFinalScores(owned.stream().map(TaskEntity::getUserAddress).collect(Collectors.toSet()));
+
+        synchronized (queue) {
+            if (fullSync) {
+                queue.clear();
+            }
+            for (TaskEntity task : owned) {
+                // 队列与准入许可按文本键记录；没有信誉记录的用户按新用户的默认信誉 1.0 计
+                String userAddress = task.getUserAddress() != null ? task.getUserAddress().toString() : null;
+                queue.setWeight(userAddress, Math.max(minWeight, finalScores.getOrDefault(task.getUserAddress(), 1.0)));
+                queue.upsert(task.getTaskId().toString(), userAddress,
+                    priorities.getOrDefault(task.getTaskId(), 100), task.getCreatedAt());
+            }
+        }
+
+        if (fullSync) {
+            syncedBuckets = buckets;
+            lastFullSync = System.currentTimeMillis();
+            logger.debug("Dispatch queue rebuilt with {} tasks", owned.size());
+        }
+    }
+
+    private int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 获取派发统计信息
+     */
+    public DispatchStats getDispatchStats() {
+        DispatchStats stats = new DispatchStats();
+        stats.setEnabled(enabled && !appOrderHash.isEmpty());
+        stats.setDispatched(dispatched.get());
+        stats.setFailures(dispatchFailures.get());
+
+        synchronized (queue) {
+            stats.setQueueDepth(queue.size());
+            stats.setActiveUsers(queue.getActiveUsers());
+        }
+        return stats;
+    }
+
+    /**
+     * 派发统计信息类
+     */
+    public static class DispatchStats {
+        private boolean enabled;
+        private int queueDepth;
+        private long dispatched;
+        private long failures;
+        private int activeUsers;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public void setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+        }
+
+        public long getDispatched() {
+            return dispatched;
+        }
+
+        public void setDispatched(long dispatched) {
+            this.dispatched = dispatched;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public void setFailures(long failures) {
+            this.failures = failures;
+        }
+
+        public int getActiveUsers() {
+            return activeUsers;
+        }
+
+        public void setActiveUsers(int activeUsers) {
+            this.activeUsers = activeUsers;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.service.ReputationService.ReputationUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务终态迁移服务
+ * 在同一事务中完成：条件更新任务状态（Running → 终态）、写入历史记录、累加用户信誉
+ * 条件更新保证同一任务即使被定时监控与手动触发并发处理，也只会被终结一次
+ */
+@Service
+public class TaskFinalizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskFinalizationService.class);
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private ReputationService reputationService;
+
+    @Autowired
+    private LifecycleTracingService lifecycleTracingService;
+
+    @Autowired
+    private CompletionSketchService completionSketchService;
+
+    @Autowired
+    private CompletionPredictorService completionPredictorService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private TaskRollupService taskRollupService;
+
+    /**
+     * 批量终结任务（一个监控周期内的全部终态迁移合并为一个事务）
+     *
+     * @param finalizations 待终结的任务
+     * @return 实际完成迁移的任务（已被其他路径终结的任务被跳过）
+     */
+    @Transactional
+    public List<TaskFinalization> finalizeTasks(List<TaskFinalization> finalizations) {
+        List<TaskFinalization> applied = new ArrayList<>();
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        List<ReputationUpdate> reputationUpdates = new ArrayList<>();
+
+        LocalDateTime now = LocalDateTime.now();
+        for (TaskFinalization finalization : finalizations) {
+            TaskEntity task = finalization.getTask();
+            TaskHistoryEntity history = finalization.getHistory();
+
+            int updated = taskRepository.transitionStatus(
+                task.getId(),
+                TaskStatus.RUNNING,
+                finalization.getTaskStatus(),
+                history.getResultHash(),
+                history.getErrorMessage(),
+                finalization.getTaskStatus() == TaskStatus.COMPLETED ? now : null,
+                task.getResultAvailableAt(),
+                now
+            );
+
+            if (updated == 0) {
+                logger.info("Task {} already finalized by another path, skipping", task.getTaskId());
+                continue;
+            }
+
+            applied.add(finalization);
+            histories.add(history);
+            lifecycleTracingService.onTaskFinalized(task, finalization.getTaskStatus() == TaskStatus.COMPLETED);
+            admissionControlService.onFinalized(task, finalization.getTaskStatus() == TaskStatus.COMPLETED,
+                !finalization.isRecovered());
+            if (history.getStatus() == TaskStatus.COMPLETED) {
+                completionSketchService.onCompleted(history.getServiceId(), history.getActualTime());
+                completionPredictorService.onCompleted(history);
+            }
+            reputationUpdates.add(finalization.getReputationUpdate());
+        }
+
+        taskHistoryRepository.saveAll(histories);
+        taskRollupService.onFinalized(histories);
+        reputationService.applyUpdates(reputationUpdates);
+
+        logger.debug("Finalized {} of {} tasks in one transaction", applied.size(), finalizations.size());
+        return applied;
+    }
+
+    /**
+     * 一次任务终态迁移
+     */
+    public static class TaskFinalization {
+        private final TaskEntity task;
+        private final TaskStatus taskStatus;  // 任务表终态：Completed / Failed
+        private final TaskHistoryEntity history;
+        private final ReputationUpdate reputationUpdate;
+        private boolean recovered;  // 启动恢复时终结（任务在停机期间结束）
+
+        public TaskFinalization(TaskEntity task, TaskStatus taskStatus, TaskHistoryEntity history,
+                                ReputationUpdate reputationUpdate) {
+            this.task = task;
+            this.taskStatus = taskStatus;
+            this.history = history;
+            this.reputationUpdate = reputationUpdate;
+        }
+
+        public TaskEntity getTask() {
+            return task;
+        }
+
+        public TaskStatus getTaskStatus() {
+            return taskStatus;
+        }
+
+        public TaskHistoryEntity getHistory() {
+            return history;
+        }
+
+        public ReputationUpdate getReputationUpdate() {
+            return reputationUpdate;
+        }
+
+        public boolean isRecovered() {
+            return recovered;
+        }
+
+        public void setRecovered(boolean recovered) {
+            this.recovered = recovered;
+        }
+    }
+}
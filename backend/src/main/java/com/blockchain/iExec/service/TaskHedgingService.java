@@ -0,0 +1,221 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务对冲服务 - 降低长尾延迟
+ * 运行时间超过服务预测 p95 的任务会被重复提交到另一个工作池，先返回的结果生效
+ */
+@Service
+public class TaskHedgingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskHedgingService.class);
+
+    @Autowired
+    private IexecCliService iexecCliService;
+
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${task.hedge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${task.hedge.quantile:0.95}")
+    private double quantile;
+
+    @Value("${task.hedge.min-samples:5}")
+    private int minSamples;
+
+    @Value("${task.hedge.max-concurrent:5}")
+    private int maxConcurrentHedges;
+
+    @Value("${task.hedge.max-ratio:0.1}")
+    private double maxHedgeRatio;
+
+    // 对冲 Deal 使用的应用订单
+    @Value("${iexec.app.order-hash:}")
+    private String appOrderHash;
+
+    private HedgingPolicy policy;
+
+    private final AtomicLong inFlightHedges = new AtomicLong();
+    private final AtomicLong runningTasks = new AtomicLong();
+    private final AtomicLong hedgesSubmitted = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        policy = new HedgingPolicy(quantile, maxConcurrentHedges, maxHedgeRatio);
+
+        Gauge.builder("task.hedge.in_flight", inFlightHedges, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("task.hedge.submitted", hedgesSubmitted, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("task.hedge.won", hedgesWon, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * 每个监控周期开始时从数据库刷新对冲预算的基准值
+     */
+    public void beginCycle(int runningTaskCount) {
+        runningTasks.set(runningTaskCount);
+        inFlightHedges.set(taskRepository.countByStatusAndHedgeIexecTaskIdIsNotNull(TaskStatus.RUNNING));
+    }
+
+    /**
+     * 判断并在需要时对运行中的任务提交对冲 Deal
+     *
+     * @return 是否提交了对冲
+     */
+    public boolean maybeHedge(TaskEntity task) {
+        if (!enabled || appOrderHash.isEmpty() || task.getHedgeIexecTaskId() != null || task.getExecutionStartedAt() == null) {
+            return false;
+        }
+
+        long elapsed = Duration.between(task.getExecutionStartedAt(), LocalDateTime.now()).getSeconds();
+        long predicted = taskSchedulerService.predictCompletionTimeQuantile(task.getServiceId(), quantile, minSamples);
+
+        if (!policy.shouldHedge(elapsed, predicted, false, inFlightHedges.get(), runningTasks.get())) {
+            return false;
+        }
+
+        try {
+            String workerpoolOrder = pickAlternativeWorkerpool(task.getWorkerpoolOrderHash());
+            if (workerpoolOrder == null) {
+                logger.debug("No alternative workerpool available to hedge task {}", task.getTaskId());
+                return false;
+            }
+
+            String dealId = iexecCliService.createDeal(appOrderHash, workerpoolOrder);
+            String hedgeIexecTaskId = dealId != null ? iexecCliService.getDealTaskId(dealId) : null;
+            if (hedgeIexecTaskId == null) {
+                logger.warn("Hedge deal for task {} did not yield an iExec task id", task.getTaskId());
+                return false;
+            }
+            Bytes32 hedgeTaskId = Bytes32.of(hedgeIexecTaskId);
+
+            taskService.recordHedge(task.getTaskId(), hedgeTaskId);
+            task.setHedgeIexecTaskId(hedgeTaskId);
+            inFlightHedges.incrementAndGet();
+            hedgesSubmitted.incrementAndGet();
+
+            logger.info("Task {} hedged after {}s (p{} = {}s): iExec {} on workerpool {}",
+                task.getTaskId(), elapsed, (int) (quantile * 100), predicted, hedgeTaskId, workerpoolOrder);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("Error hedging task {}: {}", task.getTaskId(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 记录对冲副本先于主任务完成
+     */
+    public void recordHedgeWon(TaskEntity task) {
+        hedgesWon.incrementAndGet();
+        logger.info("Hedge {} won for task {}, ignoring original iExec task {}",
+            task.getHedgeIexecTaskId(), task.getTaskId(), task.getIexecTaskId());
+    }
+
+    /**
+     * 选择一个与主 Deal 不同的工作池订单
+     */
+    private String pickAlternativeWorkerpool(Bytes32 currentWorkerpoolOrder) throws Exception {
+        List<String> orders = iexecCliService.listWorkerpoolOrders();
+        for (String order : orders) {
+            if (!Bytes32.of(order).equals(currentWorkerpoolOrder)) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取对冲统计信息
+     */
+    public HedgingStats getHedgingStats() {
+        HedgingStats stats = new HedgingStats();
+        stats.setEnabled(enabled && !appOrderHash.isEmpty());
+        stats.setInFlightHedges(inFlightHedges.get());
+        stats.setMaxConcurrentHedges(maxConcurrentHedges);
+        stats.setHedgesSubmitted(hedgesSubmitted.get());
+        stats.setHedgesWon(hedgesWon.get());
+        return stats;
+    }
+
+    /**
+     * 对冲统计信息类
+     */
+    public static class HedgingStats {
+        private boolean enabled;
+        private long inFlightHedges;
+        private int maxConcurrentHedges;
+        private long hedgesSubmitted;
+        private long hedgesWon;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInFlightHedges() {
+            return inFlightHedges;
+        }
+
+        public void setInFlightHedges(long inFlightHedges) {
+            this.inFlightHedges = inFlightHedges;
+        }
+
+        public int getMaxConcurrentHedges() {
+            return maxConcurrentHedges;
+        }
+
+        public void setMaxConcurrentHedges(int maxConcurrentHedges) {
+            this.maxConcurrentHedges = maxConcurrentHedges;
+        }
+
+        public long getHedgesSubmitted() {
+            return hedgesSubmitted;
+        }
+
+        public void setHedgesSubmitted(long hedgesSubmitted) {
+            this.hedgesSubmitted = hedgesSubmitted;
+        }
+
+        public long getHedgesWon() {
+            return hedgesWon;
+        }
+
+        public void setHedgesWon(long hedgesWon) {
+            this.hedgesWon = hedgesWon;
+        }
+    }
+}
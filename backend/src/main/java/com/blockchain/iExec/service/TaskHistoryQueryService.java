@@ -0,0 +1,150 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository.CompletionRecord;
+import com.blockchain.iExec.repository.TaskHistoryRepository.UserOutcomeCount;
+import com.blockchain.iExec.service.HistorySegment.Column;
+import com.blockchain.iExec.service.HistorySegment.ServiceSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务历史查询服务 - 统计、预测与回测读取历史的统一入口
+ *
+ * 同时查询热表与归档段并合并结果，调用方不需要知道记录是否已归档。计数直接使用段头部的汇总；
+ * 需要逐行数据的查询只解压用到的列，并先按段头部的服务汇总跳过无关的段。
+ * 归档段的记录都早于热表中的记录，按时间排序的结果中归档部分在前。
+ */
+@Service
+public class TaskHistoryQueryService {
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    /**
+     * 统计指定状态的任务数
+     */
+    public long countByStatus(TaskStatus status) {
+        return historyArchiveService.read(archive ->
+            taskHistoryRepository.countByStatus(status) + archive.countByStatus(status));
+    }
+
+    /**
+     * 获取指定服务全部耗时有效的已完成任务的耗时（用于首次构建分位数草图）
+     */
+    public List<Long> findCompletedActualTimes(String serviceId) {
+        return historyArchiveService.read(archive -> {
+            List<Long> times = new ArrayList<>();
+            for (HistorySegment segment : archive.getSegments()) {
+                if (hasTimedCompletions(segment, serviceId)) {
+                    collectActualTimes(segment, serviceId, times);
+                }
+            }
+            times.addAll(taskHistoryRepository.findCompletedActualTimes(serviceId));
+            return times;
+        });
+    }
+
+    /**
+     * 按完成时间顺序获取耗时有效的已完成任务（回测与模型训练）
+     *
+     * @param serviceId 服务ID，为 null 时返回全部服务（每个服务内按完成时间排序）
+     */
+    public List<CompletionRecord> findCompletionRecords(String serviceId) {
+        return historyArchiveService.read(archive -> {
+            List<CompletionRecord> records = new ArrayList<>();
+            for (HistorySegment segment : archive.getSegments()) {
+                if (serviceId != null && !hasTimedCompletions(segment, serviceId)) {
+                    continue;
+                }
+                String[] serviceIds = segment.strings(Column.SERVICE_ID);
+                TaskStatus[] statuses = segment.statuses();
+                long[] actualTimes = segment.longs(Column.ACTUAL_TIME);
+                double[] costs = segment.costs();
+                String[] resources = segment.strings(Column.RESOURCE_REQUIREMENT);
+                for (int i = 0; i < serviceIds.length; i++) {
+                    if (isTimedCompletion(statuses[i], actualTimes[i]) && (serviceId == null || serviceId.equals(serviceIds[i]))) {
+                        records.add(new CompletionRecord(serviceIds[i], actualTimes[i],
+                            Double.isNaN(costs[i]) ? null : costs[i], resources[i]));
+                    }
+                }
+            }
+            records.addAll(serviceId != null
+                ? taskHistoryRepository.findCompletionRecords(serviceId)
+                : taskHistoryRepository.findCompletionRecords());
+            return records;
+        });
+    }
+
+    /**
+     * 按用户聚合历史任务总数与完成数（归档部分使用加载段时预先合并的计数）
+     */
+    public List<UserOutcomeCount> countOutcomesByUserAddress(Collection<Address> addresses) {
+        return historyArchiveService.read(archive -> {
+            Map<Address, UserOutcomeCount> outcomes = new HashMap<>();
+            for (UserOutcomeCount hot : taskHistoryRepository.countOutcomesByUserAddress(addresses)) {
+                outcomes.put(hot.getUserAddress(), new OutcomeCount(hot.getUserAddress(),
+                    hot.getTotal() + archive.getUserTotal(hot.getUserAddress()),
+                    hot.getCompleted() + archive.getUserCompleted(hot.getUserAddress())));
+            }
+            for (Address address : addresses) {
+                long total = archive.getUserTotal(address);
+                if (total > 0 && !outcomes.containsKey(address)) {
+                    outcomes.put(address, new OutcomeCount(address, total, archive.getUserCompleted(address)));
+                }
+            }
+            return new ArrayList<>(outcomes.values());
+        });
+    }
+
+    private static boolean hasTimedCompletions(HistorySegment segment, String serviceId) {
+        ServiceSummary summary = segment.getServiceSummaries().get(serviceId);
+        return summary != null && summary.getTimedCompletions() > 0;
+    }
+
+    private static boolean isTimedCompletion(TaskStatus status, long actualTime) {
+        return status == TaskStatus.COMPLETED && actualTime != HistorySegment.NULL_LONG && actualTime > 0;
+    }
+
+    /**
+     * 收集段内指定服务耗时有效的完成记录
+     */
+    private static void collectActualTimes(HistorySegment segment, String serviceId, List<Long> times) {
+        String[] serviceIds = segment.strings(Column.SERVICE_ID);
+        TaskStatus[] statuses = segment.statuses();
+        long[] actualTimes = segment.longs(Column.ACTUAL_TIME);
+        for (int i = 0; i < serviceIds.length; i++) {
+            if (isTimedCompletion(statuses[i], actualTimes[i]) && serviceId.equals(serviceIds[i])) {
+                times.add(actualTimes[i]);
+            }
+        }
+    }
+
+    private record OutcomeCount(Address userAddress, long total, long completed) implements UserOutcomeCount {
+        @Override
+        public Address getUserAddress() {
+            return userAddress;
+        }
+
+        @Override
+        public long getTotal() {
+            return total;
+        }
+
+        @Override
+        public long getCompleted() {
+            return completed;
+        }
+    }
+}
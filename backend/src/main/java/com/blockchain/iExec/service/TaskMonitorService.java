@@ -1,9 +1,17 @@
 package com.blockchain.iExec.service;
 
+import com.blockchain.iExec.jfr.MonitorCycleEvent;
+import com.blockchain.iExec.model.Bytes32;
 import com.blockchain.iExec.model.TaskEntity;
 import com.blockchain.iExec.model.TaskHistoryEntity;
-import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
 import com.blockchain.iExec.service.IexecCliService.IexecTaskStatus;
+import com.blockchain.iExec.service.ReputationService.ReputationUpdate;
+import com.blockchain.iExec.service.TaskFinalizationService.TaskFinalization;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +21,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +33,9 @@ public class TaskMonitorService {
     
     private static final Logger logger = LoggerFactory.getLogger(TaskMonitorService.class);
     
+    // 未关联服务的任务（如通过 API 手动创建）归入默认服务
+    private static final String DEFAULT_SERVICE_ID = "default";
+    
     @Autowired
     private IexecCliService iexecCliService;
     
@@ -31,10 +43,19 @@ public class TaskMonitorService {
     private TaskService taskService;
     
     @Autowired
-    private TaskHistoryRepository taskHistoryRepository;
+    private MonitoringStatsService monitoringStatsService;
+    
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private TaskFinalizationService taskFinalizationService;
     
     @Autowired
-    private ReputationService reputationService;
+    private TaskHedgingService taskHedgingService;
     
     @Value("${task.monitor.interval:30000}")
     private long monitorInterval;
@@ -42,17 +63,27 @@ public class TaskMonitorService {
     @Value("${task.monitor.timeout:3600000}")
     private long taskTimeout;
     
+    // 启动恢复（TaskRecoveryService）完成前跳过定时周期，避免与恢复并发查询同一批任务
+    private volatile boolean recovered;
+    
     /**
      * 定时监控运行中的任务
-     * 默认每30秒执行一次
+     * 默认每30秒执行一次，本周期内所有终态迁移在一个事务中批量提交
      */
-    @Scheduled(fixedDelayString = "${task.monitor.interval:30000}")
+    @Scheduled(fixedDelayString = "${task.monitor.interval:30000}", initialDelayString = "${task.monitor.initial-delay:0}")
     public void monitorRunningTasks() {
+        if (!recovered) {
+            logger.debug("Startup recovery in progress, skipping monitoring cycle");
+            return;
+        }
         logger.debug("Starting task monitoring cycle");
         
+        Timer.Sample cycle = Timer.start(meterRegistry);
+        MonitorCycleEvent event = new MonitorCycleEvent();
+        event.begin();
         try {
-            // 获取所有运行中的任务
-            List<TaskEntity> runningTasks = taskService.getTasksByStatus("Running");
+            // 获取本实例负责分片内的运行中任务
+            List<TaskEntity> runningTasks = taskService.getOwnedTasksByStatus(TaskStatus.RUNNING);
             
             if (runningTasks.isEmpty()) {
                 logger.debug("No running tasks to monitor");
@@ -60,202 +91,252 @@ public class TaskMonitorService {
             }
             
             logger.info("Monitoring {} running tasks", runningTasks.size());
+            event.tasksMonitored = runningTasks.size();
+            taskHedgingService.beginCycle(runningTasks.size());
             
+            List<TaskFinalization> finalizations = new ArrayList<>();
             for (TaskEntity task : runningTasks) {
                 try {
-                    monitorSingleTask(task);
+                    TaskFinalization finalization = monitorSingleTask(task, true);
+                    if (finalization != null) {
+                        finalizations.add(finalization);
+                    }
                 } catch (Exception e) {
                     logger.error("Error monitoring task {}: {}", task.getTaskId(), e.getMessage(), e);
                 }
             }
             
+            event.tasksFinalized = finalizeTasks(finalizations);
+            
         } catch (Exception e) {
             logger.error("Error in task monitoring cycle", e);
+        } finally {
+            event.commit();
+            cycle.stop(meterRegistry.timer("task.monitor.cycle"));
         }
     }
     
     /**
-     * 监控单个任务
+     * 提交终态迁移；批量事务失败时逐个重试，避免单个异常任务阻塞整个周期
+     *
+     * @return 实际终结的任务数
      */
-    private void monitorSingleTask(TaskEntity task) {
-        String taskId = task.getTaskId();
-        String iexecTaskId = task.getIexecTaskId();
+    int finalizeTasks(List<TaskFinalization> finalizations) {
+        if (finalizations.isEmpty()) {
+            return 0;
+        }
+        
+        try {
+            List<TaskFinalization> applied = taskFinalizationService.finalizeTasks(finalizations);
+            recordPredictionErrors(applied);
+            return applied.size();
+        } catch (Exception e) {
+            logger.error("Batch finalization of {} tasks failed, retrying individually", finalizations.size(), e);
+            int finalized = 0;
+            for (TaskFinalization finalization : finalizations) {
+                try {
+                    List<TaskFinalization> applied = taskFinalizationService.finalizeTasks(List.of(finalization));
+                    recordPredictionErrors(applied);
+                    finalized += applied.size();
+                } catch (Exception ex) {
+                    logger.error("Error finalizing task {}: {}", finalization.getTask().getTaskId(), ex.getMessage(), ex);
+                }
+            }
+            return finalized;
+        }
+    }
+    
+    /**
+     * 记录完成任务的预测误差（实际耗时 - 预测耗时），按低估/高估分别统计绝对值
+     */
+    private void recordPredictionErrors(List<TaskFinalization> applied) {
+        for (TaskFinalization finalization : applied) {
+            TaskHistoryEntity history = finalization.getHistory();
+            if (history.getStatus() != TaskStatus.COMPLETED
+                    || history.getEstimatedTime() == null || history.getActualTime() == null) {
+                continue;
+            }
+            long error = history.getActualTime() - history.getEstimatedTime();
+            DistributionSummary.builder("task.prediction.error")
+                .description("Absolute completion time prediction error")
+                .baseUnit("seconds")
+                .tag("service", history.getServiceId())
+                .tag("direction", error >= 0 ? "under" : "over")
+                .register(meterRegistry)
+                .record(Math.abs(error));
+        }
+    }
+    
+    /**
+     * 监控单个任务（启动恢复时由多个线程并行调用，此时不提交对冲）
+     * @param hedge 任务仍在运行时是否评估对冲
+     * @return 任务到达终态时返回待提交的终态迁移，否则返回 null
+     */
+    TaskFinalization monitorSingleTask(TaskEntity task, boolean hedge) {
+        Bytes32 taskId = task.getTaskId();
+        String iexecTaskId = task.getIexecTaskId() != null ? task.getIexecTaskId().toString() : null;
         
         logger.debug("Monitoring task: {} (iExec: {})", taskId, iexecTaskId);
         
         // 检查任务是否超时
         if (isTaskTimeout(task)) {
-            handleTaskTimeout(task);
-            return;
+            return handleTaskTimeout(task);
         }
         
-        // 查询 iExec 任务状态
+        // 查询 iExec 任务状态（主任务与对冲副本）
         IexecTaskStatus status = iexecCliService.getTaskStatus(iexecTaskId);
+        IexecTaskStatus hedgeStatus = task.getHedgeIexecTaskId() != null
+            ? iexecCliService.getTaskStatus(task.getHedgeIexecTaskId().toString())
+            : null;
         
-        if (status == null) {
+        if (status == null && hedgeStatus == null) {
             logger.warn("Failed to get status for task: {}", iexecTaskId);
-            return;
+            return null;
         }
         
-        // 根据状态处理任务
-        if (status.isCompleted()) {
-            handleTaskCompleted(task, status);
-        } else if (status.isFailed()) {
-            handleTaskFailed(task, status);
+        // 根据状态处理任务：先完成者生效，另一个结果被忽略
+        if (status != null && status.isCompleted()) {
+            return handleTaskCompleted(task, status);
+        } else if (hedgeStatus != null && hedgeStatus.isCompleted()) {
+            taskHedgingService.recordHedgeWon(task);
+            task.setIexecTaskId(task.getHedgeIexecTaskId());
+            return handleTaskCompleted(task, hedgeStatus);
+        } else if (isFailed(status) && (task.getHedgeIexecTaskId() == null || isFailed(hedgeStatus))) {
+            return handleTaskFailed(task, status);
+        } else if (isFailed(status)) {
+            logger.info("Task {} original iExec task failed, waiting on hedge {}", taskId, task.getHedgeIexecTaskId());
         } else {
-            logger.debug("Task {} is still running, status: {}", taskId, status.getStatus());
+            logger.debug("Task {} is still running, status: {}", taskId, status != null ? status.getStatus() : null);
+            if (hedge) {
+                taskHedgingService.maybeHedge(task);
+            }
         }
+        return null;
+    }
+    
+    private boolean isFailed(IexecTaskStatus status) {
+        return status != null && status.isFailed();
     }
     
     /**
      * 处理任务完成
      */
-    private void handleTaskCompleted(TaskEntity task, IexecTaskStatus status) {
-        String taskId = task.getTaskId();
+    private TaskFinalization handleTaskCompleted(TaskEntity task, IexecTaskStatus status) {
         String resultHash = status.getResultLocation();
         
-        logger.info("Task {} completed successfully, result: {}", taskId, resultHash);
+        logger.info("Task {} completed successfully, result: {}", task.getTaskId(), resultHash);
+        task.setResultAvailableAt(LocalDateTime.now());
         
-        try {
-            // 1. 更新任务状态和结果
-            taskService.updateTaskResult(taskId, resultHash);
-            
-            // 2. 保存任务历史记录
-            saveTaskHistory(task, "Completed", resultHash, null);
-            
-            // 3. 更新用户信誉
-            updateUserReputation(task, true, true);
-            
-            // 4. 回写区块链状态（这里需要调用智能合约）
-            // TODO: 调用合约的 completeTask 方法
-            // contractService.completeTask(taskId, resultHash);
-            
-            logger.info("Task {} processing completed", taskId);
-            
-        } catch (Exception e) {
-            logger.error("Error processing completed task {}: {}", taskId, e.getMessage(), e);
-        }
+        // 回写区块链状态（这里需要调用智能合约）
+        // TODO: 调用合约的 completeTask 方法
+        // contractService.completeTask(taskId, resultHash);
+        
+        // 记录完成前的预测值，用于评估预测误差
+        TaskHistoryEntity history = buildTaskHistory(task, TaskStatus.COMPLETED, resultHash, null);
+        history.setEstimatedTime(taskSchedulerService.predictCompletionTime(history.getServiceId(),
+            CompletionFeatures.of(history.getCostAmount(), history.getResourceRequirement())));
+        
+        return new TaskFinalization(
+            task,
+            TaskStatus.COMPLETED,
+            history,
+            buildReputationUpdate(task, true, true)
+        );
     }
     
     /**
      * 处理任务失败
      */
-    private void handleTaskFailed(TaskEntity task, IexecTaskStatus status) {
-        String taskId = task.getTaskId();
+    private TaskFinalization handleTaskFailed(TaskEntity task, IexecTaskStatus status) {
         String errorMessage = "iExec task failed with status: " + status.getStatus();
         
-        logger.error("Task {} failed: {}", taskId, errorMessage);
+        logger.error("Task {} failed: {}", task.getTaskId(), errorMessage);
         
-        try {
-            // 1. 更新任务状态
-            taskService.updateTaskErrorMessage(taskId, errorMessage);
-            
-            // 2. 保存任务历史记录
-            saveTaskHistory(task, "Failed", null, errorMessage);
-            
-            // 3. 更新用户信誉（失败记录）
-            updateUserReputation(task, false, false);
-            
-            // 4. 可以触发退款流程
-            // TODO: 调用合约的 refundTask 方法
-            // contractService.refundTask(taskId);
-            
-            logger.info("Task {} failure processed", taskId);
-            
-        } catch (Exception e) {
-            logger.error("Error processing failed task {}: {}", taskId, e.getMessage(), e);
-        }
+        // 可以触发退款流程
+        // TODO: 调用合约的 refundTask 方法
+        // contractService.refundTask(taskId);
+        
+        return new TaskFinalization(
+            task,
+            TaskStatus.FAILED,
+            buildTaskHistory(task, TaskStatus.FAILED, null, errorMessage),
+            buildReputationUpdate(task, false, false)
+        );
     }
     
     /**
      * 处理任务超时
      */
-    private void handleTaskTimeout(TaskEntity task) {
-        String taskId = task.getTaskId();
-        logger.warn("Task {} has timed out", taskId);
+    private TaskFinalization handleTaskTimeout(TaskEntity task) {
+        logger.warn("Task {} has timed out", task.getTaskId());
         
-        try {
-            String errorMessage = "Task execution timeout after " + (taskTimeout / 60000) + " minutes";
-            taskService.updateTaskErrorMessage(taskId, errorMessage);
-            
-            // 保存任务历史记录
-            saveTaskHistory(task, "Timeout", null, errorMessage);
-            
-            // 更新用户信誉
-            updateUserReputation(task, false, false);
-            
-            // 触发退款
-            // TODO: 调用合约的 refundTask 方法
-            
-        } catch (Exception e) {
-            logger.error("Error processing timeout task {}: {}", taskId, e.getMessage(), e);
-        }
+        String errorMessage = "Task execution timeout after " + (taskTimeout / 60000) + " minutes";
+        
+        // 触发退款
+        // TODO: 调用合约的 refundTask 方法
+        
+        return new TaskFinalization(
+            task,
+            TaskStatus.FAILED,
+            buildTaskHistory(task, TaskStatus.TIMEOUT, null, errorMessage),
+            buildReputationUpdate(task, false, false)
+        );
     }
     
     /**
-     * 检查任务是否超时
+     * 检查任务是否超时（从提交到 iExec 开始计算）
      */
     private boolean isTaskTimeout(TaskEntity task) {
-        LocalDateTime createdAt = task.getCreatedAt();
-        if (createdAt == null) {
+        LocalDateTime startedAt = task.getExecutionStartedAt();
+        if (startedAt == null) {
             return false;
         }
         
-        Duration duration = Duration.between(createdAt, LocalDateTime.now());
+        Duration duration = Duration.between(startedAt, LocalDateTime.now());
         return duration.toMillis() > taskTimeout;
     }
     
     /**
-     * 保存任务历史记录
+     * 构建任务历史记录
      */
-    private void saveTaskHistory(TaskEntity task, String finalStatus, String resultHash, String errorMessage) {
-        try {
-            TaskHistoryEntity history = new TaskHistoryEntity();
-            history.setTaskId(task.getTaskId());
-            history.setIexecTaskId(task.getIexecTaskId());
-            history.setUserAddress(task.getUserAddress());
-            history.setStatus(finalStatus);
-            history.setResultHash(resultHash);
-            history.setErrorMessage(errorMessage);
-            history.setCreatedAt(task.getCreatedAt());
-            history.setCompletedAt(LocalDateTime.now());
-            
-            // 计算实际完成时间
-            if (task.getCreatedAt() != null) {
-                long actualTime = Duration.between(task.getCreatedAt(), LocalDateTime.now()).getSeconds();
-                history.setActualTime(actualTime);
-            }
-            
-            taskHistoryRepository.save(history);
-            logger.debug("Task history saved for task: {}", task.getTaskId());
-            
-        } catch (Exception e) {
-            logger.error("Error saving task history: {}", e.getMessage(), e);
+    private TaskHistoryEntity buildTaskHistory(TaskEntity task, TaskStatus finalStatus, String resultHash, String errorMessage) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(task.getTaskId());
+        history.setIexecTaskId(task.getIexecTaskId());
+        history.setServiceId(task.getServiceId() != null ? task.getServiceId() : DEFAULT_SERVICE_ID);
+        history.setUserAddress(task.getUserAddress());
+        history.setStatus(finalStatus);
+        history.setResultHash(resultHash);
+        history.setErrorMessage(errorMessage);
+        history.setCostAmount(task.getCostAmount());
+        history.setResourceRequirement(task.getResourceRequirement());
+        history.setCreatedAt(task.getCreatedAt());
+        history.setCompletedAt(LocalDateTime.now());
+        
+        // 计算实际执行时间（不含派发队列中的等待）
+        if (task.getExecutionStartedAt() != null) {
+            long actualTime = Duration.between(task.getExecutionStartedAt(), LocalDateTime.now()).getSeconds();
+            history.setActualTime(actualTime);
         }
+        
+        return history;
     }
     
     /**
-     * 更新用户信誉
+     * 构建用户信誉更新
      */
-    private void updateUserReputation(TaskEntity task, boolean completed, boolean onTime) {
-        try {
-            String userAddress = task.getUserAddress();
-            
-            // 简化的质量评分（实际应该基于结果验证）
-            double qualityScore = completed ? 0.9 : 0.0;
-            
-            reputationService.updateReputation(userAddress, completed, onTime, qualityScore);
-            logger.debug("Reputation updated for user: {}", userAddress);
-            
-        } catch (Exception e) {
-            logger.error("Error updating reputation: {}", e.getMessage(), e);
-        }
+    private ReputationUpdate buildReputationUpdate(TaskEntity task, boolean completed, boolean onTime) {
+        // 简化的质量评分（实际应该基于结果验证）
+        double qualityScore = completed ? 0.9 : 0.0;
+        
+        return new ReputationUpdate(task.getUserAddress(), completed, onTime, qualityScore);
     }
     
     /**
      * 手动触发任务监控（用于测试或手动干预）
+     * 与定时周期共享同一条件更新路径，并发触发不会重复终结任务
      */
-    public void triggerManualMonitoring(String taskId) {
+    public void triggerManualMonitoring(Bytes32 taskId) {
         logger.info("Manual monitoring triggered for task: {}", taskId);
         
         TaskEntity task = taskService.getTaskByTaskId(taskId);
@@ -264,38 +345,29 @@ public class TaskMonitorService {
             return;
         }
         
-        monitorSingleTask(task);
+        if (task.getStatus() != TaskStatus.RUNNING) {
+            logger.info("Task {} is not running (status: {}), nothing to monitor", taskId, task.getStatus());
+            return;
+        }
+        
+        TaskFinalization finalization = monitorSingleTask(task, true);
+        if (finalization != null) {
+            finalizeTasks(List.of(finalization));
+        }
     }
     
     /**
-     * 获取监控统计信息
+     * 启动恢复完成，此后由定时周期接管监控
+     */
+    void onRecoveryComplete() {
+        recovered = true;
+    }
+    
+    /**
+     * 获取监控统计信息（由增量计数器提供，不扫描任务表和历史表）
      */
     public MonitoringStats getMonitoringStats() {
-        MonitoringStats stats = new MonitoringStats();
-        
-        try {
-            List<TaskEntity> runningTasks = taskService.getTasksByStatus("Running");
-            stats.setRunningTasksCount(runningTasks.size());
-            
-            // 计算超时任务数
-            long timeoutCount = runningTasks.stream()
-                .filter(this::isTaskTimeout)
-                .count();
-            stats.setTimeoutTasksCount((int) timeoutCount);
-            
-            // 统计完成任务数
-            List<TaskHistoryEntity> completedTasks = taskHistoryRepository.findByStatus("Completed");
-            stats.setCompletedTasksCount(completedTasks.size());
-            
-            // 统计失败任务数
-            List<TaskHistoryEntity> failedTasks = taskHistoryRepository.findByStatus("Failed");
-            stats.setFailedTasksCount(failedTasks.size());
-            
-        } catch (Exception e) {
-            logger.error("Error getting monitoring stats", e);
-        }
-        
-        return stats;
+        return monitoringStatsService.getStats();
     }
     
     /**
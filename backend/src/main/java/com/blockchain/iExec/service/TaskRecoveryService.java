@@ -0,0 +1,281 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.service.TaskFinalizationService.TaskFinalization;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动恢复服务 - 重启后重新接管未终结的任务
+ *
+ * 应用就绪后等待本实例获得分片租约，加载分片内的 Running 任务，按批并行查询 iExec 状态，
+ * 停机期间已经结束或超时的任务按批提交终态迁移（与监控周期共用同一条件更新路径）。
+ * Created 任务由派发队列首个周期的全量同步重新加载。
+ * 恢复完成前监控服务跳过定时周期；从 JVM 启动到恢复完成的耗时作为启动指标上报。
+ */
+@Service
+public class TaskRecoveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskRecoveryService.class);
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskMonitorService taskMonitorService;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${task.recovery.enabled:true}")
+    private boolean enabled;
+
+    // 每批查询的任务数，一批内的终态迁移合并为一个事务
+    @Value("${task.recovery.batch-size:50}")
+    private int batchSize;
+
+    // 并行查询 iExec 状态的线程数
+    @Value("${task.recovery.parallelism:8}")
+    private int parallelism;
+
+    // 等待分片租约的最长时间（毫秒），超时后按当时持有的分片恢复并报告为部分覆盖
+    @Value("${task.recovery.lease-wait:30000}")
+    private long leaseWait;
+
+    private volatile RecoveryReport report;
+
+    @PostConstruct
+    public void init() {
+        TimeGauge.builder("task.recovery.coverage", this, TimeUnit.MILLISECONDS,
+                service -> service.report != null && service.report.isFullCoverage()
+                    ? service.report.getCoverageMillis() : Double.NaN)
+            .description("Time from JVM start until every in-flight task was checked once")
+            .register(meterRegistry);
+        Gauge.builder("task.recovery.coverage.ratio", this,
+                service -> service.report != null ? service.report.getCoverageRatio() : Double.NaN)
+            .description("Share of this instance's shard buckets covered by startup recovery")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 应用就绪后执行一次恢复；失败时仍放行监控周期，由定时监控兜底
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        RecoveryReport result = new RecoveryReport();
+        result.setStartedAt(LocalDateTime.now());
+        long start = System.currentTimeMillis();
+        try {
+            if (enabled) {
+                recoverRunningTasks(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Startup recovery interrupted");
+        } catch (Exception e) {
+            logger.error("Startup recovery failed, regular monitoring cycles take over", e);
+        } finally {
+            taskMonitorService.onRecoveryComplete();
+            long now = System.currentTimeMillis();
+            result.setRecoveryMillis(now - start);
+            result.setCoverageMillis(now - ManagementFactory.getRuntimeMXBean().getStartTime());
+            report = result;
+        }
+        if (result.isFullCoverage()) {
+            logger.info("Startup recovery checked {} of {} running tasks ({} finalized, {} pending dispatch) in {} ms, "
+                    + "full monitoring coverage {} ms after JVM start",
+                result.getCheckedTasks(), result.getRunningTasks(), result.getFinalizedTasks(), result.getPendingTasks(),
+                result.getRecoveryMillis(), result.getCoverageMillis());
+        } else {
+            logger.warn("Startup recovery checked {} of {} running tasks ({} finalized, {} pending dispatch) in {} ms, "
+                    + "covering only {} of {} shard buckets; the rest are left to regular monitoring cycles",
+                result.getCheckedTasks(), result.getRunningTasks(), result.getFinalizedTasks(), result.getPendingTasks(),
+                result.getRecoveryMillis(), result.getCoveredBuckets(), result.getDesiredBuckets());
+        }
+    }
+
+    private void recoverRunningTasks(RecoveryReport result) throws InterruptedException {
+        awaitShardLeases();
+        Set<Integer> owned = shardLeaseService.getOwnedBuckets();
+        Set<Integer> desired = shardLeaseService.getDesiredBuckets();
+        result.setDesiredBuckets(desired.size());
+        result.setCoveredBuckets((int) desired.stream().filter(owned::contains).count());
+
+        List<TaskEntity> running = owned.isEmpty() ? List.of()
+            : taskRepository.findByStatusAndBucketIn(TaskStatus.RUNNING, owned);
+        result.setRunningTasks(running.size());
+        result.setPendingTasks(taskRepository.countByStatus(TaskStatus.CREATED));
+        if (running.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, running.size())));
+        try {
+            for (int from = 0; from < running.size(); from += batchSize) {
+                List<TaskEntity> batch = running.subList(from, Math.min(running.size(), from + batchSize));
+                List<Future<TaskFinalization>> futures = new ArrayList<>(batch.size());
+                for (TaskEntity task : batch) {
+                    futures.add(executor.submit(() -> taskMonitorService.monitorSingleTask(task, false)));
+                }
+
+                List<TaskFinalization> finalizations = new ArrayList<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        TaskFinalization finalization = futures.get(i).get();
+                        if (finalization != null) {
+                            finalization.setRecovered(true);
+                            finalizations.add(finalization);
+                        }
+                        result.setCheckedTasks(result.getCheckedTasks() + 1);
+                    } catch (ExecutionException e) {
+                        logger.error("Error recovering task {}", batch.get(i).getTaskId(), e.getCause());
+                    }
+                }
+                result.setFinalizedTasks(result.getFinalizedTasks() + taskMonitorService.finalizeTasks(finalizations));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 等待持有按当前成员计算的全部目标分片；其他实例尚未释放或租约未过期的分片等到超时为止，
+     * 超时后按当时持有的分片恢复
+     */
+    private void awaitShardLeases() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + leaseWait;
+        while (!shardLeaseService.ownsDesiredBuckets() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * 最近一次启动恢复的结果，恢复完成前返回 null
+     */
+    public RecoveryReport getReport() {
+        return report;
+    }
+
+    /**
+     * 启动恢复结果
+     */
+    public static class RecoveryReport {
+        private LocalDateTime startedAt;
+        private int runningTasks;      // 本实例分片内的 Running 任务数
+        private int checkedTasks;      // 完成状态查询的任务数
+        private int finalizedTasks;    // 停机期间已结束、恢复时终结的任务数
+        private long pendingTasks;     // 待派发的 Created 任务数（由派发队列重新加载）
+        private long recoveryMillis;   // 恢复本身的耗时
+        private long coverageMillis;   // 从 JVM 启动到全部运行中任务被检查一次的耗时
+        private int desiredBuckets;    // 本实例应负责的分片桶数
+        private int coveredBuckets;    // 恢复时实际持有的目标分片桶数
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public void setStartedAt(LocalDateTime startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        public int getRunningTasks() {
+            return runningTasks;
+        }
+
+        public void setRunningTasks(int runningTasks) {
+            this.runningTasks = runningTasks;
+        }
+
+        public int getCheckedTasks() {
+            return checkedTasks;
+        }
+
+        public void setCheckedTasks(int checkedTasks) {
+            this.checkedTasks = checkedTasks;
+        }
+
+        public int getFinalizedTasks() {
+            return finalizedTasks;
+        }
+
+        public void setFinalizedTasks(int finalizedTasks) {
+            this.finalizedTasks = finalizedTasks;
+        }
+
+        public long getPendingTasks() {
+            return pendingTasks;
+        }
+
+        public void setPendingTasks(long pendingTasks) {
+            this.pendingTasks = pendingTasks;
+        }
+
+        public long getRecoveryMillis() {
+            return recoveryMillis;
+        }
+
+        public void setRecoveryMillis(long recoveryMillis) {
+            this.recoveryMillis = recoveryMillis;
+        }
+
+        public long getCoverageMillis() {
+            return coverageMillis;
+        }
+
+        public void setCoverageMillis(long coverageMillis) {
+            this.coverageMillis = coverageMillis;
+        }
+
+        public int getDesiredBuckets() {
+            return desiredBuckets;
+        }
+
+        public void setDesiredBuckets(int desiredBuckets) {
+            this.desiredBuckets = desiredBuckets;
+        }
+
+        public int getCoveredBuckets() {
+            return coveredBuckets;
+        }
+
+        public void setCoveredBuckets(int coveredBuckets) {
+            this.coveredBuckets = coveredBuckets;
+        }
+
+        /**
+         * 恢复是否覆盖了本实例应负责的全部分片（未启用恢复时视为不覆盖）
+         */
+        public boolean isFullCoverage() {
+            return desiredBuckets > 0 && coveredBuckets == desiredBuckets;
+        }
+
+        public double getCoverageRatio() {
+            return desiredBuckets > 0 ? (double) coveredBuckets / desiredBuckets : 0;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.RollupResolution;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskRollupEntity;
+import com.blockchain.iExec.repository.TaskRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 任务时间序列聚合服务 - 按分钟/小时累计各服务的终结数、耗时与成本
+ *
+ * 任务终结事务提交后，增量计入本实例内存中的分钟桶与小时桶；定期把增量累加到本实例自己的
+ * 聚合行（不同实例写不同的行，互不冲突）。查询按桶把各实例的行与本实例未刷新的增量相加，
+ * 耗时分位数由各行的 t-digest 合并得到。看板与自适应策略读取的是预聚合的桶，
+ * 查询代价只取决于桶数，与任务量无关。
+ */
+@Service
+public class TaskRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskRollupService.class);
+
+    @Autowired
+    private TaskRollupRepository taskRollupRepository;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${task.rollup.sketch-compression:50}")
+    private double compression;
+
+    @Value("${task.rollup.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    @Value("${task.rollup.hour-retention-days:90}")
+    private int hourRetentionDays;
+
+    // 本实例尚未刷新的增量
+    private final ConcurrentMap<RollupKey, Rollup> pending = new ConcurrentHashMap<>();
+
+    // 刷新（增量移入数据库）持写锁，查询持读锁，查询不会漏算或重复计算正在刷新的增量
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 记录一批终结的任务（事务提交后计入聚合）
+     */
+    public void onFinalized(List<TaskHistoryEntity> histories) {
+        if (histories.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> histories.forEach(this::add));
+    }
+
+    private void add(TaskHistoryEntity history) {
+        if (history.getServiceId() == null || history.getStatus() == null) {
+            return;
+        }
+        LocalDateTime completedAt = history.getCompletedAt() != null ? history.getCompletedAt() : LocalDateTime.now();
+        for (RollupResolution resolution : RollupResolution.values()) {
+            RollupKey key = new RollupKey(resolution, history.getServiceId(), resolution.bucketOf(completedAt));
+            pending.compute(key, (k, rollup) -> {
+                Rollup target = rollup != null ? rollup : new Rollup(compression);
+                target.add(history);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * 查询区间内的聚合桶（只返回有数据的桶，按桶起点升序）
+     *
+     * @param serviceId 服务ID，为 null 时各服务合并为一个序列
+     */
+    public List<RollupPoint> getRollups(RollupResolution resolution, String serviceId, LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, Rollup> buckets = collect(resolution, serviceId, from, to);
+        List<RollupPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((bucketStart, rollup) -> points.add(rollup.toPoint(bucketStart, serviceId)));
+        return points;
+    }
+
+    /**
+     * 区间内全部桶合并为一个点（桶起点取区间起点所在的桶）
+     */
+    public RollupPoint summarize(RollupResolution resolution, String serviceId, LocalDateTime from, LocalDateTime to) {
+        Rollup total = new Rollup(compression);
+        collect(resolution, serviceId, from, to).values().forEach(total::merge);
+        return total.toPoint(resolution.bucketOf(from), serviceId);
+    }
+
+    private Map<LocalDateTime, Rollup> collect(RollupResolution resolution, String serviceId,
+                                               LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = resolution.bucketOf(from);
+        LocalDateTime end = resolution.bucketOf(to);
+        Map<LocalDateTime, Rollup> buckets = new TreeMap<>();
+
+        lock.readLock().lock();
+        try {
+            List<TaskRollupEntity> rows = serviceId != null
+                ? taskRollupRepository.findByResolutionAndServiceIdAndBucketStartBetween(resolution, serviceId, start, end)
+                : taskRollupRepository.findByResolutionAndBucketStartBetween(resolution, start, end);
+            for (TaskRollupEntity row : rows) {
+                buckets.computeIfAbsent(row.getBucketStart(), bucket -> new Rollup(compression)).merge(row);
+            }
+            pending.forEach((key, rollup) -> {
+                if (key.resolution == resolution
+                        && (serviceId == null || serviceId.equals(key.serviceId))
+                        && !key.bucketStart.isBefore(start) && !key.bucketStart.isAfter(end)) {
+                    buckets.computeIfAbsent(key.bucketStart, bucket -> new Rollup(compression)).merge(rollup);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return buckets;
+    }
+
+    /**
+     * 定期把增量累加到本实例的聚合行；领导者清理超过保留期的桶
+     */
+    @Scheduled(fixedDelayString = "${task.rollup.flush-interval:10000}")
+    public void flush() {
+        LocalDateTime now = LocalDateTime.now();
+        lock.writeLock().lock();
+        try {
+            if (!pending.isEmpty()) {
+                Map<RollupKey, Rollup> drained = new HashMap<>();
+                for (RollupKey key : Set.copyOf(pending.keySet())) {
+                    Rollup rollup = pending.remove(key);
+                    if (rollup != null) {
+                        drained.put(key, rollup);
+                    }
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(drained, now));
+                } catch (Exception e) {
+                    // 写入失败：增量放回，下个周期重试
+                    drained.forEach((key, rollup) -> pending.merge(key, rollup, (current, failed) -> {
+                        current.merge(failed);
+                        return current;
+                    }));
+                    logger.error("Error flushing {} task rollup buckets", drained.size(), e);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (shardLeaseService.isLeader()) {
+            try {
+                int minutes = taskRollupRepository.deleteOlderThan(RollupResolution.MINUTE, now.minusHours(minuteRetentionHours));
+                int hours = taskRollupRepository.deleteOlderThan(RollupResolution.HOUR, now.minusDays(hourRetentionDays));
+                if (minutes + hours > 0) {
+                    logger.debug("Pruned {} minute and {} hour task rollup rows", minutes, hours);
+                }
+            } catch (Exception e) {
+                logger.error("Error pruning task rollups", e);
+            }
+        }
+    }
+
+    private void persist(Map<RollupKey, Rollup> drained, LocalDateTime now) {
+        String self = shardLeaseService.getInstanceId();
+        Map<RollupResolution, List<RollupKey>> byResolution = drained.keySet().stream()
+            .collect(Collectors.groupingBy(RollupKey::resolution));
+        List<TaskRollupEntity> rows = new ArrayList<>(drained.size());
+
+        for (Map.Entry<RollupResolution, List<RollupKey>> entry : byResolution.entrySet()) {
+            RollupResolution resolution = entry.getKey();
+            Set<LocalDateTime> bucketStarts = entry.getValue().stream().map(RollupKey::bucketStart).collect(Collectors.toSet());
+            Map<RollupKey, TaskRollupEntity> existing = new HashMap<>();
+            for (TaskRollupEntity row : taskRollupRepository.findByResolutionAndInstanceIdAndBucketStartIn(resolution, self, bucketStarts)) {
+                existing.put(new RollupKey(resolution, row.getServiceId(), row.getBucketStart()), row);
+            }
+
+            for (RollupKey key : entry.getValue()) {
+                TaskRollupEntity row = existing.get(key);
+                Rollup total = new Rollup(compression);
+                if (row == null) {
+                    row = new TaskRollupEntity();
+                    row.setResolution(resolution);
+                    row.setServiceId(key.serviceId);
+                    row.setBucketStart(key.bucketStart);
+                    row.setInstanceId(self);
+                } else {
+                    total.merge(row);
+                }
+                total.merge(drained.get(key));
+                total.writeTo(row);
+                row.setUpdatedAt(now);
+                rows.add(row);
+            }
+        }
+        taskRollupRepository.saveAll(rows);
+    }
+
+    private record RollupKey(RollupResolution resolution, String serviceId, LocalDateTime bucketStart) {
+    }
+
+    /**
+     * 一个桶的累计值；实际耗时统计覆盖所有带耗时的终态（与原自适应策略的平均响应时间口径一致）
+     */
+    private static class Rollup {
+        private final double compression;
+        private long completed;
+        private long failed;
+        private long timeout;
+        private long actualTimeCount;
+        private long actualTimeSum;
+        private Long actualTimeMin;
+        private Long actualTimeMax;
+        private double costSum;
+        private TDigest digest;
+
+        Rollup(double compression) {
+            this.compression = compression;
+        }
+
+        synchronized void add(TaskHistoryEntity history) {
+            switch (history.getStatus()) {
+                case COMPLETED -> completed++;
+                case FAILED -> failed++;
+                case TIMEOUT -> timeout++;
+                default -> { }
+            }
+            if (history.getCostAmount() != null) {
+                costSum += history.getCostAmount();
+            }
+            Long actualTime = history.getActualTime();
+            if (actualTime != null) {
+                actualTimeCount++;
+                actualTimeSum += actualTime;
+                actualTimeMin = actualTimeMin == null ? actualTime : Math.min(actualTimeMin, actualTime);
+                actualTimeMax = actualTimeMax == null ? actualTime : Math.max(actualTimeMax, actualTime);
+                digest().add(actualTime);
+            }
+        }
+
+        void merge(Rollup other) {
+            synchronized (other) {
+                merge(other.completed, other.failed, other.timeout, other.actualTimeCount, other.actualTimeSum,
+                    other.actualTimeMin, other.actualTimeMax, other.costSum, other.digest);
+            }
+        }
+
+        void merge(TaskRollupEntity row) {
+            merge(row.getCompletedCount(), row.getFailedCount(), row.getTimeoutCount(), row.getActualTimeCount(),
+                row.getActualTimeSum(), row.getActualTimeMin(), row.getActualTimeMax(), row.getCostSum(),
+                row.getDigest() != null ? TDigest.fromBytes(row.getDigest()) : null);
+        }
+
+        private synchronized void merge(long completed, long failed, long timeout, long actualTimeCount, long actualTimeSum,
+                                        Long actualTimeMin, Long actualTimeMax, double costSum, TDigest digest) {
+            this.completed += completed;
+            this.failed += failed;
+            this.timeout += timeout;
+            this.actualTimeCount += actualTimeCount;
+            this.actualTimeSum += actualTimeSum;
+            if (actualTimeMin != null) {
+                this.actualTimeMin = this.actualTimeMin == null ? actualTimeMin : Math.min(this.actualTimeMin, actualTimeMin);
+            }
+            if (actualTimeMax != null) {
+                this.actualTimeMax = this.actualTimeMax == null ? actualTimeMax : Math.max(this.actualTimeMax, actualTimeMax);
+            }
+            this.costSum += costSum;
+            if (digest != null && digest.size() > 0) {
+                digest().merge(digest);
+            }
+        }
+
+        private TDigest digest() {
+            if (digest == null) {
+                digest = new TDigest(compression);
+            }
+            return digest;
+        }
+
+        void writeTo(TaskRollupEntity row) {
+            row.setCompletedCount(completed);
+            row.setFailedCount(failed);
+            row.setTimeoutCount(timeout);
+            row.setActualTimeCount(actualTimeCount);
+            row.setActualTimeSum(actualTimeSum);
+            row.setActualTimeMin(actualTimeMin);
+            row.setActualTimeMax(actualTimeMax);
+            row.setCostSum(costSum);
+            row.setDigest(digest != null ? digest.toBytes() : null);
+        }
+
+        RollupPoint toPoint(LocalDateTime bucketStart, String serviceId) {
+            RollupPoint point = new RollupPoint();
+            point.setBucketStart(bucketStart);
+            point.setServiceId(serviceId);
+            point.setCompleted(completed);
+            point.setFailed(failed);
+            point.setTimeout(timeout);
+            point.setSamples(actualTimeCount);
+            point.setCostSum(costSum);
+            if (actualTimeCount > 0) {
+                point.setAverageActualTime((double) actualTimeSum / actualTimeCount);
+                point.setMinActualTime(actualTimeMin);
+                point.setMaxActualTime(actualTimeMax);
+            }
+            if (digest != null && digest.size() > 0) {
+                point.setP50(Math.round(digest.quantile(0.50)));
+                point.setP95(Math.round(digest.quantile(0.95)));
+                point.setP99(Math.round(digest.quantile(0.99)));
+            }
+            return point;
+        }
+    }
+
+    /**
+     * 聚合桶（耗时单位：秒；没有耗时样本时耗时字段为 null）
+     */
+    public static class RollupPoint {
+        private LocalDateTime bucketStart;
+        private String serviceId;  // 为 null 表示全部服务
+        private long completed;
+        private long failed;
+        private long timeout;
+        private long samples;  // 有实际耗时的终结任务数
+        private Double averageActualTime;
+        private Long minActualTime;
+        private Long maxActualTime;
+        private Long p50;
+        private Long p95;
+        private Long p99;
+        private double costSum;
+
+        public LocalDateTime getBucketStart() {
+            return bucketStart;
+        }
+
+        public void setBucketStart(LocalDateTime bucketStart) {
+            this.bucketStart = bucketStart;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(long completed) {
+            this.completed = completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public void setFailed(long failed) {
+            this.failed = failed;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public void setSamples(long samples) {
+            this.samples = samples;
+        }
+
+        public Double getAverageActualTime() {
+            return averageActualTime;
+        }
+
+        public void setAverageActualTime(Double averageActualTime) {
+            this.averageActualTime = averageActualTime;
+        }
+
+        public Long getMinActualTime() {
+            return minActualTime;
+        }
+
+        public void setMinActualTime(Long minActualTime) {
+            this.minActualTime = minActualTime;
+        }
+
+        public Long getMaxActualTime() {
+            return maxActualTime;
+        }
+
+        public void setMaxActualTime(Long maxActualTime) {
+            this.maxActualTime = maxActualTime;
+        }
+
+        public Long getP50() {
+            return p50;
+        }
+
+        public void setP50(Long p50) {
+            this.p50 = p50;
+        }
+
+        public Long getP95() {
+            return p95;
+        }
+
+        public void setP95(Long p95) {
+            this.p95 = p95;
+        }
+
+        public Long getP99() {
+            return p99;
+        }
+
+        public void setP99(Long p99) {
+            this.p99 = p99;
+        }
+
+        public double getCostSum() {
+            return costSum;
+        }
+
+        public void setCostSum(double costSum) {
+            this.costSum = costSum;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.blockchain.iExec.service;
 
+import com.blockchain.iExec.jfr.SchedulerComputationEvent;
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
 import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.model.RollupResolution;
 import com.blockchain.iExec.model.TaskEntity;
-import com.blockchain.iExec.model.TaskHistoryEntity;
-import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository.UserOutcomeCount;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import com.blockchain.iExec.service.TaskRollupService.RollupPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +17,12 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 动态任务调度服务 - 核心创新点
@@ -24,68 +34,104 @@ public class TaskSchedulerService {
     private static final Logger logger = LoggerFactory.getLogger(TaskSchedulerService.class);
     
     @Autowired
-    private TaskHistoryRepository taskHistoryRepository;
+    private TaskHistoryQueryService taskHistoryQueryService;
     
     @Autowired
     private ReputationService reputationService;
     
+    @Autowired
+    private CompletionSketchService completionSketchService;
+    
+    @Autowired
+    private CompletionPredictorService completionPredictorService;
+    
+    @Autowired
+    private AdmissionControlService admissionControlService;
+    
+    @Autowired
+    private TaskRollupService taskRollupService;
+    
     // 默认完成时间（秒）
     private static final long DEFAULT_COMPLETION_TIME = 300;  // 5分钟
     
-    // 历史数据窗口大小
-    private static final int HISTORY_WINDOW_SIZE = 20;
+    // 等待时间加成：每分钟 +0.5 分，最高 50 分
+    public static final double WAITING_BONUS_PER_MINUTE = 0.5;
+    public static final double MAX_WAITING_BONUS = 50;
+    
+    // 批量打分：每次 IN / GROUP BY 查询的地址数，以及改为并行打分的任务数阈值
+    private static final int SCORING_CHUNK_SIZE = 500;
+    private static final int PARALLEL_SCORING_THRESHOLD = 2048;
     
     /**
-     * 预测任务完成时间（核心算法1：加权移动平均）
-     * 使用指数衰减权重，越近的历史数据权重越高
+     * 预测任务完成时间（核心算法1：按服务选择的预测器）
      * 
      * @param serviceId 服务ID
      * @return 预测的完成时间（秒）
      */
     public long predictCompletionTime(String serviceId) {
+        return predictCompletionTime(serviceId, CompletionFeatures.NONE);
+    }
+    
+    /**
+     * 预测任务完成时间
+     * 委托给该服务回测得分最好的预测器（WMA/SMA/EWMA/分位数/在线回归），预测器在任务完成时增量更新，
+     * 不访问数据库；在线回归模型使用任务的支付金额与资源需求特征
+     * 
+     * @param serviceId 服务ID
+     * @param features 任务特征
+     * @return 预测的完成时间（秒）
+     */
+    public long predictCompletionTime(String serviceId, CompletionFeatures features) {
         logger.debug("Predicting completion time for service: {}", serviceId);
         
+        SchedulerComputationEvent event = new SchedulerComputationEvent("predictCompletionTime", serviceId);
+        event.begin();
         try {
-            // 1. 获取该服务的历史任务数据
-            List<TaskHistoryEntity> history = taskHistoryRepository
-                .findByServiceIdOrderByCreatedAtDesc(serviceId)
-                .stream()
-                .filter(h -> "Completed".equals(h.getStatus()))
-                .filter(h -> h.getActualTime() != null && h.getActualTime() > 0)
-                .limit(HISTORY_WINDOW_SIZE)
-                .collect(Collectors.toList());
+            long samples = completionPredictorService.getSampleCount(serviceId);
+            event.samples = (int) Math.min(Integer.MAX_VALUE, samples);
             
-            if (history.isEmpty()) {
+            if (samples == 0) {
                 logger.debug("No historical data for service {}, using default time", serviceId);
                 return DEFAULT_COMPLETION_TIME;
             }
             
-            // 2. 计算加权移动平均（WMA - Weighted Moving Average）
-            double weightedSum = 0;
-            double weightSum = 0;
-            
-            for (int i = 0; i < history.size(); i++) {
-                // 使用指数衰减权重：w(i) = e^(-λ*i)，其中 λ = 0.1
-                double weight = Math.exp(-0.1 * i);
-                long completionTime = history.get(i).getActualTime();
-                
-                weightedSum += completionTime * weight;
-                weightSum += weight;
-            }
-            
-            long predictedTime = (long) (weightedSum / weightSum);
+            long predictedTime = Math.round(completionPredictorService.predict(serviceId, features));
             
-            logger.info("Predicted completion time for service {}: {} seconds (based on {} samples)",
-                serviceId, predictedTime, history.size());
+            logger.debug("Predicted completion time for service {}: {} seconds ({}, {} samples)",
+                serviceId, predictedTime, completionPredictorService.getActivePredictor(serviceId), samples);
             
             return predictedTime;
             
         } catch (Exception e) {
             logger.error("Error predicting completion time for service: {}", serviceId, e);
             return DEFAULT_COMPLETION_TIME;
+        } finally {
+            event.commit();
         }
     }
     
+    /**
+     * 预测任务完成时间的分位数（用于对冲/超时判断）
+     * 基于该服务全部完成记录的 t-digest 分位数草图
+     *
+     * @param serviceId 服务ID
+     * @param quantile 分位点，取值 (0, 1)
+     * @param minSamples 最少样本数
+     * @return 预测的分位完成时间（秒），样本不足时返回 -1
+     */
+    public long predictCompletionTimeQuantile(String serviceId, double quantile, int minSamples) {
+        SchedulerComputationEvent event = new SchedulerComputationEvent("predictCompletionTimeQuantile", serviceId);
+        event.begin();
+        try {
+            return completionSketchService.quantile(serviceId, quantile, minSamples);
+        } catch (Exception e) {
+            logger.error("Error predicting completion time quantile for service: {}", serviceId, e);
+            return -1;
+        } finally {
+            event.commit();
+        }
+    }
+
     /**
      * 计算任务优先级（核心算法2：多因素优先级计算）
      * 考虑因素：用户信誉、等待时间、支付金额、历史成功率
@@ -96,6 +142,8 @@ public class TaskSchedulerService {
     public int calculatePriority(TaskEntity task) {
         logger.debug("Calculating priority for task: {}", task.getTaskId());
         
+        SchedulerComputationEvent event = new SchedulerComputationEvent("calculatePriority", task.getServiceId());
+        event.begin();
         try {
             int basePriority = 100;
             
@@ -121,28 +169,92 @@ public class TaskSchedulerService {
         } catch (Exception e) {
             logger.error("Error calculating priority for task: {}", task.getTaskId(), e);
             return 100;  // 返回基础优先级
+        } finally {
+            event.commit();
         }
     }
     
     /**
-     * 计算信誉加成
+     * 计算任务优先级中与等待时间无关的部分（基础分 + 信誉 + 支付 + 成功率）
+     * 派发队列据此排序，等待时间加成由队列按创建时间惰性计入
+     */
+    public int calculateStaticPriority(TaskEntity task) {
+        return calculateStaticPriorities(List.of(task)).getOrDefault(task.getTaskId(), 100);
+    }
+    
+    /**
+     * 批量计算静态优先级
+     * 信誉用一次 IN 查询获取，用户成功率用一次 GROUP BY 聚合查询获取（按 SCORING_CHUNK_SIZE 个地址分批），
+     * 查询次数与任务数、历史记录数无关；之后的打分只做内存计算，任务较多时并行进行
+     *
+     * @return taskId -> 静态优先级
      */
-    private int calculateReputationBonus(String userAddress) {
+    public Map<Bytes32, Integer> calculateStaticPriorities(List<TaskEntity> tasks) {
+        SchedulerComputationEvent event = new SchedulerComputationEvent("calculateStaticPriorities", null);
+        event.begin();
         try {
-            ReputationEntity reputation = reputationService.getReputationByAddress(userAddress);
-            if (reputation == null) {
-                return 0;
+            List<Address> addresses = tasks.stream()
+                .map(TaskEntity::getUserAddress)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+            
+            Map<Address, Double> finalScores = reputationService.getFinalScores(addresses);
+            Map<Address, UserOutcomeCount> outcomes = new HashMap<>();
+            for (int from = 0; from < addresses.size(); from += SCORING_CHUNK_SIZE) {
+                List<Address> chunk = addresses.subList(from, Math.min(from + SCORING_CHUNK_SIZE, addresses.size()));
+                for (UserOutcomeCount outcome : taskHistoryQueryService.countOutcomesByUserAddress(chunk)) {
+                    outcomes.put(outcome.getUserAddress(), outcome);
+                }
             }
+            event.samples = outcomes.size();
             
-            // 信誉分数 0-1 映射到 0-50 分
-            return (int) (reputation.getFinalScore() * 50);
+            Stream<TaskEntity> stream = tasks.size() >= PARALLEL_SCORING_THRESHOLD ? tasks.parallelStream() : tasks.stream();
+            return stream.collect(Collectors.toMap(TaskEntity::getTaskId,
+                task -> {
+                    UserOutcomeCount outcome = outcomes.get(task.getUserAddress());
+                    return staticPriority(finalScores.get(task.getUserAddress()), calculatePaymentBonus(task),
+                        outcome != null ? outcome.getTotal() : 0, outcome != null ? outcome.getCompleted() : 0);
+                },
+                (first, second) -> first));
             
+        } catch (Exception e) {
+            logger.error("Error calculating static priorities for {} tasks", tasks.size(), e);
+            return Map.of();
+        } finally {
+            event.commit();
+        }
+    }
+    
+    /**
+     * 静态优先级公式：基础分 100 + 信誉加成 + 支付加成 + 成功率加成（纯计算，供批量打分与离线模拟共用）
+     *
+     * @param finalScore 用户综合信誉分数，没有信誉记录时为 null
+     * @param totalTasks 用户历史任务总数
+     * @param completedTasks 用户历史完成任务数
+     */
+    public static int staticPriority(Double finalScore, int paymentBonus, long totalTasks, long completedTasks) {
+        return 100 + reputationBonus(finalScore) + paymentBonus + successRateBonus(totalTasks, completedTasks);
+    }
+    
+    /**
+     * 计算信誉加成
+     */
+    private int calculateReputationBonus(Address userAddress) {
+        try {
+            ReputationEntity reputation = reputationService.getReputationByAddress(userAddress);
+            return reputationBonus(reputation != null ? reputation.getFinalScore() : null);
         } catch (Exception e) {
             logger.error("Error calculating reputation bonus", e);
             return 0;
         }
     }
     
+    // 信誉分数 0-1 映射到 0-50 分，没有信誉记录时为 0
+    private static int reputationBonus(Double finalScore) {
+        return finalScore != null ? (int) (finalScore * 50) : 0;
+    }
+    
     /**
      * 计算等待时间加成
      */
@@ -154,7 +266,7 @@ public class TaskSchedulerService {
         long waitingMinutes = Duration.between(createdAt, LocalDateTime.now()).toMinutes();
         
         // 每分钟 +0.5 分，最高不超过 50 分
-        return (int) Math.min(waitingMinutes * 0.5, 50);
+        return (int) Math.min(waitingMinutes * WAITING_BONUS_PER_MINUTE, MAX_WAITING_BONUS);
     }
     
     /**
@@ -172,32 +284,31 @@ public class TaskSchedulerService {
     /**
      * 计算历史成功率加成
      */
-    private int calculateSuccessRateBonus(String userAddress) {
+    private int calculateSuccessRateBonus(Address userAddress) {
         try {
-            List<TaskHistoryEntity> userHistory = taskHistoryRepository.findByUserAddress(userAddress);
-            
-            if (userHistory.isEmpty()) {
-                return 10;  // 新用户给予基础加成
-            }
-            
-            long completedCount = userHistory.stream()
-                .filter(h -> "Completed".equals(h.getStatus()))
-                .count();
-            
-            double successRate = (double) completedCount / userHistory.size();
-            
-            // 成功率 0-1 映射到 0-20 分
-            return (int) (successRate * 20);
-            
+            List<UserOutcomeCount> outcomes = userAddress != null
+                ? taskHistoryQueryService.countOutcomesByUserAddress(List.of(userAddress))
+                : List.of();
+            return outcomes.isEmpty() ? successRateBonus(0, 0)
+                : successRateBonus(outcomes.get(0).getTotal(), outcomes.get(0).getCompleted());
         } catch (Exception e) {
             logger.error("Error calculating success rate bonus", e);
             return 0;
         }
     }
     
+    // 成功率 0-1 映射到 0-20 分，没有历史任务的新用户给予基础加成 10 分
+    private static int successRateBonus(long totalTasks, long completedTasks) {
+        if (totalTasks == 0) {
+            return 10;
+        }
+        double successRate = (double) completedTasks / totalTasks;
+        return (int) (successRate * 20);
+    }
+    
     /**
      * 预测资源需求（核心算法3：资源需求预测）
-     * 基于历史数据预测任务所需资源
+     * 取该服务已完成任务资源需求（resourceRequirement JSON）的平均值并向上取整
      * 
      * @param serviceId 服务ID
      * @return 资源需求描述
@@ -206,27 +317,17 @@ public class TaskSchedulerService {
         logger.debug("Predicting resource requirement for service: {}", serviceId);
         
         try {
-            List<TaskHistoryEntity> history = taskHistoryRepository
-                .findByServiceIdOrderByCreatedAtDesc(serviceId)
-                .stream()
-                .limit(HISTORY_WINDOW_SIZE)
-                .collect(Collectors.toList());
-            
             ResourceRequirement requirement = new ResourceRequirement();
+            double[] average = completionPredictorService.getAverageResources(serviceId);
             
-            if (history.isEmpty()) {
-                // 默认资源配置
-                requirement.setCpuCores(1);
-                requirement.setMemoryMB(512);
-                requirement.setStorageGB(1);
+            if (average == null) {
+                // 没有资源需求记录，使用默认资源配置
                 return requirement;
             }
             
-            // 基于历史数据计算平均资源需求
-            // 这里简化处理，实际应该解析 resourceRequirement JSON 字段
-            requirement.setCpuCores(2);
-            requirement.setMemoryMB(1024);
-            requirement.setStorageGB(2);
+            requirement.setCpuCores((int) Math.ceil(average[0]));
+            requirement.setMemoryMB((int) Math.ceil(average[1]));
+            requirement.setStorageGB((int) Math.ceil(average[2]));
             
             logger.info("Predicted resource requirement for service {}: {} cores, {} MB RAM, {} GB storage",
                 serviceId, requirement.getCpuCores(), requirement.getMemoryMB(), requirement.getStorageGB());
@@ -248,43 +349,37 @@ public class TaskSchedulerService {
     public SchedulingStrategy getAdaptiveSchedulingStrategy() {
         logger.debug("Calculating adaptive scheduling strategy");
         
+        SchedulerComputationEvent event = new SchedulerComputationEvent("adaptiveSchedulingStrategy", null);
+        event.begin();
         try {
-            // 1. 分析当前系统负载
-            List<TaskHistoryEntity> recentTasks = taskHistoryRepository
-                .findByCreatedAtBetween(
-                    LocalDateTime.now().minusHours(1),
-                    LocalDateTime.now()
-                );
+            // 1. 分析当前系统负载（最近一小时的分钟聚合桶）
+            LocalDateTime now = LocalDateTime.now();
+            RollupPoint lastHour = taskRollupService.summarize(RollupResolution.MINUTE, null, now.minusHours(1), now);
+            event.samples = (int) Math.min(Integer.MAX_VALUE, lastHour.getCompleted() + lastHour.getFailed() + lastHour.getTimeout());
             
             SchedulingStrategy strategy = new SchedulingStrategy();
             
             // 2. 计算系统吞吐量
-            long completedInLastHour = recentTasks.stream()
-                .filter(h -> "Completed".equals(h.getStatus()))
-                .count();
+            long completedInLastHour = lastHour.getCompleted();
             
             strategy.setThroughput(completedInLastHour);
             
             // 3. 计算平均响应时间
-            double avgResponseTime = recentTasks.stream()
-                .filter(h -> h.getActualTime() != null)
-                .mapToLong(TaskHistoryEntity::getActualTime)
-                .average()
-                .orElse(DEFAULT_COMPLETION_TIME);
+            double avgResponseTime = lastHour.getAverageActualTime() != null
+                ? lastHour.getAverageActualTime()
+                : DEFAULT_COMPLETION_TIME;
             
             strategy.setAverageResponseTime((long) avgResponseTime);
             
-            // 4. 根据负载调整策略
+            // 4. 根据负载给出建议；并发上限由准入控制根据吞吐量与延迟动态调整
             if (completedInLastHour < 10) {
                 strategy.setRecommendation("LOW_LOAD");
-                strategy.setMaxConcurrentTasks(10);
             } else if (completedInLastHour < 50) {
                 strategy.setRecommendation("MEDIUM_LOAD");
-                strategy.setMaxConcurrentTasks(20);
             } else {
                 strategy.setRecommendation("HIGH_LOAD");
-                strategy.setMaxConcurrentTasks(30);
             }
+            strategy.setMaxConcurrentTasks(admissionControlService.getLimit());
             
             logger.info("Adaptive scheduling strategy: {} tasks/hour, avg response: {}s, recommendation: {}",
                 completedInLastHour, avgResponseTime, strategy.getRecommendation());
@@ -294,6 +389,8 @@ public class TaskSchedulerService {
         } catch (Exception e) {
             logger.error("Error calculating scheduling strategy", e);
             return new SchedulingStrategy();  // 返回默认策略
+        } finally {
+            event.commit();
         }
     }
     
@@ -309,12 +406,15 @@ public class TaskSchedulerService {
         PerformanceComparison comparison = new PerformanceComparison();
         
         try {
-            // 1. 获取使用我们算法的结果
-            long ourPrediction = predictCompletionTime(serviceId);
+            // 1. 获取使用我们算法的结果（与线上预测使用同一组模型）
+            Map<String, Double> predictions = completionPredictorService.predictAll(serviceId, CompletionFeatures.NONE);
+            boolean trained = completionPredictorService.getSampleCount(serviceId) > 0;
+            long ourPrediction = trained ? Math.round(predictions.get("WMA")) : DEFAULT_COMPLETION_TIME;
             comparison.setWeightedMovingAverage(ourPrediction);
+            comparison.setExponentialMovingAverage(trained ? Math.round(predictions.get("EWMA")) : 0);
             
             // 2. 简单移动平均（SMA - Simple Moving Average）作为基准
-            Double simpleAvg = taskHistoryRepository.getAverageCompletionTime(serviceId);
+            Double simpleAvg = trained ? predictions.get("SMA") : null;
             comparison.setSimpleMovingAverage(simpleAvg != null ? simpleAvg.longValue() : DEFAULT_COMPLETION_TIME);
             
             // 3. 计算改进百分比
@@ -368,6 +468,13 @@ public class TaskSchedulerService {
         public void setStorageGB(int storageGB) {
             this.storageGB = storageGB;
         }
+        
+        /**
+         * 序列化为资源需求 JSON（字段与 CompletionFeatures.of 解析的一致）
+         */
+        public String toJson() {
+            return "{\"cpuCores\":" + cpuCores + ",\"memoryMB\":" + memoryMB + ",\"storageGB\":" + storageGB + "}";
+        }
     }
     
     /**
@@ -417,6 +524,7 @@ public class TaskSchedulerService {
      */
     public static class PerformanceComparison {
         private long weightedMovingAverage;
+        private long exponentialMovingAverage;
         private long simpleMovingAverage;
         private double improvementPercentage;
         
@@ -428,6 +536,14 @@ public class TaskSchedulerService {
             this.weightedMovingAverage = weightedMovingAverage;
         }
         
+        public long getExponentialMovingAverage() {
+            return exponentialMovingAverage;
+        }
+        
+        public void setExponentialMovingAverage(long exponentialMovingAverage) {
+            this.exponentialMovingAverage = exponentialMovingAverage;
+        }
+        
         public long getSimpleMovingAverage() {
             return simpleMovingAverage;
         }
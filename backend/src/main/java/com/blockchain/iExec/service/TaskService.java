@@ -1,20 +1,63 @@
 package com.blockchain.iExec.service;
 
+import com.blockchain.iExec.model.Bytes32;
 import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
 import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.repository.TaskRepository.TaskBucketView;
+import com.blockchain.iExec.repository.TaskRepository.TaskIdView;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class TaskService {
     
+    private static final Logger logger = LoggerFactory.getLogger(TaskService.class);
+    
+    // 批量查询时每次 IN 查询的任务ID数
+    private static final int IN_BATCH_SIZE = 500;
+    
     @Autowired
     private TaskRepository taskRepository;
     
+    @Autowired
+    private LifecycleTracingService lifecycleTracingService;
+    
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+    
+    /**
+     * 为升级前入库、尚无分片桶的任务补写 bucket（多个实例同时执行时结果相同）
+     */
+    @PostConstruct
+    public void assignMissingBuckets() {
+        long assigned = 0;
+        List<TaskBucketView> batch;
+        while (!(batch = taskRepository.findTop1000ByBucketIsNull()).isEmpty()) {
+            Map<Integer, List<Long>> byBucket = new HashMap<>();
+            for (TaskBucketView task : batch) {
+                byBucket.computeIfAbsent(shardLeaseService.bucketOf(task.getTaskId()), b -> new ArrayList<>()).add(task.getId());
+            }
+            byBucket.forEach((bucket, ids) -> taskRepository.assignBucket(ids, bucket));
+            assigned += batch.size();
+        }
+        if (assigned > 0) {
+            logger.info("Assigned shard buckets to {} existing tasks", assigned);
+        }
+    }
+    
     public List<TaskEntity> getAllTasks() {
         return taskRepository.findAll();
     }
@@ -23,60 +66,139 @@ public class TaskService {
         return taskRepository.findById(id);
     }
     
-    public TaskEntity getTaskByTaskId(String taskId) {
+    public TaskEntity getTaskByTaskId(Bytes32 taskId) {
         return taskRepository.findByTaskId(taskId);
     }
     
-    public TaskEntity getTaskByIexecTaskId(String iexecTaskId) {
+    public TaskEntity getTaskByIexecTaskId(Bytes32 iexecTaskId) {
         return taskRepository.findByIexecTaskId(iexecTaskId);
     }
     
     public TaskEntity saveTask(TaskEntity task) {
-        if (task.getCreatedAt() == null) {
-            task.setCreatedAt(LocalDateTime.now());
+        return saveTasks(List.of(task)).get(0);
+    }
+    
+    /**
+     * 批量保存任务（一次 saveAll，新任务按 JDBC 批量插入），用于链上事件批量入库
+     */
+    public List<TaskEntity> saveTasks(List<TaskEntity> tasks) {
+        LocalDateTime now = LocalDateTime.now();
+        for (TaskEntity task : tasks) {
+            if (task.getCreatedAt() == null) {
+                task.setCreatedAt(now);
+            }
+            if (task.getStatus() == null) {
+                task.setStatus(TaskStatus.CREATED);
+            }
+            if (task.getBucket() == null) {
+                task.setBucket(shardLeaseService.bucketOf(task.getTaskId()));
+            }
+            task.setUpdatedAt(now);
         }
-        task.setUpdatedAt(LocalDateTime.now());
-        return taskRepository.save(task);
+        return persistAll(tasks);
     }
     
-    public void updateTaskStatus(String taskId, String status) {
-        TaskEntity task = getTaskByTaskId(taskId);
-        if (task != null) {
-            task.setStatus(status);
-            task.setUpdatedAt(LocalDateTime.now());
-            if ("Completed".equals(status)) {
-                task.setCompletedAt(LocalDateTime.now());
+    /**
+     * 返回已入库的任务ID（每 IN_BATCH_SIZE 个ID一次 IN 查询），用于事件采集批量去重
+     */
+    public Set<Bytes32> findExistingTaskIds(List<Bytes32> taskIds) {
+        Set<Bytes32> existing = new HashSet<>();
+        for (int from = 0; from < taskIds.size(); from += IN_BATCH_SIZE) {
+            for (TaskIdView view : taskRepository.findTaskIdsByTaskIdIn(taskIds.subList(from, Math.min(from + IN_BATCH_SIZE, taskIds.size())))) {
+                existing.add(view.getTaskId());
             }
-            taskRepository.save(task);
         }
+        return existing;
     }
     
-    public void updateTaskResult(String taskId, String resultHash) {
+    /**
+     * 按迁移表以条件更新修改任务状态，不预先读取任务
+     * 每个允许的源状态最多一条 UPDATE，并发写入者中只有一个能成功
+     *
+     * @return 迁移前的状态；任务不存在或当前状态不允许迁移到 toStatus 时返回 null
+     */
+    public TaskStatus transitionStatus(Long id, TaskStatus toStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        for (TaskStatus fromStatus : TaskStatus.sourcesOf(toStatus)) {
+            int updated = taskRepository.updateStatus(id, fromStatus, toStatus,
+                toStatus == TaskStatus.RUNNING ? now : null,
+                toStatus == TaskStatus.COMPLETED ? now : null,
+                now);
+            if (updated > 0) {
+                return fromStatus;
+            }
+        }
+        return null;
+    }
+    
+    public void updateTaskErrorMessage(Bytes32 taskId, String errorMessage) {
         TaskEntity task = getTaskByTaskId(taskId);
-        if (task != null) {
-            task.setResultHash(resultHash);
-            task.setStatus("Completed");
-            task.setCompletedAt(LocalDateTime.now());
+        if (task != null && task.getStatus().canTransitionTo(TaskStatus.FAILED)) {
+            task.setErrorMessage(errorMessage);
+            task.setStatus(TaskStatus.FAILED);
             task.setUpdatedAt(LocalDateTime.now());
-            taskRepository.save(task);
+            persist(task);
         }
     }
     
-    public void updateTaskErrorMessage(String taskId, String errorMessage) {
+    public void recordHedge(Bytes32 taskId, Bytes32 hedgeIexecTaskId) {
         TaskEntity task = getTaskByTaskId(taskId);
         if (task != null) {
-            task.setErrorMessage(errorMessage);
-            task.setStatus("Failed");
+            task.setHedgeIexecTaskId(hedgeIexecTaskId);
+            task.setHedgedAt(LocalDateTime.now());
             task.setUpdatedAt(LocalDateTime.now());
-            taskRepository.save(task);
+            persist(task);
         }
     }
     
+    private TaskEntity persist(TaskEntity task) {
+        return persistAll(List.of(task)).get(0);
+    }
+    
+    // 保存任务，并记录首次到达的生命周期阶段
+    private List<TaskEntity> persistAll(List<TaskEntity> tasks) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingSave> pending = new ArrayList<>(tasks.size());
+        for (TaskEntity task : tasks) {
+            PendingSave save = new PendingSave(
+                task.getId() == null,
+                (task.getDealId() != null || task.getIexecTaskId() != null) && task.getDealCreatedAt() == null,
+                task.getStatus() == TaskStatus.RUNNING && task.getRunningAt() == null);
+            if (save.dealCreated()) {
+                task.setDealCreatedAt(now);
+            }
+            if (save.started()) {
+                task.setRunningAt(now);
+            }
+            pending.add(save);
+        }
+        
+        List<TaskEntity> saved = taskRepository.saveAll(tasks);
+        for (int i = 0; i < saved.size(); i++) {
+            TaskEntity task = saved.get(i);
+            PendingSave save = pending.get(i);
+            lifecycleTracingService.onTaskSaved(task, save.inserted(), save.dealCreated(), save.started());
+        }
+        return saved;
+    }
+    
     public void deleteTask(Long id) {
         taskRepository.deleteById(id);
     }
     
-    public List<TaskEntity> getTasksByStatus(String status) {
+    public List<TaskEntity> getTasksByStatus(TaskStatus status) {
         return taskRepository.findByStatus(status);
     }
+    
+    /**
+     * 本实例负责分片内指定状态的任务（按 status + bucket 索引查询，不读取其他实例的任务）
+     */
+    public List<TaskEntity> getOwnedTasksByStatus(TaskStatus status) {
+        Set<Integer> buckets = shardLeaseService.getOwnedBuckets();
+        return buckets.isEmpty() ? List.of() : taskRepository.findByStatusAndBucketIn(status, buckets);
+    }
+    
+    // 保存前记录的状态，用于保存后记录生命周期
+    private record PendingSave(boolean inserted, boolean dealCreated, boolean started) {
+    }
 }
\ No newline at end of file
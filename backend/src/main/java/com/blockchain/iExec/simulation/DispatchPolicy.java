@@ -0,0 +1,10 @@
+package com.blockchain.iExec.simulation;
+
+/**
+ * 本地派发队列的排序策略
+ */
+public enum DispatchPolicy {
+    FIFO,        // 按到达顺序
+    PRIORITY,    // PriorityDispatchQueue：静态优先级 + 等待时间加成
+    FAIR_SHARE   // FairShareQueue：按用户信誉加权轮询，用户内按优先级
+}
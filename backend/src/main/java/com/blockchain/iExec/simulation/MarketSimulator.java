@@ -0,0 +1,432 @@
+package com.blockchain.iExec.simulation;
+
+import com.blockchain.iExec.service.AdmissionLimit;
+import com.blockchain.iExec.service.FairShareQueue;
+import com.blockchain.iExec.service.PriorityDispatchQueue;
+import com.blockchain.iExec.service.PriorityDispatchQueue.QueuedTask;
+import com.blockchain.iExec.service.TaskSchedulerService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 离散事件市场模拟器：在虚拟时钟上驱动线上使用的派发队列与并发上限
+ *
+ * 模拟的各环节与线上服务一一对应：
+ * - 到达：泊松或按日周期变化的到达过程，用户活跃度服从 Zipf 分布
+ * - 派发（TaskDispatchService）：每 dispatchInterval 从本地队列取最多 batchSize 个任务，
+ *   并发上限已满时放回队列并结束本轮；队列为 FIFO、PriorityDispatchQueue 或 FairShareQueue，
+ *   静态优先级由 TaskSchedulerService.staticPriority 按用户信誉与历史成功率计算
+ * - 工作池：固定数量的 worker 按提交顺序执行，耗时服从服务的对数正态分布
+ * - 监控（TaskMonitorService）：每 monitorInterval 扫描在途任务，自提交起超过 timeout 记为超时
+ *   （无论 worker 是否已完成），否则观察到完成的任务记为完成；超时任务若尚未开始执行则不再占用 worker
+ * - 并发上限（AdmissionControlService）：每 adjustInterval 调用 AdmissionLimit.adjust
+ *
+ * 模拟只依赖 seed，相同配置的结果完全一致。
+ */
+public class MarketSimulator {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final double DAY_SECONDS = 24 * 3600;
+
+    // 与 application.properties 中 task.admission.* 的默认值一致
+    private static final double ADMISSION_BACKOFF_RATIO = 0.7;
+    private static final double ADMISSION_ADDITIVE_INCREASE = 1;
+    private static final double ADMISSION_LATENCY_TOLERANCE = 1.4;
+    private static final double ADMISSION_FAILURE_THRESHOLD = 0.1;
+    private static final int ADMISSION_MIN_FAILURE_SAMPLES = 5;
+    private static final double ADMISSION_SMOOTHING = 0.3;
+
+    // 合成用户的支付加成（与 TaskSchedulerService 当前的固定值一致）
+    private static final int PAYMENT_BONUS = 15;
+
+    // 未提供服务分布时使用的默认服务：中位数 300 秒
+    private static final ServiceProfile DEFAULT_SERVICE = ServiceProfile.ofMedian("default", 1, 300, 0.5);
+
+    private enum EventType {
+        ARRIVAL, DISPATCH, WORKER_DONE, MONITOR, ADJUST
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final double time;
+        final long seq;
+        final EventType type;
+        final SimTask task;
+
+        Event(double time, long seq, EventType type, SimTask task) {
+            this.time = time;
+            this.seq = seq;
+            this.type = type;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+
+    private static final class SimTask {
+        final String taskId;
+        final int user;
+        final double arrivedAt;
+        final double duration;
+        double dispatchedAt = Double.NaN;
+        double finishedAt = Double.NaN;  // worker 执行完成的时间
+        boolean started;
+        boolean finalized;
+
+        SimTask(String taskId, int user, double arrivedAt, double duration) {
+            this.taskId = taskId;
+            this.user = user;
+            this.arrivedAt = arrivedAt;
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * 计算自动确定的工作池容量：使利用率约为 targetUtilization
+     */
+    public static int autoWorkers(SimulationConfig config) {
+        List<ServiceProfile> services = services(config);
+        double totalWeight = 0;
+        double meanDuration = 0;
+        for (ServiceProfile service : services) {
+            totalWeight += service.getWeight();
+            meanDuration += service.getWeight() * service.getMeanDuration();
+        }
+        meanDuration /= totalWeight;
+        double arrivalRate = (double) config.getTasks() / config.getDurationSeconds();
+        return Math.max(1, (int) Math.ceil(arrivalRate * meanDuration / config.getTargetUtilization()));
+    }
+
+    public SimulationResult run(SimulationConfig config) {
+        return new Run(config).execute();
+    }
+
+    /**
+     * 单次模拟的可变状态
+     */
+    private static final class Run {
+        private final SimulationConfig config;
+        private final Random random;
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private long seq;
+        private double now;
+
+        // 用户与服务
+        private final String[] userAddresses;
+        private final double[] userScores;
+        private final int[] userPriorities;
+        private final double[] userCumulative;
+        private final List<ServiceProfile> services;
+        private final double[] serviceCumulative;
+        private final double arrivalRate;
+        private final double peakArrivalRate;
+
+        // 本地派发队列（按策略三选一）
+        private final ArrayDeque<SimTask> fifo = new ArrayDeque<>();
+        private final PriorityDispatchQueue priorityQueue;
+        private final FairShareQueue fairShareQueue;
+        private final Map<String, SimTask> queued = new HashMap<>();
+
+        // 工作池与在途任务
+        private final int workers;
+        private int idleWorkers;
+        private final ArrayDeque<SimTask> poolQueue = new ArrayDeque<>();
+        private final List<SimTask> inFlight = new ArrayList<>();
+        private final AdmissionLimit admissionLimit;
+
+        // 统计
+        private int arrived;
+        private long dispatched;
+        private long completed;
+        private long timedOut;
+        private double[] waits = new double[1024];
+        private int waitCount;
+        private double[] latencies = new double[1024];
+        private int latencyCount;
+        private long processed;
+
+        Run(SimulationConfig config) {
+            this.config = config;
+            this.random = new Random(config.getSeed());
+            this.services = services(config);
+            this.workers = config.getWorkers() > 0 ? config.getWorkers() : autoWorkers(config);
+            this.idleWorkers = workers;
+            this.arrivalRate = (double) config.getTasks() / config.getDurationSeconds();
+            this.peakArrivalRate = config.getArrivalProcess() == SimulationConfig.ArrivalProcess.DIURNAL
+                ? arrivalRate * (1 + config.getDiurnalAmplitude())
+                : arrivalRate;
+
+            // 合成用户：信誉分数 0-1，历史任务数与成功率随机
+            int users = Math.max(1, config.getUsers());
+            userAddresses = new String[users];
+            userScores = new double[users];
+            userPriorities = new int[users];
+            userCumulative = new double[users];
+            double cumulative = 0;
+            for (int i = 0; i < users; i++) {
+                userAddresses[i] = String.format("0x%040x", i + 1);
+                userScores[i] = random.nextDouble();
+                long total = random.nextInt(200);
+                long completedTasks = Math.round(total * (0.5 + 0.5 * random.nextDouble()));
+                userPriorities[i] = TaskSchedulerService.staticPriority(userScores[i], PAYMENT_BONUS, total, completedTasks);
+                cumulative += 1 / Math.pow(i + 1, config.getUserZipfExponent());
+                userCumulative[i] = cumulative;
+            }
+            serviceCumulative = new double[services.size()];
+            cumulative = 0;
+            for (int i = 0; i < services.size(); i++) {
+                cumulative += services.get(i).getWeight();
+                serviceCumulative[i] = cumulative;
+            }
+
+            priorityQueue = new PriorityDispatchQueue(
+                TaskSchedulerService.WAITING_BONUS_PER_MINUTE, TaskSchedulerService.MAX_WAITING_BONUS);
+            fairShareQueue = new FairShareQueue(1,
+                TaskSchedulerService.WAITING_BONUS_PER_MINUTE, TaskSchedulerService.MAX_WAITING_BONUS);
+            for (int i = 0; i < users; i++) {
+                fairShareQueue.setWeight(userAddresses[i], Math.max(0.1, userScores[i]));
+            }
+            admissionLimit = new AdmissionLimit(config.getAdmissionInitialLimit(), config.getAdmissionMinLimit(),
+                config.getAdmissionMaxLimit(), ADMISSION_BACKOFF_RATIO, ADMISSION_ADDITIVE_INCREASE,
+                ADMISSION_LATENCY_TOLERANCE, ADMISSION_FAILURE_THRESHOLD, ADMISSION_MIN_FAILURE_SAMPLES,
+                ADMISSION_SMOOTHING);
+        }
+
+        SimulationResult execute() {
+            long startedAt = System.nanoTime();
+            scheduleNextArrival();
+            schedule(config.getDispatchIntervalSeconds(), EventType.DISPATCH, null);
+            schedule(config.getMonitorIntervalSeconds(), EventType.MONITOR, null);
+            schedule(config.getAdmissionAdjustSeconds(), EventType.ADJUST, null);
+
+            while (!events.isEmpty()) {
+                Event event = events.poll();
+                if (event.time > config.getDurationSeconds()) {
+                    break;
+                }
+                now = event.time;
+                processed++;
+                switch (event.type) {
+                    case ARRIVAL -> arrive();
+                    case DISPATCH -> dispatch();
+                    case WORKER_DONE -> workerDone(event.task);
+                    case MONITOR -> monitor();
+                    case ADJUST -> adjust();
+                }
+            }
+            return result((System.nanoTime() - startedAt) / 1_000_000);
+        }
+
+        private void schedule(double delay, EventType type, SimTask task) {
+            events.add(new Event(now + delay, seq++, type, task));
+        }
+
+        private LocalDateTime clock(double seconds) {
+            return EPOCH.plusNanos(Math.round(seconds * 1e9));
+        }
+
+        // 到达：非齐次过程用稀疏化（thinning）生成
+        private void scheduleNextArrival() {
+            double time = now;
+            while (true) {
+                time += -Math.log(1 - random.nextDouble()) / peakArrivalRate;
+                if (time > config.getDurationSeconds() || random.nextDouble() * peakArrivalRate <= arrivalRate(time)) {
+                    break;
+                }
+            }
+            events.add(new Event(time, seq++, EventType.ARRIVAL, null));
+        }
+
+        private double arrivalRate(double time) {
+            if (config.getArrivalProcess() == SimulationConfig.ArrivalProcess.DIURNAL) {
+                return arrivalRate * (1 + config.getDiurnalAmplitude() * Math.sin(2 * Math.PI * time / DAY_SECONDS));
+            }
+            return arrivalRate;
+        }
+
+        private void arrive() {
+            int user = pick(userCumulative);
+            ServiceProfile service = services.get(pick(serviceCumulative));
+            double duration = Math.exp(service.getMu() + service.getSigma() * random.nextGaussian());
+            SimTask task = new SimTask("task-" + arrived++, user, now, duration);
+            enqueue(task);
+            scheduleNextArrival();
+        }
+
+        private int pick(double[] cumulative) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+
+        private void enqueue(SimTask task) {
+            switch (config.getPolicy()) {
+                case FIFO -> fifo.addLast(task);
+                case PRIORITY -> priorityQueue.upsert(task.taskId, userAddresses[task.user],
+                    userPriorities[task.user], clock(task.arrivedAt));
+                case FAIR_SHARE -> fairShareQueue.upsert(task.taskId, userAddresses[task.user],
+                    userPriorities[task.user], clock(task.arrivedAt));
+            }
+            if (config.getPolicy() != DispatchPolicy.FIFO) {
+                queued.put(task.taskId, task);
+            }
+        }
+
+        private SimTask poll() {
+            if (config.getPolicy() == DispatchPolicy.FIFO) {
+                return fifo.pollFirst();
+            }
+            QueuedTask next = config.getPolicy() == DispatchPolicy.PRIORITY
+                ? priorityQueue.poll(clock(now))
+                : fairShareQueue.poll(clock(now), user -> true);
+            return next != null ? queued.remove(next.getTaskId()) : null;
+        }
+
+        private void requeue(SimTask task) {
+            if (config.getPolicy() == DispatchPolicy.FIFO) {
+                fifo.addFirst(task);
+            } else {
+                enqueue(task);
+            }
+        }
+
+        private int queueDepth() {
+            return config.getPolicy() == DispatchPolicy.FIFO ? fifo.size() : queued.size();
+        }
+
+        // 派发：与 TaskDispatchService.dispatch 相同，上限已满时放回并结束本轮
+        private void dispatch() {
+            for (int i = 0; i < config.getDispatchBatchSize(); i++) {
+                SimTask next = poll();
+                if (next == null) {
+                    break;
+                }
+                if (config.isAdmissionEnabled() && inFlight.size() >= admissionLimit.getLimit()) {
+                    admissionLimit.recordInFlight(inFlight.size());
+                    requeue(next);
+                    break;
+                }
+                inFlight.add(next);
+                admissionLimit.recordInFlight(inFlight.size());
+                next.dispatchedAt = now;
+                dispatched++;
+                waits = append(waits, waitCount++, now - next.arrivedAt);
+                if (idleWorkers > 0) {
+                    start(next);
+                } else {
+                    poolQueue.addLast(next);
+                }
+            }
+            schedule(config.getDispatchIntervalSeconds(), EventType.DISPATCH, null);
+        }
+
+        private void start(SimTask task) {
+            idleWorkers--;
+            task.started = true;
+            schedule(task.duration, EventType.WORKER_DONE, task);
+        }
+
+        private void workerDone(SimTask task) {
+            task.finishedAt = now;
+            idleWorkers++;
+            while (idleWorkers > 0 && !poolQueue.isEmpty()) {
+                SimTask next = poolQueue.pollFirst();
+                // 已超时终结的任务不再执行
+                if (!next.finalized) {
+                    start(next);
+                }
+            }
+        }
+
+        // 监控：与 TaskMonitorService 相同，先判断超时再判断完成
+        private void monitor() {
+            int kept = 0;
+            for (int i = 0; i < inFlight.size(); i++) {
+                SimTask task = inFlight.get(i);
+                if (now - task.dispatchedAt > config.getTimeoutSeconds()) {
+                    finish(task, false);
+                } else if (!Double.isNaN(task.finishedAt)) {
+                    finish(task, true);
+                } else {
+                    inFlight.set(kept++, task);
+                }
+            }
+            inFlight.subList(kept, inFlight.size()).clear();
+            schedule(config.getMonitorIntervalSeconds(), EventType.MONITOR, null);
+        }
+
+        private void finish(SimTask task, boolean success) {
+            task.finalized = true;
+            admissionLimit.recordOutcome(now - task.dispatchedAt, success);
+            if (success) {
+                completed++;
+                latencies = append(latencies, latencyCount++, now - task.arrivedAt);
+            } else {
+                timedOut++;
+            }
+        }
+
+        private void adjust() {
+            admissionLimit.recordInFlight(inFlight.size());
+            admissionLimit.adjust(config.getAdmissionAdjustSeconds());
+            schedule(config.getAdmissionAdjustSeconds(), EventType.ADJUST, null);
+        }
+
+        private SimulationResult result(long elapsedMillis) {
+            SimulationResult result = new SimulationResult();
+            result.setPolicy(config.getPolicy());
+            result.setAdmissionEnabled(config.isAdmissionEnabled());
+            result.setWorkers(workers);
+            result.setArrived(arrived);
+            result.setDispatched(dispatched);
+            result.setCompleted(completed);
+            result.setTimedOut(timedOut);
+            result.setBacklog(queueDepth() + inFlight.size());
+            result.setThroughputPerHour(completed * 3600.0 / config.getDurationSeconds());
+            result.setTimeoutRate(completed + timedOut > 0 ? (double) timedOut / (completed + timedOut) : 0);
+            Arrays.sort(waits, 0, waitCount);
+            Arrays.sort(latencies, 0, latencyCount);
+            result.setWaitP50(percentile(waits, waitCount, 0.5));
+            result.setWaitP99(percentile(waits, waitCount, 0.99));
+            result.setLatencyP50(percentile(latencies, latencyCount, 0.5));
+            result.setLatencyP99(percentile(latencies, latencyCount, 0.99));
+            result.setFinalAdmissionLimit(admissionLimit.getLimit());
+            result.setEvents(processed);
+            result.setElapsedMillis(elapsedMillis);
+            return result;
+        }
+    }
+
+    private static List<ServiceProfile> services(SimulationConfig config) {
+        return config.getServices() == null || config.getServices().isEmpty()
+            ? List.of(DEFAULT_SERVICE)
+            : config.getServices();
+    }
+
+    private static double[] append(double[] values, int index, double value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    // 已排序样本的最近秩分位数
+    private static double percentile(double[] sorted, int count, double q) {
+        if (count == 0) {
+            return 0;
+        }
+        return sorted[Math.min(count - 1, (int) Math.ceil(q * count) - 1)];
+    }
+}
@@ -0,0 +1,65 @@
+package com.blockchain.iExec.simulation;
+
+/**
+ * 服务耗时分布：对数正态 ln(耗时) ~ N(mu, sigma²)，weight 为该服务在到达任务中的占比权重
+ */
+public class ServiceProfile {
+
+    private final String serviceId;
+    private final double weight;
+    private final double mu;
+    private final double sigma;
+
+    public ServiceProfile(String serviceId, double weight, double mu, double sigma) {
+        this.serviceId = serviceId;
+        this.weight = weight;
+        this.mu = mu;
+        this.sigma = sigma;
+    }
+
+    /**
+     * 由中位数与对数标准差构造
+     */
+    public static ServiceProfile ofMedian(String serviceId, double weight, double median, double sigma) {
+        return new ServiceProfile(serviceId, weight, Math.log(median), sigma);
+    }
+
+    /**
+     * 用样本的 ln(耗时) 的均值与标准差拟合（样本须大于 0）
+     */
+    public static ServiceProfile fit(String serviceId, double[] durations, int count) {
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            double log = Math.log(durations[i]);
+            sum += log;
+            sumSquares += log * log;
+        }
+        double mean = sum / count;
+        double variance = count > 1 ? Math.max(0, (sumSquares - count * mean * mean) / (count - 1)) : 0;
+        return new ServiceProfile(serviceId, count, mean, Math.sqrt(variance));
+    }
+
+    /**
+     * 平均耗时 e^(mu + sigma²/2)
+     */
+    public double getMeanDuration() {
+        return Math.exp(mu + sigma * sigma / 2);
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public double getMu() {
+        return mu;
+    }
+
+    public double getSigma() {
+        return sigma;
+    }
+}
@@ -0,0 +1,233 @@
+package com.blockchain.iExec.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 市场模拟参数（默认值与 application.properties 中的线上配置一致）
+ */
+public class SimulationConfig {
+
+    /**
+     * 任务到达过程
+     */
+    public enum ArrivalProcess {
+        POISSON,   // 恒定到达率的泊松过程
+        DIURNAL    // 到达率按 24 小时周期正弦变化（峰值为均值的 1 + diurnalAmplitude 倍）
+    }
+
+    private long seed = 42;
+    private long durationSeconds = 24 * 3600;
+    private int tasks = 100_000;
+    private ArrivalProcess arrivalProcess = ArrivalProcess.POISSON;
+    private double diurnalAmplitude = 0.5;
+
+    // 用户：活跃度服从 Zipf 分布，信誉分数与历史成功率随机生成
+    private int users = 500;
+    private double userZipfExponent = 1.1;
+
+    // 服务耗时分布（对数正态），为空时使用单个默认服务
+    private List<ServiceProfile> services = new ArrayList<>();
+
+    // 工作池容量，0 表示按 targetUtilization 根据到达率与平均耗时自动确定
+    private int workers;
+    private double targetUtilization = 0.9;
+
+    private DispatchPolicy policy = DispatchPolicy.PRIORITY;
+    private boolean admissionEnabled = true;
+
+    // 与 TaskDispatchService / TaskMonitorService / AdmissionControlService 的配置对应（秒）
+    private int dispatchIntervalSeconds = 10;
+    private int dispatchBatchSize = 10;
+    private int monitorIntervalSeconds = 30;
+    private int timeoutSeconds = 3600;
+    private int admissionAdjustSeconds = 60;
+    private int admissionInitialLimit = 10;
+    private int admissionMinLimit = 2;
+    private int admissionMaxLimit = 200;
+
+    public SimulationConfig copy() {
+        SimulationConfig copy = new SimulationConfig();
+        copy.seed = seed;
+        copy.durationSeconds = durationSeconds;
+        copy.tasks = tasks;
+        copy.arrivalProcess = arrivalProcess;
+        copy.diurnalAmplitude = diurnalAmplitude;
+        copy.users = users;
+        copy.userZipfExponent = userZipfExponent;
+        copy.services = new ArrayList<>(services);
+        copy.workers = workers;
+        copy.targetUtilization = targetUtilization;
+        copy.policy = policy;
+        copy.admissionEnabled = admissionEnabled;
+        copy.dispatchIntervalSeconds = dispatchIntervalSeconds;
+        copy.dispatchBatchSize = dispatchBatchSize;
+        copy.monitorIntervalSeconds = monitorIntervalSeconds;
+        copy.timeoutSeconds = timeoutSeconds;
+        copy.admissionAdjustSeconds = admissionAdjustSeconds;
+        copy.admissionInitialLimit = admissionInitialLimit;
+        copy.admissionMinLimit = admissionMinLimit;
+        copy.admissionMaxLimit = admissionMaxLimit;
+        return copy;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(int tasks) {
+        this.tasks = tasks;
+    }
+
+    public ArrivalProcess getArrivalProcess() {
+        return arrivalProcess;
+    }
+
+    public void setArrivalProcess(ArrivalProcess arrivalProcess) {
+        this.arrivalProcess = arrivalProcess;
+    }
+
+    public double getDiurnalAmplitude() {
+        return diurnalAmplitude;
+    }
+
+    public void setDiurnalAmplitude(double diurnalAmplitude) {
+        this.diurnalAmplitude = diurnalAmplitude;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public double getUserZipfExponent() {
+        return userZipfExponent;
+    }
+
+    public void setUserZipfExponent(double userZipfExponent) {
+        this.userZipfExponent = userZipfExponent;
+    }
+
+    public List<ServiceProfile> getServices() {
+        return services;
+    }
+
+    public void setServices(List<ServiceProfile> services) {
+        this.services = services;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public double getTargetUtilization() {
+        return targetUtilization;
+    }
+
+    public void setTargetUtilization(double targetUtilization) {
+        this.targetUtilization = targetUtilization;
+    }
+
+    public DispatchPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(DispatchPolicy policy) {
+        this.policy = policy;
+    }
+
+    public boolean isAdmissionEnabled() {
+        return admissionEnabled;
+    }
+
+    public void setAdmissionEnabled(boolean admissionEnabled) {
+        this.admissionEnabled = admissionEnabled;
+    }
+
+    public int getDispatchIntervalSeconds() {
+        return dispatchIntervalSeconds;
+    }
+
+    public void setDispatchIntervalSeconds(int dispatchIntervalSeconds) {
+        this.dispatchIntervalSeconds = dispatchIntervalSeconds;
+    }
+
+    public int getDispatchBatchSize() {
+        return dispatchBatchSize;
+    }
+
+    public void setDispatchBatchSize(int dispatchBatchSize) {
+        this.dispatchBatchSize = dispatchBatchSize;
+    }
+
+    public int getMonitorIntervalSeconds() {
+        return monitorIntervalSeconds;
+    }
+
+    public void setMonitorIntervalSeconds(int monitorIntervalSeconds) {
+        this.monitorIntervalSeconds = monitorIntervalSeconds;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public int getAdmissionAdjustSeconds() {
+        return admissionAdjustSeconds;
+    }
+
+    public void setAdmissionAdjustSeconds(int admissionAdjustSeconds) {
+        this.admissionAdjustSeconds = admissionAdjustSeconds;
+    }
+
+    public int getAdmissionInitialLimit() {
+        return admissionInitialLimit;
+    }
+
+    public void setAdmissionInitialLimit(int admissionInitialLimit) {
+        this.admissionInitialLimit = admissionInitialLimit;
+    }
+
+    public int getAdmissionMinLimit() {
+        return admissionMinLimit;
+    }
+
+    public void setAdmissionMinLimit(int admissionMinLimit) {
+        this.admissionMinLimit = admissionMinLimit;
+    }
+
+    public int getAdmissionMaxLimit() {
+        return admissionMaxLimit;
+    }
+
+    public void setAdmissionMaxLimit(int admissionMaxLimit) {
+        this.admissionMaxLimit = admissionMaxLimit;
+    }
+}
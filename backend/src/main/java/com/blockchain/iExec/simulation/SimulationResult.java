@@ -0,0 +1,161 @@
+package com.blockchain.iExec.simulation;
+
+/**
+ * 单次模拟的结果（时间单位：秒）
+ */
+public class SimulationResult {
+
+    private DispatchPolicy policy;
+    private boolean admissionEnabled;
+    private int workers;
+    private long arrived;
+    private long dispatched;
+    private long completed;
+    private long timedOut;
+    private long backlog;           // 结束时仍在本地队列或在途的任务数
+    private double throughputPerHour;
+    private double timeoutRate;     // 超时数 / 终结数
+    private double waitP50;         // 到达 -> 提交到 iExec
+    private double waitP99;
+    private double latencyP50;      // 到达 -> 监控观察到完成
+    private double latencyP99;
+    private int finalAdmissionLimit;
+    private long events;
+    private long elapsedMillis;
+
+    public DispatchPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(DispatchPolicy policy) {
+        this.policy = policy;
+    }
+
+    public boolean isAdmissionEnabled() {
+        return admissionEnabled;
+    }
+
+    public void setAdmissionEnabled(boolean admissionEnabled) {
+        this.admissionEnabled = admissionEnabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public long getArrived() {
+        return arrived;
+    }
+
+    public void setArrived(long arrived) {
+        this.arrived = arrived;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(long dispatched) {
+        this.dispatched = dispatched;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(long timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(long backlog) {
+        this.backlog = backlog;
+    }
+
+    public double getThroughputPerHour() {
+        return throughputPerHour;
+    }
+
+    public void setThroughputPerHour(double throughputPerHour) {
+        this.throughputPerHour = throughputPerHour;
+    }
+
+    public double getTimeoutRate() {
+        return timeoutRate;
+    }
+
+    public void setTimeoutRate(double timeoutRate) {
+        this.timeoutRate = timeoutRate;
+    }
+
+    public double getWaitP50() {
+        return waitP50;
+    }
+
+    public void setWaitP50(double waitP50) {
+        this.waitP50 = waitP50;
+    }
+
+    public double getWaitP99() {
+        return waitP99;
+    }
+
+    public void setWaitP99(double waitP99) {
+        this.waitP99 = waitP99;
+    }
+
+    public double getLatencyP50() {
+        return latencyP50;
+    }
+
+    public void setLatencyP50(double latencyP50) {
+        this.latencyP50 = latencyP50;
+    }
+
+    public double getLatencyP99() {
+        return latencyP99;
+    }
+
+    public void setLatencyP99(double latencyP99) {
+        this.latencyP99 = latencyP99;
+    }
+
+    public int getFinalAdmissionLimit() {
+        return finalAdmissionLimit;
+    }
+
+    public void setFinalAdmissionLimit(int finalAdmissionLimit) {
+        this.finalAdmissionLimit = finalAdmissionLimit;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
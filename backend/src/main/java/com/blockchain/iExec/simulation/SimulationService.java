@@ -0,0 +1,189 @@
+package com.blockchain.iExec.simulation;
+
+import com.blockchain.iExec.service.BacktestEngine.ServiceHistory;
+import com.blockchain.iExec.service.BacktestService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 市场模拟服务 - 用 task_history 拟合各服务耗时分布，以线上配置逐一模拟各派发策略
+ */
+@Service
+public class SimulationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationService.class);
+
+    // 拟合耗时分布所需的最少样本数，样本不足的服务不参与模拟
+    private static final int MIN_PROFILE_SAMPLES = 5;
+
+    @Autowired
+    private BacktestService backtestService;
+
+    @Value("${task.dispatch.interval:10000}")
+    private long dispatchInterval;
+
+    @Value("${task.dispatch.batch-size:10}")
+    private int dispatchBatchSize;
+
+    @Value("${task.monitor.interval:30000}")
+    private long monitorInterval;
+
+    @Value("${task.monitor.timeout:3600000}")
+    private long taskTimeout;
+
+    @Value("${task.admission.initial-limit:10}")
+    private int admissionInitialLimit;
+
+    @Value("${task.admission.min-limit:2}")
+    private int admissionMinLimit;
+
+    @Value("${task.admission.max-limit:200}")
+    private int admissionMaxLimit;
+
+    @Value("${task.admission.adjust-interval:60000}")
+    private long admissionAdjustInterval;
+
+    /**
+     * 以相同的到达序列模拟全部派发策略（并发上限开启与关闭各一次）
+     *
+     * @param tasks   模拟时长内到达的任务数
+     * @param hours   模拟时长（小时）
+     * @param workers 工作池容量，0 表示按 90% 利用率自动确定
+     * @param seed    随机种子
+     */
+    public SimulationReport simulate(int tasks, int hours, int workers, long seed) {
+        List<ServiceProfile> profiles = fitProfiles();
+
+        SimulationConfig base = new SimulationConfig();
+        base.setTasks(tasks);
+        base.setDurationSeconds(hours * 3600L);
+        base.setSeed(seed);
+        base.setServices(profiles);
+        base.setDispatchIntervalSeconds((int) (dispatchInterval / 1000));
+        base.setDispatchBatchSize(dispatchBatchSize);
+        base.setMonitorIntervalSeconds((int) (monitorInterval / 1000));
+        base.setTimeoutSeconds((int) (taskTimeout / 1000));
+        base.setAdmissionInitialLimit(admissionInitialLimit);
+        base.setAdmissionMinLimit(admissionMinLimit);
+        base.setAdmissionMaxLimit(admissionMaxLimit);
+        base.setAdmissionAdjustSeconds((int) (admissionAdjustInterval / 1000));
+        base.setWorkers(workers > 0 ? workers : MarketSimulator.autoWorkers(base));
+
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (DispatchPolicy policy : DispatchPolicy.values()) {
+            for (boolean admission : new boolean[]{false, true}) {
+                SimulationConfig config = base.copy();
+                config.setPolicy(policy);
+                config.setAdmissionEnabled(admission);
+                configs.add(config);
+            }
+        }
+
+        long start = System.nanoTime();
+        MarketSimulator simulator = new MarketSimulator();
+        List<SimulationResult> results = configs.parallelStream().map(simulator::run).toList();
+
+        SimulationReport report = new SimulationReport();
+        report.setTasks(tasks);
+        report.setHours(hours);
+        report.setWorkers(base.getWorkers());
+        report.setServices(profiles.size());
+        report.setResults(results);
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        logger.info("Simulated {} tasks over {}h with {} workers for {} policies in {} ms",
+            tasks, hours, base.getWorkers(), results.size(), report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 用已完成任务的实际耗时拟合各服务的对数正态分布，权重为完成数
+     * 没有足够历史时返回空列表，由模拟器使用默认分布
+     */
+    public List<ServiceProfile> fitProfiles() {
+        Map<String, ServiceHistory> history = backtestService.loadHistory(null);
+        List<ServiceProfile> profiles = new ArrayList<>();
+        for (Map.Entry<String, ServiceHistory> entry : history.entrySet()) {
+            ServiceHistory service = entry.getValue();
+            double[] durations = new double[service.size()];
+            int count = 0;
+            for (int i = 0; i < service.size(); i++) {
+                if (service.getActualTime(i) > 0) {
+                    durations[count++] = service.getActualTime(i);
+                }
+            }
+            if (count >= MIN_PROFILE_SAMPLES) {
+                profiles.add(ServiceProfile.fit(entry.getKey(), durations, count));
+            }
+        }
+        profiles.sort(Comparator.comparing(ServiceProfile::getServiceId));
+        return profiles;
+    }
+
+    /**
+     * 模拟报告
+     */
+    public static class SimulationReport {
+        private int tasks;
+        private int hours;
+        private int workers;
+        private int services;   // 参与模拟的拟合服务数，0 表示使用默认分布
+        private List<SimulationResult> results;
+        private long elapsedMillis;
+
+        public int getTasks() {
+            return tasks;
+        }
+
+        public void setTasks(int tasks) {
+            this.tasks = tasks;
+        }
+
+        public int getHours() {
+            return hours;
+        }
+
+        public void setHours(int hours) {
+            this.hours = hours;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getServices() {
+            return services;
+        }
+
+        public void setServices(int services) {
+            this.services = services;
+        }
+
+        public List<SimulationResult> getResults() {
+            return results;
+        }
+
+        public void setResults(List<SimulationResult> results) {
+            this.results = results;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public void setElapsedMillis(long elapsedMillis) {
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.blockchain.iExec.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Bytes32 / Address 值类型测试：规范小写文本、字节往返、topic 解码与地址驻留
+ */
+class Bytes32Test {
+
+    private static final String TASK_ID = "0x00000000000000000000000000000000000000000000000000000000000004D2";
+    private static final String ADDRESS = "0x70997970C51812dc3A010C7d01b50e0d17dc79C8";
+
+    @Test
+    void parsesToCanonicalLowercaseAndRoundTripsBytes() {
+        Bytes32 taskId = Bytes32.of(TASK_ID);
+        assertEquals(TASK_ID.toLowerCase(), taskId.toString());
+        assertEquals(taskId, Bytes32.of(TASK_ID.substring(2).toLowerCase()));
+        assertEquals(taskId.hashCode(), Bytes32.of(TASK_ID.toLowerCase()).hashCode());
+        assertEquals(taskId, Bytes32.wrap(taskId.toBytes()));
+        assertEquals(0x04, taskId.toBytes()[30]);
+        assertNotEquals(taskId, Bytes32.of(String.format("%064x", 1235)));
+
+        Address address = Address.of(ADDRESS);
+        assertEquals(ADDRESS.toLowerCase(), address.toString());
+        assertEquals(address, Address.wrap(address.toBytes()));
+        assertArrayEquals(address.toBytes(), Arrays.copyOfRange(
+            Bytes32.of("0x000000000000000000000000" + ADDRESS.substring(2)).toBytes(), 12, Bytes32.LENGTH));
+
+        assertThrows(IllegalArgumentException.class, () -> Bytes32.of("0x1234"));
+        assertThrows(IllegalArgumentException.class, () -> Bytes32.of(TASK_ID.replace('D', 'g')));
+        assertThrows(IllegalArgumentException.class, () -> Address.of(TASK_ID));
+    }
+
+    @Test
+    void decodesIndexedAddressTopicsAndInternsAddresses() {
+        String topic = "0x000000000000000000000000" + ADDRESS.substring(2).toLowerCase();
+        Address fromTopic = Address.fromTopic(topic);
+        assertEquals(Address.of(ADDRESS), fromTopic);
+        assertSame(Address.of(ADDRESS), fromTopic);
+        assertSame(fromTopic, Address.wrap(fromTopic.toBytes()));
+        assertThrows(IllegalArgumentException.class, () -> Address.fromTopic(TASK_ID.replace("0x0", "0x1")));
+    }
+
+    @Test
+    void serializesAsHexStringInJson() throws Exception {
+        ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(Bytes32.of(TASK_ID));
+        task.setUserAddress(Address.of(ADDRESS));
+
+        String json = mapper.writeValueAsString(task);
+        TaskEntity read = mapper.readValue(json, TaskEntity.class);
+        assertEquals(task.getTaskId(), read.getTaskId());
+        assertEquals(task.getUserAddress(), read.getUserAddress());
+        assertEquals("\"" + ADDRESS.toLowerCase() + "\"", mapper.writeValueAsString(read.getUserAddress()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.blockchain.iExec.repository;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.service.ShardLeaseService;
+import com.blockchain.iExec.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务表写入测试：状态条件更新只按迁移表生效、递增版本号，过期的实体保存时冲突失败；
+ * 批量保存使用池化序列与 JDBC 批量插入；分片桶入库时写入（或启动时补写），按桶索引查询
+ */
+@SpringBootTest
+class TaskRepositoryTest {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ShardLeaseService shardLeaseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void transitionsFollowTableAndBumpVersion() {
+        TaskEntity task = taskService.saveTask(task());
+        Long id = task.getId();
+        assertEquals(TaskStatus.CREATED, task.getStatus());
+        assertEquals(0L, task.getVersion());
+
+        assertNull(taskService.transitionStatus(id, TaskStatus.COMPLETED));
+        assertEquals(TaskStatus.CREATED, taskService.transitionStatus(id, TaskStatus.RUNNING));
+        assertNull(taskService.transitionStatus(id, TaskStatus.RUNNING));
+        assertEquals(TaskStatus.RUNNING, taskService.transitionStatus(id, TaskStatus.COMPLETED));
+        assertNull(taskService.transitionStatus(id, TaskStatus.FAILED));
+        assertNull(taskService.transitionStatus(-1L, TaskStatus.RUNNING));
+
+        TaskEntity reloaded = taskRepository.findById(id).orElseThrow();
+        assertEquals(TaskStatus.COMPLETED, reloaded.getStatus());
+        assertEquals(2L, reloaded.getVersion());
+        assertNotNull(reloaded.getRunningAt());
+        assertNotNull(reloaded.getCompletedAt());
+        assertEquals((short) TaskStatus.COMPLETED.getCode(),
+            jdbcTemplate.queryForObject("SELECT status FROM task_entity WHERE id = ?", Short.class, id));
+
+        // 条件更新之前读取的实体已过期
+        task.setResultHash("/ipfs/stale");
+        assertThrows(OptimisticLockingFailureException.class, () -> taskService.saveTask(task));
+    }
+
+    @Test
+    void bulkSaveUsesPooledIdsAndJdbcBatches() {
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            tasks.add(task());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            List<TaskEntity> saved = taskService.saveTasks(tasks);
+            assertEquals(120, saved.stream().map(TaskEntity::getId).distinct().count());
+            assertEquals(120, statistics.getEntityInsertCount());
+            // 120 行 = 3 个 JDBC 批次，外加最多 4 次序列取号
+            assertTrue(statistics.getPrepareStatementCount() <= 7,
+                "expected batched inserts, got " + statistics.getPrepareStatementCount() + " statements");
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertEquals(120, taskService.findExistingTaskIds(tasks.stream().map(TaskEntity::getTaskId).toList()).size());
+    }
+
+    @Test
+    void bucketIsStoredAndQueriedByIndex() {
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(task());
+        }
+        List<TaskEntity> saved = taskService.saveTasks(tasks);
+        for (TaskEntity task : saved) {
+            assertEquals(shardLeaseService.bucketOf(task.getTaskId()), task.getBucket());
+        }
+
+        // 升级前入库的行没有 bucket，启动时补写
+        jdbcTemplate.update("UPDATE task_entity SET bucket = NULL WHERE id <= ?", saved.get(99).getId());
+        taskService.assignMissingBuckets();
+
+        Set<Long> ids = saved.stream().map(TaskEntity::getId).collect(Collectors.toSet());
+        Set<Integer> buckets = Set.of(0, 1, 2, 3);
+        Set<Long> expected = saved.stream()
+            .filter(task -> buckets.contains(shardLeaseService.bucketOf(task.getTaskId())))
+            .map(TaskEntity::getId)
+            .collect(Collectors.toSet());
+        Set<Long> found = taskRepository.findByStatusAndBucketIn(TaskStatus.CREATED, buckets).stream()
+            .map(TaskEntity::getId)
+            .filter(ids::contains)
+            .collect(Collectors.toSet());
+        assertTrue(!expected.isEmpty());
+        assertEquals(expected, found);
+    }
+
+    private static TaskEntity task() {
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(Bytes32.of(String.format("%064x", SEQUENCE.incrementAndGet())));
+        task.setUserAddress(Address.of(String.format("%040x", 1)));
+        task.setServiceId("svc-status");
+        task.setCreatedAt(LocalDateTime.now());
+        return task;
+    }
+}
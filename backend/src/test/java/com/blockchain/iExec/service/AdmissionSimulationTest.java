@@ -0,0 +1,137 @@
+package com.blockchain.iExec.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 准入控制模拟：工作池有固定数量的工作节点，超出的任务在工作池内排队，等待过久即超时失败。
+ * 对比不限并发（积压任务全部提交）与自适应上限下的超时率和吞吐量
+ */
+class AdmissionSimulationTest {
+
+    private static final int WORKERS = 20;
+    private static final double MEDIAN_DURATION = 120.0;  // 执行时间中位数（秒）
+    private static final double ARRIVAL_RATE = 0.25;      // 任务到达率（个/秒），高于工作池处理能力
+    private static final double TIMEOUT = 600.0;          // 提交后超过该时间未完成即失败
+    private static final int DURATION = 8 * 3600;         // 模拟时长（秒）
+    private static final int WINDOW = 60;                 // 上限调整窗口（秒）
+
+    @Test
+    void adaptiveLimitQueuesLocallyInsteadOfTimingOut() {
+        Result flood = simulate(false);
+        Result governed = simulate(true);
+
+        double capacity = WORKERS / (MEDIAN_DURATION * Math.exp(0.5 * 0.5 * 0.5)) * DURATION;
+        assertTrue(flood.timeoutRate > 0.5,
+            String.format("flooding the workerpool should time out most tasks (%.1f%%)", flood.timeoutRate * 100));
+        assertTrue(governed.timeoutRate < 0.01,
+            String.format("governed submission should almost never time out (%.1f%%)", governed.timeoutRate * 100));
+        assertTrue(governed.completed > 0.9 * capacity,
+            String.format("governed submission should keep the workerpool busy (%d of %.0f)", governed.completed, capacity));
+        assertTrue(governed.completed > flood.completed,
+            String.format("governed submission should complete more tasks (%d vs %d)", governed.completed, flood.completed));
+        assertTrue(governed.minLimit >= WORKERS / 2 && governed.maxLimit <= 2 * WORKERS,
+            String.format("limit should oscillate around the workerpool capacity (%d..%d)", governed.minLimit, governed.maxLimit));
+    }
+
+    @Test
+    void sparseWindowFailuresDoNotBackOff() {
+        AdmissionLimit limit = new AdmissionLimit(10, 2, 500, 0.7, 1, 1.4, 0.1, 5, 0.3);
+
+        // 低流量窗口中的单个失败（如一次超时）不构成拥塞
+        limit.recordOutcome(600, false);
+        assertEquals(10, limit.adjust(WINDOW));
+        assertEquals("HOLD", limit.getLastAdjustment());
+
+        // 样本足够的窗口照常判定：2/10 超过阈值
+        limit.recordOutcome(600, false);
+        limit.recordOutcome(600, false);
+        for (int i = 0; i < 8; i++) {
+            limit.recordOutcome(100, true);
+        }
+        assertEquals(7, limit.adjust(WINDOW));
+        assertEquals("DECREASE", limit.getLastAdjustment());
+    }
+
+    private Result simulate(boolean governed) {
+        Random random = new Random(42);
+        AdmissionLimit limit = new AdmissionLimit(10, 2, 500, 0.7, 1, 1.4, 0.1, 5, 0.3);
+
+        int backlog = 0;                                   // 本地队列中等待提交的任务
+        Deque<double[]> poolQueue = new ArrayDeque<>();    // 工作池内排队: {提交时间, 执行时间}
+        List<double[]> executing = new ArrayList<>();      // 执行中: {提交时间, 结束时间}
+        Result result = new Result();
+        result.minLimit = Integer.MAX_VALUE;
+
+        double nextArrival = 0;
+        for (int now = 0; now < DURATION; now++) {
+            while (nextArrival <= now) {
+                backlog++;
+                nextArrival += -Math.log(1 - random.nextDouble()) / ARRIVAL_RATE;
+            }
+
+            // 完成与超时
+            for (Iterator<double[]> it = executing.iterator(); it.hasNext(); ) {
+                double[] task = it.next();
+                if (task[1] <= now) {
+                    it.remove();
+                    limit.recordOutcome(now - task[0], true);
+                    result.completed++;
+                } else if (now - task[0] > TIMEOUT) {
+                    it.remove();
+                    limit.recordOutcome(now - task[0], false);
+                    result.timeouts++;
+                }
+            }
+            for (Iterator<double[]> it = poolQueue.iterator(); it.hasNext(); ) {
+                double[] task = it.next();
+                if (now - task[0] > TIMEOUT) {
+                    it.remove();
+                    limit.recordOutcome(now - task[0], false);
+                    result.timeouts++;
+                }
+            }
+            while (executing.size() < WORKERS && !poolQueue.isEmpty()) {
+                double[] task = poolQueue.poll();
+                executing.add(new double[] {task[0], now + task[1]});
+            }
+
+            // 提交：不限并发时积压全部提交，否则受上限约束
+            int inFlight = poolQueue.size() + executing.size();
+            while (backlog > 0 && (!governed || inFlight < limit.getLimit())) {
+                backlog--;
+                inFlight++;
+                poolQueue.add(new double[] {now, MEDIAN_DURATION * Math.exp(0.5 * random.nextGaussian())});
+            }
+            limit.recordInFlight(inFlight);
+
+            if (now > 0 && now % WINDOW == 0) {
+                int current = limit.adjust(WINDOW);
+                if (now > DURATION / 4) {
+                    result.minLimit = Math.min(result.minLimit, current);
+                    result.maxLimit = Math.max(result.maxLimit, current);
+                }
+            }
+        }
+
+        result.timeoutRate = (double) result.timeouts / Math.max(1, result.completed + result.timeouts);
+        return result;
+    }
+
+    private static class Result {
+        int completed;
+        int timeouts;
+        double timeoutRate;
+        int minLimit;
+        int maxLimit;
+    }
+}
@@ -0,0 +1,103 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.service.BacktestEngine.BacktestReport;
+import com.blockchain.iExec.service.BacktestEngine.PredictorScore;
+import com.blockchain.iExec.service.BacktestEngine.ServiceBacktest;
+import com.blockchain.iExec.service.BacktestEngine.ServiceHistory;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 回测引擎测试：指标能区分预测器，且百万级记录在数秒内回放完成
+ */
+class BacktestEngineTest {
+
+    private final BacktestEngine engine = new BacktestEngine(CompletionTimePredictors.defaults(), 5, 0.8);
+
+    @Test
+    void scoresSeparatePredictors() {
+        Random random = new Random(1);
+
+        // 服务性能在中途变慢：近期加权的预测器应优于全历史平均
+        ServiceHistory shifting = new ServiceHistory();
+        for (int i = 0; i < 4_000; i++) {
+            double median = i < 2_000 ? 100 : 300;
+            shifting.add(CompletionFeatures.NONE, median * Math.exp(0.3 * random.nextGaussian()));
+        }
+        ServiceBacktest shift = engine.backtest("shifting", shifting);
+        assertTrue(score(shift, "EWMA").getMae() < score(shift, "SMA").getMae());
+        assertTrue(score(shift, "WMA").getMae() < score(shift, "SMA").getMae());
+
+        // 耗时随支付金额与内存需求线性变化：在线回归应胜出
+        ServiceHistory featured = new ServiceHistory();
+        for (int i = 0; i < 4_000; i++) {
+            double cost = random.nextInt(10);
+            double memoryMB = 512 * (1 + random.nextInt(8));
+            featured.add(new CompletionFeatures(cost, 1, memoryMB, 1),
+                (60 + 40 * cost + 0.2 * memoryMB) * Math.exp(0.1 * random.nextGaussian()));
+        }
+        ServiceBacktest regression = engine.backtest("featured", featured);
+        assertEquals("RLS", regression.getBestPredictor());
+        assertTrue(score(regression, "SGD").getMae() < score(regression, "SMA").getMae());
+
+        // 平稳服务：80% 区间的实际覆盖率应接近名义值
+        ServiceHistory stationary = new ServiceHistory();
+        for (int i = 0; i < 4_000; i++) {
+            stationary.add(CompletionFeatures.NONE, 200 * Math.exp(0.5 * random.nextGaussian()));
+        }
+        for (PredictorScore score : engine.backtest("stationary", stationary).getScores()) {
+            assertEquals(0.8, score.getCoverage(), 0.05, score.getPredictor());
+        }
+    }
+
+    @Test
+    void parsesResourceRequirement() {
+        CompletionFeatures features = CompletionFeatures.of(2.5, "{\"cpuCores\":4,\"memoryMB\":2048,\"storageGB\":10}");
+        assertEquals(2.5, features.getCostAmount());
+        assertEquals(4, features.getCpuCores());
+        assertEquals(2048, features.getMemoryMB());
+        assertEquals(10, features.getStorageGB());
+        assertTrue(Double.isNaN(CompletionFeatures.of(null, "not json").getCpuCores()));
+    }
+
+    @Test
+    void replaysMillionRowsInSeconds() {
+        Random random = new Random(2);
+        Map<String, ServiceHistory> history = new HashMap<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            String serviceId = "svc-" + random.nextInt(50);
+            double cost = random.nextDouble();
+            history.computeIfAbsent(serviceId, id -> new ServiceHistory())
+                .add(new CompletionFeatures(cost, 1, 1024, 1), (60 + 600 * cost) * Math.exp(0.4 * random.nextGaussian()));
+        }
+
+        BacktestReport report = engine.run(history);
+        assertEquals(1_000_000, report.getRows());
+        assertEquals(50, report.getServices().size());
+        assertTrue(report.getElapsedMillis() < 10_000, "replay took " + report.getElapsedMillis() + " ms");
+
+        // 耗时随成本线性变化：在线回归的误差明显低于只看历史耗时的平均类预测器
+        Map<String, Double> mae = new HashMap<>();
+        for (PredictorScore score : report.getOverall()) {
+            mae.put(score.getPredictor(), score.getMae());
+        }
+        double bestAverage = Math.min(Math.min(mae.get("WMA"), mae.get("SMA")), Math.min(mae.get("EWMA"), mae.get("QUANTILE")));
+        for (String regression : new String[] {"SGD", "RLS"}) {
+            assertTrue(mae.get(regression) < 0.75 * bestAverage, regression + " should beat the averaging predictors: " + mae);
+        }
+    }
+
+    private static PredictorScore score(ServiceBacktest backtest, String predictor) {
+        return backtest.getScores().stream()
+            .filter(score -> score.getPredictor().equals(predictor))
+            .findFirst()
+            .orElseThrow();
+    }
+}
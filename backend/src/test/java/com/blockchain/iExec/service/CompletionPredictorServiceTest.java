@@ -0,0 +1,102 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.service.CompletionTimePredictor.CompletionFeatures;
+import com.blockchain.iExec.service.CompletionTimePredictors.LeastMeanSquares;
+import com.blockchain.iExec.service.CompletionTimePredictors.RecursiveLeastSquares;
+import com.blockchain.iExec.service.TaskSchedulerService.ResourceRequirement;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 线上预测器测试：冷启动回放历史一次，之后的完成只做增量更新并按累计误差重新选择活动预测器
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:predictor-test",
+    "task.prediction.predictor.min-samples=20"
+})
+class CompletionPredictorServiceTest {
+
+    private static final String SERVICE_ID = "svc-predictor";
+
+    @Autowired
+    private CompletionPredictorService completionPredictorService;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Test
+    void completionsUpdateModelsAndSelectionWithoutReplay() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            histories.add(history(i, 100, start.plusMinutes(i)));
+        }
+        taskHistoryRepository.saveAll(histories);
+
+        // 样本不足 min-samples 时使用默认预测器
+        assertEquals(10, completionPredictorService.getSampleCount(SERVICE_ID));
+        assertEquals("WMA", completionPredictorService.getActivePredictor(SERVICE_ID));
+        assertEquals(100, completionPredictorService.predict(SERVICE_ID, CompletionFeatures.NONE), 1e-6);
+
+        // 耗时与 CPU 核数成正比：在线回归的累计误差最小，成为活动预测器
+        taskHistoryRepository.deleteAll();
+        for (int i = 0; i < 200; i++) {
+            int cpu = i % 4 + 1;
+            TaskHistoryEntity history = history(100 + i, 100L * cpu, start.plusHours(1).plusMinutes(i));
+            history.setResourceRequirement("{\"cpuCores\":" + cpu + ",\"memoryMB\":1024,\"storageGB\":1}");
+            completionPredictorService.onCompleted(history);
+        }
+        assertEquals(210, completionPredictorService.getSampleCount(SERVICE_ID));
+        assertEquals("RLS", completionPredictorService.getActivePredictor(SERVICE_ID));
+        double prediction = completionPredictorService.predict(SERVICE_ID, new CompletionFeatures(Double.NaN, 3, 1024, 1));
+        assertEquals(300, prediction, 5);
+    }
+
+    @Test
+    void resourceRequirementJsonTrainsNonZeroResourceWeight() {
+        RecursiveLeastSquares rls = new RecursiveLeastSquares(0.99);
+        LeastMeanSquares sgd = new LeastMeanSquares(0.05);
+        for (int i = 0; i < 400; i++) {
+            // 派发时写入任务、终结时复制到历史的资源需求 JSON
+            ResourceRequirement requirement = new ResourceRequirement();
+            requirement.setCpuCores(i % 4 + 1);
+            requirement.setMemoryMB(1024);
+            requirement.setStorageGB(1);
+            CompletionFeatures features = CompletionFeatures.of(null, requirement.toJson());
+            assertEquals(requirement.getCpuCores(), features.getCpuCores(), 1e-9);
+
+            double actualTime = 60 + 100.0 * requirement.getCpuCores();
+            rls.update(features, actualTime);
+            sgd.update(features, actualTime);
+        }
+        // x = [1, cost, cpu, mem/1024, storage]，CPU 权重应接近 100 秒/核
+        assertEquals(100, rls.weights[2], 1);
+        assertTrue(sgd.weights[2] > 10, "SGD cpu weight " + sgd.weights[2]);
+    }
+
+    private static TaskHistoryEntity history(int index, long actualTime, LocalDateTime completedAt) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(Bytes32.of(String.format("%064x", index + 1)));
+        history.setIexecTaskId(Bytes32.of(String.format("%064x", index + 10_001)));
+        history.setServiceId(SERVICE_ID);
+        history.setUserAddress(Address.of(String.format("%040x", index % 3 + 1)));
+        history.setStatus(TaskStatus.COMPLETED);
+        history.setActualTime(actualTime);
+        history.setCreatedAt(completedAt.minusSeconds(actualTime));
+        history.setCompletedAt(completedAt);
+        return history;
+    }
+}
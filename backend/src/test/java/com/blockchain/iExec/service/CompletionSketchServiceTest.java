@@ -0,0 +1,96 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.CompletionSketchRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 分位数草图冷启动测试：多个实例同时从历史表构建草图时，历史只以共享种子行计入一次
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:sketch-test")
+class CompletionSketchServiceTest {
+
+    private static final String SERVICE_ID = "svc-sketch";
+
+    @Autowired
+    private CompletionSketchService completionSketchService;
+
+    @Autowired
+    private CompletionSketchRepository completionSketchRepository;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private TaskHistoryQueryService taskHistoryQueryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void jointColdStartCountsHistoryOnce() {
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < 100; i++) {
+            histories.add(history(i, 60 + i, start.plusMinutes(i)));
+        }
+        taskHistoryRepository.saveAll(histories);
+
+        // 两个实例都在还没有任何草图行时加载该服务
+        CompletionSketchService other = otherInstance("instance-b");
+        assertEquals(100, completionSketchService.getQuantiles(SERVICE_ID).getSamples());
+        assertEquals(100, other.getQuantiles(SERVICE_ID).getSamples());
+
+        completionSketchService.flush();
+        other.flush();
+        assertEquals(1, completionSketchRepository.findByServiceId(SERVICE_ID).stream()
+            .filter(row -> row.getInstanceId().equals(CompletionSketchService.SEED_INSTANCE_ID))
+            .count());
+        assertEquals(100, completionSketchService.getQuantiles(SERVICE_ID).getSamples());
+        assertEquals(100, other.getQuantiles(SERVICE_ID).getSamples());
+
+        // 之后加载的实例只合并已持久化的草图
+        assertEquals(100, otherInstance("instance-c").getQuantiles(SERVICE_ID).getSamples());
+    }
+
+    private CompletionSketchService otherInstance(String instanceId) {
+        ShardLeaseService shardLeaseService = new ShardLeaseService();
+        ReflectionTestUtils.setField(shardLeaseService, "instanceId", instanceId);
+
+        CompletionSketchService service = new CompletionSketchService();
+        ReflectionTestUtils.setField(service, "completionSketchRepository", completionSketchRepository);
+        ReflectionTestUtils.setField(service, "taskHistoryQueryService", taskHistoryQueryService);
+        ReflectionTestUtils.setField(service, "shardLeaseService", shardLeaseService);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "compression", 100.0);
+        ReflectionTestUtils.setField(service, "flushInterval", 60_000L);
+        return service;
+    }
+
+    private static TaskHistoryEntity history(int index, long actualTime, LocalDateTime completedAt) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(Bytes32.of(String.format("%064x", index + 20_001)));
+        history.setIexecTaskId(Bytes32.of(String.format("%064x", index + 30_001)));
+        history.setServiceId(SERVICE_ID);
+        history.setUserAddress(Address.of(String.format("%040x", index % 3 + 1)));
+        history.setStatus(TaskStatus.COMPLETED);
+        history.setActualTime(actualTime);
+        history.setCreatedAt(completedAt.minusSeconds(actualTime));
+        history.setCompletedAt(completedAt);
+        return history;
+    }
+}
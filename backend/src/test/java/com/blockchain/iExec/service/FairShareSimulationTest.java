@@ -0,0 +1,147 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.service.PriorityDispatchQueue.QueuedTask;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 公平调度模拟：一个用户突发提交大量任务，同时其他用户零星提交。
+ * 对比单一优先级队列与按用户 DRR 下小用户的 p99 等待时间
+ */
+class FairShareSimulationTest {
+
+    private static final int WORKERS = 20;
+    private static final int TASK_DURATION = 60;        // 秒
+    private static final int BURST = 3_000;             // 大用户突发提交的任务数
+    private static final int SMALL_USERS = 50;
+    private static final double SMALL_ARRIVAL_RATE = 0.02;  // 小用户合计到达率（个/秒）
+    private static final int DURATION = 4 * 3600;
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final String HEAVY = "0xheavy";
+
+    @Test
+    void smallUsersKeepBoundedWaitDuringBurst() {
+        Result fifo = simulate(false, 0);
+        Result fair = simulate(true, 0);
+        Result capped = simulate(true, WORKERS / 2);
+
+        assertTrue(fifo.smallP99 > 3600,
+            "small users should queue behind the burst without fair share (p99 " + fifo.smallP99 + "s)");
+        assertTrue(fair.smallP99 <= 2 * TASK_DURATION,
+            "small users should wait at most about one task duration (p99 " + fair.smallP99 + "s)");
+        assertTrue(fifo.smallP99 >= 20 * Math.max(1, fair.smallP99),
+            "fair share should cut small-user p99 wait by at least 20x (" + fifo.smallP99 + "s -> " + fair.smallP99 + "s)");
+        assertEquals(fifo.dispatched, fair.dispatched, "fair share should not waste workerpool capacity");
+        assertTrue(capped.heavyMaxInFlight <= WORKERS / 2,
+            "per-user cap should bound the heavy user (max in flight " + capped.heavyMaxInFlight + ")");
+        assertTrue(capped.smallP99 <= fair.smallP99);
+    }
+
+    @Test
+    void weightsSplitDispatchProportionally() {
+        FairShareQueue queue = new FairShareQueue(1, 0, 0);
+        queue.setWeight("a", 2);
+        queue.setWeight("b", 1);
+        for (int i = 0; i < 300; i++) {
+            queue.upsert("a" + i, "a", 100, START);
+            queue.upsert("b" + i, "b", 100, START);
+        }
+
+        Map<String, Integer> dispatched = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            dispatched.merge(queue.poll(START, user -> true).getUserAddress(), 1, Integer::sum);
+        }
+        assertEquals(200, dispatched.get("a"));
+        assertEquals(100, dispatched.get("b"));
+
+        // 不可派发的用户被跳过，全部不可派发时返回 null
+        assertEquals("b", queue.poll(START, user -> !user.equals("a")).getUserAddress());
+        assertNull(queue.poll(START, user -> false));
+        assertEquals(299, queue.size());
+    }
+
+    private Result simulate(boolean fairShare, int userCap) {
+        Random random = new Random(7);
+        FairShareQueue fair = new FairShareQueue(1, TaskSchedulerService.WAITING_BONUS_PER_MINUTE,
+            TaskSchedulerService.MAX_WAITING_BONUS);
+        PriorityDispatchQueue single = new PriorityDispatchQueue(TaskSchedulerService.WAITING_BONUS_PER_MINUTE,
+            TaskSchedulerService.MAX_WAITING_BONUS);
+
+        Map<String, Integer> inFlight = new HashMap<>();
+        List<int[]> running = new ArrayList<>();  // {结束时间, 用户序号}，-1 为大用户
+        List<Integer> smallWaits = new ArrayList<>();
+        Result result = new Result();
+
+        for (int i = 0; i < BURST; i++) {
+            enqueue(fairShare, fair, single, HEAVY + "-" + i, HEAVY, START);
+        }
+
+        int seq = 0;
+        double nextArrival = 0;
+        for (int now = 0; now < DURATION; now++) {
+            LocalDateTime time = START.plusSeconds(now);
+            while (nextArrival <= now) {
+                String user = "0xsmall" + random.nextInt(SMALL_USERS);
+                enqueue(fairShare, fair, single, user + "-" + seq++, user, START.plusSeconds((long) nextArrival));
+                nextArrival += -Math.log(1 - random.nextDouble()) / SMALL_ARRIVAL_RATE;
+            }
+
+            for (int i = running.size() - 1; i >= 0; i--) {
+                if (running.get(i)[0] <= now) {
+                    int user = running.remove(i)[1];
+                    inFlight.merge(user < 0 ? HEAVY : "0xsmall" + user, -1, Integer::sum);
+                }
+            }
+
+            while (running.size() < WORKERS) {
+                QueuedTask next = fairShare
+                    ? fair.poll(time, user -> userCap <= 0 || inFlight.getOrDefault(user, 0) < userCap)
+                    : single.poll(time);
+                if (next == null) {
+                    break;
+                }
+                String user = next.getUserAddress();
+                inFlight.merge(user, 1, Integer::sum);
+                running.add(new int[] {now + TASK_DURATION, user.equals(HEAVY) ? -1 : Integer.parseInt(user.substring(7))});
+                result.dispatched++;
+                if (user.equals(HEAVY)) {
+                    result.heavyMaxInFlight = Math.max(result.heavyMaxInFlight, inFlight.get(HEAVY));
+                } else {
+                    smallWaits.add((int) Duration.between(next.getCreatedAt(), time).getSeconds());
+                }
+            }
+        }
+
+        Collections.sort(smallWaits);
+        result.smallP99 = smallWaits.get((int) Math.ceil(smallWaits.size() * 0.99) - 1);
+        return result;
+    }
+
+    private static void enqueue(boolean fairShare, FairShareQueue fair, PriorityDispatchQueue single,
+                                String taskId, String user, LocalDateTime createdAt) {
+        if (fairShare) {
+            fair.upsert(taskId, user, 125, createdAt);
+        } else {
+            single.upsert(taskId, user, 125, createdAt);
+        }
+    }
+
+    private static class Result {
+        int dispatched;
+        int smallP99;
+        int heavyMaxInFlight;
+    }
+}
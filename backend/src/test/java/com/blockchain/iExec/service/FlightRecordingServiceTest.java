@@ -0,0 +1,48 @@
+package com.blockchain.iExec.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JFR 记录测试：导出的记录不含环境变量、系统属性与 JVM 启动参数
+ */
+class FlightRecordingServiceTest {
+
+    private static final Set<String> SENSITIVE = Set.of(
+        "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation", "jdk.SystemProcess");
+
+    @Test
+    void recordingsOmitEnvironmentAndSystemProperties(@TempDir Path directory) throws Exception {
+        for (String configuration : List.of("default", "profile")) {
+            Map<String, String> settings = FlightRecordingService.settings(configuration);
+            for (String event : SENSITIVE) {
+                assertEquals("false", settings.get(event + "#enabled"), configuration + " " + event);
+            }
+            // 其余事件保持 JDK 预置配置
+            assertEquals("true", settings.get("jdk.ExecutionSample#enabled"));
+
+            Path file = directory.resolve(configuration + ".jfr");
+            try (Recording recording = new Recording(settings)) {
+                recording.start();
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertFalse(events.isEmpty());
+            assertTrue(events.stream().noneMatch(event -> SENSITIVE.contains(event.getEventType().getName())),
+                configuration + " recording should not contain environment or system property events");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.blockchain.iExec.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 对冲策略模拟：对比开启/关闭对冲时的 p99 延迟与额外成本
+ * 工作负载：泊松到达，对数正态执行时间，5% 的任务落在慢工作节点上（耗时 x8）
+ */
+class HedgingSimulationTest {
+
+    private static final int TASKS = 20_000;
+    private static final double ARRIVAL_INTERVAL = 2.0;   // 平均到达间隔（秒）
+    private static final double MEDIAN_DURATION = 120.0;  // 正常执行时间中位数（秒）
+    private static final double STRAGGLER_PROBABILITY = 0.05;
+    private static final double STRAGGLER_SLOWDOWN = 8.0;
+    private static final long MONITOR_INTERVAL = 30;     // 监控轮询间隔（秒）
+    private static final int WINDOW = 20;                // 与 TaskSchedulerService 的历史窗口一致
+
+    @Test
+    void hedgingCutsTailLatencyWithinBudget() {
+        Result off = simulate(false);
+        Result on = simulate(true);
+
+        assertEquals(0, off.extraCost, 1e-9);
+        assertTrue(on.p99 < off.p99 * 0.7,
+            String.format("hedging should cut p99 latency by at least 30%% (%.0fs -> %.0fs)", off.p99, on.p99));
+        assertTrue(on.extraCost <= 0.10,
+            String.format("hedging should stay within the 10%% budget (%.1f%%)", on.extraCost * 100));
+        assertTrue(on.p50 <= off.p50 * 1.05,
+            String.format("hedging should not slow down the median (%.0fs -> %.0fs)", off.p50, on.p50));
+        assertTrue(on.hedgesWon > on.hedges / 2,
+            String.format("most hedges should finish first (%d of %d)", on.hedgesWon, on.hedges));
+    }
+
+    private Result simulate(boolean hedgingEnabled) {
+        HedgingPolicy policy = new HedgingPolicy(0.95, 5, 0.1);
+        Random random = new Random(42);
+
+        double[] primary = new double[TASKS];
+        double[] hedge = new double[TASKS];
+        double[] start = new double[TASKS];
+        boolean[] hedged = new boolean[TASKS];
+        boolean[] done = new boolean[TASKS];
+        double[] latency = new double[TASKS];
+
+        PriorityQueue<double[]> events = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        double t = 0;
+        for (int i = 0; i < TASKS; i++) {
+            t += -Math.log(1 - random.nextDouble()) * ARRIVAL_INTERVAL;
+            start[i] = t;
+            primary[i] = sampleDuration(random);
+            hedge[i] = sampleDuration(random);
+            events.add(new double[] {t + primary[i], i, 0});   // 主任务完成
+            events.add(new double[] {t + MONITOR_INTERVAL, i, 1}); // 首次监控检查
+        }
+
+        Deque<Long> recent = new ArrayDeque<>();
+        long running = 0;
+        long inFlightHedges = 0;
+        int hedges = 0;
+        int hedgesWon = 0;
+        int started = 0;
+
+        while (!events.isEmpty()) {
+            double[] event = events.poll();
+            double now = event[0];
+            int i = (int) event[1];
+            while (started < TASKS && start[started] <= now) {
+                started++;
+                running++;
+            }
+            if (done[i]) {
+                continue;
+            }
+            if (event[2] == 1) {
+                // 监控检查：超过预测分位数则对冲
+                long predicted = quantile(recent, policy.getQuantile());
+                long elapsed = (long) (now - start[i]);
+                if (hedgingEnabled && policy.shouldHedge(elapsed, predicted, hedged[i], inFlightHedges, running)) {
+                    hedged[i] = true;
+                    inFlightHedges++;
+                    hedges++;
+                    events.add(new double[] {now + hedge[i], i, 2});
+                } else if (!hedged[i]) {
+                    events.add(new double[] {now + MONITOR_INTERVAL, i, 1});
+                }
+                continue;
+            }
+            // 主任务或对冲副本完成，先到者生效
+            done[i] = true;
+            running--;
+            if (hedged[i]) {
+                inFlightHedges--;
+                if (event[2] == 2) {
+                    hedgesWon++;
+                }
+            }
+            latency[i] = now - start[i];
+            recent.addFirst((long) latency[i]);
+            if (recent.size() > WINDOW) {
+                recent.removeLast();
+            }
+        }
+
+        Arrays.sort(latency);
+        Result result = new Result();
+        result.p50 = latency[(int) (TASKS * 0.50)];
+        result.p99 = latency[(int) (TASKS * 0.99)];
+        result.hedges = hedges;
+        result.hedgesWon = hedgesWon;
+        result.extraCost = (double) hedges / TASKS;
+        return result;
+    }
+
+    private double sampleDuration(Random random) {
+        double duration = MEDIAN_DURATION * Math.exp(0.3 * random.nextGaussian());
+        return random.nextDouble() < STRAGGLER_PROBABILITY ? duration * STRAGGLER_SLOWDOWN : duration;
+    }
+
+    private long quantile(Deque<Long> recent, double q) {
+        if (recent.size() < 5) {
+            return -1;
+        }
+        long[] samples = recent.stream().mapToLong(Long::longValue).sorted().toArray();
+        int rank = (int) Math.ceil(q * samples.length);
+        return samples[Math.max(0, Math.min(samples.length - 1, rank - 1))];
+    }
+
+    private static class Result {
+        double p50;
+        double p99;
+        double extraCost;
+        int hedges;
+        int hedgesWon;
+    }
+}
@@ -0,0 +1,139 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository.CompletionRecord;
+import com.blockchain.iExec.repository.TaskHistoryRepository.UserOutcomeCount;
+import com.blockchain.iExec.service.HistoryArchiveService.ArchiveStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 历史归档测试：超过保留期的记录按天移入段文件后，合并查询的结果与归档前一致；
+ * 归档后又出现的同一天记录写成追加段
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:archive-test",
+    "history.archive.enabled=true",
+    "history.archive.retention-days=3650",
+    "history.archive.directory=target/archive-test/segments-${random.uuid}"
+})
+class HistoryArchiveServiceTest {
+
+    private static final String SERVICE_ID = "svc-archive";
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private TaskHistoryQueryService taskHistoryQueryService;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Test
+    void archivedHistoryIsQueriedTogetherWithHotTable() throws Exception {
+        LocalDateTime recent = LocalDateTime.now().minusHours(1);
+        LocalDate oldDay = LocalDate.now().minusDays(40);
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // 前 100 条分布在 40 天前与 39 天前，其余为最近一小时
+            LocalDateTime completedAt = i < 100 ? oldDay.plusDays(i / 50).atTime(1, 0).plusMinutes(i) : recent.plusSeconds(i);
+            histories.add(history(i, completedAt));
+        }
+        histories.add(history(200, oldDay.atTime(3, 0)));
+        histories.get(histories.size() - 1).setServiceId("svc-archive-other");
+        taskHistoryRepository.saveAll(histories);
+
+        List<Address> users = List.of(user(0), user(1), user(2));
+        long completed = taskHistoryQueryService.countByStatus(TaskStatus.COMPLETED);
+        long failed = taskHistoryQueryService.countByStatus(TaskStatus.FAILED);
+        List<Long> actualTimes = sorted(taskHistoryQueryService.findCompletedActualTimes(SERVICE_ID));
+        List<CompletionRecord> records = taskHistoryQueryService.findCompletionRecords(SERVICE_ID);
+        List<CompletionRecord> allRecords = taskHistoryQueryService.findCompletionRecords(null);
+        Map<Address, List<Long>> outcomes = outcomes(taskHistoryQueryService.countOutcomesByUserAddress(users));
+
+        int moved = historyArchiveService.archiveBefore(LocalDate.now().minusDays(30).atStartOfDay());
+        assertEquals(101, moved);
+        assertEquals(20, taskHistoryRepository.count());
+        ArchiveStatus status = historyArchiveService.getStatus();
+        assertEquals(2, status.getSegments());
+        assertEquals(101, status.getArchivedRows());
+        assertEquals(oldDay, status.getOldestDay());
+
+        assertEquals(completed, taskHistoryQueryService.countByStatus(TaskStatus.COMPLETED));
+        assertEquals(failed, taskHistoryQueryService.countByStatus(TaskStatus.FAILED));
+        assertEquals(actualTimes, sorted(taskHistoryQueryService.findCompletedActualTimes(SERVICE_ID)));
+        assertEquals(records, taskHistoryQueryService.findCompletionRecords(SERVICE_ID));
+        assertEquals(allRecords.size(), taskHistoryQueryService.findCompletionRecords(null).size());
+        assertEquals(outcomes, outcomes(taskHistoryQueryService.countOutcomesByUserAddress(users)));
+
+        // 段内按列还原的行与原始记录一致
+        HistorySegment first = historyArchiveService.read(archive -> archive.getSegments().get(0));
+        TaskHistoryEntity original = histories.get(7);
+        TaskHistoryEntity restored = first.readRows().stream()
+            .filter(row -> row.getId().equals(original.getId())).findFirst().orElseThrow();
+        assertEquals(original.getTaskId(), restored.getTaskId());
+        assertEquals(original.getUserAddress(), restored.getUserAddress());
+        assertEquals(original.getStatus(), restored.getStatus());
+        assertEquals(original.getActualTime(), restored.getActualTime());
+        assertEquals(original.getCostAmount(), restored.getCostAmount());
+        assertEquals(original.getResourceRequirement(), restored.getResourceRequirement());
+        assertEquals(original.getErrorMessage(), restored.getErrorMessage());
+        assertNull(restored.getPriority());
+        assertEquals(HistorySegment.toMicros(original.getCompletedAt()), HistorySegment.toMicros(restored.getCompletedAt()));
+        assertTrue(first.getFileSize() < first.getRowCount() * 100L, "segment should be compressed: " + first.getFileSize());
+
+        // 已归档的一天又出现记录：写成追加段，不改写已有段
+        taskHistoryRepository.save(history(303, oldDay.atTime(5, 0)));
+        assertEquals(1, historyArchiveService.archiveBefore(LocalDate.now().minusDays(30).atStartOfDay()));
+        assertEquals(3, historyArchiveService.getStatus().getSegments());
+        assertEquals(actualTimes.size() + 1, taskHistoryQueryService.findCompletedActualTimes(SERVICE_ID).size());
+    }
+
+    // 草图构建查询不保证顺序
+    private static List<Long> sorted(List<Long> values) {
+        return values.stream().sorted().toList();
+    }
+
+    private static Map<Address, List<Long>> outcomes(List<UserOutcomeCount> counts) {
+        return counts.stream().collect(Collectors.toMap(UserOutcomeCount::getUserAddress,
+            count -> List.of(count.getTotal(), count.getCompleted())));
+    }
+
+    private static Address user(int index) {
+        return Address.of(String.format("%040x", index + 1));
+    }
+
+    private static TaskHistoryEntity history(int index, LocalDateTime completedAt) {
+        TaskStatus status = index % 10 == 0 ? TaskStatus.FAILED : index % 10 == 1 ? TaskStatus.TIMEOUT : TaskStatus.COMPLETED;
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(Bytes32.of(String.format("%064x", index + 1)));
+        history.setIexecTaskId(Bytes32.of(String.format("%064x", index + 10_001)));
+        history.setServiceId(SERVICE_ID);
+        history.setUserAddress(user(index % 3));
+        history.setStatus(status);
+        history.setActualTime(status == TaskStatus.FAILED ? null : 300L + index);
+        history.setCostAmount(index % 4 == 0 ? null : 0.25 * index);
+        history.setResourceRequirement(index % 2 == 0 ? "{\"cpu\":2,\"memory\":1024}" : null);
+        history.setErrorMessage(status == TaskStatus.FAILED ? "worker lost" : null);
+        history.setCreatedAt(completedAt.minusSeconds(300L + index));
+        history.setCompletedAt(completedAt);
+        return history;
+    }
+}
@@ -0,0 +1,110 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.service.PriorityDispatchQueue.QueuedTask;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 派发优先队列测试：出队顺序与逐个计算有效优先级一致（含等待加成封顶），以及 10 万任务规模的耗时
+ */
+class PriorityDispatchQueueTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriorityDispatchQueueTest.class);
+
+    private static final double PER_MINUTE = TaskSchedulerService.WAITING_BONUS_PER_MINUTE;
+    private static final double MAX_BONUS = TaskSchedulerService.MAX_WAITING_BONUS;
+
+    @Test
+    void pollOrderMatchesBruteForcePriority() {
+        Random random = new Random(11);
+        LocalDateTime now = LocalDateTime.now();
+        PriorityDispatchQueue queue = new PriorityDispatchQueue(PER_MINUTE, MAX_BONUS);
+        List<double[]> expected = new ArrayList<>();
+
+        // 等待时间在 0-4 小时之间，约一半任务的等待加成已封顶
+        for (int i = 0; i < 5_000; i++) {
+            int staticPriority = 110 + random.nextInt(86);
+            long waitingSeconds = random.nextInt(4 * 3600);
+            queue.upsert("task-" + i, staticPriority, now.minusSeconds(waitingSeconds));
+            expected.add(new double[]{staticPriority + Math.min(PER_MINUTE * waitingSeconds / 60.0, MAX_BONUS)});
+        }
+        expected.sort(Comparator.comparingDouble((double[] value) -> value[0]).reversed());
+
+        for (double[] value : expected) {
+            QueuedTask task = queue.poll(now);
+            assertEquals(value[0], queue.effectivePriority(task, now), 1e-6);
+        }
+        assertNull(queue.poll(now));
+    }
+
+    @Test
+    void agingOvertakesHigherStaticPriority() {
+        LocalDateTime start = LocalDateTime.now();
+        PriorityDispatchQueue queue = new PriorityDispatchQueue(PER_MINUTE, MAX_BONUS);
+        queue.upsert("old-low", 120, start);
+        queue.upsert("new-high", 160, start.plusMinutes(60));
+
+        // 60 分钟后：old-low = 150, new-high = 160
+        assertEquals("new-high", queue.peek(start.plusMinutes(60)).getTaskId());
+        // 140 分钟后：old-low 封顶 170, new-high = 200
+        assertEquals("new-high", queue.peek(start.plusMinutes(140)).getTaskId());
+
+        queue.upsert("new-high", 100, start.plusMinutes(60));
+        // 更新后：old-low 封顶 170, new-high = 140
+        assertEquals("old-low", queue.peek(start.plusMinutes(140)).getTaskId());
+
+        assertTrue(queue.remove("old-low"));
+        assertFalse(queue.remove("old-low"));
+        assertEquals("new-high", queue.poll(start.plusMinutes(140)).getTaskId());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void handlesHundredThousandQueuedTasks() {
+        int n = 100_000;
+        Random random = new Random(3);
+        LocalDateTime now = LocalDateTime.now();
+        PriorityDispatchQueue queue = new PriorityDispatchQueue(PER_MINUTE, MAX_BONUS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            queue.upsert("task-" + i, 110 + random.nextInt(86), now.minusSeconds(random.nextInt(4 * 3600)));
+        }
+        long inserted = System.nanoTime();
+        for (int i = 0; i < n / 2; i++) {
+            int id = random.nextInt(n);
+            queue.upsert("task-" + id, 110 + random.nextInt(86), now.minusSeconds(random.nextInt(4 * 3600)));
+        }
+        for (int i = 0; i < n / 10; i++) {
+            queue.remove("task-" + random.nextInt(n));
+        }
+        long updated = System.nanoTime();
+
+        int remaining = queue.size();
+        double previous = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < remaining; i++) {
+            QueuedTask task = queue.poll(now);
+            double priority = queue.effectivePriority(task, now);
+            assertTrue(priority <= previous + 1e-9, "poll order must be non-increasing");
+            previous = priority;
+        }
+        long polled = System.nanoTime();
+
+        assertEquals(0, queue.size());
+        logger.debug("PriorityDispatchQueue {} tasks: insert {} ms, {} updates/removes {} ms, drain {} ms",
+            n, (inserted - start) / 1_000_000, n / 2 + n / 10, (updated - inserted) / 1_000_000, (polled - updated) / 1_000_000);
+        assertTrue(polled - start < 5_000_000_000L, "100k queue operations should complete well within 5 seconds");
+    }
+}
@@ -0,0 +1,118 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.IExecApplication;
+import com.blockchain.iExec.model.Bytes32;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多实例分片测试：同一 JVM 中启动多个应用上下文，共享一个文件型 H2 数据库
+ */
+class ShardLeaseServiceTest {
+
+    private static final int BUCKETS = 16;
+
+    private final String dbUrl = "jdbc:h2:file:" + Path.of("target", "cluster-test", "db-" + System.nanoTime()).toAbsolutePath();
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    @AfterEach
+    void closeContexts() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void bucketsArePartitionedAndRebalancedAsInstancesJoinAndLeave() throws Exception {
+        ConfigurableApplicationContext a = start("node-a");
+        ConfigurableApplicationContext b = start("node-b");
+        ConfigurableApplicationContext c = start("node-c");
+
+        awaitPartition(List.of(a, b, c));
+        assertTrue(lease(a).isLeader(), "lowest instance id should lead chain ingestion");
+
+        // 实例离开：剩余实例接管其全部桶
+        b.close();
+        contexts.remove(b);
+        awaitPartition(List.of(a, c));
+
+        // 实例加入：桶重新均分
+        ConfigurableApplicationContext d = start("node-d");
+        awaitPartition(List.of(a, c, d));
+
+        // 领导者离开：下一个实例成为领导者
+        a.close();
+        contexts.remove(a);
+        awaitPartition(List.of(c, d));
+        assertTrue(lease(c).isLeader());
+
+        // 任意任务恰好由一个实例负责
+        for (int i = 0; i < 1000; i++) {
+            Bytes32 taskId = Bytes32.of(String.format("%064x", i * 7919));
+            long owners = List.of(c, d).stream().filter(ctx -> lease(ctx).ownsTask(taskId)).count();
+            assertEquals(1, owners, "task " + taskId + " should have exactly one owner");
+        }
+    }
+
+    private ConfigurableApplicationContext start(String instanceId) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(IExecApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(
+                "--spring.datasource.url=" + dbUrl,
+                "--spring.jpa.show-sql=false",
+                "--cluster.instance-id=" + instanceId,
+                "--cluster.buckets=" + BUCKETS,
+                "--cluster.heartbeat-interval=200",
+                "--cluster.lease-ttl=1500",
+                "--task.monitor.interval=3600000"
+            );
+        contexts.add(context);
+        return context;
+    }
+
+    private static ShardLeaseService lease(ConfigurableApplicationContext context) {
+        return context.getBean(ShardLeaseService.class);
+    }
+
+    /**
+     * 等待直到各实例均分全部桶（互不重叠、全覆盖），并且恰好一个领导者
+     */
+    private void awaitPartition(List<ConfigurableApplicationContext> live) throws InterruptedException {
+        await(() -> {
+            Set<Integer> union = new HashSet<>();
+            int total = 0;
+            int leaders = 0;
+            for (ConfigurableApplicationContext context : live) {
+                Set<Integer> owned = lease(context).getOwnedBuckets();
+                if (owned.size() < BUCKETS / live.size()) {
+                    return false;
+                }
+                union.addAll(owned);
+                total += owned.size();
+                leaders += lease(context).isLeader() ? 1 : 0;
+            }
+            return union.size() == BUCKETS && total == BUCKETS && leaders == 1;
+        });
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("cluster did not converge in time");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
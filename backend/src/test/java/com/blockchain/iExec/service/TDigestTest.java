@@ -0,0 +1,77 @@
+package com.blockchain.iExec.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * t-digest 精度、合并与序列化测试（对数正态分布，模拟长尾的任务完成耗时）
+ */
+class TDigestTest {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99};
+
+    @Test
+    void quantilesStayCloseToExactOnHeavyTailedData() {
+        Random random = new Random(42);
+        double[] values = new double[200_000];
+        TDigest digest = new TDigest(100);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(5 + random.nextGaussian());
+            digest.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : QUANTILES) {
+            assertRankError(values, digest.quantile(q), q);
+        }
+        assertEquals(values.length, digest.size(), 1e-6);
+        assertTrue(digest.toBytes().length < 4_000, "serialized size must not grow with sample count");
+    }
+
+    @Test
+    void mergedDigestsMatchSingleDigest() {
+        Random random = new Random(7);
+        double[] values = new double[50_000];
+        TDigest[] parts = {new TDigest(100), new TDigest(100), new TDigest(100)};
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(4 + 1.5 * random.nextGaussian());
+            parts[i % parts.length].add(values[i]);
+        }
+        Arrays.sort(values);
+
+        // 经过序列化往返后再合并，模拟各实例持久化的草图
+        TDigest merged = TDigest.fromBytes(parts[0].toBytes());
+        merged.merge(TDigest.fromBytes(parts[1].toBytes()));
+        merged.merge(parts[2].copy());
+
+        for (double q : QUANTILES) {
+            assertRankError(values, merged.quantile(q), q);
+        }
+        assertEquals(values[0], merged.getMin(), 1e-9);
+        assertEquals(values[values.length - 1], merged.getMax(), 1e-9);
+    }
+
+    @Test
+    void decayScalesWeightsWithoutMovingQuantiles() {
+        TDigest digest = new TDigest(100);
+        for (int i = 1; i <= 10_000; i++) {
+            digest.add(i);
+        }
+        double median = digest.quantile(0.5);
+        digest.decay(0.5);
+        assertEquals(5_000, digest.size(), 1e-6);
+        assertEquals(median, digest.quantile(0.5), 1e-6);
+    }
+
+    // 估计值在真实数据中的秩与目标分位点的偏差不超过 0.5 个百分点
+    private static void assertRankError(double[] sorted, double estimate, double q) {
+        int rank = Arrays.binarySearch(sorted, estimate);
+        double actualQ = (rank >= 0 ? rank : -rank - 1) / (double) sorted.length;
+        assertEquals(q, actualQ, 0.005, "quantile " + q + " estimated as " + estimate);
+    }
+}
@@ -0,0 +1,154 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.ReputationRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.service.ReputationService.ReputationUpdate;
+import com.blockchain.iExec.service.TaskFinalizationService.TaskFinalization;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 终态迁移测试：两个终结者并发处理同一批 Running 任务时，每个任务只被终结一次
+ * （一条历史记录、一次信誉累加）；条件更新失败的一方不修改任务
+ */
+@SpringBootTest
+class TaskFinalizationServiceTest {
+
+    @Autowired
+    private TaskFinalizationService taskFinalizationService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private ReputationRepository reputationRepository;
+
+    @Test
+    void racingFinalizersFinalizeEachTaskOnce() throws Exception {
+        String prefix = String.format("%024x", System.nanoTime());
+        String serviceId = "svc-race-" + prefix;
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(taskRepository.save(runningTask(prefix, i, serviceId)));
+        }
+
+        // 两个终结者各自持有按相同顺序排列的任务副本（如定时监控与手动触发），同时提交
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<List<TaskFinalization>>> results = new ArrayList<>();
+        try {
+            for (int finalizer = 0; finalizer < 2; finalizer++) {
+                List<TaskFinalization> finalizations = new ArrayList<>();
+                for (TaskEntity task : tasks) {
+                    finalizations.add(finalization(taskRepository.findById(task.getId()).orElseThrow(), TaskStatus.COMPLETED, "/ipfs/" + finalizer));
+                }
+                results.add(executor.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    return taskFinalizationService.finalizeTasks(finalizations);
+                }));
+            }
+            int applied = 0;
+            for (Future<List<TaskFinalization>> result : results) {
+                applied += result.get(30, TimeUnit.SECONDS).size();
+            }
+            assertEquals(tasks.size(), applied);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<TaskHistoryEntity> histories = taskHistoryRepository.findAll().stream()
+            .filter(history -> serviceId.equals(history.getServiceId()))
+            .toList();
+        assertEquals(tasks.size(), histories.size());
+        for (TaskEntity task : tasks) {
+            assertEquals(1, histories.stream().filter(history -> history.getTaskId().equals(task.getTaskId())).count());
+            assertEquals(TaskStatus.COMPLETED, taskRepository.findById(task.getId()).orElseThrow().getStatus());
+            ReputationEntity reputation = reputationRepository.findByAddress(task.getUserAddress());
+            assertEquals(1, reputation.getTotalTasks());
+            assertEquals(1, reputation.getCompletedTasks());
+        }
+    }
+
+    @Test
+    void losingTransitionLeavesTaskUntouched() {
+        String prefix = String.format("%024x", System.nanoTime());
+        String serviceId = "svc-cas-" + prefix;
+        TaskEntity task = taskRepository.save(runningTask(prefix, 0, serviceId));
+        TaskEntity stale = taskRepository.findById(task.getId()).orElseThrow();
+
+        assertEquals(1, taskFinalizationService.finalizeTasks(
+            List.of(finalization(task, TaskStatus.COMPLETED, "/ipfs/winner"))).size());
+        TaskEntity finalized = taskRepository.findById(task.getId()).orElseThrow();
+
+        // 基于过期副本的第二次终结：条件更新不命中，任务、历史与信誉都不变
+        TaskFinalization late = finalization(stale, TaskStatus.FAILED, null);
+        late.getHistory().setErrorMessage("late failure");
+        assertTrue(taskFinalizationService.finalizeTasks(List.of(late)).isEmpty());
+
+        TaskEntity reloaded = taskRepository.findById(task.getId()).orElseThrow();
+        assertEquals(TaskStatus.COMPLETED, reloaded.getStatus());
+        assertEquals("/ipfs/winner", reloaded.getResultHash());
+        assertNull(reloaded.getErrorMessage());
+        assertEquals(finalized.getVersion(), reloaded.getVersion());
+        assertEquals(finalized.getCompletedAt(), reloaded.getCompletedAt());
+        assertEquals(finalized.getUpdatedAt(), reloaded.getUpdatedAt());
+        assertEquals(1, taskHistoryRepository.findAll().stream()
+            .filter(history -> serviceId.equals(history.getServiceId()))
+            .count());
+        assertEquals(1, reputationRepository.findByAddress(task.getUserAddress()).getTotalTasks());
+    }
+
+    private static TaskEntity runningTask(String prefix, int index, String serviceId) {
+        LocalDateTime now = LocalDateTime.now();
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(Bytes32.of(prefix + String.format("%040x", index)));
+        task.setIexecTaskId(Bytes32.of(prefix + String.format("%040x", 1_000 + index)));
+        task.setServiceId(serviceId);
+        // 每个任务一个用户，信誉累加次数即该任务被终结的次数
+        task.setUserAddress(Address.of(prefix + String.format("%016x", index)));
+        task.setStatus(TaskStatus.RUNNING);
+        task.setCreatedAt(now.minusMinutes(5));
+        task.setRunningAt(now.minusMinutes(4));
+        task.setUpdatedAt(now.minusMinutes(4));
+        return task;
+    }
+
+    private static TaskFinalization finalization(TaskEntity task, TaskStatus status, String resultHash) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(task.getTaskId());
+        history.setIexecTaskId(task.getIexecTaskId());
+        history.setServiceId(task.getServiceId());
+        history.setUserAddress(task.getUserAddress());
+        history.setStatus(status);
+        history.setResultHash(resultHash);
+        history.setActualTime(240L);
+        history.setCreatedAt(task.getCreatedAt());
+        history.setCompletedAt(LocalDateTime.now());
+        ReputationUpdate update = new ReputationUpdate(task.getUserAddress(), status == TaskStatus.COMPLETED, true, 1.0);
+        return new TaskFinalization(task, status, history, update);
+    }
+}
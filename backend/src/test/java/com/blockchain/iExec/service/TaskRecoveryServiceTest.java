@@ -0,0 +1,100 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.IExecApplication;
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import com.blockchain.iExec.repository.TaskRepository;
+import com.blockchain.iExec.service.TaskRecoveryService.RecoveryReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 重启恢复测试：第一个上下文写入未终结任务后关闭，第二个上下文在同一文件库上启动，
+ * 恢复时终结停机期间已超时的任务，其余任务保持 Running 交给监控周期
+ */
+class TaskRecoveryServiceTest {
+
+    private final String dataDir = Path.of("target", "recovery-test", "db-" + System.nanoTime()).toAbsolutePath().toString();
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    @AfterEach
+    void closeContexts() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void restartFinalizesTasksThatEndedWhileDown() {
+        // 第一个上下文只负责写入数据：不做恢复，也不运行监控周期
+        ConfigurableApplicationContext first = start("--task.recovery.enabled=false");
+        TaskRepository tasks = first.getBean(TaskRepository.class);
+        for (int i = 0; i < 5; i++) {
+            // 前三个任务创建于两小时前，超过默认一小时超时
+            tasks.save(task(i, TaskStatus.RUNNING, LocalDateTime.now().minusHours(i < 3 ? 2 : 0)));
+        }
+        tasks.save(task(5, TaskStatus.CREATED, LocalDateTime.now()));
+        first.close();
+        contexts.remove(first);
+
+        ConfigurableApplicationContext second = start("--task.recovery.enabled=true");
+        RecoveryReport report = second.getBean(TaskRecoveryService.class).getReport();
+        assertNotNull(report, "recovery should complete before the application is ready");
+        assertEquals(5, report.getRunningTasks());
+        assertEquals(5, report.getCheckedTasks());
+        assertEquals(3, report.getFinalizedTasks());
+        assertEquals(1, report.getPendingTasks());
+        assertTrue(report.isFullCoverage(), "recovery should wait for the whole shard range");
+        assertTrue(report.getCoverageMillis() >= report.getRecoveryMillis());
+
+        TaskRepository recovered = second.getBean(TaskRepository.class);
+        assertEquals(3, recovered.countByStatus(TaskStatus.FAILED));
+        assertEquals(2, recovered.countByStatus(TaskStatus.RUNNING));
+        assertEquals(3, second.getBean(TaskHistoryRepository.class).countByStatus(TaskStatus.TIMEOUT));
+        assertNotNull(second.getBean(MeterRegistry.class).find("task.recovery.coverage").timeGauge());
+    }
+
+    private ConfigurableApplicationContext start(String recovery) {
+        // 监控周期推迟到测试结束之后，只由恢复终结任务
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(IExecApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("durable")
+            .run(
+                "--IEXEC_DATA_DIR=" + dataDir,
+                "--spring.jpa.show-sql=false",
+                "--task.monitor.interval=3600000",
+                "--task.monitor.initial-delay=3600000",
+                "--task.dispatch.enabled=false",
+                "--cluster.heartbeat-interval=200",
+                recovery
+            );
+        contexts.add(context);
+        return context;
+    }
+
+    private static TaskEntity task(int index, TaskStatus status, LocalDateTime createdAt) {
+        TaskEntity task = new TaskEntity();
+        task.setTaskId(Bytes32.of(String.format("%064x", index + 1)));
+        task.setIexecTaskId(status == TaskStatus.RUNNING ? Bytes32.of(String.format("%064x", index + 1001)) : null);
+        task.setUserAddress(Address.of(String.format("%040x", index % 2 + 1)));
+        task.setServiceId("svc-recovery");
+        task.setStatus(status);
+        task.setCreatedAt(createdAt);
+        task.setUpdatedAt(createdAt);
+        return task;
+    }
+}
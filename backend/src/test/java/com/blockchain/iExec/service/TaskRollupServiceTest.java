@@ -0,0 +1,93 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.RollupResolution;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.TaskRollupRepository;
+import com.blockchain.iExec.service.TaskRollupService.RollupPoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间序列聚合测试：未刷新的增量与已刷新的聚合行查询结果一致，多次刷新同一个桶时累加
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:rollup-test",
+    "task.rollup.flush-interval=3600000"
+})
+class TaskRollupServiceTest {
+
+    @Autowired
+    private TaskRollupService taskRollupService;
+
+    @Autowired
+    private TaskRollupRepository taskRollupRepository;
+
+    @Test
+    void rollupsMatchFinalizedHistory() {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        for (int i = 0; i < 90; i++) {
+            // 三个分钟桶（每桶 30 条），两个服务交替
+            histories.add(history(i % 2 == 0 ? "svc-rollup-a" : "svc-rollup-b", i, base.plusMinutes(i / 30).plusSeconds(i)));
+        }
+        taskRollupService.onFinalized(histories);
+
+        List<RollupPoint> before = taskRollupService.getRollups(RollupResolution.MINUTE, null, base, base.plusMinutes(59));
+        assertEquals(3, before.size());
+        assertEquals(base, before.get(0).getBucketStart());
+        assertNull(before.get(0).getServiceId());
+        assertEquals(30, before.stream().mapToLong(p -> p.getCompleted() + p.getFailed() + p.getTimeout()).max().orElse(0));
+
+        taskRollupService.flush();
+        assertEquals(8, taskRollupRepository.count());  // 3 个分钟桶 × 2 个服务 + 1 个小时桶 × 2 个服务
+
+        List<RollupPoint> after = taskRollupService.getRollups(RollupResolution.MINUTE, null, base, base.plusMinutes(59));
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(before.get(i).getCompleted(), after.get(i).getCompleted());
+            assertEquals(before.get(i).getFailed(), after.get(i).getFailed());
+            assertEquals(before.get(i).getAverageActualTime(), after.get(i).getAverageActualTime());
+            assertEquals(before.get(i).getP95(), after.get(i).getP95());
+        }
+
+        // 小时汇总与逐条统计一致
+        RollupPoint hour = taskRollupService.summarize(RollupResolution.HOUR, "svc-rollup-a", base, base);
+        List<TaskHistoryEntity> serviceA = histories.stream().filter(h -> h.getServiceId().equals("svc-rollup-a")).toList();
+        assertEquals(serviceA.stream().filter(h -> h.getStatus() == TaskStatus.COMPLETED).count(), hour.getCompleted());
+        assertEquals(serviceA.stream().filter(h -> h.getStatus() == TaskStatus.TIMEOUT).count(), hour.getTimeout());
+        assertEquals(serviceA.stream().filter(h -> h.getActualTime() != null).mapToLong(TaskHistoryEntity::getActualTime).average().orElseThrow(),
+            hour.getAverageActualTime(), 1e-9);
+        assertEquals(serviceA.stream().filter(h -> h.getActualTime() != null).mapToLong(TaskHistoryEntity::getActualTime).max().orElseThrow(),
+            hour.getMaxActualTime());
+        assertTrue(hour.getP50() >= hour.getMinActualTime() && hour.getP50() <= hour.getMaxActualTime());
+
+        // 再次刷新同一个桶：累加到已有行，不新增行
+        taskRollupService.onFinalized(List.of(history("svc-rollup-a", 2, base.plusSeconds(5))));
+        taskRollupService.flush();
+        assertEquals(8, taskRollupRepository.count());
+        assertEquals(hour.getCompleted() + 1,
+            taskRollupService.summarize(RollupResolution.HOUR, "svc-rollup-a", base, base).getCompleted());
+    }
+
+    private static TaskHistoryEntity history(String serviceId, int index, LocalDateTime completedAt) {
+        TaskStatus status = index % 10 == 1 ? TaskStatus.FAILED : index % 10 == 3 ? TaskStatus.TIMEOUT : TaskStatus.COMPLETED;
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setServiceId(serviceId);
+        history.setStatus(status);
+        history.setActualTime(status == TaskStatus.FAILED ? null : 100L + index * 7L);
+        history.setCostAmount(0.5);
+        history.setCompletedAt(completedAt);
+        return history;
+    }
+}
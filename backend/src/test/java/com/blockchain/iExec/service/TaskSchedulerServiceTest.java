@@ -0,0 +1,142 @@
+package com.blockchain.iExec.service;
+
+import com.blockchain.iExec.model.Address;
+import com.blockchain.iExec.model.Bytes32;
+import com.blockchain.iExec.model.ReputationEntity;
+import com.blockchain.iExec.model.TaskEntity;
+import com.blockchain.iExec.model.TaskHistoryEntity;
+import com.blockchain.iExec.model.TaskStatus;
+import com.blockchain.iExec.repository.ReputationRepository;
+import com.blockchain.iExec.repository.TaskHistoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量优先级打分测试：结果与逐个计算及手算值一致，查询次数不随任务数增长，超过一批的用户同样计分
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TaskSchedulerServiceTest {
+
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+
+    @Autowired
+    private TaskHistoryRepository taskHistoryRepository;
+
+    @Autowired
+    private ReputationRepository reputationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void batchScoringMatchesPerTaskScoringWithConstantQueries() {
+        String prefix = String.format("%024x", System.nanoTime());
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        for (int user = 0; user < 20; user++) {
+            for (int i = 0; i < user; i++) {
+                histories.add(history(address(prefix, user), i % 3 == 0 ? TaskStatus.FAILED : TaskStatus.COMPLETED));
+            }
+            if (user % 2 == 0) {
+                ReputationEntity reputation = new ReputationEntity();
+                reputation.setAddress(address(prefix, user));
+                reputation.setFinalScore(user / 20.0);
+                reputationRepository.save(reputation);
+            }
+        }
+        taskHistoryRepository.saveAll(histories);
+
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            TaskEntity task = new TaskEntity();
+            task.setTaskId(Bytes32.of(prefix + String.format("%040x", i)));
+            task.setUserAddress(address(prefix, i % 25));  // 部分用户没有任何历史与信誉
+            task.setServiceId("svc");
+            tasks.add(task);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Map<Bytes32, Integer> priorities = taskSchedulerService.calculateStaticPriorities(tasks);
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+            "expected one reputation query and one aggregate query, got " + statistics.getPrepareStatementCount());
+
+        assertEquals(tasks.size(), priorities.size());
+        for (int user = 0; user < 25; user++) {
+            // 逐个计算走单独的信誉与成功率查询；任务没有创建时间，等待加成为 0
+            TaskEntity task = tasks.get(user);
+            assertEquals(taskSchedulerService.calculatePriority(task), priorities.get(task.getTaskId()));
+        }
+        // 新用户：基础 100 + 支付 15 + 成功率基础加成 10
+        assertEquals(125, priorities.get(tasks.get(0).getTaskId()));
+        // 用户 3：3 条历史中 1 条失败，成功率加成 (int) (2/3 × 20) = 13，没有信誉记录
+        assertEquals(100 + 15 + 13, priorities.get(tasks.get(3).getTaskId()));
+        // 用户 4：4 条历史中 2 条失败，成功率加成 10；信誉 0.2，加成 10
+        assertEquals(100 + 10 + 15 + 10, priorities.get(tasks.get(4).getTaskId()));
+    }
+
+    @Test
+    void batchScoringCoversUsersBeyondOneChunk() {
+        String prefix = String.format("%024x", System.nanoTime());
+        int users = 600;  // 超过单次 IN 查询的 500 个地址
+        List<TaskHistoryEntity> histories = new ArrayList<>();
+        List<ReputationEntity> reputations = new ArrayList<>();
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int user = 0; user < users; user++) {
+            TaskHistoryEntity history = history(address(prefix, user), user % 2 == 0 ? TaskStatus.COMPLETED : TaskStatus.FAILED);
+            history.setTaskId(Bytes32.of(prefix + String.format("%040x", user)));
+            histories.add(history);
+            if (user % 3 == 0) {
+                ReputationEntity reputation = new ReputationEntity();
+                reputation.setAddress(address(prefix, user));
+                reputation.setFinalScore(0.5);
+                reputations.add(reputation);
+            }
+            TaskEntity task = new TaskEntity();
+            task.setTaskId(Bytes32.of(prefix + String.format("%040x", users + user)));
+            task.setUserAddress(address(prefix, user));
+            task.setServiceId("svc");
+            tasks.add(task);
+        }
+        taskHistoryRepository.saveAll(histories);
+        reputationRepository.saveAll(reputations);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Map<Bytes32, Integer> priorities = taskSchedulerService.calculateStaticPriorities(tasks);
+        assertEquals(4, statistics.getPrepareStatementCount(), "two reputation chunks and two aggregate chunks");
+
+        for (int user = 0; user < users; user++) {
+            // 基础 100 + 支付 15 + 信誉 0.5 加成 25 + 唯一一条历史完成时成功率加成 20
+            int expected = 100 + 15 + (user % 3 == 0 ? 25 : 0) + (user % 2 == 0 ? 20 : 0);
+            assertEquals(expected, priorities.get(tasks.get(user).getTaskId()), "user " + user);
+        }
+    }
+
+    private static Address address(String prefix, int user) {
+        return Address.of(prefix + String.format("%016x", user));
+    }
+
+    private static TaskHistoryEntity history(Address userAddress, TaskStatus status) {
+        TaskHistoryEntity history = new TaskHistoryEntity();
+        history.setTaskId(Bytes32.of(String.format("%064x", System.nanoTime())));
+        history.setIexecTaskId(Bytes32.of(String.format("%064x", 0)));
+        history.setServiceId("svc");
+        history.setUserAddress(userAddress);
+        history.setStatus(status);
+        history.setCreatedAt(LocalDateTime.now());
+        return history;
+    }
+}
@@ -0,0 +1,87 @@
+package com.blockchain.iExec.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 市场模拟器测试：一天 10 万任务在数秒内模拟完成，结果可复现，且容量模型符合排队论预期
+ */
+class MarketSimulatorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketSimulatorTest.class);
+
+    private final MarketSimulator simulator = new MarketSimulator();
+
+    @Test
+    void simulatesDayOfHundredThousandTasks() {
+        long start = System.nanoTime();
+        for (DispatchPolicy policy : DispatchPolicy.values()) {
+            for (boolean admission : new boolean[]{false, true}) {
+                SimulationConfig config = new SimulationConfig();
+                config.setPolicy(policy);
+                config.setAdmissionEnabled(admission);
+                SimulationResult result = simulator.run(config);
+                log(result);
+
+                assertEquals(100_000, result.getArrived(), 1_500);
+                // 默认派发配置（每 10 秒 10 个）每天最多提交 86400 个任务
+                assertTrue(result.getDispatched() <= 86_400);
+                assertEquals(result.getArrived(), result.getDispatched() + backlogQueued(result));
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 30_000, "simulation took " + elapsedMillis + " ms");
+
+        SimulationConfig config = new SimulationConfig();
+        config.setPolicy(DispatchPolicy.FAIR_SHARE);
+        SimulationResult first = simulator.run(config);
+        SimulationResult second = simulator.run(config.copy());
+        assertEquals(first.getCompleted(), second.getCompleted());
+        assertEquals(first.getTimedOut(), second.getTimedOut());
+        assertEquals(first.getWaitP99(), second.getWaitP99());
+        assertEquals(first.getLatencyP99(), second.getLatencyP99());
+    }
+
+    @Test
+    void capacityDrivesThroughputAndTimeouts() {
+        // 派发不受限、工作池利用率 90%：几乎全部完成且无超时
+        SimulationConfig provisioned = new SimulationConfig();
+        provisioned.setPolicy(DispatchPolicy.FIFO);
+        provisioned.setAdmissionEnabled(false);
+        provisioned.setDispatchBatchSize(50);
+        SimulationResult healthy = simulator.run(provisioned);
+        log(healthy);
+        assertTrue(healthy.getTimeoutRate() < 0.01);
+        assertTrue(healthy.getCompleted() > 0.99 * healthy.getArrived());
+        assertTrue(healthy.getWaitP99() <= provisioned.getDispatchIntervalSeconds());
+
+        // 工作池只有所需容量的六分之一：提交的任务大多在工作池中排队超时
+        SimulationConfig overloaded = provisioned.copy();
+        overloaded.setWorkers(MarketSimulator.autoWorkers(provisioned) / 6);
+        SimulationResult saturated = simulator.run(overloaded);
+        log(saturated);
+        assertTrue(saturated.getTimeoutRate() > 0.5);
+        assertTrue(saturated.getThroughputPerHour() < healthy.getThroughputPerHour() / 6);
+    }
+
+    // 仍在本地队列中的任务数 = 积压 - 在途
+    private static long backlogQueued(SimulationResult result) {
+        return result.getBacklog() - (result.getDispatched() - result.getCompleted() - result.getTimedOut());
+    }
+
+    private static void log(SimulationResult result) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+        logger.debug(String.format("%-10s admission=%-5s workers=%d arrived=%d completed=%d timeout=%.3f "
+                + "throughput=%.0f/h wait p50/p99=%.0f/%.0fs latency p50/p99=%.0f/%.0fs backlog=%d (%d events, %d ms)",
+            result.getPolicy(), result.isAdmissionEnabled(), result.getWorkers(), result.getArrived(),
+            result.getCompleted(), result.getTimeoutRate(), result.getThroughputPerHour(), result.getWaitP50(),
+            result.getWaitP99(), result.getLatencyP50(), result.getLatencyP99(), result.getBacklog(),
+            result.getEvents(), result.getElapsedMillis()));
+    }
+}
@@ -0,0 +1,47 @@
+import { writeFileSync } from "node:fs";
+import { network } from "hardhat";
+
+/**
+ * 负载测试部署脚本 - 部署 ComputeMarket 并注册压测用服务，把地址写入 JSON 供 loadtest/run.sh 读取
+ * 使用方法: LOADTEST_DEPLOYMENT=out/deployment.json npx hardhat run scripts/loadtest-deploy.ts --network localhost
+ *
+ * 环境变量:
+ *   LOADTEST_DEPLOYMENT  输出文件（默认 loadtest-deployment.json）
+ *   LOADTEST_SERVICES    注册的服务数（默认 3），价格依次为 0.001、0.002 ... ETH
+ */
+async function main() {
+  const { ethers } = await network.connect();
+
+  const output = process.env.LOADTEST_DEPLOYMENT ?? "loadtest-deployment.json";
+  const serviceCount = Number(process.env.LOADTEST_SERVICES ?? "3");
+
+  const [deployer] = await ethers.getSigners();
+  const computeMarket = await ethers.deployContract("ComputeMarket");
+  await computeMarket.waitForDeployment();
+  const address = await computeMarket.getAddress();
+
+  // 压测会发出大量交易，价格取小值避免耗尽测试账户余额
+  const services = [];
+  for (let i = 1; i <= serviceCount; i++) {
+    const price = ethers.parseEther((0.001 * i).toFixed(3));
+    const tx = await computeMarket.registerService(BigInt(i), price);
+    await tx.wait();
+    services.push({ id: i, price: price.toString() });
+  }
+
+  const deployment = {
+    address,
+    admin: deployer.address,
+    blockNumber: await ethers.provider.getBlockNumber(),
+    services,
+  };
+  writeFileSync(output, JSON.stringify(deployment, null, 2));
+  console.log(`ComputeMarket 已部署到 ${address}，注册服务 ${serviceCount} 个，写入 ${output}`);
+}
+
+main()
+  .then(() => process.exit(0))
+  .catch((error) => {
+    console.error(error);
+    process.exit(1);
+  });
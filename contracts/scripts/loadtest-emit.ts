@@ -0,0 +1,77 @@
+import { readFileSync, writeFileSync } from "node:fs";
+import { network } from "hardhat";
+
+/**
+ * 负载测试发压脚本 - 按固定速率从多个测试账户调用 buyCompute，产生 TaskCreated 事件
+ * 使用方法: LOADTEST_DEPLOYMENT=out/deployment.json npx hardhat run scripts/loadtest-emit.ts --network localhost
+ *
+ * 环境变量:
+ *   LOADTEST_DEPLOYMENT  loadtest-deploy.ts 写出的部署文件（默认 loadtest-deployment.json）
+ *   LOADTEST_RATE        每秒发送的交易数（默认 5）
+ *   LOADTEST_DURATION    发压时长，秒（默认 60）
+ *   LOADTEST_USERS       轮流发送交易的账户数（默认 10，不含部署账户）
+ *   LOADTEST_OUTPUT      发压统计输出文件（默认 loadtest-emit.json）
+ */
+async function main() {
+  const { ethers } = await network.connect();
+
+  const deployment = JSON.parse(readFileSync(process.env.LOADTEST_DEPLOYMENT ?? "loadtest-deployment.json", "utf8"));
+  const rate = Number(process.env.LOADTEST_RATE ?? "5");
+  const duration = Number(process.env.LOADTEST_DURATION ?? "60");
+  const output = process.env.LOADTEST_OUTPUT ?? "loadtest-emit.json";
+
+  const signers = (await ethers.getSigners()).slice(1);
+  const users = signers.slice(0, Math.min(Number(process.env.LOADTEST_USERS ?? "10"), signers.length));
+  const computeMarket = await ethers.getContractAt("ComputeMarket", deployment.address);
+
+  // 自行维护 nonce，发送时不等待上一笔交易上链
+  const nonces = await Promise.all(users.map((user) => user.getNonce()));
+  const pending: Promise<boolean>[] = [];
+  const total = Math.round(rate * duration);
+  const startedAt = Date.now();
+  let failed = 0;
+
+  for (let i = 0; i < total; i++) {
+    const due = startedAt + (i * 1000) / rate;
+    const delay = due - Date.now();
+    if (delay > 0) {
+      await new Promise((resolve) => setTimeout(resolve, delay));
+    }
+
+    const u = i % users.length;
+    const service = deployment.services[i % deployment.services.length];
+    try {
+      const tx = await computeMarket.connect(users[u]).buyCompute(BigInt(service.id), {
+        value: BigInt(service.price),
+        nonce: nonces[u]++,
+      });
+      pending.push(tx.wait().then((receipt) => receipt?.status === 1, () => false));
+    } catch (error) {
+      failed++;
+      console.error(`第 ${i} 笔交易发送失败:`, (error as Error).message);
+    }
+  }
+  const endedAt = Date.now();
+
+  const mined = (await Promise.all(pending)).filter((ok) => ok).length;
+  const summary = {
+    rate,
+    duration,
+    users: users.length,
+    sent: pending.length,
+    mined,
+    failed: failed + pending.length - mined,
+    startedAt,
+    endedAt,
+    actualRate: pending.length / ((endedAt - startedAt) / 1000),
+  };
+  writeFileSync(output, JSON.stringify(summary, null, 2));
+  console.log(`发送 ${summary.sent} 笔，上链 ${mined} 笔，实际速率 ${summary.actualRate.toFixed(2)} tx/s`);
+}
+
+main()
+  .then(() => process.exit(0))
+  .catch((error) => {
+    console.error(error);
+    process.exit(1);
+  });
@@ -0,0 +1,234 @@
+#!/usr/bin/env python3
+"""
+负载测试报告
+
+  report.py build <输出目录>           由 run.sh 采集的文件生成 report.json（写到标准输出）
+  report.py summary <report.json>      打印报告摘要
+  report.py compare <基线> <对比>      逐项打印两份报告的差异，用于比较不同提交
+
+延迟单位为秒；CLI 调用数同时给出桩程序日志（calls.jsonl）与后端 iexec.cli.command 计时器两个口径，
+数据库语句数取自 Hibernate 统计（db.statements 指标），均为发压前后的差值。
+"""
+
+import json
+import os
+import re
+import subprocess
+import sys
+from collections import Counter
+from datetime import datetime
+
+TERMINAL = ("Completed", "Failed")
+PERCENTILES = (50, 95, 99)
+METRIC_LINE = re.compile(r'^([a-zA-Z_:][a-zA-Z0-9_:]*)(\{(.*)\})?\s+(\S+)$')
+LABEL = re.compile(r'(\w+)="((?:[^"\\]|\\.)*)"')
+
+
+def load_json(path, default=None):
+    if not os.path.exists(path):
+        return default
+    with open(path) as f:
+        return json.load(f)
+
+
+def parse_time(value):
+    return datetime.fromisoformat(value) if value else None
+
+
+def seconds_between(start, end):
+    if start is None or end is None:
+        return None
+    return (end - start).total_seconds()
+
+
+def distribution(values):
+    values = sorted(v for v in values if v is not None)
+    if not values:
+        return {"count": 0}
+    result = {"count": len(values), "mean": round(sum(values) / len(values), 3)}
+    for p in PERCENTILES:
+        # 最近秩法
+        rank = max(1, -(-p * len(values) // 100))
+        result["p%d" % p] = round(values[rank - 1], 3)
+    result["max"] = round(values[-1], 3)
+    return result
+
+
+def parse_prometheus(path):
+    samples = {}
+    if not os.path.exists(path):
+        return samples
+    with open(path) as f:
+        for line in f:
+            match = METRIC_LINE.match(line.strip())
+            if not match or line.startswith("#"):
+                continue
+            name, _, labels, value = match.groups()
+            key = (name, tuple(sorted((k, v) for k, v in LABEL.findall(labels or "") if k != "application")))
+            try:
+                samples[key] = float(value)
+            except ValueError:
+                pass
+    return samples
+
+
+def metric_delta(before, after, name, **labels):
+    total = 0.0
+    for (metric, metric_labels), value in after.items():
+        if metric != name or any(dict(metric_labels).get(k) != v for k, v in labels.items()):
+            continue
+        total += value - before.get((metric, metric_labels), 0.0)
+    return total
+
+
+def cli_by_command(before, after):
+    counts = Counter()
+    for (metric, labels), value in after.items():
+        if metric == "iexec_cli_command_seconds_count":
+            counts[dict(labels).get("command", "unknown")] += value - before.get((metric, labels), 0.0)
+    return {k: int(v) for k, v in sorted(counts.items()) if v > 0}
+
+
+def per_task(value, tasks):
+    return round(value / tasks, 3) if tasks else None
+
+
+def git_commit(root):
+    try:
+        return subprocess.check_output(["git", "-C", root, "rev-parse", "--short", "HEAD"], text=True).strip()
+    except (OSError, subprocess.CalledProcessError):
+        return None
+
+
+def build(out):
+    root = os.path.dirname(os.path.dirname(os.path.abspath(__file__)))
+    emit = load_json(os.path.join(out, "emit.json"), {})
+    tasks = load_json(os.path.join(out, "tasks.json"), [])
+    before = parse_prometheus(os.path.join(out, "prometheus-before.txt"))
+    after = parse_prometheus(os.path.join(out, "prometheus-after.txt"))
+
+    status = Counter(t.get("status") for t in tasks)
+    terminal = [t for t in tasks if t.get("status") in TERMINAL]
+
+    event_to_running, running_to_completed, event_to_completed, detection = [], [], [], []
+    for t in tasks:
+        event = parse_time(t.get("chainEventAt")) or parse_time(t.get("eventSeenAt"))
+        running = parse_time(t.get("runningAt"))
+        completed = parse_time(t.get("completedAt"))
+        event_to_running.append(seconds_between(event, running))
+        running_to_completed.append(seconds_between(running, completed))
+        event_to_completed.append(seconds_between(event, completed))
+        detection.append(seconds_between(parse_time(t.get("chainEventAt")), parse_time(t.get("eventSeenAt"))))
+
+    stub_calls = []
+    calls_path = os.path.join(out, "stub", "calls.jsonl")
+    if os.path.exists(calls_path):
+        with open(calls_path) as f:
+            stub_calls = [json.loads(line) for line in f if line.strip()]
+    stub_by_command = Counter(c["command"] for c in stub_calls)
+
+    completed_times = [parse_time(t.get("completedAt")) for t in terminal if t.get("completedAt")]
+    first_event = min((parse_time(t.get("eventSeenAt")) for t in tasks if t.get("eventSeenAt")), default=None)
+    span = seconds_between(first_event, max(completed_times)) if completed_times else None
+
+    cli_total = metric_delta(before, after, "iexec_cli_command_seconds_count")
+    db_statements = metric_delta(before, after, "db_statements_total")
+    db_transactions = metric_delta(before, after, "db_transactions_total")
+    rpc_calls = metric_delta(before, after, "web3j_rpc_seconds_count")
+
+    return {
+        "commit": git_commit(root),
+        "generatedAt": datetime.now().isoformat(timespec="seconds"),
+        "config": {
+            "rate": emit.get("rate"),
+            "duration": emit.get("duration"),
+            "users": emit.get("users"),
+            "stub": {k: v for k, v in os.environ.items() if k.startswith("STUB_IEXEC_") and k != "STUB_IEXEC_STATE"},
+        },
+        "emitted": {k: emit.get(k) for k in ("sent", "mined", "failed", "actualRate")},
+        "tasks": {
+            "observed": len(tasks),
+            "terminal": len(terminal),
+            "byStatus": dict(sorted((k or "null", v) for k, v in status.items())),
+        },
+        "throughputPerMinute": round(len(terminal) / span * 60, 3) if span else None,
+        "latency": {
+            "detection": distribution(detection),
+            "eventToRunning": distribution(event_to_running),
+            "runningToCompleted": distribution(running_to_completed),
+            "eventToCompleted": distribution(event_to_completed),
+        },
+        "cli": {
+            "stubCalls": len(stub_calls),
+            "stubFailures": sum(1 for c in stub_calls if c.get("exitCode")),
+            "stubCallsPerTask": per_task(len(stub_calls), len(tasks)),
+            "stubByCommand": dict(sorted(stub_by_command.items())),
+            "backendCalls": int(cli_total),
+            "backendCallsPerTask": per_task(cli_total, len(tasks)),
+            "backendByCommand": cli_by_command(before, after),
+            "stubLatencyMs": distribution(c.get("latencyMs") for c in stub_calls),
+        },
+        "db": {
+            "statements": int(db_statements),
+            "statementsPerTask": per_task(db_statements, len(tasks)),
+            "transactions": int(db_transactions),
+            "transactionsPerTask": per_task(db_transactions, len(tasks)),
+        },
+        "rpc": {
+            "calls": int(rpc_calls),
+            "callsPerTask": per_task(rpc_calls, len(tasks)),
+        },
+    }
+
+
+def flatten(value, prefix=""):
+    if isinstance(value, dict):
+        items = {}
+        for k, v in value.items():
+            items.update(flatten(v, "%s.%s" % (prefix, k) if prefix else k))
+        return items
+    return {prefix: value}
+
+
+def summary(report):
+    latency = report["latency"]
+    print("commit %s: %s/%s 个任务终结，吞吐 %s 个/分钟" % (
+        report.get("commit"), report["tasks"]["terminal"], report["tasks"]["observed"], report.get("throughputPerMinute")))
+    for name in ("eventToRunning", "runningToCompleted"):
+        d = latency[name]
+        print("  %-20s p50 %s  p95 %s  p99 %s  max %s" % (name, d.get("p50"), d.get("p95"), d.get("p99"), d.get("max")))
+    print("  CLI 调用/任务 %s（后端口径 %s），DB 语句/任务 %s，RPC/任务 %s" % (
+        report["cli"]["stubCallsPerTask"], report["cli"]["backendCallsPerTask"],
+        report["db"]["statementsPerTask"], report["rpc"]["callsPerTask"]))
+
+
+def compare(base, head):
+    print("对比 %s -> %s" % (base.get("commit"), head.get("commit")))
+    a, b = flatten(base), flatten(head)
+    for key in sorted(set(a) | set(b)):
+        x, y = a.get(key), b.get(key)
+        if key in ("commit", "generatedAt") or x == y:
+            continue
+        if isinstance(x, (int, float)) and isinstance(y, (int, float)) and not isinstance(x, bool):
+            change = " (%+.1f%%)" % ((y - x) / x * 100) if x else ""
+            print("  %-40s %12s -> %-12s%s" % (key, x, y, change))
+        else:
+            print("  %-40s %12s -> %s" % (key, x, y))
+
+
+def main(args):
+    if len(args) == 2 and args[0] == "build":
+        json.dump(build(args[1]), sys.stdout, indent=2, ensure_ascii=False)
+        print()
+    elif len(args) == 2 and args[0] == "summary":
+        summary(load_json(args[1]))
+    elif len(args) == 3 and args[0] == "compare":
+        compare(load_json(args[1]), load_json(args[2]))
+    else:
+        print(__doc__.strip(), file=sys.stderr)
+        return 2
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv[1:]))
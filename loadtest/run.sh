@@ -0,0 +1,127 @@
+#!/usr/bin/env bash
+#
+# 端到端负载测试：本地 Hardhat 链 + iExec CLI 桩 + 后端，发压后等待任务收敛并生成 report.json
+#
+# 用法: loadtest/run.sh [输出目录]        （默认 loadtest/out/<时间戳>）
+#
+# 可调环境变量（其余见 stub-iexec/iexec 与 contracts/scripts/loadtest-emit.ts）:
+#   LOADTEST_RATE=5 LOADTEST_DURATION=60 LOADTEST_USERS=10 LOADTEST_SERVICES=3
+#   LOADTEST_DRAIN_TIMEOUT=900   发压结束后等待全部任务终结的最长秒数
+#   LOADTEST_SKIP_BUILD=1        跳过后端打包，直接使用已有的 exec jar
+#   STUB_IEXEC_LATENCY_MS / STUB_IEXEC_FAILURE_RATE / STUB_IEXEC_TASK_SECONDS ...
+#
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+OUT="${1:-$ROOT/loadtest/out/$(date +%Y%m%d-%H%M%S)}"
+mkdir -p "$OUT"
+OUT="$(cd "$OUT" && pwd)"
+RPC_PORT="${LOADTEST_RPC_PORT:-8545}"
+API="http://127.0.0.1:${LOADTEST_API_PORT:-8080}/api"
+DRAIN_TIMEOUT="${LOADTEST_DRAIN_TIMEOUT:-900}"
+
+export LOADTEST_RATE="${LOADTEST_RATE:-5}"
+export LOADTEST_DURATION="${LOADTEST_DURATION:-60}"
+export LOADTEST_USERS="${LOADTEST_USERS:-10}"
+export LOADTEST_SERVICES="${LOADTEST_SERVICES:-3}"
+export LOADTEST_DEPLOYMENT="$OUT/deployment.json"
+export LOADTEST_OUTPUT="$OUT/emit.json"
+export STUB_IEXEC_STATE="$OUT/stub"
+export IEXEC_WORKSPACE="$OUT/workspace"
+export IEXEC_APP_ORDER_HASH="${IEXEC_APP_ORDER_HASH:-0x$(printf 'a%.0s' {1..64})}"
+
+PIDS=()
+cleanup() {
+    for pid in "${PIDS[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+    wait 2>/dev/null || true
+}
+trap cleanup EXIT
+
+log() {
+    echo "[loadtest] $*"
+}
+
+wait_for() {
+    local name="$1" timeout="$2"
+    shift 2
+    for _ in $(seq "$timeout"); do
+        if "$@" >/dev/null 2>&1; then
+            return 0
+        fi
+        sleep 1
+    done
+    log "$name 在 ${timeout}s 内未就绪"
+    exit 1
+}
+
+mkdir -p "$STUB_IEXEC_STATE" "$IEXEC_WORKSPACE"
+log "输出目录: $OUT"
+
+# 1. 本地链与合约
+log "启动 Hardhat 节点 (端口 $RPC_PORT)"
+(cd "$ROOT/contracts" && npx hardhat node --port "$RPC_PORT" >"$OUT/hardhat.log" 2>&1) &
+PIDS+=($!)
+wait_for "Hardhat 节点" 60 curl -sf -X POST -H 'Content-Type: application/json' \
+    -d '{"jsonrpc":"2.0","id":1,"method":"eth_blockNumber","params":[]}' "http://127.0.0.1:$RPC_PORT"
+
+log "部署 ComputeMarket"
+(cd "$ROOT/contracts" && npx hardhat run scripts/loadtest-deploy.ts --network localhost)
+CONTRACT="$(python3 -c 'import json,sys; print(json.load(open(sys.argv[1]))["address"])' "$LOADTEST_DEPLOYMENT")"
+
+# 2. 后端，PATH 最前面放桩 CLI
+JAR="$ROOT/backend/target/iExec-0.0.1-SNAPSHOT-exec.jar"
+if [ -z "${LOADTEST_SKIP_BUILD:-}" ] || [ ! -f "$JAR" ]; then
+    log "打包后端"
+    (cd "$ROOT/backend" && mvn -B -q package -DskipTests)
+fi
+
+log "启动后端，合约 $CONTRACT"
+(cd "$IEXEC_WORKSPACE" && PATH="$ROOT/loadtest/stub-iexec:$PATH" java ${LOADTEST_JAVA_OPTS:-} -jar "$JAR" \
+    --web3j.client-address="http://127.0.0.1:$RPC_PORT" \
+    --contract.address="$CONTRACT" \
+    --iexec.chain=stub \
+    --spring.jpa.show-sql=false \
+    --spring.jpa.properties.hibernate.generate_statistics=true \
+    --logging.level.org.web3j=INFO \
+    >"$OUT/backend.log" 2>&1) &
+PIDS+=($!)
+wait_for "后端" 180 curl -sf "$API/actuator/health"
+
+curl -sf "$API/actuator/prometheus" >"$OUT/prometheus-before.txt"
+
+# 3. 发压
+log "发压: ${LOADTEST_RATE} tx/s × ${LOADTEST_DURATION}s，${LOADTEST_USERS} 个账户"
+(cd "$ROOT/contracts" && npx hardhat run scripts/loadtest-emit.ts --network localhost)
+
+# 4. 等待所有任务进入终态（Completed / Failed）
+EXPECTED="$(python3 -c 'import json,sys; print(json.load(open(sys.argv[1]))["mined"])' "$LOADTEST_OUTPUT")"
+log "等待 $EXPECTED 个任务终结（最长 ${DRAIN_TIMEOUT}s）"
+deadline=$((SECONDS + DRAIN_TIMEOUT))
+while [ "$SECONDS" -lt "$deadline" ]; do
+    curl -sf "$API/tasks" >"$OUT/tasks.json" || true
+    done_count="$(python3 - "$OUT/tasks.json" <<'PY'
+import json, sys
+try:
+    tasks = json.load(open(sys.argv[1]))
+except Exception:
+    tasks = []
+print(sum(1 for t in tasks if t.get("status") in ("Completed", "Failed")))
+PY
+)"
+    log "已终结 $done_count / $EXPECTED"
+    if [ "$done_count" -ge "$EXPECTED" ]; then
+        break
+    fi
+    sleep 10
+done
+
+# 5. 采集并生成报告
+curl -sf "$API/tasks" >"$OUT/tasks.json"
+curl -sf "$API/actuator/prometheus" >"$OUT/prometheus-after.txt"
+curl -sf "$API/monitor/lifecycle" >"$OUT/lifecycle.json" || true
+
+python3 "$ROOT/loadtest/report.py" build "$OUT" >"$OUT/report.json"
+log "报告: $OUT/report.json"
+python3 "$ROOT/loadtest/report.py" summary "$OUT/report.json"